@@ -0,0 +1,64 @@
+package Benchmarks;
+
+import Attributes.DataAttribute;
+import Concepts.IndividualConcept;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import MISC.Activity;
+import MISC.ChangeLog;
+import MISC.Context;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Measures recording into the change log from one and four threads,
+ * and the cost of the change log for adding attribute values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ChangeLogBenchmark {
+
+    /** a log which is shared by all threads */
+    @State(Scope.Benchmark)
+    public static class Log {
+        ChangeLog log = new ChangeLog(1 << 16);}
+
+    /** a context with an individual and a non-functional attribute, with or without change log */
+    @State(Scope.Thread)
+    public static class Values {
+        /** true if the change log is enabled */
+        @Param({"false","true"})
+        public boolean logged;
+
+        Context context;
+        DataAttribute tag;
+        IndividualConcept ann;
+        int next;
+        StringBuilder errors = new StringBuilder();
+
+        /** a new context for each iteration, such that the list of values does not grow without bounds */
+        @Setup(Level.Iteration)
+        public void setup() {
+            context = new Context("values");
+            tag = new DataAttribute("tag",context,false,null,(ConcreteType)context.getDataType("Integer"));
+            ann = new IndividualConcept("ann",context);
+            if(logged) {context.enableChangeLog(1 << 16);}
+            next = 0;}}
+
+    @Benchmark
+    @Threads(1)
+    public long recordOneThread(Log state) {
+        return state.log.record(ChangeLog.Kind.CONSTANT,Activity.ADD,"x",null,null);}
+
+    @Benchmark
+    @Threads(4)
+    public long recordFourThreads(Log state) {
+        return state.log.record(ChangeLog.Kind.CONSTANT,Activity.ADD,"x",null,null);}
+
+    @Benchmark
+    public boolean addValue(Values state) {
+        return state.ann.add(state.tag,new IntegerObject(state.next++),Concepts.Scope.LOCAL,state.context,state.errors);}
+}
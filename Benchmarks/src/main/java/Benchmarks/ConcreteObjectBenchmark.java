@@ -0,0 +1,37 @@
+package Benchmarks;
+
+import AbstractObjects.Operators;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/** Compares the generated comparators of ConcreteObject with Method.invoke, the dispatch used before. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConcreteObjectBenchmark {
+
+    private IntegerObject[] objects = new IntegerObject[1024];
+    private Method method;
+    private int i = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        for(int j = 0; j < objects.length; ++j) {objects[j] = new IntegerObject(j);}
+        method = IntegerObject.class.getDeclaredMethod("compare",Operators.class,IntegerObject.class);}
+
+    @Benchmark
+    public boolean dispatched() {
+        ++i;
+        return objects[i & 1023].compare(Operators.LESS,objects[(i * 7) & 1023]);}
+
+    @Benchmark
+    public boolean reflected() throws Exception {
+        ++i;
+        return (Boolean)method.invoke(objects[i & 1023],Operators.LESS,objects[(i * 7) & 1023]);}
+}
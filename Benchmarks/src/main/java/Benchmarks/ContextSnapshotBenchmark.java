@@ -0,0 +1,71 @@
+package Benchmarks;
+
+import Attributes.DataAttribute;
+import Concepts.IndividualConcept;
+import Concepts.SetConcept;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import IO.ContextSnapshot;
+import MISC.Context;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Compares building a context through the API with writing and reading its snapshot.
+ * Each individual has one functional and two non-functional integer values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class ContextSnapshotBenchmark {
+
+    /** the number of individuals */
+    @Param({"100000"})
+    public int size;
+
+    private Context context;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        context = build(size);
+        file = File.createTempFile("benchmark",".snap");
+        file.deleteOnExit();
+        StringBuilder errors = new StringBuilder();
+        if(!ContextSnapshot.write(context,file,errors)) {throw new IOException(errors.toString());}}
+
+    @TearDown
+    public void tearDown() {file.delete();}
+
+    /** creates a context with 'size' individuals and their values through the API */
+    private static Context build(int size) {
+        Context context = new Context("large");
+        StringBuilder errors = new StringBuilder();
+        SetConcept person = new SetConcept("person",context);
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute age = new DataAttribute("age",context,true,null,integer);
+        DataAttribute code = new DataAttribute("code",context,false,null,integer);
+        for(int i = 0; i < size; ++i) {
+            IndividualConcept individual = new IndividualConcept("p" + i,context,person);
+            individual.add(age,new IntegerObject(i % 100),Concepts.Scope.LOCAL,context,errors);
+            individual.add(code,new IntegerObject(i),Concepts.Scope.LOCAL,context,errors);
+            individual.add(code,new IntegerObject(-i),Concepts.Scope.LOCAL,context,errors);}
+        return context;}
+
+    @Benchmark
+    public Context buildThroughApi() {return build(size);}
+
+    @Benchmark
+    public boolean write() {return ContextSnapshot.write(context,file,new StringBuilder());}
+
+    @Benchmark
+    public Context read() {
+        Context copy = new Context("copy");
+        ContextSnapshot.read(file,copy,new StringBuilder());
+        return copy;}
+}
@@ -0,0 +1,64 @@
+package Benchmarks;
+
+import AbstractObjects.DataObject;
+import Attributes.DataAttribute;
+import Concepts.Concept;
+import Concepts.DerivedConcept;
+import Concepts.IndividualConcept;
+import Concepts.SetConcept;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import MISC.Context;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+/** Compares DerivedConcept.restructureHierarchies, which evaluates the filter in parallel over the frozen hierarchy,
+ * with calling classify for each individual. Each invocation works on a fresh context, since both change the hierarchy.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class DerivedConceptBenchmark {
+
+    /** the number of individuals below 'person' */
+    @Param({"1000000"})
+    public int size;
+
+    private Context context;
+    private DerivedConcept adult;
+    private ArrayList<Concept> individuals;
+
+    /** creates a context with 'size' persons aged 0 to 99 and the DerivedConcept 'adult' (age at least 18). */
+    @Setup(Level.Invocation)
+    public void setup() {
+        context = new Context("persons");
+        SetConcept person = new SetConcept("person",context);
+        DataAttribute age = new DataAttribute("age",context,true,null,(ConcreteType)context.getDataType("Integer"));
+        StringBuilder errors = new StringBuilder();
+        individuals = new ArrayList<>(size);
+        for(int i = 0; i < size; ++i) {
+            IndividualConcept individual = new IndividualConcept("p" + i,context,person);
+            individual.add(age,new IntegerObject(i % 100),Concepts.Scope.LOCAL,context,errors);
+            individuals.add(individual);}
+        BiPredicate<Concept,Context> isAdult = (concept,ctx) -> {
+            DataObject value = concept.getFirst(age,ctx);
+            return value != null && (Integer)value.get() >= 18;};
+        adult = new DerivedConcept("adult",context,person,isAdult);}
+
+    @Benchmark
+    public int restructureHierarchies() {
+        return DerivedConcept.restructureHierarchies(Collections.singletonList(adult),context);}
+
+    @Benchmark
+    public int classifyOneByOne() {
+        int classified = 0;
+        for(Concept individual : individuals) {if(adult.classify(individual,context)) {++classified;}}
+        return classified;}
+}
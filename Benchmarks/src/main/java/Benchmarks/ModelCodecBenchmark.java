@@ -0,0 +1,58 @@
+package Benchmarks;
+
+import AbstractObjects.DataObject;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.AtomicTypes.StringObject;
+import IO.ModelCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Compares the round trip of a list of data objects through the ModelCodec with Java serialization.
+ * Half of the values are strings with only ten different texts, which the ModelCodec writes once each.
+ * The encoded sizes are printed at the setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class ModelCodecBenchmark {
+
+    /** the number of values */
+    @Param({"2000"})
+    public int size;
+
+    private ArrayList<DataObject> values;
+
+    @Setup
+    public void setup() throws IOException {
+        values = new ArrayList<>();
+        for(int i = 0; i < size/2; ++i) {values.add(new StringObject("s" + (i % 10))); values.add(new IntegerObject(i));}
+        System.out.printf("%nModelCodec: %d values, %d bytes; Java serialization %d bytes%n",
+                values.size(),ModelCodec.toBytes(values).length,serialize(values).length);}
+
+    /** @return the values written by Java serialization */
+    private static byte[] serialize(Object values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {out.writeObject(values);}
+        return bytes.toByteArray();}
+
+    @Benchmark
+    public int modelCodec() throws IOException {
+        byte[] bytes = ModelCodec.toBytes(values);
+        return ((List)ModelCodec.fromBytes(bytes,null,new StringBuilder())).size();}
+
+    @Benchmark
+    public int javaSerialization() throws IOException, ClassNotFoundException {
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(values)))) {
+            return ((List)in.readObject()).size();}}
+}
@@ -0,0 +1,70 @@
+package Benchmarks;
+
+import Attributes.DataAttribute;
+import Concepts.Concept;
+import Concepts.IndividualConcept;
+import Concepts.SetConcept;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import Database.FileConceptStorage;
+import MISC.Context;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Measures random reads of attribute values with all concepts resident and with a cache for a tenth of them.
+ * 90% of the reads go to 10% of the concepts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class PagingBenchmark {
+
+    /** the number of individuals */
+    @Param({"20000"})
+    public int size;
+
+    /** the capacity of the pager as a fraction of the individuals */
+    @Param({"1.0", "0.1"})
+    public double resident;
+
+    private File file;
+    private FileConceptStorage storage;
+    private Context context;
+    private DataAttribute legs;
+    private Concept[] concepts;
+    private final Random random = new Random(1);
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("benchmark",".dat");
+        storage = new FileConceptStorage(file);
+        context = new Context("paged");
+        context.enablePaging(storage,(int)(size * resident));
+        StringBuilder errors = new StringBuilder();
+        SetConcept person = new SetConcept("person",context);
+        legs = new DataAttribute("legs",context,false,null,(ConcreteType)context.getDataType("Integer"));
+        concepts = new Concept[size];
+        for(int i = 0; i < size; ++i) {
+            IndividualConcept individual = new IndividualConcept("p" + i,context,person);
+            individual.add(legs,new IntegerObject(i),Concepts.Scope.LOCAL,context,errors);
+            individual.add(legs,new IntegerObject(i+1),Concepts.Scope.LOCAL,context,errors);
+            concepts[i] = individual;}
+        if(errors.length() > 0) {throw new IOException(errors.toString());}}
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.close();
+        file.delete();}
+
+    @Benchmark
+    public Object read() {
+        int index = (random.nextInt(10) == 0) ? random.nextInt(size) : random.nextInt(size / 10);
+        return concepts[index].getFirst(legs,context);}
+}
@@ -0,0 +1,53 @@
+package Benchmarks;
+
+import Concepts.IndividualConcept;
+import Concepts.SetConcept;
+import Database.StorageEngine;
+import MISC.Context;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Measures the committed changes per second: each operation creates a concept and commits it.
+ * With several threads (-t 8), the concurrent commits share the disk writes (group commit).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class StorageEngineBenchmark {
+
+    private File directory;
+    private Context context;
+    private StorageEngine engine;
+    private SetConcept person;
+    /** numbers the new concepts */
+    private final AtomicLong names = new AtomicLong();
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("benchmark").toFile();
+        context = new Context("benchmark");
+        StringBuilder errors = new StringBuilder();
+        engine = StorageEngine.open(directory,context,1L << 30,errors);
+        if(engine == null) {throw new IOException(errors.toString());}
+        person = new SetConcept("person",context);}
+
+    @TearDown
+    public void tearDown() {
+        engine.close(new StringBuilder());
+        File[] files = directory.listFiles();
+        if(files != null) {for(File file : files) {file.delete();}}
+        directory.delete();}
+
+    @Benchmark
+    public boolean commitConcept() {
+        new IndividualConcept("x" + names.incrementAndGet(),context,person);
+        return engine.commit();}
+}
@@ -0,0 +1,58 @@
+package Benchmarks;
+
+import AbstractObjects.StringInterpretation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Measures the lookup throughput of StringInterpretation.getConcept with concurrent readers while one writer inserts concepts.
+ * The group 'locked' synchronizes the lookups on the interpretation and stands for the former locked tables.
+ * The number of reader threads is 4; it can be changed with the option -tg, e.g. -tg 1,1 for one reader.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class StringInterpretationBenchmark {
+
+    private StringInterpretation<String,String,String,String> interpretation;
+    private String[] names = new String[10000];
+
+    /** the position of a reader or writer in the names */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i = 0;}
+
+    @Setup
+    public void setup() {
+        interpretation = new StringInterpretation<>();
+        for(int i = 0; i < names.length; ++i) {names[i] = "c" + i; interpretation.putConcept(names[i],names[i]);}}
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(4)
+    public String lookup(Cursor cursor) {
+        cursor.i = (cursor.i * 31 + 7) % names.length;
+        return interpretation.getConcept(names[cursor.i]);}
+
+    @Benchmark
+    @Group("lockFree")
+    @GroupThreads(1)
+    public void insert(Cursor cursor) {
+        interpretation.putConcept("new" + (cursor.i++ & 0xFFFF),"new");}
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(4)
+    public String lockedLookup(Cursor cursor) {
+        cursor.i = (cursor.i * 31 + 7) % names.length;
+        synchronized (interpretation) {return interpretation.getConcept(names[cursor.i]);}}
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public void lockedInsert(Cursor cursor) {
+        interpretation.putConcept("new" + (cursor.i++ & 0xFFFF),"new");}
+}
@@ -26,6 +26,9 @@ public class ItemWithId implements Serializable {
     /** the pathname of the data block which introduced this item. */
     private String dataBlockName = null;
 
+    /** the item's dense id in its context (-1 if it has none) */
+    private transient int id = -1;
+
     /** the empty constructor */
     public ItemWithId(){}
 
@@ -49,6 +52,7 @@ public class ItemWithId implements Serializable {
 
 
     /** This method reads the item, and integrates it into the internal data structures.
+     * The transient id would be 0 after deserialization; it is reset to -1 (no id).
      *
      * @param in    where to read the item from.
      * @throws IOException
@@ -56,6 +60,7 @@ public class ItemWithId implements Serializable {
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
+        id = -1;
     }
 
 
@@ -99,6 +104,24 @@ public class ItemWithId implements Serializable {
         return this;
     }
 
+    /** returns the item's dense id in its context.
+     * The ids are given by the context's IdAllocators. They are 0,1,2,... and are reused after the item is removed.
+     * They can be used to index arrays and bitsets instead of hashing the pathnames.
+     * <br>
+     * The id is transient: a deserialized item has the id -1 until it is put into a context again,
+     * where it gets a new id, which may differ from the old one.
+     * Items which are created in a fork get no id either, since only the root context allocates ids.
+     *
+     * @return the item's id, or -1 if it has none.
+     */
+    public int getId() {return id;}
+
+    /** sets the item's dense id. It should only be called by an IdAllocator.
+     *
+     * @param id the new id.
+     */
+    public void setId(int id) {this.id = id;}
+
     /** sets the data block that introduced the item.
      *
      * @param dataBlockName the data block which introduce the item.
@@ -127,6 +150,7 @@ public class ItemWithId implements Serializable {
      */
     @Override
     public boolean equals(Object object) {
+        if(object == this) {return true;}
         return object != null && this.getClass() == object.getClass() &&
                 pathname.equals(((ItemWithId)object).pathname);}
 
@@ -1,8 +1,9 @@
 package AbstractObjects;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -12,32 +13,123 @@ import java.util.function.Function;
  * The insertion and removal of constants, concepts and attributes can be watched by observers.
  * An observer is a BiConsumer with the objects as first argument and true/false as second argument.
  * true means insertion, false means removal.
+ * <br>
+ * The tables are ConcurrentHashMaps. Lookups, counts and iterations are not synchronized and never block.
+ * Iterations are weakly consistent: they may or may not reflect insertions and removals which happen meanwhile.
+ * Insertions and removals are synchronized, such that the observers see them in a consistent order.
+ * The observer lists are copy-on-write lists, which can be changed while the observers are called.
+ * <br>
+ * An interpretation may have a parent interpretation (see Context.fork).
+ * Then the tables contain only the entries which have been inserted into this interpretation.
+ * Lookups which fail fall through to the parent, unless the identifier has been removed in this interpretation.
+ * Removals of the parent's entries are recorded in 'removed' sets; the parent itself is never changed.
+ * Counts and iterations combine the own entries with the parent's visible entries.
  */
 public class StringInterpretation<Constant,Concept,Attribute, DataType>
         implements Interpretation<String,Constant,String,Concept,String,Attribute,String, DataType> {
     /** for mapping identifiers to constants */
-    private final HashMap<String,Constant>   constants  = new HashMap();
+    private final ConcurrentHashMap<String,Constant>   constants  = new ConcurrentHashMap<>();
     /** observers for the insertion and removal of constants. */
-    private final ArrayList<BiConsumer<Constant,Boolean>> constantObservers = new ArrayList<>();
+    private final CopyOnWriteArrayList<BiConsumer<Constant,Boolean>> constantObservers = new CopyOnWriteArrayList<>();
 
     /** for mapping identifiers to concepts */
-    private final HashMap<String,Concept>    concepts   = new HashMap();
+    private final ConcurrentHashMap<String,Concept>    concepts   = new ConcurrentHashMap<>();
     /** observers for the insertion and removal of constants. */
-    private final ArrayList<BiConsumer<Concept,Boolean>> conceptObservers = new ArrayList<>();
+    private final CopyOnWriteArrayList<BiConsumer<Concept,Boolean>> conceptObservers = new CopyOnWriteArrayList<>();
 
     /** for mapping identifiers to attributes */
-    private final HashMap<String,Attribute>  attributes = new HashMap();
+    private final ConcurrentHashMap<String,Attribute>  attributes = new ConcurrentHashMap<>();
     /** observers for the insertion and removal of constants. */
-    private final ArrayList<BiConsumer<Attribute,Boolean>> attributeObservers = new ArrayList<>();
+    private final CopyOnWriteArrayList<BiConsumer<Attribute,Boolean>> attributeObservers = new CopyOnWriteArrayList<>();
 
     /** for mapping identifiers to data types */
-    private final HashMap<String, DataType>  dataTypes   = new HashMap();
+    private final ConcurrentHashMap<String, DataType>  dataTypes   = new ConcurrentHashMap<>();
     /** observers for the insertion and removal of constants. */
-    private final ArrayList<BiConsumer<DataType,Boolean>> datatypeObservers = new ArrayList<>();
+    private final CopyOnWriteArrayList<BiConsumer<DataType,Boolean>> datatypeObservers = new CopyOnWriteArrayList<>();
+
+    /** the parent interpretation, or null */
+    private final StringInterpretation<Constant,Concept,Attribute,DataType> parent;
+
+    /** the identifiers of the parent's entries which have been removed in this interpretation (null if there is no parent) */
+    private final Set<String> removedConstants, removedConcepts, removedAttributes, removedDataTypes;
+
+    /** the number of the parent's concepts which are hidden by this interpretation (removed or replaced) */
+    private volatile int hiddenConcepts = 0;
+
+    /** creates an empty interpretation */
+    public StringInterpretation() {this(null);}
+
+    /** creates an interpretation whose lookups fall through to the parent.
+     *
+     * @param parent the parent interpretation, or null.
+     */
+    protected StringInterpretation(StringInterpretation<Constant,Concept,Attribute,DataType> parent) {
+        this.parent = parent;
+        if(parent == null) {
+            removedConstants = null; removedConcepts = null; removedAttributes = null; removedDataTypes = null;}
+        else {
+            removedConstants  = ConcurrentHashMap.newKeySet(); removedConcepts  = ConcurrentHashMap.newKeySet();
+            removedAttributes = ConcurrentHashMap.newKeySet(); removedDataTypes = ConcurrentHashMap.newKeySet();}}
+
+    /** looks the identifier up in the table, and in the parent if it has not been removed here.
+     *
+     * @param table    one of the tables
+     * @param removed  the corresponding removed identifiers (null if there is no parent)
+     * @param id       an identifier
+     * @param inParent the lookup in the parent
+     * @return the entry, or null.
+     */
+    private static <T> T lookup(ConcurrentHashMap<String,T> table, Set<String> removed, String id, Function<String,T> inParent) {
+        T item = table.get(id);
+        if(item != null || removed == null || removed.contains(id)) {return item;}
+        return inParent.apply(id);}
+
+    /** inserts an entry into a table.
+     *
+     * @param table   one of the tables
+     * @param removed the corresponding removed identifiers (null if there is no parent)
+     * @param id      the identifier
+     * @param item    the entry
+     */
+    private static <T> void insert(ConcurrentHashMap<String,T> table, Set<String> removed, String id, T item) {
+        table.put(id,item);
+        if(removed != null) {removed.remove(id);}}
+
+    /** removes an entry from a table. An entry of the parent is recorded as removed.
+     *
+     * @param table    one of the tables
+     * @param removed  the corresponding removed identifiers (null if there is no parent)
+     * @param id       the identifier
+     * @param inParent the lookup in the parent
+     * @return the removed entry, or null.
+     */
+    private static <T> T delete(ConcurrentHashMap<String,T> table, Set<String> removed, String id, Function<String,T> inParent) {
+        T item = table.remove(id);
+        if(removed == null || removed.contains(id)) {return item;}
+        T inherited = inParent.apply(id);
+        if(inherited == null) {return item;}
+        removed.add(id);
+        return (item == null) ? inherited : item;}
+
+    /** checks whether the parent's entry with the identifier is hidden by this interpretation.
+     *
+     * @param table   one of the tables
+     * @param removed the corresponding removed identifiers
+     * @param id      an identifier
+     * @return true if the identifier is in the table or has been removed.
+     */
+    private static <T> boolean isHidden(ConcurrentHashMap<String,T> table, Set<String> removed, String id) {
+        return table.containsKey(id) || removed.contains(id);}
+
+    /** @return the parent interpretation, or null */
+    public StringInterpretation<Constant,Concept,Attribute,DataType> getParent() {return parent;}
 
     /** clears the interpretation */
     public synchronized void clear() {
         constants.clear(); concepts.clear(); attributes.clear(); dataTypes.clear();
+        if(parent != null) {
+            removedConstants.clear(); removedConcepts.clear(); removedAttributes.clear(); removedDataTypes.clear();
+            hiddenConcepts = 0;}
         constantObservers.clear();conceptObservers.clear();attributeObservers.clear();datatypeObservers.clear();
     }
 
@@ -116,18 +208,18 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @return the constant, or null if there is none.
      */
     @Override
-    public synchronized Constant getConstant(String id) {return constants.get(id);}
+    public Constant getConstant(String id) {return lookup(constants,removedConstants,id,key -> parent.getConstant(key));}
 
     /** adds a constant with a given applicationName to the interpretation.
-     * The observers are activated before the constant is inserted.
+     * The observers are activated after the constant is inserted.
      *
      * @param id   the identifier for the constant.
      * @param constant the constant itself.
      */
     @Override
     public synchronized void putConstant(String id, Constant constant) {
-        for(BiConsumer<Constant,Boolean> observer : constantObservers) {observer.accept(constant,true);}
-        constants.put(id,constant);}
+        insert(constants,removedConstants,id,constant);
+        for(BiConsumer<Constant,Boolean> observer : constantObservers) {observer.accept(constant,true);}}
 
     /** removes a constant with a given applicationName from the interpretation.
      * The observers are activated after the constant is removed.
@@ -135,9 +227,8 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param id   the identifier for the constant.
      */
     public synchronized void removeConstant(String id) {
-        Constant constant = constants.get(id);
+        Constant constant = delete(constants,removedConstants,id,key -> parent.getConstant(key));
         if(constant != null) {
-            constants.remove(id);
             for(BiConsumer<Constant,Boolean> observer : constantObservers) {observer.accept(constant,false);}}}
 
     /** checks if the given applicationName denotes a constant.
@@ -145,13 +236,26 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param id the applicationName to be checked
      * @return true if the applicationName denotes a constant.
      */
-    public boolean isConstant(String id) {return constants.get(id) != null;}
+    public boolean isConstant(String id) {return getConstant(id) != null;}
 
     /** counts the number of constants.
      *
      * @return the number of constants.
      */
-    public synchronized int nConstants() {return constants.size();}
+    public int nConstants() {
+        if(parent == null) {return constants.size();}
+        int[] size = new int[]{constants.size()};
+        parent.forEachConstant((id,constant) -> {if(!isHidden(constants,removedConstants,id)) {++size[0];}});
+        return size[0];}
+
+    /** applies the given function to each (identifier,constant)-pair
+     *
+     * @param consumer the function to be applied.
+     */
+    public void forEachConstant(BiConsumer<String,Constant> consumer) {
+        constants.forEach(consumer);
+        if(parent != null) {
+            parent.forEachConstant((id,constant) -> {if(!isHidden(constants,removedConstants,id)) {consumer.accept(id,constant);}});}}
 
     /**************************************** Concepts ***************************************/
 
@@ -161,18 +265,40 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @return the concept, or null if there is none.
      */
     @Override
-    public synchronized Concept getConcept(String id) {return concepts.get(id);}
+    public Concept getConcept(String id) {return lookup(concepts,removedConcepts,id,key -> parent.getConcept(key));}
 
     /** adds a concept with a given applicationName to the interpretation.
-     * The observers are activated before the concept is inserted.
+     * The observers are activated after the concept is inserted.
      *
      * @param id   the identifier for the concept.
      * @param concept the concept itself.
      */
     @Override
     public synchronized void putConcept(String id, Concept concept) {
-        for(BiConsumer<Concept,Boolean> observer : conceptObservers) {observer.accept(concept,true);}
-        concepts.put(id,concept);}
+        if(showsParentConcept(id)) {++hiddenConcepts;}
+        insert(concepts,removedConcepts,id,concept);
+        for(BiConsumer<Concept,Boolean> observer : conceptObservers) {observer.accept(concept,true);}}
+
+    /** adds many concepts in one synchronized step, without calling the observers.
+     * This is for bulk loading: notifyConceptObservers must be called for the concepts afterwards (see Context.putConcepts).
+     *
+     * @param newConcepts maps the identifiers to the concepts.
+     */
+    public synchronized void putConcepts(Map<String,Concept> newConcepts) {
+        if(parent != null) {
+            int hidden = 0;
+            for(String id : newConcepts.keySet()) {if(showsParentConcept(id)) {++hidden;}}
+            hiddenConcepts += hidden;}
+        concepts.putAll(newConcepts);
+        if(removedConcepts != null) {removedConcepts.removeAll(newConcepts.keySet());}}
+
+    /** calls the concept observers.
+     *
+     * @param concept a concept
+     * @param added   true if the concept has been added, false if it has been removed.
+     */
+    public void notifyConceptObservers(Concept concept, boolean added) {
+        for(BiConsumer<Concept,Boolean> observer : conceptObservers) {observer.accept(concept,added);}}
 
     /** removes the concept with the given applicationName.
      * The observers are activated after the concept is removed.
@@ -180,9 +306,9 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param id the identifier for the concept to be removed.
      */
     public synchronized void removeConcept(String id) {
-        Concept concept = concepts.get(id);
+        if(showsParentConcept(id)) {++hiddenConcepts;}
+        Concept concept = delete(concepts,removedConcepts,id,key -> parent.getConcept(key));
         if(concept != null) {
-            concepts.remove(id);
             for(BiConsumer<Concept,Boolean> observer : conceptObservers) {observer.accept(concept,false);}}}
 
     /** checks if the given identifier denotes a concept
@@ -190,20 +316,35 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param id any string
      * @return true if the identifier denotes a concept.
      */
-    public synchronized boolean isConcept(String id) {return concepts.get(id) != null;}
+    public boolean isConcept(String id) {return getConcept(id) != null;}
 
     /** counts the number of concepts.
+     * With a parent, it takes constant time per ancestor: the parent's concepts are counted when they are hidden,
+     * which is correct since the parent does not change while it has children (see Context.fork).
      *
      * @return the number of concepts.
      */
-    public synchronized int nConcepts() {return concepts.size();}
+    public int nConcepts() {
+        if(parent == null) {return concepts.size();}
+        return concepts.size() + parent.nConcepts() - hiddenConcepts;}
+
+    /** checks whether the identifier denotes a concept of the parent which is still visible here.
+     * Inserting or removing the identifier then hides the parent's concept.
+     *
+     * @param id an identifier
+     * @return true if the parent's concept with the identifier is visible in this interpretation.
+     */
+    private boolean showsParentConcept(String id) {
+        return parent != null && !isHidden(concepts,removedConcepts,id) && parent.getConcept(id) != null;}
 
     /** applies the given function to each (identifier,concept)-pair
      *
      * @param consumer the function to be applied.
      */
-    public synchronized void forEachConcept(BiConsumer<String,Concept> consumer) {
-        concepts.forEach((id, concept) -> consumer.accept(id,concept));}
+    public void forEachConcept(BiConsumer<String,Concept> consumer) {
+        concepts.forEach((id, concept) -> consumer.accept(id,concept));
+        if(parent != null) {
+            parent.forEachConcept((id,concept) -> {if(!isHidden(concepts,removedConcepts,id)) {consumer.accept(id,concept);}});}}
 
     /** searches through the concepts until the given function returns non-null.
      *
@@ -211,11 +352,12 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param <T> the result-type of the function.
      * @return the first non-null value
      */
-    public synchronized <T> T findInConcepts(BiFunction<String,Concept,T> function) {
+    public <T> T findInConcepts(BiFunction<String,Concept,T> function) {
         for(Map.Entry<String,Concept> entry : concepts.entrySet()) {
             T value = function.apply(entry.getKey(),entry.getValue());
             if(value != null) {return value;}}
-        return null;}
+        if(parent == null) {return null;}
+        return parent.findInConcepts((String id, Concept concept) -> isHidden(concepts,removedConcepts,id) ? null : function.apply(id,concept));}
 
     /** searches through the concepts until the first non-null value is returned by the function.
      *
@@ -223,11 +365,12 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param <T> the return type of the function.
      * @return the first non-null value.
      */
-    public synchronized <T> T findInConcepts(Function<Concept,T> function) {
+    public <T> T findInConcepts(Function<Concept,T> function) {
         for(Concept concept : concepts.values()) {
             T value = function.apply(concept);
             if(value != null) {return value;}}
-        return null;}
+        if(parent == null) {return null;}
+        return parent.findInConcepts((String id, Concept concept) -> isHidden(concepts,removedConcepts,id) ? null : function.apply(concept));}
 
     /**************************************** Attributes ***************************************/
 
@@ -237,18 +380,18 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @return the attribute, or null if there is none.
      */
     @Override
-    public synchronized Attribute getAttribute(String id) {return attributes.get(id);}
+    public Attribute getAttribute(String id) {return lookup(attributes,removedAttributes,id,key -> parent.getAttribute(key));}
 
     /** inserts the (identifier, attribute)-pair into the interpretation.
-     * The observers are activated before the attribute is inserted.
+     * The observers are activated after the attribute is inserted.
      *
      * @param id the identifier
      * @param attribute the attribute.
      */
     @Override
     public synchronized void putAttribute(String id, Attribute attribute) {
-        for(BiConsumer<Attribute,Boolean> observer : attributeObservers) {observer.accept(attribute,true);}
-        attributes.put(id,attribute);}
+        insert(attributes,removedAttributes,id,attribute);
+        for(BiConsumer<Attribute,Boolean> observer : attributeObservers) {observer.accept(attribute,true);}}
 
     /** removes the attribute with the given identifier from the interpretation.
      * The observers are activated after the attribute is removed.
@@ -256,9 +399,8 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param id the identifier
      */
     public synchronized void removeAttribute(String id) {
-        Attribute attribute = attributes.get(id);
+        Attribute attribute = delete(attributes,removedAttributes,id,key -> parent.getAttribute(key));
         if(attribute != null) {
-            attributes.remove(id,attribute);
             for(BiConsumer<Attribute,Boolean> observer : attributeObservers) {observer.accept(attribute,false);}}}
 
 
@@ -267,27 +409,33 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param id the string to be checked.
      * @return true if the string denotes an attribute.
      */
-    public synchronized boolean isAttribute(String id) {return attributes.get(id) != null;}
+    public boolean isAttribute(String id) {return getAttribute(id) != null;}
 
     /** counts the number of attributes in the interpretation.
      *
      * @return the number of attributes.
      */
-    public synchronized int nAttributes() {return attributes.size();}
+    public int nAttributes() {
+        if(parent == null) {return attributes.size();}
+        int[] size = new int[]{attributes.size()};
+        parent.forEachAttribute((id,attribute) -> {if(!isHidden(attributes,removedAttributes,id)) {++size[0];}});
+        return size[0];}
 
     /** applies the consumer to each (identifier, attribute)-pair of the interpretation
      *
      * @param consumer the method to be applied to the (identifier, attribute)-pair
      */
-    public synchronized void forEachAttribute(BiConsumer<String,Attribute> consumer) {
-        attributes.forEach((id, attribute) -> consumer.accept(id,attribute));}
+    public void forEachAttribute(BiConsumer<String,Attribute> consumer) {
+        attributes.forEach((id, attribute) -> consumer.accept(id,attribute));
+        if(parent != null) {
+            parent.forEachAttribute((id,attribute) -> {if(!isHidden(attributes,removedAttributes,id)) {consumer.accept(id,attribute);}});}}
 
     /** applies the consumer to each attribute pair of the interpretation
      *
      * @param consumer the function to be applied to the attributes.
      */
-    public synchronized void forEachAttribute(Consumer<Attribute> consumer) {
-        attributes.forEach((id, attribute) -> consumer.accept(attribute));}
+    public void forEachAttribute(Consumer<Attribute> consumer) {
+        forEachAttribute((id, attribute) -> consumer.accept(attribute));}
 
     /** searches through the attributes until the first non-null value is returned by the function.
      *
@@ -295,11 +443,12 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param <T> the return type of the function.
      * @return the first non-null value.
      */
-    public synchronized <T> T findInAttributes(BiFunction<String,Attribute,T> function) {
+    public <T> T findInAttributes(BiFunction<String,Attribute,T> function) {
         for(Map.Entry<String,Attribute> entry : attributes.entrySet()) {
             T value = function.apply(entry.getKey(),entry.getValue());
             if(value != null) {return value;}}
-        return null;}
+        if(parent == null) {return null;}
+        return parent.findInAttributes((String id, Attribute attribute) -> isHidden(attributes,removedAttributes,id) ? null : function.apply(id,attribute));}
 
 
     /** searches through the attributes until the first non-null value is returned by the function.
@@ -308,11 +457,12 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param <T> the return type of the function.
      * @return the first non-null value.
      */
-    public synchronized <T> T findInAttributes(Function<Attribute,T> function) {
+    public <T> T findInAttributes(Function<Attribute,T> function) {
         for(Attribute attribute : attributes.values()) {
             T value = function.apply(attribute);
             if(value != null) {return value;}}
-        return null;}
+        if(parent == null) {return null;}
+        return parent.findInAttributes((String id, Attribute attribute) -> isHidden(attributes,removedAttributes,id) ? null : function.apply(attribute));}
 
     /**************************************** DataOld Types ***************************************/
 
@@ -321,17 +471,17 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param id the attribute applicationName
      * @return the attribute, or null if there is none.
      */
-    public synchronized DataType getDataType(String id) {return dataTypes.get(id);}
+    public DataType getDataType(String id) {return lookup(dataTypes,removedDataTypes,id,key -> parent.getDataType(key));}
 
     /** inserts the (identifier, datatype)-pair into the interpretation.
-     * The observers are activated before the dataTape is inserted.
+     * The observers are activated after the dataTape is inserted.
      *
      * @param id the identifier
      * @param dataType the datatype.
      */
     public synchronized void putDataType(String id, DataType dataType) {
-        for(BiConsumer<DataType,Boolean> observer : datatypeObservers) {observer.accept(dataType,true);}
-        dataTypes.put(id,dataType);}
+        insert(dataTypes,removedDataTypes,id,dataType);
+        for(BiConsumer<DataType,Boolean> observer : datatypeObservers) {observer.accept(dataType,true);}}
 
     /** removes the datatype with the given identifier.
      * The observers are activated after the datatype is inserted.
@@ -339,16 +489,35 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      * @param id the identifier of the datatype to be removed.
      */
     public synchronized void removeDataType(String id) {
-        DataType dataType = dataTypes.get(id);
+        DataType dataType = delete(dataTypes,removedDataTypes,id,key -> parent.getDataType(key));
         if(dataType != null) {
-            dataTypes.remove(id);
             for(BiConsumer<DataType,Boolean> observer : datatypeObservers) {observer.accept(dataType,false);}}}
 
+    /** applies the consumer to each datatype of the interpretation
+     *
+     * @param consumer the function to be applied to the datatypes.
+     */
+    public void forEachDataType(Consumer<DataType> consumer) {
+        forEachDataTypeEntry((id, dataType) -> consumer.accept(dataType));}
+
+    /** applies the consumer to each (identifier,datatype)-pair, including the parent's visible pairs
+     *
+     * @param consumer the function to be applied.
+     */
+    private void forEachDataTypeEntry(BiConsumer<String,DataType> consumer) {
+        dataTypes.forEach(consumer);
+        if(parent != null) {
+            parent.forEachDataTypeEntry((id,dataType) -> {if(!isHidden(dataTypes,removedDataTypes,id)) {consumer.accept(id,dataType);}});}}
+
     /** counts the number of datatypes in the interpretation.
      *
      * @return the number of datatypes.
      */
-    public synchronized int nDataTypes() {return dataTypes.size();}
+    public int nDataTypes() {
+        if(parent == null) {return dataTypes.size();}
+        int[] size = new int[]{dataTypes.size()};
+        parent.forEachDataTypeEntry((id,dataType) -> {if(!isHidden(dataTypes,removedDataTypes,id)) {++size[0];}});
+        return size[0];}
 
     /**************************************** General ***************************************/
 
@@ -356,7 +525,7 @@ public class StringInterpretation<Constant,Concept,Attribute, DataType>
      *
      * @return the computed string.
      */
-    public synchronized String toString() {
+    public String toString() {
         StringBuilder s = new StringBuilder();
         if(!concepts.isEmpty()) {
             s.append("Concepts:\n");
@@ -2,18 +2,25 @@ package Attributes;
 
 import AbstractObjects.DataObject;
 import AbstractObjects.Operators;
+import Concepts.AttributeValue;
 import Concepts.Concept;
 import Concepts.Scope;
 import Concepts.SetConcept;
 import ConcreteDomain.ConcreteType;
 import Data.DataBlock;
+import IO.ModelCodec;
+import MISC.Activity;
 import MISC.Context;
+import Utils.TriConsumer;
 import Utils.Utilities;
 
 import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OptionalDataException;
 import java.io.Serializable;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -29,6 +36,13 @@ import java.util.stream.Stream;
  * - a finalizer that processes the aggregated value in some way.
  * <br>
  * The attribute is automatically functional.
+ * <br>
+ * The attribute may be materialized. In this case the aggregation state (before the finalizer is applied)
+ * is kept for each concept and scope, and it is updated incrementally when values are added to or removed from the aggregated attribute.
+ * Removals require a retractor, i.e. the inverse of the aggregator. Without retractor, the state is recomputed at the next access.
+ * The full aggregation is only needed when operators or constraints are given.
+ * Materialization assumes that the aggregated attribute's values are not changed concurrently with accesses to the aggregated values.
+ * The states hold for the original context. Accesses in forks, whose changes are not observed, aggregate the values anew.
  *
  */
 public class AggregatingAttribute extends Attribute implements Serializable {
@@ -40,6 +54,12 @@ public class AggregatingAttribute extends Attribute implements Serializable {
     private Function<Object,DataObject> finalizer = null;
     private String                finalizerString = null;
     private ConcreteType                rangeType = null;
+    private BiFunction<Object,DataObject,Object> retractor = null;
+    private String               retractorString = null;
+    /** the materialized aggregation states of the concepts for each scope, or null if the attribute is not materialized */
+    private transient HashMap<Concept,EnumMap<Scope,Object>> states = null;
+    /** the value observer which updates the materialized states */
+    private transient TriConsumer<Concept,DataObject,Activity> valueObserver = null;
 
 
     /** constructs a AggregatingAttribute
@@ -80,6 +100,97 @@ public class AggregatingAttribute extends Attribute implements Serializable {
         this.finalizerString   = finalizerString;
     }
 
+    /** sets the retractor, the inverse of the aggregator.
+     * retractor(aggregator(state,value),value) must be equal to state.
+     *
+     * @param retractor       for removing values from the aggregated state.
+     * @param retractorString a textual representation of the retractor
+     */
+    public void setRetractor(BiFunction<Object,DataObject,Object> retractor, String retractorString) {
+        this.retractor = retractor;
+        this.retractorString = retractorString;}
+
+    /** switches the materialization on or off.
+     * Materialization is only possible if the aggregated attribute is a DataAttribute,
+     * or a ConceptAttribute which is neither transitive nor reflexive.
+     *
+     * @param materialized true if the aggregated values are to be materialized.
+     * @return true if the materialization has been switched.
+     */
+    public synchronized boolean setMaterialized(boolean materialized) {
+        if(materialized == (states != null)) {return true;}
+        if(!materialized) {
+            attribute.removeValueObserver(valueObserver);
+            states = null; valueObserver = null;
+            return true;}
+        if(!(attribute instanceof DataAttribute ||
+                (attribute instanceof ConceptAttribute && !attribute.isTransitive() && !attribute.isReflexive()))) {
+            return false;}
+        states = new HashMap<>();
+        valueObserver = ((concept,value,activity) -> update(concept,value,activity));
+        attribute.addValueObserver(valueObserver);
+        return true;}
+
+    /** @return true if the attribute is materialized */
+    public synchronized boolean isMaterialized() {return states != null;}
+
+    /** updates the materialized state of the concept.
+     * A concept's values of an attribute have only one scope, which is taken from the concept's current AttributeValue.
+     * The state for this scope is updated, the states for the other scopes become unknown.
+     * Unknown states remain unknown, they are computed at the next access.
+     *
+     * @param concept  the concept whose value has been changed
+     * @param value    the added or removed value
+     * @param activity ADD, REMOVE or CHANGE
+     */
+    private synchronized void update(Concept concept, DataObject value, Activity activity) {
+        if(states == null) {return;}
+        EnumMap<Scope,Object> scopes = states.get(concept);
+        if(scopes == null) {return;}
+        AttributeValue current = (attribute instanceof ColumnarDataAttribute) ?
+                ((ColumnarDataAttribute)attribute).getAttributeValue(concept) : concept.get(attribute);
+        Object state = (current == null) ? null : scopes.get(current.scope);
+        states.remove(concept);
+        if(state == null || activity == Activity.CHANGE) {return;}
+        if(activity == Activity.ADD) {state = aggregator.apply(state,value);}
+        else {if(retractor == null) {return;}
+              state = retractor.apply(state,value);}
+        EnumMap<Scope,Object> updated = new EnumMap<>(Scope.class);
+        updated.put(current.scope,state);
+        states.put(concept,updated);}
+
+    /** returns the materialized aggregation state of the concept.
+     * If it is not known, it is computed by aggregating all values.
+     *
+     * @param concept the concept
+     * @param scope   the scope of the values
+     * @param context where the objects live in
+     * @return the aggregation state (may be null).
+     */
+    private synchronized Object getState(Concept concept, Scope scope, Context context) {
+        EnumMap<Scope,Object> scopes = states.computeIfAbsent(concept, c -> new EnumMap<>(Scope.class));
+        if(scopes.containsKey(scope)) {return scopes.get(scope);}
+        Object state = aggregate(concept,scope,null,null,null,context);
+        scopes.put(scope,state);
+        return state;}
+
+    /** aggregates all values of the aggregated attribute.
+     *
+     * @param concept     the concept for which the attribute value is accessed.
+     * @param scope       the scope for the values to be returned.
+     * @param operator    for comparing the url-attribute's values with 'otherValue'
+     * @param otherValue  to be compared with the url-attribute's values
+     * @param otherConstraints the url-attributes constraints must imply 'otherConstraints'
+     * @param context     where the objects live in.
+     * @return            the aggregation state, or null.
+     */
+    private Object aggregate(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context) {
+        Stream<DataObject> stream = attribute.stream(concept,scope,operator,otherValue,otherConstraints,context);
+        if(stream == null) {return null;}
+        Object[] item = new Object[]{startObject};
+        stream.forEach(d-> item[0] = aggregator.apply(item[0], d));
+        return item[0];}
+
     /** @return the range type */
     @Override
     public ConcreteType getRangeType() {return rangeType;}
@@ -99,12 +210,13 @@ public class AggregatingAttribute extends Attribute implements Serializable {
      */
     public DataObject getFirst(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context) {
         if(attribute == null) {return null;}
-        Stream<DataObject> stream = attribute.stream(concept,scope,operator,otherValue,otherConstraints,context);
-        if(stream == null) {return null;}
-        Object[] item = new Object[]{startObject};
-        stream.forEach(d-> item[0] = aggregator.apply(item[0], d));
-        if(item[0] == null) {return null;}
-        return finalizer.apply(item[0]);}
+        Object state;
+        if(operator == null && otherConstraints == null && !context.isFork() && isMaterialized()) {
+            if(!attribute.hasValues(concept,scope,context)) {return null;}
+            state = getState(concept,scope,context);}
+        else {state = aggregate(concept,scope,operator,otherValue,otherConstraints,context);}
+        if(state == null) {return null;}
+        return finalizer.apply(state);}
 
 
 
@@ -126,10 +238,10 @@ public class AggregatingAttribute extends Attribute implements Serializable {
 
 
     private static final String functionDeclaration =
-            "AggregatingAttribute <applicationName> <attribute> range = <range> startObject = ... aggregator = ... finalizer = ... ;";
+            "AggregatingAttribute <applicationName> <attribute> range = <range> startObject = ... aggregator = ... finalizer = ... [retractor = ...] [materialized];";
 
     /** parses an AggregatingAttribute declaration of the form<br>
-     *  [attribute] range = [range] startObject = ... aggregator = ... finalizer = ... ";
+     *  [attribute] range = [range] startObject = ... aggregator = ... finalizer = ... [retractor = ...] [materialized]";
      *
      * Note that a Groovy parser is used. therefore the code must be Groovy code.
      * One must use the full package paths in the code.
@@ -158,11 +270,14 @@ public class AggregatingAttribute extends Attribute implements Serializable {
         Serializable startObject = null;
         BiFunction<Object,DataObject,Object> aggregator = null;
         Function<Object,DataObject> finalizer = null;
-        String startObjectString = null, aggregatorString = null, finalizerString = null;
+        BiFunction<Object,DataObject,Object> retractor = null;
+        boolean materialized = false;
+        String startObjectString = null, aggregatorString = null, finalizerString = null, retractorString = null;
 
         HashMap<String,String> map = Utilities.split(declaration,",",
                 (key -> key.equals("startObject") ||  key.equals("aggregator") || key.equals("range") ||
-                        key.equals("finalizer") || key.equals("range") || context.getAttribute(namespace+key) != null));
+                        key.equals("finalizer") || key.equals("retractor") || key.equals("materialized") ||
+                        context.getAttribute(namespace+key) != null));
         for(String key : map.keySet()) {
             String value = map.get(key);
             if(value != null && value.startsWith("=")) {value = value.substring(1).trim();}
@@ -181,6 +296,10 @@ public class AggregatingAttribute extends Attribute implements Serializable {
                 case "finalizer":   finalizer = Utilities.compileFunction(imports,value,"Object","aggregated","DataObject",errors,lineNumber);
                     finalizerString = value;
                     break;
+                case "retractor":   retractor = Utilities.compileFunction(imports,value,"Object","aggregated","DataObject","value","Object",errors,lineNumber);
+                    retractorString = value;
+                    break;
+                case "materialized": materialized = true; break;
                 default: attribute = context.getAttribute(namespace+key);
                     break;}}
         if(startObject == null){errors.append("Line " + lineNumber + " aggregatingAttribute " + name + " no startObject defined"); return null;}
@@ -188,11 +307,15 @@ public class AggregatingAttribute extends Attribute implements Serializable {
         if(finalizer == null)  {errors.append("Line " + lineNumber + " aggregatingAttribute " + name + " no finalizer defined");   return null;}
         AggregatingAttribute agg = new AggregatingAttribute(name,context,rangeType,attribute);
         agg.setAggregators(startObject,startObjectString,aggregator,aggregatorString,finalizer,finalizerString);
+        if(retractor != null) {agg.setRetractor(retractor,retractorString);}
+        if(materialized && !agg.setMaterialized(true)) {
+            errors.append("Line " + lineNumber + " aggregatingAttribute " + name + " can not be materialized");}
         return agg;
     }
 
 
     /** This method is necessary because must of the instance variables cannot be serialized straightforwardly.
+     * The retractor and the materialization flag are written after the fields of the original format.
      *
      * @param out an ObjectOutputStream for writing the value.
      * @throws IOException if something goes wrong.
@@ -207,12 +330,16 @@ public class AggregatingAttribute extends Attribute implements Serializable {
         out.writeObject(aggregatorString != null ? null : aggregator);
         out.writeObject(finalizerString);
         out.writeObject(finalizerString != null ? null : finalizer);
+        out.writeObject(retractorString);
+        out.writeObject(retractorString != null ? null : retractor);
+        out.writeObject(isMaterialized());
     }
     /** This method reconstructs the attribute.
      * It ensures that the corresponding objects are properly integrated in Context.currentContext
+     * Streams in the original format, without retractor and materialization flag, can still be read.
      *
      * @param in an ObjectInputStream for reading the objects.
-     * @throws IOException  if reading the object goes wrong
+     * @throws IOException  if reading the object goes wrong, or the functions cannot be compiled.
      * @throws ClassNotFoundException should never be thrown.
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -229,26 +356,90 @@ public class AggregatingAttribute extends Attribute implements Serializable {
         String attributeName = (String)in.readObject();
         attribute = Context.currentContext.getAttribute(attributeName);
 
-        StringBuilder errors = new StringBuilder();
-
         startObjectString = (String)in.readObject();
         startObject = (Serializable)in.readObject();
-        if(startObject == null && startObjectString != null) {
-            startObject = (Serializable)Utilities.evaluate(startObjectString,errors);}
-
-        String imports = "import AbstractObjects.DataObject;";
         aggregatorString = (String)in.readObject();
         aggregator = (BiFunction<Object,DataObject,Object>)in.readObject();
-        if(aggregator == null && aggregatorString != null) {
-            aggregator = Utilities.compileFunction(imports,aggregatorString,"Object","aggregated","DataObject","value","Object",errors,1);}
-
         finalizerString = (String)in.readObject();
         finalizer = (Function<Object,DataObject>)in.readObject();
+        boolean materialized = false;
+        try{
+            retractorString = (String)in.readObject();
+            retractor = (BiFunction<Object,DataObject,Object>)in.readObject();
+            materialized = (boolean)in.readObject();}
+        catch(OptionalDataException ex) {if(!ex.eof) {throw ex;}} // the original format ends here
+
+        StringBuilder errors = new StringBuilder();
+        compileAggregators(errors);
+        if(errors.length() != 0) {throw new InvalidObjectException("AggregatingAttribute " + getName() + ": " + errors);}
+        if(materialized && attribute != null) {setMaterialized(true);}
+    }
+
+    /** compiles the missing start object, aggregator, finalizer and retractor from their textual representations.
+     *
+     * @param errors for appending error messages.
+     */
+    private void compileAggregators(StringBuilder errors) {
+        String imports = "import AbstractObjects.DataObject;";
+        if(startObject == null && startObjectString != null) {
+            startObject = (Serializable)Utilities.evaluate(startObjectString,errors);}
+        if(aggregator == null && aggregatorString != null) {
+            aggregator = Utilities.compileFunction(imports,aggregatorString,"Object","aggregated","DataObject","value","Object",errors,1);}
         if(finalizer == null && finalizerString != null) {
             finalizer = Utilities.compileFunction(imports,finalizerString,"Object","aggregated","DataObject",errors,1);}
+        if(retractor == null && retractorString != null) {
+            retractor = Utilities.compileFunction(imports,retractorString,"Object","aggregated","DataObject","value","Object",errors,1);}}
 
-        if(errors.length() != 0) {System.out.println(errors.toString());}
-    }
+    /** writes the attribute's definition by the ModelCodec.
+     * Functions with a textual representation are written as text, the others by Java serialization.
+     *
+     * @param out where to write the definition.
+     * @throws IOException if writing fails, or a function has no text and is not serializable.
+     */
+    public void writeDefinition(ModelCodec.Output out) throws IOException {
+        out.writeName(getName());
+        out.writeConcept(domain);
+        out.writeDataType(rangeType);
+        out.writeAttribute(attribute);
+        out.writeString(startObjectString);
+        out.writeObject(startObjectString != null ? null : startObject);
+        out.writeString(aggregatorString);
+        out.writeObject(aggregatorString != null ? null : aggregator);
+        out.writeString(finalizerString);
+        out.writeObject(finalizerString != null ? null : finalizer);
+        out.writeString(retractorString);
+        out.writeObject(retractorString != null ? null : retractor);
+        out.writeBoolean(isMaterialized());}
+
+    /** reads an attribute's definition which has been written by writeDefinition.
+     * The attributes are taken from the input's context, the functions are compiled from their texts.
+     *
+     * @param in where to read the definition from.
+     * @return the new attribute (not yet put into the context), or null if the aggregated attribute is unknown.
+     * @throws IOException if reading fails.
+     */
+    public static AggregatingAttribute readDefinition(ModelCodec.Input in) throws IOException {
+        String name = in.readName();
+        SetConcept domain = (SetConcept)in.readConcept();
+        ConcreteType rangeType = (ConcreteType)in.readDataType();
+        Attribute attribute = in.readAttribute();
+        String startObjectString = in.readString();
+        Serializable startObject = (Serializable)in.readObject();
+        String aggregatorString = in.readString();
+        BiFunction<Object,DataObject,Object> aggregator = (BiFunction<Object,DataObject,Object>)in.readObject();
+        String finalizerString = in.readString();
+        Function<Object,DataObject> finalizer = (Function<Object,DataObject>)in.readObject();
+        String retractorString = in.readString();
+        BiFunction<Object,DataObject,Object> retractor = (BiFunction<Object,DataObject,Object>)in.readObject();
+        boolean materialized = in.readBoolean();
+        if(attribute == null) {return null;}
+        AggregatingAttribute aggregating = new AggregatingAttribute(name,null,rangeType,attribute);
+        aggregating.domain = domain;
+        aggregating.setAggregators(startObject,startObjectString,aggregator,aggregatorString,finalizer,finalizerString);
+        aggregating.setRetractor(retractor,retractorString);
+        aggregating.compileAggregators(in.errors);
+        if(materialized) {aggregating.setMaterialized(true);}
+        return aggregating;}
 
     /** returns a short info string.
      *
@@ -5,8 +5,12 @@ import AbstractObjects.*;
 import Concepts.*;
 import ConcreteDomain.ConcreteType;
 import DAGs.Direction;
+import Graphs.Strategy;
 import Data.DataBlock;
+import MISC.Activity;
+import MISC.ChangeLog;
 import MISC.Context;
+import Utils.TriConsumer;
 
 import java.util.ArrayList;
 import java.util.Optional;
@@ -37,6 +41,25 @@ public abstract class Attribute extends ItemWithId  {
     /** indicates that the attribute is functional */
     protected boolean functional = false;
 
+    /** indicates that the values of a non-functional attribute are kept in an AVHashList */
+    protected boolean hashed = false;
+
+    /** the attribute itself followed by all attributes below it in the attribute hierarchy,
+     * together with the version of the hierarchy for which the list has been computed */
+    private static class Subattributes {
+        final ArrayList<Attribute> attributes;
+        final long version;
+        Subattributes(ArrayList<Attribute> attributes, long version) {
+            this.attributes = attributes;
+            this.version = version;}}
+
+    /** the cached subattributes (replaced as a whole, so that readers need no lock) */
+    private transient volatile Subattributes subattributes = null;
+
+    /** observers which are called after a value of this attribute has been added to or removed from a concept.
+     * The activity is ADD or REMOVE for unconstrained values, and CHANGE for constrained values. */
+    private transient ArrayList<TriConsumer<Concept,DataObject,Activity>> valueObservers = null;
+
     /** @return true if the attribute is reflexive */
     public boolean isReflexive() {return false;}
 
@@ -49,6 +72,17 @@ public abstract class Attribute extends ItemWithId  {
     /** @return true if the attribute is functional */
     public boolean isFunctional() {return functional;}
 
+    /** @return true if the values of the attribute are kept in an AVHashList */
+    public boolean isHashed() {return hashed;}
+
+    /** determines whether the values of the non-functional attribute are kept in an AVHashList.
+     * An AVHashList finds, de-duplicates and removes unconstrained values in constant time.
+     * This affects only those value lists which are created afterwards.
+     *
+     * @param hashed true if the values are to be hashed.
+     */
+    public void setHashed(boolean hashed) {this.hashed = hashed;}
+
     public boolean isConceptAttribute() {return false;}
 
 
@@ -61,6 +95,26 @@ public abstract class Attribute extends ItemWithId  {
         super(name);
         if(context != null) {context.putAttribute(this);}}
 
+    /** returns the attribute itself followed by all attributes below it in the attribute hierarchy (breadth first).
+     * The list is computed once and recomputed only after the attribute hierarchy has changed.
+     * No lock is taken: concurrent callers may compute the same list twice.
+     * It must not be modified.
+     *
+     * @param context where the attribute lives in
+     * @return the list of the attribute and its subattributes.
+     */
+    public ArrayList<Attribute> getSubattributes(Context context) {
+        long version = context.getAttributeHierarchyVersion();
+        Subattributes cached = subattributes;
+        if(cached != null && cached.version == version) {return cached.attributes;}
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(this);
+        context.attributeHierarchy.applyToInnerLabels(this, Direction.DOWN, Strategy.BREADTH_FIRST,
+                (subattribute -> {if(subattribute != this) {attributes.add(subattribute);}}));
+        attributes.trimToSize();
+        subattributes = new Subattributes(attributes,version);
+        return attributes;}
+
     /** return the domain.
      *
      * @return the domain, or null if it has not been defined
@@ -122,7 +176,84 @@ public abstract class Attribute extends ItemWithId  {
         return null;}
 
 
-    /** adds a value to the concept's attribute values
+    /** checks whether the concept may have values of this attribute with the given scope.
+     * If the method returns false, getFirst, stream and find must return null for this concept and scope.
+     * This default implementation returns true. It is used for computed attributes.
+     *
+     * @param concept a concept
+     * @param scope   a scope
+     * @param context where the objects live in
+     * @return false if the concept certainly has no values of this attribute with the given scope.
+     */
+    public boolean hasValues(Concept concept, Scope scope, Context context) {return true;}
+
+    /** checks whether the concept has a value of this attribute which is stored outside the concept.
+     * This default implementation returns false.
+     *
+     * @param concept a concept
+     * @return true if the attribute itself stores a value for the concept.
+     */
+    public boolean hasExternalValue(Concept concept) {return false;}
+
+    /** adds an observer which is called after a value of this attribute has been added to or removed from a concept.
+     * The activity is ADD or REMOVE for unconstrained values, and CHANGE for constrained values.
+     *
+     * @param observer a consumer for the concept, the value and the activity.
+     */
+    public synchronized void addValueObserver(TriConsumer<Concept,DataObject,Activity> observer) {
+        if(valueObservers == null) {valueObservers = new ArrayList<>();}
+        valueObservers.add(observer);}
+
+    /** removes the value observer
+     *
+     * @param observer a value observer
+     */
+    public synchronized void removeValueObserver(TriConsumer<Concept,DataObject,Activity> observer) {
+        if(valueObservers != null) {valueObservers.remove(observer);}}
+
+    /** is to be called after a value of this attribute has been added to or removed from a concept.
+     * It invalidates the context's resolution cache, tells the pager that the concept has changed, records the change in the context's change log, and calls the value observers.
+     * The value observers are not called for changes in forks, since they belong to the parent context.
+     * It is to be called within the change (see Context.change(concept,change)), such that the records are in the order of the changes.
+     *
+     * @param concept  the concept
+     * @param value    the value which has been added or removed
+     * @param scope    the value's scope
+     * @param activity ADD or REMOVE for unconstrained values, CHANGE for constrained values.
+     * @param context  where the objects live in
+     */
+    protected void valueChanged(Concept concept, DataObject value, Scope scope, Activity activity, Context context) {
+        if(activity != Activity.REMOVE) {context.resolutionCache.valueAdded(concept,scope);}
+        if(context.pager != null) {context.pager.changed(concept);}
+        ChangeLog changeLog = context.changeLog;
+        if(changeLog != null) {changeLog.record(ChangeLog.Kind.VALUE,activity,concept,this,value);}
+        if(!context.isFork()) {notifyValueObservers(concept,value,activity);}}
+
+    /** is to be called after values of this attribute have been bulk-loaded into the concept.
+     * It has the same effects as valueChanged, with the activity CHANGE and an unknown value.
+     *
+     * @param concept the concept
+     * @param scope   the scope of the loaded values
+     * @param context where the objects live in
+     */
+    public void valuesLoaded(Concept concept, Scope scope, Context context) {
+        context.change(concept, () -> {valueChanged(concept,null,scope,Activity.CHANGE,context); return null;});}
+
+    /** calls the value observers.
+     *
+     * @param concept  the concept whose values have been changed
+     * @param value    the value which has been added or removed (null if not known)
+     * @param activity ADD, REMOVE or CHANGE
+     */
+    protected void notifyValueObservers(Concept concept, DataObject value, Activity activity) {
+        ArrayList<TriConsumer<Concept,DataObject,Activity>> observers;
+        synchronized (this) {
+            if(valueObservers == null) {return;}
+            observers = new ArrayList<>(valueObservers);}
+        for(TriConsumer<Concept,DataObject,Activity> observer : observers) {observer.accept(concept,value,activity);}}
+
+    /** adds a value to the concept's attribute values.
+     * The change holds the context's change lock and the concept's lock.
      *
      * @param concept the concept where the value is added.
      * @param value   the value to be added
@@ -136,23 +267,64 @@ public abstract class Attribute extends ItemWithId  {
             errors.append("Concept " + concept.getName() + ", attribute " + getName() + ": value " + value.toString() +
                     " is not in its range " + getRangeName()+"\n");
             return false;}
+        AttributeValueList interned = (constraints == null) ? null : context.constraintCache.intern(constraints);
+        return context.change(concept, () -> addValueLocked(concept,value,interned,scope,context));}
 
-        AttributeValue oldValue = concept.get(this);
+    /** does the work of addValue within the change.
+     *
+     * @param concept     the concept where the value is added.
+     * @param value       the value to be added
+     * @param constraints the interned constraints for the value
+     * @param scope       the scope for the value to be added.
+     * @param context     the current interpretation (usually the context).
+     * @return true.
+     */
+    private boolean addValueLocked(Concept concept, DataObject value, AttributeValueList constraints, Scope scope, Context context) {
+        AttributeValue oldValue = context.getValueForUpdate(concept,this);
+        DataObject replaced = null;
         if(oldValue == null) {
             AVSingleton singleton = (constraints == null) ?
                     new AVSingletonUnconstrained(value):
                     new AVSingletonConstrained(value,constraints);
-            concept.put(this,new AttributeValue(functional ? singleton : new AVList(singleton), scope));}
+            context.putValue(concept,this,new AttributeValue(functional ? singleton : (hashed ? new AVHashList(singleton) : new AVList(singleton)), scope),false);}
         else {
             AVObject avObject = oldValue.get();
-            if(functional){((AVSingleton)avObject).setValue(value,constraints);}
+            if(functional){
+                if(avObject instanceof AVSingletonUnconstrained) {replaced = avObject.get();}
+                ((AVSingleton)avObject).setValue(value,constraints);}
             else {
                 AVSingleton singleton = (constraints == null) ?
                         new AVSingletonUnconstrained(value):
                         new AVSingletonConstrained(value,constraints);
-                ((AVList)avObject).addValue(singleton);}}
+                if(!((AVList)avObject).addValue(singleton)) {return true;}}
+            scope = oldValue.scope;}
+        if(replaced != null) {valueChanged(concept,replaced,scope,Activity.REMOVE,context);}
+        valueChanged(concept,value,scope,(constraints == null) ? Activity.ADD : Activity.CHANGE,context);
         return true;}
 
+    /** removes an unconstrained value from the concept's attribute values.
+     * For functional attributes the value is removed only if it is the current value.
+     * The change holds the context's change lock and the concept's lock.
+     *
+     * @param concept the concept where the value is to be removed.
+     * @param value   the value to be removed
+     * @param context where the objects live in
+     * @return true if the value has been removed.
+     */
+    public boolean removeValue(Concept concept, DataObject value, Context context) {
+        return context.change(concept, () -> {
+            AttributeValue oldValue = context.getValueForUpdate(concept,this);
+            if(oldValue == null) {return false;}
+            AVObject avObject = oldValue.get();
+            if(avObject instanceof AVList) {
+                if(!((AVList)avObject).removeValue(value)) {return false;}
+                if(((AVList)avObject).isEmpty()) {context.removeValue(concept,this,false);}}
+            else {
+                if(!(avObject instanceof AVSingletonUnconstrained) || !value.equals(avObject.get())) {return false;}
+                context.removeValue(concept,this,false);}
+            valueChanged(concept,value,oldValue.scope,Activity.REMOVE,context);
+            return true;});}
+
     /** returns the very first attribute value that satisfies the constraints (if there are any)
      *
      * @param concept the concept for which the attribute value is accessed.
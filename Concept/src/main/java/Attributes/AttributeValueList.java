@@ -5,6 +5,7 @@ import AbstractObjects.Operators;
 import Concepts.Concept;
 import ConcreteDomain.ConcreteObject;
 import MISC.Context;
+import Utils.TriConsumer;
 import Utils.Utilities;
 
 import java.io.IOException;
@@ -15,6 +16,9 @@ import java.util.ArrayList;
 /** This is a list of Attribute-DataObject-Operator triples.
  * In particular, one can use this list to check for two lists
  * whether the first list implies the other list.
+ * <br>
+ * Lists can be frozen. Frozen lists cannot be changed any more, and can therefore be shared
+ * and used as keys in the ConstraintCache. Changing a frozen list throws an IllegalStateException.
  */
 public class AttributeValueList implements Serializable {
     /** the keys */
@@ -27,6 +31,12 @@ public class AttributeValueList implements Serializable {
     /** indicates that the only operator is equality */
     private boolean equalityOnly = true;
 
+    /** indicates that the list cannot be changed any more */
+    private transient boolean frozen = false;
+
+    /** the hash code of a frozen list (0 if it has not been computed yet) */
+    private transient int hash = 0;
+
     private void writeObject(java.io.ObjectOutputStream out) throws IOException {
         out.writeObject(Utilities.join(attributes,",",(a-> a.getName())));
         out.writeObject(dataObjects);
@@ -72,11 +82,43 @@ public class AttributeValueList implements Serializable {
         dataObjects.add(dataObject);
         operators.add(operator);}
 
+    /** freezes the list. Afterwards it cannot be changed any more.
+     *
+     * @return the list itself.
+     */
+    public AttributeValueList freeze() {frozen = true; return this;}
+
+    /** @return true if the list is frozen */
+    public boolean isFrozen() {return frozen;}
+
+    /** @return a new unfrozen list with the same triples */
+    public AttributeValueList copy() {
+        AttributeValueList list = new AttributeValueList();
+        list.attributes.addAll(attributes);
+        list.dataObjects.addAll(dataObjects);
+        list.operators.addAll(operators);
+        list.equalityOnly = equalityOnly;
+        return list;}
+
+    /** checks whether the list can be changed
+     *
+     * @throws IllegalStateException if the list is frozen.
+     */
+    private void checkFrozen() {
+        if(frozen) {throw new IllegalStateException("AttributeValueList " + toString() + " is frozen and cannot be changed.");}}
+
+    /** @return true if some of the values are concepts */
+    public boolean containsConcepts() {
+        for(DataObject dataObject : dataObjects) {if(dataObject instanceof Concept) {return true;}}
+        return false;}
+
     /** clears the list.*/
     public void clear() {
+        checkFrozen();
         attributes.clear();
         dataObjects.clear();
-        operators.clear();}
+        operators.clear();
+        equalityOnly = true;}
 
     /** adds a new attribute-value pair.
      * The operator is EQUALS
@@ -86,6 +128,7 @@ public class AttributeValueList implements Serializable {
      * @return  the list itself
      */
     public AttributeValueList add(Attribute attribute, DataObject dataObject) {
+        checkFrozen();
         attributes.add(attribute);
         dataObjects.add(dataObject);
         operators.add(Operators.EQUALS);
@@ -99,6 +142,7 @@ public class AttributeValueList implements Serializable {
      * @return  the list itself
      */
     public AttributeValueList add(Attribute attribute, Operators operator, DataObject dataObject) {
+        checkFrozen();
         attributes.add(attribute);
         dataObjects.add(dataObject);
         operators.add(operator);
@@ -131,6 +175,7 @@ public class AttributeValueList implements Serializable {
      * @return the list itself.
      */
     public AttributeValueList remove(Attribute attribute) {
+        checkFrozen();
         int index = attributes.indexOf(attribute);
         if(index >= 0) {attributes.remove(index); dataObjects.remove(index); operators.remove(index);}
         return this;}
@@ -138,6 +183,16 @@ public class AttributeValueList implements Serializable {
     /** @return true if the list is empty. */
     public boolean isEmpty() {return attributes.isEmpty();}
 
+    /** @return the number of attribute-value-operator triples */
+    public int size() {return attributes.size();}
+
+    /** applies the consumer to all attribute-operator-value triples, in the order of their insertion.
+     *
+     * @param consumer a consumer for the attribute, the operator and the value.
+     */
+    public void forEach(TriConsumer<Attribute,Operators,DataObject> consumer) {
+        for(int i = 0; i < attributes.size(); ++i) {consumer.accept(attributes.get(i),operators.get(i),dataObjects.get(i));}}
+
     /** compares the two lists.
      * attributes and values are compared using "equals".
      *
@@ -156,6 +211,20 @@ public class AttributeValueList implements Serializable {
             if(!operators.get(i).equals(other.operators.get(index))) {return false;}}
         return true;}
 
+    /** computes a hash code which does not depend on the order of the triples.
+     * The hash code of frozen lists is computed only once.
+     *
+     * @return the hash code.
+     */
+    @Override
+    public int hashCode() {
+        if(frozen && hash != 0) {return hash;}
+        int h = 0;
+        for(int i = 0; i < attributes.size(); ++i) {
+            h += (attributes.get(i).hashCode() * 31 + dataObjects.get(i).hashCode()) * 31 + operators.get(i).hashCode();}
+        if(frozen) {hash = h;}
+        return h;}
+
     /** checks for every attribute-value in 'this' and 'other', whether 'value operator otherValue' holds,
      * where the operator is taken from 'other'.
      * <br>
@@ -165,6 +234,7 @@ public class AttributeValueList implements Serializable {
      * yields true because 20 LESS 30 is true.
      * <br>
      * Attributes occurring only in 'other' are ignored.
+     * If an operator is not applicable to the values, the result is false.
      *
      * @param other another list
      * @return the result of the comparison.
@@ -185,11 +255,7 @@ public class AttributeValueList implements Serializable {
             Boolean result = (value instanceof ConcreteObject) ?
                     ((ConcreteObject)value).compare(operator,(ConcreteObject)otherValue) :
                     ((Concept)value).compare(operator,(Concept)otherValue, context);
-            if(result == null) {
-                System.out.println("Operator not applicable: " + value.toString() + " " + operator.toString() + " " +
-                        otherValue.toString());
-                return false;}
-            if(!result) {return false;}}
+            if(result == null || !result) {return false;}}  // an operator which is not applicable yields false
         return true;}
 
     /**
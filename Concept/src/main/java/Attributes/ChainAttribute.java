@@ -16,14 +16,24 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 
 /** This class represents chains of attributes.
  * Example: concept: Smith, attributes: friends parents age<br>
  * represents the ages of the parents of Smith's friends.
- *
+ * <br>
+ * getFirst evaluates the chain path by path and stops at the first value.
+ * stream and evaluate work set-at-a-time: each level is computed as a duplicate-free frontier,
+ * such that concepts which are reached by several paths are expanded only once.
+ * Therefore stream yields each value only once, like the values of an ordinary attribute.
+ * evaluate computes the values for all individuals of a concept in one pass.
  */
 public class ChainAttribute extends Attribute {
 
@@ -118,13 +128,13 @@ public class ChainAttribute extends Attribute {
                     return ((Concept)value).compare(operator,(Concept)otherValue,context) ? value : null;}
                 else {return ((ConcreteObject)value).compare(operator,(ConcreteObject)otherValue) ? value : null;}}
             else {return value;}}
-        Stream<DataObject> stream = stream(concept,scope,operator,otherValue,constraints,context);
-        if(stream == null) {return null;}
+        Stream<DataObject> stream = streamPaths(concept,scope,operator,otherValue,constraints,context);
         Optional optional = stream.limit(1).findAny();
         return optional.isPresent() ? (DataObject)optional.get() : null;}
 
 
-    /** gets a stream of values of the last attribute in the attribute chain.
+    /** gets a duplicate-free stream of values of the last attribute in the attribute chain.
+     * The chain is evaluated set-at-a-time (see evaluate).
      *
      * @param concept  the concept in the domain of the attribute chain.
      * @param scope the scope for the value to be returned.
@@ -136,6 +146,21 @@ public class ChainAttribute extends Attribute {
      */
     public Stream<DataObject> stream(Concept concept, Scope scope, Operators operator, DataObject otherValue,
                                      Object otherConstraints, Context context) {
+        return streamDistinct(concept,scope,operator,otherValue,otherConstraints,context);}
+
+    /** gets a stream of values of the last attribute in the attribute chain by following each path separately.
+     * The values are computed lazily, but values which are reached by several paths appear several times.
+     *
+     * @param concept  the concept in the domain of the attribute chain.
+     * @param scope the scope for the value to be returned.
+     * @param operator for comparing the returned value with otherValue
+     * @param otherValue the value for comparing 'value operator otherValue'
+     * @param otherConstraints constraints for the selecting the attribute values, one for each level in the attribute chain.
+     * @param context where the objects live in.
+     * @return the stream of values of the last attribute in the attribute chain.
+     */
+    public Stream<DataObject> streamPaths(Concept concept, Scope scope, Operators operator, DataObject otherValue,
+                                          Object otherConstraints, Context context) {
         ArrayList<AttributeValueList> constraints = (ArrayList<AttributeValueList>)otherConstraints;
         Stream<DataObject> stream = StreamGenerators.stream(concept, attributeChain.size()-1,
                 (concep, level) -> attributeChain.get(level).stream((Concept)concep, scope, null, null,
@@ -147,6 +172,89 @@ public class ChainAttribute extends Attribute {
                             ((ConcreteObject)c).compare(operator,(ConcreteObject)otherValue));}
         return stream;}
 
+    /** evaluates the chain set-at-a-time for all individuals of the concept.
+     *
+     * @param concept a concept whose individuals are the start concepts (or an individual itself).
+     * @param scope the scope for the values to be returned.
+     * @param otherConstraints constraints for the selecting the attribute values, one for each level in the attribute chain.
+     * @param context where the objects live in.
+     * @return a map which maps each start concept to the set of values of the last attribute in the chain.
+     */
+    public HashMap<Concept,LinkedHashSet<DataObject>> evaluate(Concept concept, Scope scope, Object otherConstraints, Context context) {
+        if(concept.isIndividual()) {return evaluate(Collections.singletonList(concept),scope,otherConstraints,context);}
+        Stream<Concept> individuals = concept.individuals(context);
+        if(individuals == null) {return new HashMap<>();}
+        return evaluate(individuals.collect(Collectors.toList()),scope,otherConstraints,context);}
+
+    /** evaluates the chain set-at-a-time for a collection of start concepts.
+     * The concepts at each level are collected in a duplicate-free frontier,
+     * and the values of the level's attribute are computed only once for each concept in the frontier.
+     * The values of the last attribute are then propagated backwards through the levels to the start concepts.
+     *
+     * @param starts the start concepts.
+     * @param scope the scope for the values to be returned.
+     * @param otherConstraints constraints for the selecting the attribute values, one for each level in the attribute chain.
+     * @param context where the objects live in.
+     * @return a map which maps each start concept to the set of values of the last attribute in the chain.
+     */
+    public HashMap<Concept,LinkedHashSet<DataObject>> evaluate(Collection<? extends Concept> starts, Scope scope,
+                                                                Object otherConstraints, Context context) {
+        ArrayList<AttributeValueList> constraints = (ArrayList<AttributeValueList>)otherConstraints;
+        int length = attributeChain.size();
+        ArrayList<HashMap<Concept,LinkedHashSet<DataObject>>> successors = new ArrayList<>(length);
+        LinkedHashSet<Concept> frontier = new LinkedHashSet<>(starts);
+        for(int level = 0; level < length; ++level) {
+            Attribute attribute = attributeChain.get(level);
+            AttributeValueList constraint = (constraints == null || level >= constraints.size()) ? null: constraints.get(level);
+            HashMap<Concept,LinkedHashSet<DataObject>> levelSuccessors = new HashMap<>();
+            LinkedHashSet<Concept> nextFrontier = new LinkedHashSet<>();
+            for(Concept concept : frontier) {
+                LinkedHashSet<DataObject> values = new LinkedHashSet<>();
+                Stream<DataObject> stream = attribute.stream(concept,scope,null,null,constraint,context);
+                if(stream != null) {stream.forEach(value -> values.add(value));}
+                levelSuccessors.put(concept,values);
+                if(level < length-1) {
+                    for(DataObject value : values) {
+                        if(value instanceof Concept) {nextFrontier.add((Concept)value);}}}}
+            successors.add(levelSuccessors);
+            frontier = nextFrontier;}
+
+        HashMap<Concept,LinkedHashSet<DataObject>> results = successors.get(length-1);
+        for(int level = length-2; level >= 0; --level) {
+            HashMap<Concept,LinkedHashSet<DataObject>> nextResults = results;
+            HashMap<Concept,LinkedHashSet<DataObject>> levelResults = new HashMap<>();
+            for(HashMap.Entry<Concept,LinkedHashSet<DataObject>> entry : successors.get(level).entrySet()) {
+                LinkedHashSet<DataObject> values = new LinkedHashSet<>();
+                for(DataObject successor : entry.getValue()) {
+                    LinkedHashSet<DataObject> successorValues = nextResults.get(successor);
+                    if(successorValues != null) {values.addAll(successorValues);}}
+                levelResults.put(entry.getKey(),values);}
+            results = levelResults;}
+        return results;}
+
+    /** gets a duplicate-free stream of values of the last attribute in the attribute chain.
+     * The chain is evaluated set-at-a-time such that intermediate concepts which are reached
+     * by several paths are expanded only once.
+     *
+     * @param concept  the concept in the domain of the attribute chain.
+     * @param scope the scope for the value to be returned.
+     * @param operator for comparing the returned value with otherValue
+     * @param otherValue the value for comparing 'value operator otherValue'
+     * @param otherConstraints constraints for the selecting the attribute values, one for each level in the attribute chain.
+     * @param context where the objects live in.
+     * @return the stream of distinct values of the last attribute in the attribute chain.
+     */
+    public Stream<DataObject> streamDistinct(Concept concept, Scope scope, Operators operator, DataObject otherValue,
+                                             Object otherConstraints, Context context) {
+        LinkedHashSet<DataObject> values = evaluate(Collections.singletonList(concept),scope,otherConstraints,context).get(concept);
+        Stream<DataObject> stream = values.stream();
+        if(operator != null) {
+            stream = stream.filter(c->
+                    (c instanceof Concept) ?
+                            ((Concept)c).compare(operator,(Concept)otherValue,context) :
+                            ((ConcreteObject)c).compare(operator,(ConcreteObject)otherValue));}
+        return stream;}
+
     private static final String chainDeclaration = "AttributeChain <applicationName> attribute1,...";
 
     /** parses a chainAttribute declaration: "ChainAttribute [applicationName] attribute1,...
@@ -0,0 +1,627 @@
+package Attributes;
+
+import AbstractObjects.DataObject;
+import AbstractObjects.Operators;
+import Concepts.AVObject;
+import Concepts.AVSingletonUnconstrained;
+import Concepts.AttributeValue;
+import Concepts.Concept;
+import Concepts.Scope;
+import Concepts.SetConcept;
+import ConcreteDomain.AtomicTypes.AbsoluteTimePoint;
+import ConcreteDomain.AtomicTypes.BooleanObject;
+import ConcreteDomain.AtomicTypes.FloatObject;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteObject;
+import ConcreteDomain.ConcreteType;
+import MISC.Activity;
+import MISC.Context;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/** This class represents functional DataAttributes whose range is Integer, Float, Boolean or AbsoluteTimePoint.
+ * <br>
+ * The unconstrained LOCAL values are not stored as AttributeValues in the concepts,
+ * but in a primitive array (a column) which is indexed by the concepts' dense ids.
+ * A bitmap indicates which concepts actually have a value.
+ * DataObjects are only created when a value is accessed via getFirst, stream or find.
+ * <br>
+ * Values with constraints or with other scopes are stored in the usual way.
+ * Since the attribute is functional, a concept's value is either in the column or in the concept:
+ * storing a value in one place removes the value from the other place.
+ * <br>
+ * Aggregations and filters over a set of concepts run as loops over the primitive arrays.
+ * The sets of concepts are represented as BitSets of concept ids.
+ */
+public class ColumnarDataAttribute extends DataAttribute {
+
+    /** the different kinds of columns */
+    private enum Kind {INTEGER, FLOAT, BOOLEAN, TIMEPOINT}
+
+    /** the kind of the column, or null if the range is not suitable for columns */
+    private transient Kind kind = null;
+
+    /** the bitmap of concept ids which have a value */
+    private transient BitSet present = new BitSet();
+
+    /** the values for INTEGER columns */
+    private transient int[] ints = null;
+
+    /** the values for FLOAT columns */
+    private transient float[] floats = null;
+
+    /** the values for BOOLEAN columns */
+    private transient BitSet booleans = null;
+
+    /** the epoch seconds (UTC) for TIMEPOINT columns */
+    private transient long[] seconds = null;
+
+    /** the nanoseconds for TIMEPOINT columns */
+    private transient int[] nanos = null;
+
+    /** constructs a functional columnar data attribute.
+     *
+     * @param id      The applicationName of the attribute
+     * @param context where the attribute lives in
+     * @param domain  the domain (or null)
+     * @param range   one of the types Integer, Float, Boolean or AbsoluteTimePoint
+     */
+    public ColumnarDataAttribute(String id, Context context, SetConcept domain, ConcreteType range) {
+        super(id,context,true,domain,range);
+        kind = getKind(range);}
+
+    /** checks if values of the given type can be stored in columns
+     *
+     * @param range a ConcreteType
+     * @return true if values of this type can be stored in columns.
+     */
+    public static boolean isColumnType(ConcreteType range) {return getKind(range) != null;}
+
+    /** maps the range's object class to the kind of the column.
+     *
+     * @param range a ConcreteType
+     * @return the kind of column, or null
+     */
+    private static Kind getKind(ConcreteType range) {
+        if(range == null) {return null;}
+        Class clazz = range.objectClass;
+        if(clazz == IntegerObject.class)     {return Kind.INTEGER;}
+        if(clazz == FloatObject.class)       {return Kind.FLOAT;}
+        if(clazz == BooleanObject.class)     {return Kind.BOOLEAN;}
+        if(clazz == AbsoluteTimePoint.class) {return Kind.TIMEPOINT;}
+        return null;}
+
+    /** sets the range of the attribute. The column is cleared.
+     *
+     * @param range the new range */
+    @Override
+    public void setRange(ConcreteType range) {
+        super.setRange(range);
+        synchronized (this) {
+            kind = getKind(range);
+            present.clear();
+            ints = null; floats = null; booleans = null; seconds = null; nanos = null;}}
+
+    /** adds a value to the column, if possible.
+     * Values with constraints or scope other than LOCAL are stored in the concept.
+     * The value replaces the concept's previous value, wherever it is stored.
+     *
+     * @param concept the concept where the value is added.
+     * @param value   the value to be added
+     * @param constraints the constraints for the value
+     * @param scope the scope for the value to be added.
+     * @param context the current interpretation (usually the context).
+     */
+    @Override
+    public boolean addValue(Concept concept, DataObject value, AttributeValueList constraints,
+                            Scope scope, Context context, StringBuilder errors) {
+        int id = concept.getId();
+        if(context.isFork()) {
+            overlayColumnValue(concept,context);
+            return super.addValue(concept,value,constraints,scope,context,errors);}
+        if(!isInRange(value,context)) {
+            errors.append("Concept " + concept.getName() + ", attribute " + getName() + ": value " + value.toString() +
+                    " is not in its range " + getRangeName()+"\n");
+            return false;}
+        return context.change(concept, () -> {
+            if(kind == null || constraints != null || scope != Scope.LOCAL || id < 0) {
+                removeValue(concept,context);
+                return super.addValue(concept,value,constraints,scope,context,errors);}
+            removeStoredValue(concept,context);
+            DataObject replaced = materialize(id);
+            setValue(id,value);
+            concept.markAttribute(this);
+            if(replaced != null) {valueChanged(concept,replaced,scope,Activity.REMOVE,context);}
+            valueChanged(concept,value,scope,Activity.ADD,context);
+            return true;});}
+
+    /** stores many values in the column in one synchronized step, without calling the value observers.
+     * This is for bulk loading: the values must be in the column's range,
+     * and valuesLoaded must be called for the concepts afterwards.
+     *
+     * @param concepts the concepts (with ids)
+     * @param values   their values
+     * @param length   the number of concept-value pairs
+     * @return false if the range is not suitable for columns: then nothing is stored.
+     */
+    public boolean putValues(Concept[] concepts, DataObject[] values, int length) {
+        synchronized (this) {
+            if(kind == null) {return false;}
+            int maxId = -1;
+            for(int i = 0; i < length; ++i) {maxId = Math.max(maxId,concepts[i].getId());}
+            ensureCapacity(maxId+1);
+            for(int i = 0; i < length; ++i) {setValue(concepts[i].getId(),values[i]);}}
+        for(int i = 0; i < length; ++i) {concepts[i].markAttribute(this);}
+        return true;}
+
+    /** stores the value in the column.
+     *
+     * @param id    the concept's id
+     * @param value a value of the attribute's range
+     */
+    private synchronized void setValue(int id, DataObject value) {
+        ensureCapacity(id+1);
+        switch(kind) {
+            case INTEGER:   ints[id]   = ((IntegerObject)value).value; break;
+            case FLOAT:     floats[id] = ((FloatObject)value).value;   break;
+            case BOOLEAN:   booleans.set(id,((BooleanObject)value).value); break;
+            case TIMEPOINT:
+                LocalDateTime time = (LocalDateTime)((AbsoluteTimePoint)value).get();
+                seconds[id] = time.toEpochSecond(ZoneOffset.UTC);
+                nanos[id]   = time.getNano();}
+        present.set(id);}
+
+    /** makes sure that the column can hold values for concept ids smaller than size.
+     *
+     * @param size the minimal number of entries
+     */
+    private void ensureCapacity(int size) {
+        switch(kind) {
+            case INTEGER:
+                if(ints == null) {ints = new int[Math.max(16,size)];}
+                else if(ints.length < size) {ints = Arrays.copyOf(ints,Math.max(size,2*ints.length));}
+                break;
+            case FLOAT:
+                if(floats == null) {floats = new float[Math.max(16,size)];}
+                else if(floats.length < size) {floats = Arrays.copyOf(floats,Math.max(size,2*floats.length));}
+                break;
+            case BOOLEAN:
+                if(booleans == null) {booleans = new BitSet(size);}
+                break;
+            case TIMEPOINT:
+                if(seconds == null) {seconds = new long[Math.max(16,size)]; nanos = new int[seconds.length];}
+                else if(seconds.length < size) {
+                    seconds = Arrays.copyOf(seconds,Math.max(size,2*seconds.length));
+                    nanos   = Arrays.copyOf(nanos,seconds.length);}}}
+
+    /** removes the value from the column, or from the values stored in the concept.
+     *
+     * @param concept the concept where the value is to be removed.
+     * @param value   the value to be removed
+     * @param context where the objects live in
+     * @return true if the value has been removed.
+     */
+    @Override
+    public boolean removeValue(Concept concept, DataObject value, Context context) {
+        if(context.isFork()) {
+            overlayColumnValue(concept,context);
+            return super.removeValue(concept,value,context);}
+        return context.change(concept, () -> {
+            DataObject current = materialize(concept.getId());
+            if(current == null || !current.equals(value)) {return super.removeValue(concept,value,context);}
+            return removeValue(concept,context);});}
+
+    /** removes the concept's value from the column and notifies the observers.
+     * In a fork, the column value is hidden by an empty overlay.
+     *
+     * @param concept the concept whose value is to be removed.
+     * @param context where the objects live in
+     * @return true if the concept had a value in the column.
+     */
+    public boolean removeValue(Concept concept, Context context) {
+        return context.change(concept, () -> {
+            DataObject value;
+            if(context.isFork()) {
+                if(!inColumn(concept,context)) {return false;}
+                value = materialize(concept.getId());
+                context.removeValue(concept,this,false);}
+            else {
+                synchronized (this) {
+                    value = materialize(concept.getId());
+                    if(value == null) {return false;}
+                    present.clear(concept.getId());}}
+            valueChanged(concept,value,Scope.LOCAL,Activity.REMOVE,context);
+            return true;});}
+
+    /** removes the value which is stored in the concept and notifies the observers.
+     *
+     * @param concept a concept
+     * @param context where the objects live in (not a fork)
+     */
+    private void removeStoredValue(Concept concept, Context context) {
+        AttributeValue stored = concept.get(this);
+        if(stored == null) {return;}
+        context.removeValue(concept,this,false);
+        AVObject avObject = stored.get();
+        if(avObject instanceof AVSingletonUnconstrained) {valueChanged(concept,avObject.get(),stored.scope,Activity.REMOVE,context);}
+        else {valueChanged(concept,null,stored.scope,Activity.CHANGE,context);}}
+
+    /** replaces the concept's values of the attribute, without inferences.
+     * An unconstrained LOCAL value goes into the column, all other values are stored in the concept.
+     *
+     * @param concept        a concept
+     * @param attributeValue the new attribute value, or null to remove the concept's values
+     * @param context        where the objects live in
+     * @param errors         for appending error messages
+     */
+    public void putAttributeValue(Concept concept, AttributeValue attributeValue, Context context, StringBuilder errors) {
+        context.change(concept, () -> {putAttributeValueLocked(concept,attributeValue,context,errors); return null;});}
+
+    /** does the work of putAttributeValue within the change */
+    private void putAttributeValueLocked(Concept concept, AttributeValue attributeValue, Context context, StringBuilder errors) {
+        if(context.isFork()) {
+            if(attributeValue == null || attributeValue.isEmpty()) {context.removeValue(concept,this,false);}
+            else {context.putValue(concept,this,attributeValue,false);}
+            valueChanged(concept,null,Scope.LOCAL,Activity.CHANGE,context);
+            return;}
+        removeValue(concept,context);
+        removeStoredValue(concept,context);
+        if(attributeValue == null || attributeValue.isEmpty()) {return;}
+        AVObject avObject = attributeValue.get();
+        if(kind != null && attributeValue.scope == Scope.LOCAL && avObject instanceof AVSingletonUnconstrained && concept.getId() >= 0) {
+            addValue(concept,avObject.get(),null,Scope.LOCAL,context,errors);
+            return;}
+        context.putValue(concept,this,attributeValue,false);
+        valueChanged(concept,null,attributeValue.scope,Activity.CHANGE,context);}
+
+    /** returns the concept's values of the attribute, either from the column or from the concept.
+     *
+     * @param concept a concept
+     * @return the column value as unconstrained LOCAL AttributeValue, or the AttributeValue stored in the concept, or null.
+     */
+    public AttributeValue getAttributeValue(Concept concept) {
+        DataObject value = materialize(concept.getId());
+        return (value == null) ? concept.get(this) : new AttributeValue(new AVSingletonUnconstrained(value),Scope.LOCAL);}
+
+    /** checks if the concept has a value in the column.
+     *
+     * @param concept a concept
+     * @return true if the concept has a value in the column.
+     */
+    public synchronized boolean hasColumnValue(Concept concept) {
+        int id = concept.getId();
+        return id >= 0 && present.get(id);}
+
+    /** @return true if the concept has a value in the column */
+    @Override
+    public boolean hasExternalValue(Concept concept) {return hasColumnValue(concept);}
+
+    /** checks whether the concept has values of this attribute with the given scope.
+     *
+     * @param concept a concept
+     * @param scope   a scope
+     * @param context where the objects live in
+     * @return true if the concept has values of this attribute with the given scope.
+     */
+    @Override
+    public boolean hasValues(Concept concept, Scope scope, Context context) {
+        return (scope == Scope.LOCAL && inColumn(concept,context)) || super.hasValues(concept,scope,context);}
+
+    /** checks if the concept's value is to be taken from the column.
+     * In forks, the values which have been changed in the fork hide the column value.
+     *
+     * @param concept a concept
+     * @param context where the objects live in
+     * @return true if the concept's value is in the column.
+     */
+    private boolean inColumn(Concept concept, Context context) {
+        return hasColumnValue(concept) && !context.isOverlaid(concept,this);}
+
+    /** copies the concept's column value into the fork's overlay, before the fork changes the concept's values.
+     * The columns themselves are shared with the parent and are never changed by forks.
+     *
+     * @param concept a concept
+     * @param context a fork
+     */
+    private void overlayColumnValue(Concept concept, Context context) {
+        if(!inColumn(concept,context)) {return;}
+        DataObject value = materialize(concept.getId());
+        if(value != null) {context.putValue(concept,this,new AttributeValue(new AVSingletonUnconstrained(value),Scope.LOCAL),false);}}
+
+    /** creates a DataObject for the concept's column value.
+     *
+     * @param id a concept id
+     * @return the materialized value, or null if there is no value in the column.
+     */
+    private synchronized DataObject materialize(int id) {
+        if(kind == null || id < 0 || !present.get(id)) {return null;}
+        switch(kind) {
+            case INTEGER:   return new IntegerObject(ints[id]);
+            case FLOAT:     return new FloatObject(floats[id]);
+            case BOOLEAN:   return booleans.get(id) ? BooleanObject.trueObject : BooleanObject.falseObject;
+            case TIMEPOINT: return new AbsoluteTimePoint(LocalDateTime.ofEpochSecond(seconds[id],nanos[id],ZoneOffset.UTC));}
+        return null;}
+
+    /** returns the concept's value in the column.
+     *
+     * @param concept a concept
+     * @return the concept's value in the column, or null if there is none.
+     */
+    public DataObject getColumnValue(Concept concept) {return materialize(concept.getId());}
+
+    /** returns the column value if it satisfies 'value operator otherValue'.
+     *
+     * @param concept the concept
+     * @param operator an operator or null
+     * @param otherValue for comparing: 'this operator otherValue'
+     * @return the value or null.
+     */
+    private DataObject getColumnValue(Concept concept, Operators operator, DataObject otherValue) {
+        DataObject value = materialize(concept.getId());
+        if(value == null || operator == null) {return value;}
+        Boolean result = ((ConcreteObject)value).compare(operator,(ConcreteObject)otherValue);
+        return (result != null && result) ? value : null;}
+
+    /** returns the column value, or else the first value stored in the concept.
+     *
+     * @param concept the concept for which the attribute value is accessed.
+     * @param scope the scope for the value to be returned
+     * @param operator an operator
+     * @param otherValue for comparing: 'this operator otherValue
+     * @param otherConstraints for comparing this.constraints implies otherConstraints
+     * @param context the context
+     * @return the very first attribute value satisfying the constraints, or null if there is none.
+     */
+    @Override
+    public DataObject getFirst(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context)  {
+        if(scope == Scope.LOCAL && inColumn(concept,context)) {
+            DataObject value = getColumnValue(concept,operator,otherValue);
+            if(value != null) {return value;}}
+        return super.getFirst(concept,scope,operator,otherValue,otherConstraints,context);}
+
+    /** generates a stream of the column value followed by the values stored in the concept.
+     *
+     * @param concept a concept with some attributes
+     * @param scope the scope for the value to be returned
+     * @param operator an operator
+     * @param otherValue for comparing: 'this operator otherValue
+     * @param otherConstraints for comparing this.constraints implies otherConstraints
+     * @param context the context
+     * @return a stream of attribute values.
+     */
+    @Override
+    public Stream<DataObject> stream(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context){
+        Stream<DataObject> stored = super.stream(concept,scope,operator,otherValue,otherConstraints,context);
+        if(scope == Scope.LOCAL && inColumn(concept,context)) {
+            DataObject value = getColumnValue(concept,operator,otherValue);
+            if(value != null) {return (stored == null) ? Stream.of(value) : Stream.concat(Stream.of(value),stored);}}
+        return stored;}
+
+    /** applies the function to the column value, and then to the values stored in the concept.
+     *
+     * @param <T> the return type
+     * @param concept the concept for which the value is to be found
+     * @param scope the scope for the value to be returned.
+     * @param operator an operator
+     * @param otherValue for comparing: 'this operator otherValue
+     * @param otherConstraints for comparing this.constraints implies otherConstraints
+     * @param context the context
+     * @param function the function to be applied to the attribute values
+     * @return         the first non-null function value
+     */
+    @Override
+    public <T> T find(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context, Function<DataObject,T> function) {
+        if(scope == Scope.LOCAL && inColumn(concept,context)) {
+            DataObject value = getColumnValue(concept,operator,otherValue);
+            T result = (value == null) ? null : function.apply(value);
+            if(result != null) {return result;}}
+        return super.find(concept,scope,operator,otherValue,otherConstraints,context,function);}
+
+
+    /** computes the ids of all individuals below the given concept.
+     *
+     * @param concept a concept
+     * @param context where the objects live in
+     * @return a BitSet with the ids of all individuals below the concept.
+     */
+    public static BitSet extension(Concept concept, Context context) {
+        BitSet extension = new BitSet();
+        if(concept.isIndividual()) {if(concept.getId() >= 0) {extension.set(concept.getId());} return extension;}
+        Stream<Concept> individuals = concept.individuals(context);
+        if(individuals != null) {individuals.forEach(individual -> {if(individual.getId() >= 0) {extension.set(individual.getId());}});}
+        return extension;}
+
+    /** maps a set of ids to the concepts.
+     *
+     * @param ids a set of concept ids
+     * @param context where the objects live in
+     * @return the stream of corresponding concepts (ids of removed concepts are skipped).
+     */
+    public static Stream<Concept> concepts(BitSet ids, Context context) {
+        return ids.stream().mapToObj(id -> context.getConcept(id)).filter(concept -> concept != null);}
+
+    /** @return a copy of the set of ids of the concepts with a column value */
+    public synchronized BitSet getPresent() {return (BitSet)present.clone();}
+
+    /** counts the concepts in the selection with a column value.
+     *
+     * @param selection a set of concept ids, or null (all concepts)
+     * @return the number of concepts with a column value.
+     */
+    public synchronized int count(BitSet selection) {
+        if(selection == null) {return present.cardinality();}
+        BitSet ids = (BitSet)present.clone();
+        ids.and(selection);
+        return ids.cardinality();}
+
+    /** sums up the column values of the concepts in the selection.
+     * For BOOLEAN columns the number of true values is returned.
+     *
+     * @param selection a set of concept ids, or null (all concepts)
+     * @return the sum of the column values, or 0 if the column is not numeric.
+     */
+    public synchronized double sum(BitSet selection) {
+        BitSet ids = selected(selection);
+        double sum = 0;
+        switch(kind) {
+            case INTEGER:
+                for(int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id+1)) {sum += ints[id];}
+                break;
+            case FLOAT:
+                for(int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id+1)) {sum += floats[id];}
+                break;
+            case BOOLEAN:
+                if(booleans == null) {return 0;}
+                ids.and(booleans);
+                sum = ids.cardinality();}
+        return sum;}
+
+    /** computes the average of the column values of the concepts in the selection.
+     *
+     * @param selection a set of concept ids, or null (all concepts)
+     * @return the average, or NaN if there are no values.
+     */
+    public synchronized double average(BitSet selection) {
+        int count = count(selection);
+        return (count == 0) ? Double.NaN : sum(selection) / count;}
+
+    /** computes the minimum of the column values of the concepts in the selection.
+     *
+     * @param selection a set of concept ids, or null (all concepts)
+     * @return the minimum as IntegerObject, FloatObject or AbsoluteTimePoint, or null.
+     */
+    public synchronized DataObject min(BitSet selection) {return extremum(selection,true);}
+
+    /** computes the maximum of the column values of the concepts in the selection.
+     *
+     * @param selection a set of concept ids, or null (all concepts)
+     * @return the maximum as IntegerObject, FloatObject or AbsoluteTimePoint, or null.
+     */
+    public synchronized DataObject max(BitSet selection) {return extremum(selection,false);}
+
+    /** computes the minimum or maximum of the column values of the concepts in the selection.
+     *
+     * @param selection a set of concept ids, or null (all concepts)
+     * @param minimum  true for the minimum, false for the maximum
+     * @return the extremum as IntegerObject, FloatObject or AbsoluteTimePoint, or null.
+     */
+    private DataObject extremum(BitSet selection, boolean minimum) {
+        BitSet ids = selected(selection);
+        int best = -1;
+        for(int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id+1)) {
+            if(best < 0) {best = id; continue;}
+            int comparison = 0;
+            switch(kind) {
+                case INTEGER:   comparison = Integer.compare(ints[id],ints[best]); break;
+                case FLOAT:     comparison = Float.compare(floats[id],floats[best]); break;
+                case TIMEPOINT: comparison = compareTime(id,seconds[best],nanos[best]); break;
+                case BOOLEAN:   return null;}
+            if(minimum ? comparison < 0 : comparison > 0) {best = id;}}
+        return (best < 0) ? null : materialize(best);}
+
+    /** selects the concepts in the selection whose column value satisfies 'value operator otherValue'.
+     * The arithmetic operators are evaluated directly on the primitive values.
+     * All other operators are evaluated by ConcreteObject.compare.
+     *
+     * @param selection a set of concept ids, or null (all concepts)
+     * @param operator an operator
+     * @param otherValue for comparing: 'value operator otherValue'
+     * @return the set of ids of the concepts whose value satisfies the condition.
+     */
+    public synchronized BitSet filter(BitSet selection, Operators operator, DataObject otherValue) {
+        BitSet ids = selected(selection);
+        BitSet result = new BitSet();
+        if(kind == Kind.INTEGER && otherValue instanceof IntegerObject && isArithmetic(operator)) {
+            int other = ((IntegerObject)otherValue).value;
+            for(int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id+1)) {
+                if(test(operator,Integer.compare(ints[id],other))) {result.set(id);}}
+            return result;}
+        if(kind == Kind.FLOAT && (otherValue instanceof FloatObject || otherValue instanceof IntegerObject) && isArithmetic(operator)) {
+            float other = (otherValue instanceof FloatObject) ? ((FloatObject)otherValue).value : ((IntegerObject)otherValue).value;
+            for(int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id+1)) {
+                float value = floats[id];
+                if(test(operator,(value < other) ? -1 : (value == other ? 0 : 1))) {result.set(id);}}
+            return result;}
+        if(kind == Kind.BOOLEAN && otherValue instanceof BooleanObject && operator == Operators.EQUALS) {
+            result.or(ids);
+            if(booleans == null) {booleans = new BitSet();}
+            if(((BooleanObject)otherValue).value) {result.and(booleans);}
+            else {result.andNot(booleans);}
+            return result;}
+        if(kind == Kind.TIMEPOINT && otherValue instanceof AbsoluteTimePoint && isArithmetic(operator)) {
+            LocalDateTime time = (LocalDateTime)((AbsoluteTimePoint)otherValue).get();
+            long otherSeconds = time.toEpochSecond(ZoneOffset.UTC);
+            int otherNanos = time.getNano();
+            for(int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id+1)) {
+                if(test(operator,compareTime(id,otherSeconds,otherNanos))) {result.set(id);}}
+            return result;}
+        for(int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id+1)) {
+            Boolean test = ((ConcreteObject)materialize(id)).compare(operator,(ConcreteObject)otherValue);
+            if(test != null && test) {result.set(id);}}
+        return result;}
+
+    /** intersects the selection with the set of concepts which have a column value.
+     *
+     * @param selection a set of concept ids, or null (all concepts)
+     * @return a new BitSet
+     */
+    private BitSet selected(BitSet selection) {
+        BitSet ids = (BitSet)present.clone();
+        if(selection != null) {ids.and(selection);}
+        return ids;}
+
+    /** compares the time point with the given id with another time point
+     *
+     * @param id a concept id
+     * @param otherSeconds the other time point's epoch seconds
+     * @param otherNanos the other time point's nanoseconds
+     * @return -1, 0 or 1
+     */
+    private int compareTime(int id, long otherSeconds, int otherNanos) {
+        int comparison = Long.compare(seconds[id],otherSeconds);
+        return (comparison != 0) ? comparison : Integer.compare(nanos[id],otherNanos);}
+
+    /** @return true if the operator is one of the arithmetic comparison operators (false for null) */
+    private static boolean isArithmetic(Operators operator) {
+        if(operator == null) {return false;}
+        switch(operator) {
+            case LESS: case LESSEQUALS: case EQUALS: case GREATER: case GREATEREQUALS: return true;}
+        return false;}
+
+    /** checks the result of a comparison against an arithmetic operator.
+     *
+     * @param operator an arithmetic operator
+     * @param comparison the comparison result (negative, 0 or positive)
+     * @return true if the comparison satisfies the operator.
+     */
+    private static boolean test(Operators operator, int comparison) {
+        switch(operator) {
+            case LESS:          return comparison < 0;
+            case LESSEQUALS:    return comparison <= 0;
+            case EQUALS:        return comparison == 0;
+            case GREATER:       return comparison > 0;
+            case GREATEREQUALS: return comparison >= 0;}
+        return false;}
+
+    /** reconstructs the attribute with empty columns.
+     *
+     * @param in an ObjectInputStream for reading the objects.
+     * @throws IOException  if reading the object goes wrong
+     * @throws ClassNotFoundException should never be thrown.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        kind = getKind(getRangeType());
+        present = new BitSet();}
+
+    /** @return a short description of the attribute */
+    @Override
+    public String infoString() {return super.infoString() + " (columnar)";}
+}
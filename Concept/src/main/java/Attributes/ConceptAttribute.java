@@ -182,13 +182,49 @@ public class ConceptAttribute extends Attribute implements Serializable {
      */
     @Override
     public boolean addValue(Concept concept, DataObject value, AttributeValueList constraints, Scope scope, Context context, StringBuilder errors) {
-        if(!super.addValue(concept,value,constraints,scope,context,errors)) {return false;}
-        if(symmetric) {if(!super.addValue((Concept)value, concept,constraints,scope,context,errors)) {return false;}}
-        if(inverse != null) {
-            try{inverse.inverse = null;
-                return inverse.addValue((Concept)value, concept,constraints,scope,context,errors);}
-            finally{inverse.inverse = this;}}
-        return true;}
+        return context.change(() -> {
+            if(!super.addValue(concept,value,constraints,scope,context,errors)) {return false;}
+            if(symmetric) {if(!super.addValue((Concept)value, concept,constraints,scope,context,errors)) {return false;}}
+            if(inverse != null) {
+                try{inverse.inverse = null;
+                    return inverse.addValue((Concept)value, concept,constraints,scope,context,errors);}
+                finally{inverse.inverse = this;}}
+            return true;});}
+
+    /** removes an unconstrained value from the concept's attribute values.
+     * If the attribute is symmetric then the symmetry partner is removed.
+     * If there is an inverse attribute then the inverse is also removed.
+     *
+     * @param concept the concept where the value is to be removed.
+     * @param value   the value to be removed
+     * @param context where the objects live in
+     * @return true if the value has been removed.
+     */
+    @Override
+    public boolean removeValue(Concept concept, DataObject value, Context context) {
+        return context.change(() -> {
+            if(!super.removeValue(concept,value,context)) {return false;}
+            if(symmetric) {super.removeValue((Concept)value,concept,context);}
+            if(inverse != null) {
+                try{inverse.inverse = null;
+                    inverse.removeValue((Concept)value,concept,context);}
+                finally{inverse.inverse = this;}}
+            return true;});}
+
+    /** checks whether the concept has values of this attribute with the given scope.
+     * Reflexive attributes have always a value, namely the concept itself.
+     *
+     * @param concept a concept
+     * @param scope   a scope
+     * @param context where the objects live in
+     * @return true if the concept has values of this attribute with the given scope.
+     */
+    @Override
+    public boolean hasValues(Concept concept, Scope scope, Context context) {
+        if(reflexive) {return true;}
+        if(!context.hasValuesFor(concept,this)) {return false;}
+        AttributeValue value = context.getValue(concept,this);
+        return value != null && value.scope == scope;}
 
     /** returns the very first attribute value that satisfies the constraints (if there are any)
      *
@@ -205,7 +241,7 @@ public class ConceptAttribute extends Attribute implements Serializable {
         assert (operator == null) == (otherValue == null);
         if (reflexive && (operator == null || concept.compare(operator, (Concept)otherValue, context))) {return concept;}
 
-        AttributeValue value = concept.get(this);
+        AttributeValue value = context.getValue(concept,this);
         if (value == null || value.scope != scope) {return null;}
 
         if(transitive) {
@@ -235,11 +271,11 @@ public class ConceptAttribute extends Attribute implements Serializable {
      */
     public Stream<DataObject> stream(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context) {
         assert (operator == null) == (otherValue == null);
-        AttributeValue value = concept.get(this);
+        AttributeValue value = context.getValue(concept,this);
         if(value == null || value.scope != scope) {return null;}
         if(transitive) {
             Stream<DataObject> stream =  StreamGenerators.streamForGraph(concept,reflexive, Strategy.BREADTH_FIRST, // anpassen
-                    c -> {AttributeValue val = ((Concept)c).get(this);
+                    c -> {AttributeValue val = context.getValue((Concept)c,this);
                         if(val == null || val.scope != scope) {return null;}
                         return val.stream(null,null,(AttributeValueList)otherConstraints,context);});
             if(stream == null) {return null;}
@@ -252,9 +288,9 @@ public class ConceptAttribute extends Attribute implements Serializable {
 
 
     private static final String conceptAttributeDeclaration =
-            "ConceptAttribute <applicationName> reflexive,symmetric,transitive,functional domain = <domain> range = <range> inverse = <inverse>";
+            "ConceptAttribute <applicationName> reflexive,symmetric,transitive,functional,hashed domain = <domain> range = <range> inverse = <inverse>";
 
-    /** Parses a conceptAttribute declaration: reflexive,symmetric,transitive,functional [domain = domain] [range = range] [inverse = inverse];
+    /** Parses a conceptAttribute declaration: reflexive,symmetric,transitive,functional,hashed [domain = domain] [range = range] [inverse = inverse];
      * All parameters are optional.
      * Notice that attributes with inverse which are either reflexive, symmetric or transitive must have equal domain and range.
      *
@@ -280,6 +316,7 @@ public class ConceptAttribute extends Attribute implements Serializable {
         boolean reflexive = false;
         boolean symmetric = false;
         boolean transitive = false;
+        boolean hashed = false;
         SetConcept domain = null;
         SetConcept range = null;
         String inverse = null;
@@ -291,6 +328,7 @@ public class ConceptAttribute extends Attribute implements Serializable {
                 case "reflexive":  reflexive  = true; break;
                 case "symmetric":  symmetric  = true; break;
                 case "transitive": transitive = true; break;
+                case "hashed":     hashed     = true; break;
                 case "domain":
                     if(i == length - 1) {errors.append("Line "+ lineNumber + " attribute " + name + ":  no domain specified.\n"); okay = false;}
                     else {domain = SetConcept.parseString(namespace+parts[++i],context,errors);
@@ -317,6 +355,7 @@ public class ConceptAttribute extends Attribute implements Serializable {
         if(reflexive) {attribute.setReflexive();}
         if(symmetric) {attribute.setSymmetric();}
         if(transitive) {attribute.setTransitive();}
+        if(hashed) {attribute.setHashed(true);}
         if(inverse != null) {attribute.setInverse(inverse,context,errors);}
         return attribute;}
 
@@ -414,6 +453,7 @@ public class ConceptAttribute extends Attribute implements Serializable {
         if(reflexive)  {f+= "r";}
         if(symmetric)  {f += "s";}
         if(transitive) {f += "t";}
+        if(hashed)     {f += "h";}
         if(!f.isEmpty()) {s += " ("+f+")";}
         if(inverse != null){ s+= " " + getName() + "^-1 = " + inverse.toString();}
         return s;}
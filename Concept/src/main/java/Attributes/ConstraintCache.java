@@ -0,0 +1,150 @@
+package Attributes;
+
+import MISC.Activity;
+import MISC.Context;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** This class hash-conses AttributeValueLists and caches the results of AttributeValueList.implies.
+ * <br>
+ * The constraint lists which are stored in attribute values are interned:
+ * equal lists are mapped to one frozen canonical instance.
+ * The canonical instances are weakly referenced; a list which is no longer stored anywhere is removed.
+ * <br>
+ * The implication results are cached for pairs of lists. The pairs are compared by the lists' contents,
+ * so the lists of queries are not interned. A list which is not frozen is copied before it becomes part of a key.
+ * Implications between lists with only concrete values never change.
+ * Implications involving concepts depend on the concept hierarchy and are removed when it changes.
+ * Looking up a result takes no lock. A result cache which exceeds its capacity is replaced by an empty one.
+ */
+public class ConstraintCache {
+
+    /** the maximum number of cached implication results (for each of the two caches) */
+    private static final int capacity = 10000;
+
+    /** maps the lists to weak references to their canonical instances */
+    private final WeakHashMap<AttributeValueList,WeakReference<AttributeValueList>> canonical = new WeakHashMap<>();
+
+    /** a pair of constraint lists */
+    private static class Pair {
+        final AttributeValueList thisConstraints, otherConstraints;
+        final int hash;
+
+        Pair(AttributeValueList thisConstraints, AttributeValueList otherConstraints) {
+            this.thisConstraints = thisConstraints;
+            this.otherConstraints = otherConstraints;
+            hash = thisConstraints.hashCode() * 31 + otherConstraints.hashCode();}
+
+        /** @return the pair itself if both lists are frozen, otherwise a pair with frozen copies */
+        Pair frozen() {
+            if(thisConstraints.isFrozen() && otherConstraints.isFrozen()) {return this;}
+            return new Pair(thisConstraints.isFrozen() ? thisConstraints : thisConstraints.copy().freeze(),
+                    otherConstraints.isFrozen() ? otherConstraints : otherConstraints.copy().freeze());}
+
+        @Override
+        public int hashCode() {return hash;}
+
+        @Override
+        public boolean equals(Object object) {
+            if(!(object instanceof Pair)) {return false;}
+            Pair other = (Pair)object;
+            return hash == other.hash &&
+                    (thisConstraints == other.thisConstraints || thisConstraints.equals(other.thisConstraints)) &&
+                    (otherConstraints == other.otherConstraints || otherConstraints.equals(other.otherConstraints));}}
+
+    /** the implication results for pairs with only concrete values */
+    private volatile ConcurrentHashMap<Pair,Boolean> implications = new ConcurrentHashMap<>();
+
+    /** the implication results for pairs involving concepts.
+     * The map is replaced when the concept hierarchy changes; results computed meanwhile go into the old map. */
+    private volatile ConcurrentHashMap<Pair,Boolean> conceptImplications = new ConcurrentHashMap<>();
+
+    /** number of cache hits and misses */
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+    /** creates the cache and registers the invalidation observers at the concept hierarchy.
+     *
+     * @param context the context whose constraints are cached.
+     */
+    public ConstraintCache(Context context) {
+        context.conceptHierarchy.addSubNodeObserver((superconcept,subconcept,activity) -> clearConceptImplications());
+        context.conceptHierarchy.addNodeObserver((concept,activity) -> {
+            if(activity != Activity.ADD) {clearConceptImplications();}});}
+
+    /** returns the canonical frozen instance of the list.
+     * If there is none, a frozen copy of the list becomes the canonical instance.
+     * The list itself is not changed.
+     * Only lists which are stored permanently, i.e. the constraints of attribute values, should be interned.
+     *
+     * @param list a constraint list
+     * @return the canonical instance of the list.
+     */
+    public synchronized AttributeValueList intern(AttributeValueList list) {
+        WeakReference<AttributeValueList> reference = canonical.get(list);
+        AttributeValueList canonicalList = (reference == null) ? null : reference.get();
+        if(canonicalList != null) {return canonicalList;}
+        canonicalList = list.isFrozen() ? list : list.copy().freeze();
+        canonical.put(canonicalList,new WeakReference<>(canonicalList));
+        return canonicalList;}
+
+    /** checks whether thisConstraints implies otherConstraints.
+     * The result is taken from the cache, or computed and cached.
+     * Neither list is interned.
+     *
+     * @param thisConstraints  a constraint list
+     * @param otherConstraints another constraint list
+     * @param context where the objects live in.
+     * @return the result of thisConstraints.implies(otherConstraints,context).
+     */
+    public boolean implies(AttributeValueList thisConstraints, AttributeValueList otherConstraints, Context context) {
+        Pair pair = new Pair(thisConstraints,otherConstraints);
+        boolean concepts = thisConstraints.containsConcepts() || otherConstraints.containsConcepts();
+        ConcurrentHashMap<Pair,Boolean> results = concepts ? conceptImplications : implications;
+        Boolean result = results.get(pair);
+        if(result != null) {hits.incrementAndGet(); return result;}
+        misses.incrementAndGet();
+        boolean implies = thisConstraints.implies(otherConstraints,context);
+        if(results.size() >= capacity) {results = replace(concepts,results);}
+        results.put(pair.frozen(),implies);
+        return implies;}
+
+    /** replaces a full result cache by an empty one.
+     * If the cache has been replaced meanwhile, in particular after a change of the concept hierarchy,
+     * the old cache is returned, such that a result which may be out of date is not cached.
+     *
+     * @param concepts true for the cache of the pairs involving concepts
+     * @param results  the full cache
+     * @return the cache for the new result.
+     */
+    private synchronized ConcurrentHashMap<Pair,Boolean> replace(boolean concepts, ConcurrentHashMap<Pair,Boolean> results) {
+        if(concepts) {
+            if(conceptImplications != results) {return results;}
+            conceptImplications = new ConcurrentHashMap<>();
+            return conceptImplications;}
+        if(implications != results) {return results;}
+        implications = new ConcurrentHashMap<>();
+        return implications;}
+
+    /** removes the implication results which involve concepts */
+    public void clearConceptImplications() {
+        conceptImplications = new ConcurrentHashMap<>();}
+
+    /** clears the cache */
+    public synchronized void clear() {
+        canonical.clear();
+        implications = new ConcurrentHashMap<>();
+        conceptImplications = new ConcurrentHashMap<>();}
+
+    /** @return the number of cache hits */
+    public long getHits() {return hits.get();}
+
+    /** @return the number of cache misses */
+    public long getMisses() {return misses.get();}
+
+    /** @return the number of hits and misses */
+    public synchronized String getStatistics() {
+        return "ConstraintCache: " + hits.get() + " hits, " + misses.get() + " misses, " + canonical.size() + " lists";}
+}
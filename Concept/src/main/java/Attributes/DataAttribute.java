@@ -49,6 +49,19 @@ public class DataAttribute extends Attribute implements Serializable {
 
     public ConcreteType getRangeType(){return range;}
 
+    /** checks whether the concept has values of this attribute with the given scope.
+     *
+     * @param concept a concept
+     * @param scope   a scope
+     * @param context where the objects live in
+     * @return true if the concept has values of this attribute with the given scope.
+     */
+    @Override
+    public boolean hasValues(Concept concept, Scope scope, Context context) {
+        if(!context.hasValuesFor(concept,this)) {return false;}
+        AttributeValue value = context.getValue(concept,this);
+        return value != null && value.scope == scope;}
+
     /** returns the very first attribute value that satisfies the constraints (if there are any)
      *
      * @param concept the concept for which the attribute value is accessed.
@@ -61,7 +74,7 @@ public class DataAttribute extends Attribute implements Serializable {
      */
     @Override
     public DataObject getFirst(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context)  {
-        AttributeValue value = concept.get(this);
+        AttributeValue value = context.getValue(concept,this);
         return (value == null || value.scope != scope) ? null : value.getFirst(operator,otherValue,(AttributeValueList)otherConstraints,context);}
 
 
@@ -76,7 +89,7 @@ public class DataAttribute extends Attribute implements Serializable {
      * @return a stream of attribute values.
      */
     public Stream<DataObject> stream(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context){
-        AttributeValue value = concept.get(this);
+        AttributeValue value = context.getValue(concept,this);
         return (value == null || value.scope != scope) ? null : value.stream(operator,otherValue,(AttributeValueList)otherConstraints,context);}
 
 
@@ -95,16 +108,18 @@ public class DataAttribute extends Attribute implements Serializable {
      */
     @Override
     public <T> T find(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context, Function<DataObject,T> function) {
-        AttributeValue value = concept.get(this);
+        AttributeValue value = context.getValue(concept,this);
         return (value == null || value.scope != scope) ? null : value.find(operator,otherValue,(AttributeValueList)otherConstraints,context,function);}
 
 
 
     private static final String dataAttributeDeclaration =
-            "DataAttribute <applicationName> <functional> domain = <domain> range = <range>;";
+            "DataAttribute <applicationName> <functional> <columnar> <hashed> domain = <domain> range = <range>;";
 
-    /** parses a dataAttribute declaration: DataAttribute [applicationName] [functional] domain = [domainId] range = [range];
+    /** parses a dataAttribute declaration: DataAttribute [applicationName] [functional] [columnar] [hashed] domain = [domainId] range = [range];
      * All components except the applicationName are optional.
+     * 'columnar' yields a ColumnarDataAttribute. It requires 'functional' and the range Integer, Float, Boolean or AbsoluteTimePoint.
+     * 'hashed' keeps the values of non-functional attributes in AVHashLists.
      *
      * @param type must be "DataAttribute"
      * @param name the applicationName of the attribute.
@@ -121,15 +136,19 @@ public class DataAttribute extends Attribute implements Serializable {
                     ", should be 'ConceptAttribute'.\nThe syntax is" + dataAttributeDeclaration+ "\n");
             okay = false;}
         boolean functional = false;
+        boolean columnar = false;
+        boolean hashed = false;
         SetConcept domain = null;
         ConcreteType range = null;
         HashMap<String,String> parts = Utilities.split(declaration,",",
-                (key -> key.equals("functional") || key.equals("domain") || key.equals("range")));
+                (key -> key.equals("functional") || key.equals("columnar") || key.equals("hashed") || key.equals("domain") || key.equals("range")));
         for(String part : parts.keySet()) {
             String value = parts.get(part);
             if(value.startsWith("=")) {value = value.substring(1).trim();}
             switch(part) {
                 case "functional": functional = true; break;
+                case "columnar":   columnar = true; break;
+                case "hashed":     hashed = true; break;
                 case "domain":
                     if(value.isEmpty()) {errors.append("Line " + lineNumber + " attribute " + name + ":  no domain specified.\n"); okay = false;}
                     else {domain = SetConcept.parseString(namespace+value,context,errors);
@@ -140,7 +159,15 @@ public class DataAttribute extends Attribute implements Serializable {
                     else {range = (ConcreteType)context.getDataType(value);
                         okay &= range != null;}
                     break;}}
-        return okay ? new DataAttribute(name,context,functional,domain,range) : null;}
+        if(columnar && !(functional && ColumnarDataAttribute.isColumnType(range))) {
+            errors.append("Line " + lineNumber + " attribute " + name +
+                    ": columnar attributes must be functional with range Integer, Float, Boolean or AbsoluteTimePoint.\n");
+            okay = false;}
+        if(!okay) {return null;}
+        if(columnar) {return new ColumnarDataAttribute(name,context,domain,range);}
+        DataAttribute attribute = new DataAttribute(name,context,functional,domain,range);
+        attribute.setHashed(hashed);
+        return attribute;}
 
 
 
@@ -179,6 +206,7 @@ public class DataAttribute extends Attribute implements Serializable {
         String s = super.infoString();
         String f = "";
         if(functional) {f+= "f";}
+        if(hashed) {f+= "h";}
         if(!f.isEmpty()) {s += " ("+f+")";}
         return s;}
 }
@@ -6,6 +6,7 @@ import Concepts.Scope;
 import Concepts.SetConcept;
 import ConcreteDomain.ConcreteType;
 import Data.DataBlock;
+import MISC.Activity;
 import MISC.Context;
 import AbstractObjects.DataObject;
 
@@ -16,9 +17,14 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import Utils.TriConsumer;
 import Utils.Utilities;
 
 /** This class represents attributes which are computed by combining the attribute values of other attributes.
@@ -28,6 +34,12 @@ import Utils.Utilities;
  * 3. it is a unary function depending on an array of further attributes. <br>
  *
  * The functions ar applied to the ConcreteDomain Values (e.g. Integer) or to the Concepts, not to the DataObjects
+ * <br>
+ * The computed values can be memoized per concept in a cache with least-recently-used eviction.
+ * The cache entries of a concept are invalidated when the values of the argument attributes for this concept change.
+ * Changes to non-individual concepts, and changes of the concept hierarchy or attribute hierarchy clear the whole cache.
+ * The cache belongs to the context for which the memoization was switched on. Accesses in other contexts,
+ * in particular in forks, whose changes are not observed, bypass the cache.
  *
  * @author ohlbach
  */
@@ -40,6 +52,33 @@ public class FunctionAttribute extends Attribute implements Serializable {
 
     private ConcreteType rangeType;
 
+    /** the maximum number of concepts whose values are memoized (0 means no memoization) */
+    private int memoCapacity = 0;
+
+    /** maps concepts and scopes to the memoized function values, in least-recently-used order */
+    private transient volatile LinkedHashMap<Concept,HashMap<Scope,ArrayList<DataObject>>> memo = null;
+
+    /** is incremented at each invalidation. Values computed during an invalidation are not memoized */
+    private transient long memoGeneration = 0;
+
+    /** number of memo hits and misses */
+    private transient long memoHits = 0, memoMisses = 0;
+
+    /** the attributes whose values are observed (the arguments together with their subattributes) */
+    private transient ArrayList<Attribute> observedAttributes = null;
+
+    /** the observer for the values of the argument attributes */
+    private transient TriConsumer<Concept,DataObject,Activity> argumentObserver = null;
+
+    /** the observers for the concept and attribute hierarchies */
+    private transient TriConsumer<Concept,Concept,Activity> conceptSubNodeObserver = null;
+    private transient BiConsumer<Concept,Activity> conceptNodeObserver = null;
+    private transient TriConsumer<Attribute,Attribute,Activity> attributeSubNodeObserver = null;
+    private transient BiConsumer<Attribute,Activity> attributeNodeObserver = null;
+
+    /** the context whose hierarchies are observed */
+    private transient volatile Context memoContext = null;
+
 
     /** constructs a FunctionAttribute
      *
@@ -116,6 +155,122 @@ public class FunctionAttribute extends Attribute implements Serializable {
      */
     public ArrayList<Attribute> getAttributes()  {return attributes;}
 
+    /** switches the memoization of the function values on or off.
+     * Memoization is only possible if all arguments are DataAttributes, non-transitive ConceptAttributes,
+     * or memoized FunctionAttributes, because only for them the changes of the values are observed.
+     *
+     * @param capacity the maximum number of concepts whose values are memoized (0 switches memoization off).
+     * @param context where the objects live in.
+     * @return true if the memoization has been switched.
+     */
+    public synchronized boolean setMemoized(int capacity, Context context) {
+        if(capacity <= 0) {
+            if(memo != null) {unobserve();}
+            memoCapacity = 0; memo = null;
+            return true;}
+        for(Attribute attribute : attributes) {
+            if(!(attribute instanceof DataAttribute ||
+                    (attribute instanceof ConceptAttribute && !attribute.isTransitive()) ||
+                    (attribute instanceof FunctionAttribute && ((FunctionAttribute)attribute).isMemoized()))) {
+                return false;}}
+        memoCapacity = capacity;
+        if(memo != null) {return true;}
+        memo = new LinkedHashMap<Concept,HashMap<Scope,ArrayList<DataObject>>>(16,0.75f,true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Concept,HashMap<Scope,ArrayList<DataObject>>> eldest) {
+                return size() > memoCapacity;}};
+        memoContext = context;
+        argumentObserver = ((concept,value,activity) -> argumentChanged(concept));
+        conceptSubNodeObserver   = ((superNode,subNode,activity) -> hierarchyChanged());
+        conceptNodeObserver      = ((node,activity) -> {if(activity != Activity.ADD) {hierarchyChanged();}});
+        attributeSubNodeObserver = ((superNode,subNode,activity) -> hierarchyChanged());
+        attributeNodeObserver    = ((node,activity) -> {if(activity != Activity.ADD) {hierarchyChanged();}});
+        context.conceptHierarchy.addSubNodeObserver(conceptSubNodeObserver);
+        context.conceptHierarchy.addNodeObserver(conceptNodeObserver);
+        context.attributeHierarchy.addSubNodeObserver(attributeSubNodeObserver);
+        context.attributeHierarchy.addNodeObserver(attributeNodeObserver);
+        observe();
+        return true;}
+
+    /** @return true if the function values are memoized */
+    public synchronized boolean isMemoized() {return memo != null;}
+
+    /** registers the argument observer at the arguments and their subattributes */
+    private void observe() {
+        observedAttributes = new ArrayList<>();
+        for(Attribute attribute : attributes) {
+            for(Attribute subattribute : attribute.getSubattributes(memoContext)) {
+                if(!observedAttributes.contains(subattribute)) {
+                    observedAttributes.add(subattribute);
+                    subattribute.addValueObserver(argumentObserver);}}}}
+
+    /** removes all observers which have been registered for the memoization */
+    private void unobserve() {
+        if(observedAttributes != null) {for(Attribute attribute : observedAttributes) {attribute.removeValueObserver(argumentObserver);}}
+        memoContext.conceptHierarchy.removeSubNodeObserver(conceptSubNodeObserver);
+        memoContext.conceptHierarchy.removeNodeObserver(conceptNodeObserver);
+        memoContext.attributeHierarchy.removeSubNodeObserver(attributeSubNodeObserver);
+        memoContext.attributeHierarchy.removeNodeObserver(attributeNodeObserver);
+        observedAttributes = null; argumentObserver = null;
+        conceptSubNodeObserver = null; conceptNodeObserver = null;
+        attributeSubNodeObserver = null; attributeNodeObserver = null; memoContext = null;}
+
+    /** invalidates the memoized values after a value of an argument attribute has been changed.
+     * The change is propagated to the value observers of this attribute.
+     *
+     * @param concept the concept whose argument values have been changed.
+     */
+    private void argumentChanged(Concept concept) {
+        synchronized (this) {
+            if(memo == null) {return;}
+            ++memoGeneration;
+            if(concept.isIndividual()) {memo.remove(concept);}
+            else {memo.clear();}}
+        notifyValueObservers(concept,null,Activity.CHANGE);}
+
+    /** clears the memoized values and observes the new subattributes of the arguments. */
+    private synchronized void hierarchyChanged() {
+        if(memo == null) {return;}
+        ++memoGeneration;
+        memo.clear();
+        if(observedAttributes == null) {return;}
+        for(Attribute attribute : observedAttributes) {attribute.removeValueObserver(argumentObserver);}
+        observedAttributes = null;}
+
+    /** returns the memoized values of the concept, or computes and memoizes them.
+     * If the memoization has been switched off meanwhile, the values are just computed.
+     *
+     * @param concept a concept
+     * @param scope   the scope of the values
+     * @param context where the objects live in.
+     * @return the list of values, or null if they cannot be computed.
+     */
+    private ArrayList<DataObject> getMemoized(Concept concept, Scope scope, Context context) {
+        long generation = -1;
+        synchronized (this) {
+            HashMap<Scope,ArrayList<DataObject>> values = null;
+            if(memo != null) {
+                if(observedAttributes == null) {observe();}
+                values = memo.get(concept);
+                generation = memoGeneration;}
+            if(values != null) {
+                ArrayList<DataObject> list = values.get(scope);
+                if(list != null) {++memoHits; return list;}}
+            ++memoMisses;}
+        Stream<DataObject> stream = compute(concept,scope,null,null,null,context);
+        if(stream == null) {return null;}
+        ArrayList<DataObject> list = stream.collect(Collectors.toCollection(ArrayList::new));
+        list.trimToSize();
+        synchronized (this) {
+            if(memo != null && generation == memoGeneration) {
+                memo.computeIfAbsent(concept, c -> new HashMap<>()).put(scope,list);}}
+        return list;}
+
+    /** @return the number of memo hits and misses */
+    public synchronized String getMemoStatistics() {
+        return getName() + ": " + memoHits + " hits, " + memoMisses + " misses, " +
+                (memo == null ? 0 : memo.size()) + " concepts";}
+
     /** generates a stream of attribute values for the concept.
      * If only for one attribute the values are to be processed then operator, otherValue and otherConstraints can be
      * used to filter the values of the url-attribute.
@@ -131,10 +286,26 @@ public class FunctionAttribute extends Attribute implements Serializable {
      * @return a stream of attribute values.
      */
     public Stream<DataObject> stream(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context)  {
+        if(memo != null && context == memoContext && operator == null && otherConstraints == null) {
+            ArrayList<DataObject> values = getMemoized(concept,scope,context);
+            return (values == null) ? null : values.stream();}
+        return compute(concept,scope,operator,otherValue,otherConstraints,context);}
+
+    /** computes the stream of attribute values for the concept by applying the function.
+     *
+     * @param concept a concept with some attributes
+     * @param scope the scope of the value to be returned.
+     * @param operator for checking 'this.value operator otherValue'
+     * @param otherValue the value to be compared with the operator.
+     * @param otherConstraints a map of attribute - dataObject constraints
+     * @return a stream of attribute values.
+     */
+    private Stream<DataObject> compute(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context)  {
 
         if(oneFunction != null) {
-            return attributes.get(0).stream(concept,scope,operator,otherValue,otherConstraints,context).
-                    map(item -> oneFunction.apply(item.get())).filter(item -> item != null);}
+            Stream<DataObject> stream = attributes.get(0).stream(concept,scope,operator,otherValue,otherConstraints,context);
+            if(stream == null) {return null;}
+            return stream.map(item -> oneFunction.apply(item.get())).filter(item -> item != null);}
 
         if(twoFunction != null) {
             Stream<DataObject> stream1 = attributes.get(0).stream(concept,scope,operator,otherValue,otherConstraints,context);
@@ -169,8 +340,11 @@ public class FunctionAttribute extends Attribute implements Serializable {
         return null;}
 
 
+    /** the memo capacity if 'memoized' is specified without a capacity */
+    private static final int defaultMemoCapacity = 1000;
+
     private static final String functionDeclaration =
-            "FunctionAttribute <applicationName> attribute_1 ... attribute_n domain = <domain> range = <range> function = ...;";
+            "FunctionAttribute <applicationName> attribute_1 ... attribute_n domain = <domain> range = <range> [memoized [= capacity]] function = ...;";
 
 
     /** parses an FunctionAttribute declaration  'attribute_1 ... attribute_n domain = [domain] range = [range] function = ...;'
@@ -193,7 +367,7 @@ public class FunctionAttribute extends Attribute implements Serializable {
 
         ArrayList<Attribute> attributes = new ArrayList<>();
         for(String part : declaration.split("\\s*( |,)\\s*")) {
-            if(part.equals("domain") || part.equals("range") || part.equals("function")) {break;}
+            if(part.equals("domain") || part.equals("range") || part.equals("memoized") || part.equals("function")) {break;}
             Attribute attribute = context.getAttribute(namespace+part);
             if(attribute != null) {attributes.add(attribute);}
             else {errors.append("Line " + lineNumber + "FunctionAttribute " + name + ": unknown attribute " + part); okay = false;}
@@ -203,9 +377,11 @@ public class FunctionAttribute extends Attribute implements Serializable {
         SetConcept domain = null;
         ConcreteType rangeType = null;
         FunctionAttribute attribute = null;
+        int memoCapacity = 0;
 
         HashMap<String,String> parts = Utilities.split(declaration,",",
-                (key -> key.equals("function") || key.equals("domain") || key.equals("range") || context.getAttribute(namespace+key) != null));
+                (key -> key.equals("function") || key.equals("domain") || key.equals("range") || key.equals("memoized") ||
+                        context.getAttribute(namespace+key) != null));
         for(String part : parts.keySet()) {
             String value = parts.get(part);
             if(value.startsWith("=")) {value = value.substring(1).trim();}
@@ -219,6 +395,12 @@ public class FunctionAttribute extends Attribute implements Serializable {
                     if(value.isEmpty()) {errors.append("Line " + lineNumber + " attribute " + name + ":  no range specified.\n"); okay = false;}
                     else {rangeType = (ConcreteType)context.getDataType(value);
                         okay &= rangeType != null;}
+                    break;
+                case "memoized":
+                    if(value.isEmpty()) {memoCapacity = defaultMemoCapacity; break;}
+                    try {memoCapacity = Integer.parseInt(value);}
+                    catch(NumberFormatException ex) {
+                        errors.append("Line " + lineNumber + " attribute " + name + ":  memo capacity " + value + " is no integer.\n"); okay = false;}
                     break;}}
 
         String scriptText = parts.get("function");
@@ -253,6 +435,8 @@ public class FunctionAttribute extends Attribute implements Serializable {
                         attribute =  new FunctionAttribute(fullname,context,domain,rangeType);
                         attribute.setMultiFunction(scriptText,function,attributes);}
                     break;}}
+        if(attribute != null && memoCapacity > 0 && !attribute.setMemoized(memoCapacity,context)) {
+            errors.append("Line " + lineNumber + " attribute " + name + " can not be memoized.\n");}
         return attribute;}
 
     /** This method is necessary because a domain and range can be a concept, and concepts need to be unique in the current context.
@@ -266,6 +450,7 @@ public class FunctionAttribute extends Attribute implements Serializable {
         out.writeObject(rangeType == null ? null : rangeType.toString());
         out.writeObject(functional);
         out.writeObject(Utilities.join(attributes,",",(a-> a.getName())));
+        out.writeObject(memoCapacity);
         boolean written = false;
         if(oneFunction != null)   {out.writeObject(1); if(oneFunction   instanceof Serializable) {out.writeObject(oneFunction);  written = true;}}
         if(twoFunction != null)   {out.writeObject(2); if(twoFunction   instanceof Serializable) {out.writeObject(twoFunction);  written = true;}}
@@ -289,12 +474,14 @@ public class FunctionAttribute extends Attribute implements Serializable {
         attributes = new ArrayList<>();
         for(String name : ((String)in.readObject()).split(",")) {
             attributes.add(Context.currentContext.getAttribute(name));}
+        int capacity = (int)in.readObject();
         if(domain != null) {
             SetConcept concept = (SetConcept)Context.currentContext.getConcept(domain.getName());
             if(concept == null) {Context.currentContext.putConcept(domain);}
             else {domain = concept;}}
         int n = (int)in.readObject();
         Object item = in.readObject();
+        if(capacity > 0) {setMemoized(capacity,Context.currentContext);}
         if(item == null) {return;}
         if(!(item instanceof String)) {
             switch(n) {
@@ -333,6 +520,7 @@ public class FunctionAttribute extends Attribute implements Serializable {
                 s.append(attributes.get(i).toString()).append(",");}
             s.deleteCharAt(s.length()-1);}
         s.append(")");
+        if(memoCapacity > 0) {s.append(" (memoized ").append(memoCapacity).append(")");}
         if(scriptText != null){s.append("\n").append(scriptText);}
         return s.toString();}
 
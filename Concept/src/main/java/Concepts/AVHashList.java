@@ -0,0 +1,237 @@
+package Concepts;
+
+import AbstractObjects.DataObject;
+import AbstractObjects.Operators;
+import Attributes.AttributeValueList;
+import MISC.Context;
+import Utils.Utilities;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/** This class represents lists of attribute values with a hash index for the unconstrained values.
+ * <br>
+ * The unconstrained values are kept in a LinkedHashMap, which maps the values to their singletons.
+ * This allows for constant time lookup, de-duplication and removal.
+ * The constrained values are kept in the list of the superclass.
+ * The unconstrained values come first in the order in which they were inserted, followed by the constrained values.
+ */
+public class AVHashList extends AVList implements Serializable {
+
+    /** maps the unconstrained values to their singletons (in insertion order) */
+    private transient LinkedHashMap<DataObject,AVSingletonUnconstrained> index = new LinkedHashMap<>();
+
+    /** the class of the unconstrained values, or null if the index is empty or the values have different classes */
+    private transient Class keyClass = null;
+
+    /** contructs an empty list
+     */
+    public AVHashList() {}
+
+    /** constructs a list with a single value
+     *
+     * @param value the value to be added to the list
+     */
+    public AVHashList(AVSingleton value) {addValue(value);}
+
+    /** @return true if there is no value in the list */
+    @Override
+    public boolean isEmpty() {return index.isEmpty() && values.isEmpty();}
+
+    /** @return the number of values in the list */
+    public int size() {return index.size() + values.size();}
+
+    /** adds a new attribute value.
+     * Unconstrained values which are already in the list are not added again.
+     *
+     * @param value the value to be added.
+     * @return true if the value has been added.
+     */
+    @Override
+    public boolean addValue(AVSingleton value) {
+        if(value instanceof AVSingletonUnconstrained) {
+            boolean empty = index.isEmpty();
+            if(index.putIfAbsent(value.get(),(AVSingletonUnconstrained)value) != null) {return false;}
+            Class clazz = value.get().getClass();
+            keyClass = (empty || keyClass == clazz) ? clazz : null;
+            return true;}
+        values.add(value);
+        return true;}
+
+    /** removes the value.
+     *
+     * @param value the value to be removed
+     */
+    @Override
+    public void removeValue(AVSingleton value) {
+        if(value instanceof AVSingletonUnconstrained) {index.remove(value.get());}
+        else {values.remove(value);}}
+
+    /** removes the unconstrained value
+     *
+     * @param value the value to be removed
+     * @return true if the value has been removed.
+     */
+    @Override
+    public boolean removeValue(DataObject value) {
+        return index.remove(value) != null;}
+
+    /** checks whether the value is an unconstrained value in the list.
+     *
+     * @param value a value
+     * @return true if the value is an unconstrained value in the list.
+     */
+    public boolean containsValue(DataObject value) {return index.containsKey(value);}
+
+    /** exchanges the old value with the new value.
+     * If the old value is not in the list, the new value is just added.
+     *
+     * @param oldValue the old value
+     * @param newValue the new value
+     * @return true if the values had been exchanged.
+     */
+    @Override
+    public boolean exchangeValue(AVSingleton oldValue, AVSingleton newValue) {
+        boolean removed = (oldValue instanceof AVSingletonUnconstrained) ?
+                index.remove(oldValue.get()) != null :
+                values.remove(oldValue);
+        addValue(newValue);
+        return removed;}
+
+    /** @return the first element in the list */
+    @Override
+    public DataObject get() {
+        if(!index.isEmpty()) {return index.keySet().iterator().next();}
+        return values.isEmpty() ? null : values.get(0).get();}
+
+    /** applies the consumer to all values together with their constraints, the unconstrained ones first.
+     *
+     * @param consumer a consumer for the values and their constraints.
+     */
+    @Override
+    public void forEachValue(BiConsumer<DataObject,AttributeValueList> consumer) {
+        for(DataObject value : index.keySet()) {consumer.accept(value,null);}
+        for(AVSingleton value : values) {value.forEachValue(consumer);}}
+
+    @Override
+    public AVObject copy() {
+        AVHashList copy = new AVHashList();
+        for(AVSingletonUnconstrained value : index.values()) {copy.addValue((AVSingleton)value.copy());}
+        for(AVSingleton value : values) {copy.values.add((AVSingleton)value.copy());}
+        return copy;}
+
+    /** @return all singletons, the unconstrained ones first */
+    private Stream<AVSingleton> singletons() {
+        return Stream.concat(index.values().stream(),values.stream());}
+
+    /** checks equality of two lists
+     *
+     * @param object the other object to be compared
+     * @return true if the lists are equal
+     */
+    @Override
+    public boolean equals(Object object) {
+        if(object == null || object.getClass() != AVHashList.class) {return false;}
+        AVHashList other = (AVHashList)object;
+        if(!index.keySet().equals(other.index.keySet()) || values.size() != other.values.size()) {return false;}
+        for(AVSingleton avs : values) {if(!other.values.contains(avs)) {return false;}}
+        for(AVSingleton avs : other.values) {if(!values.contains(avs)) {return false;}}
+        return true;}
+
+    @Override
+    public int hashCode() {return index.keySet().hashCode();}
+
+    /** returns the first value satisfying the constraint.
+     * Unconstrained values which are equal to otherValue are found by a hash lookup.
+     * If all unconstrained values have the class of otherValue, a miss in the index means that none of them is EQUALS otherValue,
+     * and only the constrained values are searched.
+     *
+     * @param operator for comparing value with otherValue (may be null)
+     * @param otherValue to be compared with value
+     * @param otherConstraints to be satisfied
+     * @param context where the objects live in
+     * @return the first value satisfying the constraint, or null.
+     */
+    @Override
+    DataObject getFirst(Operators operator, DataObject otherValue, AttributeValueList otherConstraints, Context context) {
+        if(operator == Operators.EQUALS && otherConstraints == null) {
+            AVSingletonUnconstrained singleton = index.get(otherValue);
+            if(singleton != null) {return singleton.get();}
+            if(index.isEmpty() || keyClass == otherValue.getClass()) {
+                for(AVSingleton value : values) {
+                    DataObject first = value.getFirst(operator,otherValue,null,context);
+                    if(first != null) {return first;}}
+                return null;}}
+        Iterator<AVSingleton> iterator = singletons().iterator();
+        while(iterator.hasNext()) {
+            DataObject first = iterator.next().getFirst(operator,otherValue,otherConstraints,context);
+            if(first != null) {return first;}}
+        return null;}
+
+    /** returns the first non-null function application to a value satisfying the constraint.
+     *
+     * @param operator for comparing value with otherValue (may be null)
+     * @param otherValue to be compared with value
+     * @param otherConstraints the constraints to be satisfied.
+     * @param context  where the objects live in.
+     * @param function a function to be applied to the values.
+     * @param <T> the return type of the function
+     * @return the first non-null function application to a value satisfying the constraint.
+     */
+    @Override
+    <T> T find(Operators operator, DataObject otherValue, AttributeValueList otherConstraints, Context context, Function<DataObject,T> function) {
+        Iterator<AVSingleton> iterator = singletons().iterator();
+        while(iterator.hasNext()) {
+            T first = iterator.next().find(operator,otherValue,otherConstraints,context,function);
+            if(first != null) {return first;}}
+        return null;}
+
+    /** returns the stream of attribute values satisfying the constraint.
+     *
+     * @param operator for comparing value with otherValue (may be null)
+     * @param otherValue to be compared with value
+     * @param otherConstraints the constraints to be satisfied
+     * @param context where the objects live in
+     * @return the stream of attribute values satisfying the constraint.
+     */
+    @Override
+    Stream<DataObject> stream(Operators operator, DataObject otherValue, AttributeValueList otherConstraints, Context context) {
+        if(isEmpty()) {return null;}
+        if(operator == null && otherConstraints == null && values.isEmpty()) {return index.keySet().stream();}
+        return singletons().
+                map(value->value.getFirst(operator,otherValue,otherConstraints,context)).
+                filter(value-> value !=null);}
+
+    /** @return the values in separate lines. */
+    @Override
+    public String toString() {
+        ArrayList<AVSingleton> all = new ArrayList<>(index.values());
+        all.addAll(values);
+        return Utilities.join(all,"\n",(v->v.toString()));}
+
+    /** writes the unconstrained singletons and the constrained ones.
+     *
+     * @param out an ObjectOutputStream for writing the value.
+     * @throws IOException if something goes wrong.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.writeObject(new ArrayList<>(index.values()));}
+
+    /** reads the unconstrained singletons and rebuilds the index.
+     *
+     * @param in an ObjectInputStream for reading the objects.
+     * @throws IOException  if reading the object goes wrong
+     * @throws ClassNotFoundException should never be thrown.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        index = new LinkedHashMap<>();
+        for(AVSingletonUnconstrained singleton : (ArrayList<AVSingletonUnconstrained>)in.readObject()) {addValue(singleton);}}
+}
@@ -8,6 +8,7 @@ import Utils.Utilities;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -33,8 +34,9 @@ public class AVList extends AVObject implements Serializable {
 
     /** adds a new attribute value.
      *
-     * @param value the value to be added.*/
-    public void addValue(AVSingleton value) {values.add(value);}
+     * @param value the value to be added.
+     * @return true if the value has been added.*/
+    public boolean addValue(AVSingleton value) {return values.add(value);}
 
     /** removes the value.
      *
@@ -42,6 +44,19 @@ public class AVList extends AVObject implements Serializable {
      */
     public void removeValue(AVSingleton value) {values.remove(value);}
 
+    /** removes the first unconstrained value which equals the given value.
+     *
+     * @param value the value to be removed
+     * @return true if the value has been removed.
+     */
+    public boolean removeValue(DataObject value) {
+        for(int i = 0; i < values.size(); ++i) {
+            AVSingleton singleton = values.get(i);
+            if(singleton instanceof AVSingletonUnconstrained && value.equals(singleton.get())) {
+                values.remove(i);
+                return true;}}
+        return false;}
+
     /** exchanges the old value with the new value.
      * If the old value is not in the list, the new value is just added.
      *
@@ -56,6 +71,20 @@ public class AVList extends AVObject implements Serializable {
         return true;}
 
 
+    /** applies the consumer to all values in the list together with their constraints.
+     *
+     * @param consumer a consumer for the values and their constraints.
+     */
+    @Override
+    public void forEachValue(BiConsumer<DataObject,AttributeValueList> consumer) {
+        for(AVSingleton value : values) {value.forEachValue(consumer);}}
+
+    @Override
+    public AVObject copy() {
+        AVList copy = new AVList();
+        for(AVSingleton value : values) {copy.values.add((AVSingleton)value.copy());}
+        return copy;}
+
     /** @return the first element in the list */
     public DataObject get() {
         return values.isEmpty() ? null : values.get(0).get();}
@@ -75,6 +104,13 @@ public class AVList extends AVObject implements Serializable {
         return true;
     }
 
+    /** @return a hash code which does not depend on the order of the values */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for(AVSingleton avs : values) {hash += avs.hashCode();}
+        return hash;}
+
     /** returns the first value satisfying the constraint
      *
      * @param operator for comparing value with otherValue (may be null)
@@ -6,6 +6,7 @@ import Attributes.AttributeValueList;
 import ConcreteDomain.ConcreteObject;
 import MISC.Context;
 
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -26,6 +27,15 @@ public abstract class AVObject {
      */
     public abstract DataObject get();
 
+    /** applies the consumer to all values together with their constraints (null for unconstrained values).
+     *
+     * @param consumer a consumer for the values and their constraints.
+     */
+    public abstract void forEachValue(BiConsumer<DataObject,AttributeValueList> consumer);
+
+    /** @return a copy which can be changed independently of this object (the values themselves are shared) */
+    public abstract AVObject copy();
+
     /** Returns the first value which satisfies the given conditions.
      * These are:<br>
      *     - if operator != null then 'value operator otherValue' must return true <br>
@@ -94,6 +104,6 @@ public abstract class AVObject {
                     ((Concept) thisValue).compare(operator, (Concept) otherValue, context);}
         if(!okay) {return false;}
         if(thisConstraints == null || otherConstraints == null) {return true;}
-        return thisConstraints.implies(otherConstraints,context);
+        return context.constraintCache.implies(thisConstraints,otherConstraints,context);
     }
 }
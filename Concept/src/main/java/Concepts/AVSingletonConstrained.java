@@ -8,6 +8,7 @@ import MISC.Context;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -47,6 +48,21 @@ public class AVSingletonConstrained extends AVSingleton implements Serializable
         values.add(value);
         constraints.add(constraint);}
 
+    /** applies the consumer to the values and their constraints, in the order of their insertion.
+     *
+     * @param consumer a consumer for the values and their constraints.
+     */
+    @Override
+    public void forEachValue(BiConsumer<DataObject,AttributeValueList> consumer) {
+        for(int i = 0; i < values.size(); ++i) {consumer.accept(values.get(i),constraints.get(i));}}
+
+    @Override
+    public AVObject copy() {
+        AVSingletonConstrained copy = new AVSingletonConstrained();
+        copy.values.addAll(values);
+        copy.constraints.addAll(constraints);
+        return copy;}
+
     /** @return the last attribute value, or null*/
     public DataObject get() {
         return values.isEmpty() ? null : values.get(values.size()-1);}
@@ -68,6 +84,9 @@ public class AVSingletonConstrained extends AVSingleton implements Serializable
             if(!constraints.get(i).equals(other.constraints.get(i))) {return false;}}
         return true;}
 
+    @Override
+    public int hashCode() {return values.hashCode();}
+
     /** returns the first value satisfying the constraints
      *
      * @param operator for comparing value with otherValue (may be null)
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -30,6 +31,16 @@ public class AVSingletonUnconstrained extends AVSingleton implements Serializabl
     /** @return the attribute value */
     public DataObject get() {return value;}
 
+    /** applies the consumer to the value and null
+     *
+     * @param consumer a consumer for the values and their constraints.
+     */
+    @Override
+    public void forEachValue(BiConsumer<DataObject,AttributeValueList> consumer) {consumer.accept(value,null);}
+
+    @Override
+    public AVObject copy() {return new AVSingletonUnconstrained(value);}
+
     /** sets the value if constraints == null.
      *
      * @param value      the value to be set
@@ -48,6 +59,9 @@ public class AVSingletonUnconstrained extends AVSingleton implements Serializabl
         return value.equals(((AVSingletonUnconstrained)object).value);
     }
 
+    @Override
+    public int hashCode() {return value.hashCode();}
+
     /** Returns the value, but if the operator != null, it checks 'value operator otherValue' first.
      *
      * @param operator an operator
@@ -86,6 +86,9 @@ public class AttributeValue {
     /**  @return true if the value is null.*/
     public boolean isEmpty() {return value == null;}
 
+    /** @return a copy which can be changed independently of this AttributeValue */
+    public AttributeValue copy() {return new AttributeValue(value == null ? null : value.copy(), scope);}
+
     /** compares two AttributeValues for equality
      *
      * @param object the other object
@@ -8,15 +8,20 @@ import DAGs.Direction;
 import DAGs.InnerNode;
 import DAGs.Node;
 import Data.DataBlock;
-import Graphs.Strategy;
+import MISC.ConceptPager;
 import MISC.Context;
 import DAGs.DAG;
 import Utils.Utilities;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.stream.Stream;
 
 /** This is an abstract superclass of IndividualConcept and SetConcept.
@@ -25,8 +30,20 @@ import java.util.stream.Stream;
  */
 public abstract class Concept extends ItemWithId implements DataObject, Serializable {
 
-    /** the concept's attributes */
-    private final HashMap<Attribute,AttributeValue> attributeValues = new HashMap();
+    /** the concept's attributes (null while they are evicted by the pager) */
+    private volatile HashMap<Attribute,AttributeValue> attributeValues = new HashMap();
+
+    /** loads and evicts the attribute values if the context is paged, otherwise null */
+    private transient ConceptPager pager = null;
+
+    /** the pager's reference bit: set when the concept is used, cleared by the pager's clock */
+    private transient volatile boolean used = false;
+
+    /** the ids of the attributes for which the concept has attribute values */
+    private transient BitSet attributeIds = null;
+
+    /** true after Java deserialization: the attribute ids are not known, and attributeIds may be incomplete */
+    private transient boolean attributeIdsUnknown = false;
 
     /** creates a new concept and puts it into its context.
      *
@@ -46,19 +63,134 @@ public abstract class Concept extends ItemWithId implements DataObject, Serializ
         for(Concept superconcept : superconcepts) {
             context.conceptHierarchy.addSubnode(superconcept,this);}}
 
-    /** just sets the attribute value, without any checks or inferences
+    /** just sets the attribute value, without any checks or inferences.
+     * The change is neither recorded in the context's change log nor does it invalidate the context's resolution cache;
+     * Context.putValue does both.
      *
      * @param attribute the attribute
      * @param value     its value
      */
-    public void put(Attribute attribute, AttributeValue value) {attributeValues.put(attribute,value);}
+    public void put(Attribute attribute, AttributeValue value) {
+        values().put(attribute,value);
+        markAttribute(attribute);
+        if(pager != null) {pager.changed(this);}}
+
+    /** removes the attribute's values from the concept, without any checks or inferences.
+     * The attribute stays marked in the bitmap if the attribute itself still stores a value for the concept.
+     * The change is not recorded in the context's change log; Context.removeValue records it.
+     *
+     * @param attribute the attribute
+     * @return the removed AttributeValue, or null.
+     */
+    public AttributeValue remove(Attribute attribute) {
+        int id = attribute.getId();
+        if(id >= 0 && attributeIds != null && !attribute.hasExternalValue(this)) {attributeIds.clear(id);}
+        if(pager != null) {pager.changed(this);}
+        return values().remove(attribute);}
+
+    /** records that the concept has values of the given attribute.
+     * Attributes which store their values outside the concept call this method as well.
+     *
+     * @param attribute an attribute
+     */
+    public void markAttribute(Attribute attribute) {
+        int id = attribute.getId();
+        if(id < 0) {return;}
+        if(attributeIds == null) {attributeIds = new BitSet();}
+        attributeIds.set(id);}
+
+    /** applies the consumer to the ids of the attributes for which the concept may have values.
+     *
+     * @param consumer a consumer for attribute ids
+     * @return false if the ids are not known (after Java deserialization): then nothing is done.
+     */
+    public boolean forEachMarkedAttribute(IntConsumer consumer) {
+        if(attributeIdsUnknown) {return false;}
+        BitSet ids = attributeIds;
+        if(ids != null) {ids.stream().forEach(consumer);}
+        return true;}
+
+    /** checks by means of a bitmap whether the concept may have values for the attribute.
+     *
+     * @param attribute an attribute
+     * @return false if the concept certainly has no values for the attribute.
+     */
+    public boolean hasValuesFor(Attribute attribute) {
+        int id = attribute.getId();
+        if(id < 0 || attributeIdsUnknown) {return true;}
+        return attributeIds != null && attributeIds.get(id);}
+
+    /** reads the concept by Java deserialization.
+     * The bitmap is not serialized, since the attributes get their ids only when they are put into a context.
+     * Therefore hasValuesFor answers true for deserialized concepts.
+     *
+     * @param in where to read the concept from.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        attributeIdsUnknown = true;}
+
+    /** applies the consumer to all attributes and AttributeValues which are stored in the concept itself.
+     * Values which are stored outside the concept, e.g. in a ColumnarDataAttribute, are not included.
+     *
+     * @param consumer a consumer for the attribute and its AttributeValue.
+     */
+    public void forEachAttributeValue(BiConsumer<Attribute,AttributeValue> consumer) {
+        values().forEach(consumer);}
 
     /** returns the AttributeValue object for the given attribute
      *
      * @param attribute an attribute
      * @return the corresponding AttributeValue, or null if there is none.
      */
-    public AttributeValue get(Attribute attribute) {return attributeValues.get(attribute);}
+    public AttributeValue get(Attribute attribute) {return values().get(attribute);}
+
+    /** returns the attribute values. Evicted values are loaded by the pager.
+     *
+     * @return the map of the attribute values.
+     */
+    private HashMap<Attribute,AttributeValue> values() {
+        HashMap<Attribute,AttributeValue> values = attributeValues;
+        return (values != null) ? values : pager.load(this);}
+
+    /* ******************************** Paging ******************************************/
+
+    /** puts the concept under the control of a pager.
+     *
+     * @param pager the context's pager
+     */
+    public void setPager(ConceptPager pager) {this.pager = pager;}
+
+    /** @return the attribute values if they are on the heap, otherwise null (without loading them) */
+    public HashMap<Attribute,AttributeValue> getResidentValues() {return attributeValues;}
+
+    /** is called by the pager when it has loaded the attribute values.
+     *
+     * @param values the loaded attribute values.
+     */
+    public void setResidentValues(HashMap<Attribute,AttributeValue> values) {attributeValues = values;}
+
+    /** is called by the pager after it has written back the attribute values. */
+    public void evictValues() {attributeValues = null;}
+
+    /** sets the pager's reference bit. No lock is taken; a lost update only costs the concept its second chance. */
+    public void markUsed() {if(!used) {used = true;}}
+
+    /** clears the pager's reference bit
+     *
+     * @return true if the bit was set.
+     */
+    public boolean clearUsed() {
+        if(!used) {return false;}
+        used = false;
+        return true;}
+
+    /** @return true if the concept's attribute values are on the heap and not empty */
+    public boolean hasAttributeValues() {
+        HashMap<Attribute,AttributeValue> values = attributeValues;
+        return values != null && !values.isEmpty();}
 
     /** adds an unconstrained attribute-value pair to the concept.
      * If the attribute is symmetric then the symmetry partner is added.
@@ -170,6 +302,8 @@ public abstract class Concept extends ItemWithId implements DataObject, Serializ
      * to find the first non-null default values.
      *<br>
      * Notice that the result maybe non-null even if the stream is empty.
+     * <br>
+     * The concepts and attributes where the values are looked for are taken from context.resolutionCache.
      *
      * @param attribute the corresponding attribute.
      * @param context the context where the objects live in.
@@ -177,37 +311,18 @@ public abstract class Concept extends ItemWithId implements DataObject, Serializ
      * @return  a stream of DataObjects, or null if there are none.
      */
     public Stream<DataObject> stream(Attribute attribute, Operators operator, DataObject otherValue, AttributeValueList otherConstraints, Context context)  {
-        Stream<DataObject> stream = streamAttHier(attribute,Scope.LOCAL,operator,otherValue,otherConstraints,context);
-
-        Stream<DataObject>[] dummy = new Stream[]{stream};
-        context.conceptHierarchy.applyToInnerLabels(this, Direction.UP, Strategy.BREADTH_FIRST,
-                (superconcept -> {dummy[0] =  Utilities.streamsConcat(dummy[0],
-                        superconcept.streamAttHier(attribute,Scope.ALL,operator,otherValue,otherConstraints,context));}));
-        stream = dummy[0];
+        ResolutionCache.Resolution resolution = context.resolutionCache.get(this,attribute,context);
+        Stream<DataObject> stream = null;
+        for(ResolutionCache.Holder holder : resolution.holders) {
+            stream = Utilities.streamsConcat(stream,
+                    holder.attribute.stream(holder.concept,holder.scope,operator,otherValue,otherConstraints,context));}
         if(stream != null) {return stream;}
-        return context.conceptHierarchy.findInInnerLabels(this,Direction.UP,Strategy.BREADTH_FIRST,
-                (superconcept -> (superconcept == this) ? null :
-                        superconcept.streamAttHier(attribute,Scope.DEFAULT,operator,otherValue,otherConstraints,context)));}
-
-    /** This method goes down the attribute hierarchy and concatenates the streams of
-     * all attribute values with the given scope.
-     * If the scope is DEFAULT, then only the first non-null stream is returned.
-     *
-     * @param attribute the start attribute in the attribute hierarchy
-     * @param context the context where the objects live in.
-     * @param scope     the scope of the attributes
-     * @param otherConstraints constraints for the search.
-     * @return the concatenated streams of the given scope.
-     */
-    private Stream<DataObject> streamAttHier(Attribute attribute,Scope scope, Operators operator, DataObject otherValue, AttributeValueList otherConstraints, Context context)  {
-        Stream<DataObject>[] dummy = new Stream[]{attribute.stream(this,scope,operator,otherValue,otherConstraints,context)};
-        context.attributeHierarchy.applyToInnerLabels(attribute, Direction.DOWN, Strategy.BREADTH_FIRST,
-                (subrelation -> {
-                    if(subrelation == attribute) {return;}
-                    Stream stream = subrelation.stream(this,scope,operator,otherValue,otherConstraints,context);
-                    if(stream != null) {dummy[0] = Utilities.streamsConcat(dummy[0],stream);
-                        if(scope == Scope.DEFAULT) {return;}}}));
-        return dummy[0];}
+        for(ArrayList<ResolutionCache.Holder> group : resolution.defaults) {
+            for(ResolutionCache.Holder holder : group) {
+                stream = Utilities.streamsConcat(stream,
+                        holder.attribute.stream(holder.concept,holder.scope,operator,otherValue,otherConstraints,context));}
+            if(stream != null) {return stream;}}
+        return null;}
 
 
     /** returns the first attribute value without considering constraints.
@@ -236,33 +351,15 @@ public abstract class Concept extends ItemWithId implements DataObject, Serializ
      * @return the first attribute value.
      */
     public DataObject getFirst(Attribute attribute,  Operators operator, DataObject otherValue, AttributeValueList otherConstraints, Context context)  {
-        DataObject value = getFirstAttHier(attribute,Scope.LOCAL,operator, otherValue, otherConstraints,context);
-        if(value != null) {return value;}
-        value = context.conceptHierarchy.findInInnerLabels(this, Direction.UP, Strategy.BREADTH_FIRST,
-                (superconcept -> superconcept.getFirstAttHier(attribute,Scope.ALL, operator, otherValue, otherConstraints,context)));
-        if(value != null ) {return value;}
-        value = context.conceptHierarchy.findInInnerLabels(this, Direction.UP, Strategy.BREADTH_FIRST,
-                (superconcept -> (superconcept == this) ? null :
-                        superconcept.getFirstAttHier(attribute, Scope.DEFAULT,operator, otherValue, otherConstraints,context)));
-        return value;}
-
-    /** searches the first attribute value with the given scope, down the attribute hierarchy
-     *
-     * @param attribute the start attribute in the hierarchy
-     * @param context the context where the objects live in.
-     * @param scope     the scope of the values to be searched
-     * @param otherConstraints the constraints for the search.
-     * @return the first non-null attribute value.
-     */
-    private DataObject getFirstAttHier(Attribute attribute, Scope scope, Operators operator, DataObject otherValue, AttributeValueList otherConstraints, Context context)  {
-        DataObject value = attribute.getFirst(this,scope,operator, otherValue, otherConstraints,context);
-        if(value != null) {return value;}
-        return context.attributeHierarchy.findInInnerLabels(attribute, Direction.DOWN, Strategy.BREADTH_FIRST,
-                (subrelation -> {
-                    return (subrelation == attribute) ? null :
-                            subrelation.getFirst(this,scope,operator, otherValue, otherConstraints,context);}));}
-
-
+        ResolutionCache.Resolution resolution = context.resolutionCache.get(this,attribute,context);
+        for(ResolutionCache.Holder holder : resolution.holders) {
+            DataObject value = holder.attribute.getFirst(holder.concept,holder.scope,operator,otherValue,otherConstraints,context);
+            if(value != null) {return value;}}
+        for(ArrayList<ResolutionCache.Holder> group : resolution.defaults) {
+            for(ResolutionCache.Holder holder : group) {
+                DataObject value = holder.attribute.getFirst(holder.concept,holder.scope,operator,otherValue,otherConstraints,context);
+                if(value != null) {return value;}}}
+        return null;}
 
 
     /** searches through the concept's attribute values without considering constraints until the first function application returns non-null.
@@ -296,32 +393,15 @@ public abstract class Concept extends ItemWithId implements DataObject, Serializ
      * @return the first non-null function application.
      */
     public <T> T find(Attribute attribute, Operators operator, DataObject otherValue, AttributeValueList otherConstraints, Context context, Function<DataObject,T> function)  {
-        T result = findAttHier(attribute,Scope.LOCAL,operator,otherValue,otherConstraints,context,function);
-        if(result != null) {return result;}
-        result = context.conceptHierarchy.findInInnerLabels(this, Direction.UP, Strategy.BREADTH_FIRST,
-                (superconcept -> superconcept.findAttHier(attribute,Scope.ALL,operator,otherValue,otherConstraints,context,function)));
-        if(result != null) {return result;}
-        return context.conceptHierarchy.findInInnerLabels(this, Direction.UP, Strategy.BREADTH_FIRST,
-                (superconcept -> (superconcept == this) ? null :
-                        superconcept.findAttHier(attribute,Scope.DEFAULT,operator,otherValue,otherConstraints,context,function)));}
-
-    /** This method goes down the attribute hierarchy to find the first non-null function application.
-     *
-     * @param attribute the start attribute in the attribute hierarchy
-     * @param context the context where the objects live in.
-     * @param scope     the scope of the values to be searched
-     * @param otherConstraints the constraints for the attribute values
-     * @param function the function to be applied to the attribute values.
-     * @param <T> the result type of the function.
-     * @return the first non-null function application.
-     */
-
-    private <T> T findAttHier(Attribute attribute, Scope scope, Operators operator, DataObject otherValue, AttributeValueList otherConstraints, Context context, Function<DataObject,T> function)  {
-        T value = attribute.find(this,scope,operator,otherValue,otherConstraints,context,function);
-        if(value != null) {return value;}
-        return context.attributeHierarchy.findInInnerLabels(attribute, Direction.DOWN, Strategy.BREADTH_FIRST,
-                (subrelation ->  (subrelation == attribute) ? null :
-                        subrelation.find(this,scope,operator,otherValue,otherConstraints,context,function)));}
+        ResolutionCache.Resolution resolution = context.resolutionCache.get(this,attribute,context);
+        for(ResolutionCache.Holder holder : resolution.holders) {
+            T result = holder.attribute.find(holder.concept,holder.scope,operator,otherValue,otherConstraints,context,function);
+            if(result != null) {return result;}}
+        for(ArrayList<ResolutionCache.Holder> group : resolution.defaults) {
+            for(ResolutionCache.Holder holder : group) {
+                T result = holder.attribute.find(holder.concept,holder.scope,operator,otherValue,otherConstraints,context,function);
+                if(result != null) {return result;}}}
+        return null;}
 
 
     /** repositions the concept if it is affected by one or more of the derived concepts.
@@ -369,7 +449,7 @@ public abstract class Concept extends ItemWithId implements DataObject, Serializ
     public String infoString(){
         StringBuilder s = new StringBuilder();
         s.append(getName()).append(":\n");
-        attributeValues.forEach((key,value) -> s.append("   ").append(key.getName()).append(" = ").append(value.toString()).append("\n"));
+        values().forEach((key,value) -> s.append("   ").append(key.getName()).append(" = ").append(value.toString()).append("\n"));
         return s.toString();}
 
 
@@ -3,8 +3,11 @@ package Concepts;
 import AbstractObjects.DataObject;
 import Attributes.Attribute;
 import Attributes.AttributeValueList;
+import IO.AttributeValueEncoder;
+import IO.ModelCodec;
 import MISC.Context;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.function.Function;
@@ -14,6 +17,8 @@ import java.util.function.Function;
  *
  * The DataCarrier is filled by the add... methods.
  * It then can be serialized, sent to a destination, deserialized.
+ * Besides Java serialization, the ModelCodec can be used, which writes the names by a dictionary
+ * and reads the data in an explicitly given context.
  * By calling addToContext the data are then inserted into the Context of the target system.
  *
  * Created by ohlbach on 02.04.2016.
@@ -201,6 +206,59 @@ public class DataCarrier implements Serializable {
         }
         return this;}
 
+    /** writes the carrier by the ModelCodec.
+     *
+     * @param out where to write the carrier
+     * @throws IOException if writing fails, or an attribute or value can not be encoded.
+     */
+    public void write(ModelCodec.Output out) throws IOException {
+        writeNames(out,concepts);
+        writeNames(out,conceptHierarchy);
+        out.writeInt(attributes.size());
+        for(Attribute attribute : attributes) {out.writeDefinition(attribute);}
+        writeNames(out,attributeHierarchy);
+        int length = attributeValues.size();
+        out.writeInt(length/5);
+        for(int i = 0; i < length; i += 5) {
+            out.writeName((String)attributeValues.get(i));
+            out.writeName((String)attributeValues.get(i+1));
+            out.writeObject(attributeValues.get(i+2));
+            out.writeInt(((Scope)attributeValues.get(i+3)).ordinal());
+            out.writeObject(attributeValues.get(i+4));}}
+
+    /** reads a carrier which has been written by the ModelCodec.
+     * The attributes are created, but not yet put into the input's context. This happens in addToContext.
+     *
+     * @param in where to read the carrier from.
+     * @return the carrier.
+     * @throws IOException if reading fails, or a scope number is invalid.
+     */
+    public static DataCarrier read(ModelCodec.Input in) throws IOException {
+        DataCarrier carrier = new DataCarrier();
+        readNames(in,carrier.concepts);
+        readNames(in,carrier.conceptHierarchy);
+        int size = in.readInt();
+        for(int i = 0; i < size; ++i) {
+            Attribute attribute = in.readDefinition();
+            if(attribute != null) {carrier.attributes.add(attribute);}}
+        readNames(in,carrier.attributeHierarchy);
+        size = in.readInt();
+        Scope[] scopes = Scope.values();
+        for(int i = 0; i < size; ++i) {
+            carrier.attributeValues.add(in.readName());
+            carrier.attributeValues.add(in.readName());
+            carrier.attributeValues.add(in.readObject());
+            carrier.attributeValues.add(AttributeValueEncoder.element(scopes,in.readInt(),"scope"));
+            carrier.attributeValues.add(in.readObject());}
+        return carrier;}
 
+    /** writes a list of names */
+    private static void writeNames(ModelCodec.Output out, ArrayList<String> names) throws IOException {
+        out.writeInt(names.size());
+        for(String name : names) {out.writeName(name);}}
 
+    /** reads a list of names */
+    private static void readNames(ModelCodec.Input in, ArrayList<String> names) throws IOException {
+        int size = in.readInt();
+        for(int i = 0; i < size; ++i) {names.add(in.readName());}}
 }
@@ -1,13 +1,20 @@
 package Concepts;
 
+import AbstractObjects.DataObject;
+import Attributes.Attribute;
 import DAGs.Direction;
 import DAGs.InnerNode;
+import DAGs.Node;
 import Graphs.Strategy;
+import MISC.Activity;
 import MISC.Context;
 import DAGs.DAG;
+import Utils.TriConsumer;
 import Utils.Utilities;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.function.BiPredicate;
 
@@ -24,13 +31,29 @@ import java.util.function.BiPredicate;
  * <br>
  * The class provides methods for repositioning the concepts in the concept hierarchy
  * if a new DerivedConcept is defined, or the attributes of existing concepts have been changed.
- *
+ * <br>
+ * The classification is also maintained incrementally: if a concept is inserted below one of the superconcepts,
+ * only this concept (and its set-subconcepts) are tested and repositioned.
+ * The insertions are passed on by the context's DerivedConceptDispatcher.
+ * If the filter declares the attributes it reads, a change of such an attribute value re-tests only the changed concept.
+ * <br>
+ * A deserialized DerivedConcept is attached to a context when it is put into the context.
  */
 public class DerivedConcept extends SetConcept {
     /** this is the filter for the sub-concepts */
     private BiPredicate<Concept,Context> filter = null;
     /** theses are the super-concepts. They are autoamtically inserted in the concept hierarchy*/
     private SetConcept[] superconcepts = null;
+    /** the attributes whose values are read by the filter (null if not declared) */
+    private Attribute[] dependencies = null;
+    /** the context where the concept lives in */
+    private transient Context context = null;
+    /** repositions concepts whose dependency values are changed */
+    private transient TriConsumer<Concept,DataObject,Activity> valueObserver = null;
+    /** the dependencies and their subattributes where the valueObserver is registered */
+    private transient ArrayList<Attribute> observedAttributes = null;
+    /** is true while this DerivedConcept moves concepts in the hierarchy */
+    private transient boolean classifying = false;
 
     /** creates a new DerivedConcept as a sub-concept of a single super-concept.
      *
@@ -38,13 +61,15 @@ public class DerivedConcept extends SetConcept {
      * @param context       the context into which the concept is to be inserted.
      * @param superconcept  the single super-concept
      * @param filter        the filter for the new DerivedConcept's sub-concepts.
+     * @param dependencies  the attributes whose values are read by the filter (optional).
      */
 
-    public DerivedConcept(String id, Context context, SetConcept superconcept, BiPredicate filter) {
+    public DerivedConcept(String id, Context context, SetConcept superconcept, BiPredicate filter, Attribute... dependencies) {
         super(id, context);
         context.conceptHierarchy.addSubnode(superconcept,this);
         superconcepts = new SetConcept[]{superconcept};
-        this.filter = filter;}
+        setFilter(filter,dependencies);
+        attach(context);}
 
     /** creates a new DerivedConcept as a sub-concept of a list of super-concepts.
      * The filter must be inserted separately.
@@ -56,14 +81,135 @@ public class DerivedConcept extends SetConcept {
     public DerivedConcept(String id, Context context, SetConcept... superconcepts) {
         super(id, context);
         addToSuperconcepts(context,superconcepts);
-        this.superconcepts = superconcepts;}
+        this.superconcepts = superconcepts;
+        attach(context);}
 
     /** sets the filter for the DerivedConcept.
+     * If the filter reads attribute values, the attributes should be given as dependencies.
+     * Changes of these attribute values (or the values of their subattributes) then cause
+     * the changed concept to be repositioned.
      *
      * @param filter the filter
+     * @param dependencies the attributes whose values are read by the filter (optional).
+     */
+    public void setFilter(BiPredicate filter, Attribute... dependencies) {
+        this.filter = filter;
+        unobserveValues();
+        this.dependencies = (dependencies == null || dependencies.length == 0) ? null : dependencies;
+        observeValues();}
+
+    /** @return the attributes whose values are read by the filter (null if not declared) */
+    public Attribute[] getDependencies() {return dependencies;}
+
+    /** attaches the DerivedConcept to the context: it is registered at the context's DerivedConceptDispatcher,
+     * and the value observers are registered at the dependencies.
+     * This is done by the constructors, and by Context.putConcept for deserialized DerivedConcepts.
+     * The superconcepts and dependencies are then replaced by the context's concepts and attributes with the same names.
+     *
+     * @param context the context where the concept lives in.
+     */
+    public synchronized void attach(Context context) {
+        if(superconcepts == null || this.context == context) {return;}
+        if(this.context != null) {detach();}
+        this.context = context;
+        for(int i = 0; i < superconcepts.length; ++i) {
+            Concept superconcept = context.getConcept(superconcepts[i].getName());
+            if(superconcept instanceof SetConcept) {superconcepts[i] = (SetConcept)superconcept;}}
+        if(dependencies != null) {
+            for(int i = 0; i < dependencies.length; ++i) {
+                Attribute dependency = context.getAttribute(dependencies[i].getName());
+                if(dependency != null) {dependencies[i] = dependency;}}}
+        context.derivedConceptDispatcher.register(this,superconcepts);
+        unobserveValues();
+        observeValues();}
+
+    /** @return the context where the DerivedConcept is attached, or null */
+    public Context getContext() {return context;}
+
+    /** checks whether the concept is one of the superconcepts
+     *
+     * @param concept a concept
+     * @return true if the concept is one of the superconcepts.
+     */
+    boolean hasSuperconcept(Concept concept) {
+        for(SetConcept superconcept : superconcepts) {if(superconcept == concept) {return true;}}
+        return false;}
+
+    /** re-registers the value observer if the attribute hierarchy has changed */
+    void dependenciesChanged() {
+        if(dependencies != null) {unobserveValues(); observeValues();}}
+
+    /** registers the value observer at the dependencies and their subattributes */
+    private synchronized void observeValues() {
+        if(dependencies == null || context == null) {return;}
+        if(valueObserver == null) {valueObserver = (concept,value,activity) -> classify(concept,context);}
+        observedAttributes = new ArrayList<>();
+        for(Attribute attribute : dependencies) {
+            for(Attribute subattribute : attribute.getSubattributes(context)) {
+                if(!observedAttributes.contains(subattribute)) {
+                    observedAttributes.add(subattribute);
+                    subattribute.addValueObserver(valueObserver);}}}}
+
+    /** removes the value observer from the observed attributes */
+    private synchronized void unobserveValues() {
+        if(observedAttributes == null) {return;}
+        for(Attribute attribute : observedAttributes) {attribute.removeValueObserver(valueObserver);}
+        observedAttributes = null;}
+
+    /** removes all observers for the incremental classification.
+     * This method is called when the DerivedConcept is removed from its context.
+     */
+    public synchronized void detach() {
+        unobserveValues();
+        if(context != null) {context.derivedConceptDispatcher.unregister(this);}
+        context = null;}
+
+    /** is called by the DerivedConceptDispatcher after the subconcept has been inserted below the superconcept.
+     * If the superconcept is one of the superconcepts of 'this', or below them,
+     * the subconcept is classified.
+     *
+     * @param superconcept the superconcept
+     * @param subconcept   the newly inserted subconcept
+     */
+    void conceptInserted(Concept superconcept, Concept subconcept) {
+        if(filter == null || classifying || superconcept == this || subconcept == this) {return;}
+        DAG<Concept> hierarchy = context.conceptHierarchy;
+        if(hierarchy.isSubnodeOf(superconcept,this)) {return;}
+        for(SetConcept concept : superconcepts) {
+            if(hierarchy.isSubnodeOf(superconcept,concept)) {classify(subconcept,context); return;}}}
+
+    /** tests the filter for a single concept and repositions it.
+     * If the concept is an immediate sub-concept of 'this', but the filter returns no longer true,
+     * it is moved upwards. If it is affected by 'this' it becomes a sub-concept of 'this'.
+     * Otherwise the set-concepts below the concept are tested and repositioned.
+     *
+     * @param concept the concept to be classified
+     * @param context the context where the concept lives in
+     * @return true if some concept has actually been repositioned.
      */
-    public void setFilter(BiPredicate filter) {
-        this.filter = filter;}
+    public boolean classify(Concept concept, Context context) {
+        if(filter == null || concept == this) {return false;}
+        DAG<Concept> hierarchy = context.conceptHierarchy;
+        return hierarchy.change(() -> {
+            if(classifying) {return false;}
+            classifying = true;
+            try{
+                ArrayList<InnerNode<Concept>> supernodes = hierarchy.getSupernodes(concept);
+                if(supernodes != null && supernodes.contains(hierarchy.getNode(this))) {
+                    return moveUpwards(concept,context);}
+                if(hierarchy.isSubnodeOf(concept,this)) {return false;}
+                if(isAffected(concept,context)) {
+                    repositionConcept(concept,context);
+                    return true;}
+                if(concept.isIndividual()) {return false;}
+                ArrayList<Concept> toBeAdded = new ArrayList<>();
+                hierarchy.findInInnerLabels(concept,Direction.DOWN,Strategy.DEPTH_FIRST,
+                        ((Concept c)-> {
+                            if(c != concept && c != this && filter.test(c,context)) {toBeAdded.add(c);}
+                            return null;}));
+                for(Concept c : toBeAdded) {hierarchy.addSubnode(this,c);}
+                return !toBeAdded.isEmpty();}
+            finally {classifying = false;}});}
 
     /** repositions all concepts which are affected by the DerivedConcept.
      * This method should be called when the DerivedConcept has just been defined
@@ -74,9 +220,145 @@ public class DerivedConcept extends SetConcept {
      */
     public void restructureHierarchy(Context context){
         if(superconcepts == null) {return;}
-        if(superconcepts.length == 1) {restructureHierarchySingle(context);}
-        else                          {restructureHierarchyMultiple(context);}}
+        DAG<Concept> hierarchy = context.conceptHierarchy;
+        hierarchy.change(() -> {
+            classifying = true;
+            try{
+                if(superconcepts.length == 1) {restructureHierarchySingle(context);}
+                else                          {restructureHierarchyMultiple(context);}}
+            finally {classifying = false;}
+            return null;});}
+
+
+
+    /** a concept to be tested by a DerivedConcept in the parallel reclassification */
+    private static class Candidate {
+        /** the DerivedConcept whose filter is to be tested */
+        final DerivedConcept derivedConcept;
+        /** the superconcepts of which the concept is an immediate subconcept (null if there are none) */
+        ArrayList<Concept> superconcepts = null;
+        /** the concept to be tested */
+        final Concept concept;
+        /** the immediate subconcept of a superconcept through which the concept has been found (or null) */
+        final Candidate via;
+        /** the result of the filter */
+        boolean accepted = false;
+
+        Candidate(DerivedConcept derivedConcept, Concept superconcept, Concept concept, Candidate via) {
+            this.derivedConcept = derivedConcept;
+            if(superconcept != null) {superconcepts = new ArrayList<>(1); superconcepts.add(superconcept);}
+            this.concept = concept;
+            this.via = via;}}
+
+    /** repositions all concepts which are affected by 'this', evaluating the filter in parallel.
+     *
+     * @param context the context where the concept lives in.
+     */
+    public void restructureHierarchyParallel(Context context) {
+        ArrayList<DerivedConcept> derivedConcepts = new ArrayList<>();
+        derivedConcepts.add(this);
+        restructureHierarchies(derivedConcepts,context);}
+
+    /** repositions all concepts which are affected by the given DerivedConcepts, for example after a bulk load.
+     * <br>
+     * In contrast to restructureHierarchy, the individuals below the superconcepts are repositioned as well.
+     * The method works in three steps:
+     * <ol>
+     *     <li> The concept hierarchy is frozen, and the candidates are collected.</li>
+     *     <li> The filters are evaluated in parallel. The frozen hierarchy is read without lock,
+     *          and other threads which change the hierarchy wait until it is thawed.
+     *          Therefore the filters must be pure tests, which do not change the hierarchy.
+     *          The attribute values are not frozen; they should not be changed meanwhile.</li>
+     *     <li> The hierarchy is thawed, and the resulting removals and insertions of edges are applied in one batched change.</li>
+     * </ol>
+     * All DerivedConcepts are evaluated against the same snapshot, i.e. the repositioning by one DerivedConcept
+     * does not affect the candidates of the other ones.
+     *
+     * @param derivedConcepts the DerivedConcepts to be processed (usually context.derivedConcepts).
+     * @param context         the context where the concepts live in.
+     * @return the number of repositioned concepts.
+     */
+    public static int restructureHierarchies(Collection<DerivedConcept> derivedConcepts, Context context) {
+        if(derivedConcepts == null || derivedConcepts.isEmpty()) {return 0;}
+        DAG<Concept> hierarchy = context.conceptHierarchy;
+        ArrayList<Candidate> candidates = new ArrayList<>();
+        hierarchy.freeze();
+        try{
+            synchronized (hierarchy) {
+                for(DerivedConcept derivedConcept : derivedConcepts) {derivedConcept.collectCandidates(hierarchy,candidates);}}
+            candidates.parallelStream().forEach(candidate ->
+                    candidate.accepted = candidate.derivedConcept.filter.test(candidate.concept,context));}
+        finally{hierarchy.thaw();}
+
+        ArrayList<Concept> toBeRemoved = new ArrayList<>();
+        ArrayList<Concept> toBeAdded = new ArrayList<>();
+        int repositioned = 0;
+        for(Candidate candidate : candidates) {
+            if(!candidate.accepted || (candidate.via != null && candidate.via.accepted)) {continue;}
+            if(candidate.superconcepts != null) {
+                for(Concept superconcept : candidate.superconcepts) {
+                    toBeRemoved.add(superconcept); toBeRemoved.add(candidate.concept);}}
+            toBeAdded.add(candidate.derivedConcept); toBeAdded.add(candidate.concept);
+            ++repositioned;}
+        if(repositioned == 0) {return 0;}
+        hierarchy.change(() -> {
+            for(DerivedConcept derivedConcept : derivedConcepts) {derivedConcept.classifying = true;}
+            try{hierarchy.changeSubnodes(toBeRemoved,toBeAdded);}
+            finally {for(DerivedConcept derivedConcept : derivedConcepts) {derivedConcept.classifying = false;}}
+            return null;});
+        return repositioned;}
+
+    /** collects the candidates for the parallel reclassification.
+     * These are the immediate subconcepts of the superconcepts and, for those, all concepts below them.
+     * For multiple superconcepts, only concepts which are below all superconcepts are collected.
+     * Each concept becomes only one candidate. The immediate subconcepts are collected first,
+     * such that a concept which is also reachable through another subconcept keeps its edges to the superconcepts.
+     * The hierarchy must be locked by the caller.
+     *
+     * @param hierarchy  the concept hierarchy
+     * @param candidates where the candidates are collected.
+     */
+    private void collectCandidates(DAG<Concept> hierarchy, ArrayList<Candidate> candidates) {
+        if(filter == null || superconcepts == null) {return;}
+        HashMap<Concept,Candidate> directs = new HashMap<>();
+        ArrayList<Node<Concept>> directNodes = new ArrayList<>();
+        for(SetConcept superconcept : superconcepts) {
+            Node<Concept> supernode = hierarchy.getNode(superconcept);
+            if(supernode == null || !supernode.isInnerNode()) {continue;}
+            ArrayList<Node<Concept>> subnodes = new ArrayList<>(((InnerNode<Concept>)supernode).innerNodes);
+            subnodes.addAll(((InnerNode<Concept>)supernode).leafNodes);
+            for(Node<Concept> subnode : subnodes) {
+                if(subnode.label == this || !isBelowSuperconcepts(subnode.label,hierarchy)) {continue;}
+                Candidate direct = directs.get(subnode.label);
+                if(direct != null) {direct.superconcepts.add(superconcept); continue;}
+                direct = new Candidate(this,superconcept,subnode.label,null);
+                directs.put(subnode.label,direct);
+                directNodes.add(subnode);
+                candidates.add(direct);}}
+
+        HashSet<Concept> seen = new HashSet<>(directs.keySet());
+        seen.add(this);
+        for(Node<Concept> subnode : directNodes) {
+            if(subnode.isLeafNode()) {continue;}
+            Candidate direct = directs.get(subnode.label);
+            hierarchy.innerNodes(subnode,false,Direction.DOWN,Strategy.DEPTH_FIRST).forEach(node -> {
+                if(seen.add(node.label) && isBelowSuperconcepts(node.label,hierarchy)) {
+                    candidates.add(new Candidate(this,null,node.label,direct));}});
+            hierarchy.leafNodes(subnode).forEach(node -> {
+                if(seen.add(node.label) && isBelowSuperconcepts(node.label,hierarchy)) {
+                    candidates.add(new Candidate(this,null,node.label,direct));}});}}
 
+    /** checks if the concept is below all superconcepts (only tested for multiple superconcepts)
+     *
+     * @param concept   a concept below one of the superconcepts
+     * @param hierarchy the concept hierarchy
+     * @return true if the concept is below all superconcepts.
+     */
+    private boolean isBelowSuperconcepts(Concept concept, DAG<Concept> hierarchy) {
+        if(superconcepts.length == 1) {return true;}
+        for(SetConcept superconcept : superconcepts) {
+            if(!hierarchy.isSubnodeOf(concept,superconcept)) {return false;}}
+        return true;}
 
 
     /** repositions for a DerivedConcept with a single super-concept all concepts which are affected by the DerivedConcept.
@@ -0,0 +1,130 @@
+package Concepts;
+
+import Attributes.Attribute;
+import DAGs.DAG;
+import DAGs.InnerNode;
+import MISC.Activity;
+import MISC.Context;
+import Utils.TriConsumer;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** This class passes the insertions into the concept hierarchy to the DerivedConcepts which must classify the new subconcepts.
+ * <br>
+ * Each context has one dispatcher. It is the only hierarchy observer for all DerivedConcepts of the context.
+ * The DerivedConcepts are registered with the ids of their superconcepts.
+ * For a new edge superconcept &rarr; subconcept, the dispatcher walks upwards from the superconcept
+ * and notifies the DerivedConcepts which are registered at the concepts on the way.
+ * Without DerivedConcepts, an insertion costs nothing; otherwise it costs one lookup per concept above the superconcept.
+ * <br>
+ * The dispatching can be suspended, for example while bulk loading or replaying a log.
+ * The concepts inserted meanwhile are not classified; DerivedConcept.restructureHierarchies does this afterwards.
+ */
+public class DerivedConceptDispatcher {
+    /** the context whose concept hierarchy is observed */
+    private final Context context;
+
+    /** maps the ids of the superconcepts to the DerivedConcepts below them (replaced at each change) */
+    private volatile HashMap<Integer,DerivedConcept[]> registry = new HashMap<>();
+
+    /** the number of active suspensions */
+    private final AtomicInteger suspensions = new AtomicInteger();
+
+    /** the observer at the concept hierarchy (null if there are no DerivedConcepts) */
+    private TriConsumer<Concept,Concept,Activity> conceptObserver = null;
+
+    /** the observer at the attribute hierarchy (null if there are no DerivedConcepts) */
+    private TriConsumer<Attribute,Attribute,Activity> attributeObserver = null;
+
+    /** creates the dispatcher for the context.
+     *
+     * @param context the context whose concept hierarchy is to be observed.
+     */
+    public DerivedConceptDispatcher(Context context) {
+        this.context = context;}
+
+    /** registers the DerivedConcept with the ids of its superconcepts.
+     * The hierarchy observers are installed with the first DerivedConcept.
+     *
+     * @param derivedConcept a DerivedConcept
+     * @param superconcepts  its superconcepts
+     */
+    synchronized void register(DerivedConcept derivedConcept, SetConcept[] superconcepts) {
+        HashMap<Integer,DerivedConcept[]> newRegistry = copyWithout(derivedConcept);
+        for(SetConcept superconcept : superconcepts) {
+            DerivedConcept[] derived = newRegistry.get(superconcept.getId());
+            if(derived == null) {derived = new DerivedConcept[]{derivedConcept};}
+            else if(!Arrays.asList(derived).contains(derivedConcept)) {
+                derived = Arrays.copyOf(derived,derived.length+1);
+                derived[derived.length-1] = derivedConcept;}
+            newRegistry.put(superconcept.getId(),derived);}
+        registry = newRegistry;
+        if(conceptObserver == null) {
+            conceptObserver = (superconcept,subconcept,activity) -> subconceptAdded(superconcept,subconcept);
+            context.conceptHierarchy.addSubNodeAddedObserver(conceptObserver);
+            attributeObserver = (superattribute,subattribute,activity) -> attributeHierarchyChanged();
+            context.attributeHierarchy.addSubNodeAddedObserver(attributeObserver);}}
+
+    /** removes the DerivedConcept. The hierarchy observers are removed with the last DerivedConcept.
+     *
+     * @param derivedConcept a DerivedConcept
+     */
+    synchronized void unregister(DerivedConcept derivedConcept) {
+        registry = copyWithout(derivedConcept);
+        if(registry.isEmpty() && conceptObserver != null) {
+            context.conceptHierarchy.removeSubNodeAddedObserver(conceptObserver);
+            context.attributeHierarchy.removeSubNodeAddedObserver(attributeObserver);
+            conceptObserver = null;
+            attributeObserver = null;}}
+
+    /** @return a copy of the registry without the DerivedConcept */
+    private HashMap<Integer,DerivedConcept[]> copyWithout(DerivedConcept derivedConcept) {
+        HashMap<Integer,DerivedConcept[]> copy = new HashMap<>();
+        registry.forEach((id,derived) -> {
+            DerivedConcept[] rest = Arrays.stream(derived).filter(d -> d != derivedConcept).toArray(DerivedConcept[]::new);
+            if(rest.length > 0) {copy.put(id,rest);}});
+        return copy;}
+
+    /** suspends the dispatching until resume is called. Suspensions can be nested. */
+    public void suspend() {suspensions.incrementAndGet();}
+
+    /** ends a suspension */
+    public void resume() {suspensions.decrementAndGet();}
+
+    /** @return true if the dispatching is suspended */
+    public boolean isSuspended() {return suspensions.get() > 0;}
+
+    /** notifies the DerivedConcepts which are registered at the superconcept or above it.
+     * It is called by the concept hierarchy after the edge has been inserted.
+     *
+     * @param superconcept the superconcept
+     * @param subconcept   the new subconcept
+     */
+    private void subconceptAdded(Concept superconcept, Concept subconcept) {
+        HashMap<Integer,DerivedConcept[]> registry = this.registry;
+        if(registry.isEmpty() || isSuspended()) {return;}
+        DAG<Concept> hierarchy = context.conceptHierarchy;
+        LinkedHashSet<DerivedConcept> notified = new LinkedHashSet<>();
+        HashSet<Concept> seen = new HashSet<>();
+        ArrayDeque<Concept> queue = new ArrayDeque<>();
+        queue.add(superconcept);
+        seen.add(superconcept);
+        while(!queue.isEmpty()) {
+            Concept concept = queue.poll();
+            DerivedConcept[] derived = registry.get(concept.getId());
+            if(derived != null) {
+                for(DerivedConcept derivedConcept : derived) {
+                    if(derivedConcept.hasSuperconcept(concept)) {notified.add(derivedConcept);}}}
+            ArrayList<InnerNode<Concept>> supernodes = hierarchy.getSupernodes(concept);
+            if(supernodes == null) {continue;}
+            for(InnerNode<Concept> supernode : supernodes) {
+                if(seen.add(supernode.label)) {queue.add(supernode.label);}}}
+        for(DerivedConcept derivedConcept : notified) {derivedConcept.conceptInserted(superconcept,subconcept);}}
+
+    /** lets the DerivedConcepts observe the new subattributes of their dependencies */
+    private void attributeHierarchyChanged() {
+        LinkedHashSet<DerivedConcept> derivedConcepts = new LinkedHashSet<>();
+        for(DerivedConcept[] derived : registry.values()) {derivedConcepts.addAll(Arrays.asList(derived));}
+        for(DerivedConcept derivedConcept : derivedConcepts) {derivedConcept.dependenciesChanged();}}
+}
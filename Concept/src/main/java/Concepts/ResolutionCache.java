@@ -0,0 +1,174 @@
+package Concepts;
+
+import Attributes.Attribute;
+import DAGs.Direction;
+import Graphs.Strategy;
+import MISC.Activity;
+import MISC.Context;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/** This class caches for (concept, attribute) pairs the places where Concept.stream, getFirst and find look for values.
+ * <br>
+ * These are the concept itself with scope LOCAL, the superconcepts (up the concept hierarchy) with scope ALL,
+ * and the superconcepts with scope DEFAULT, each of them combined with all attributes down the attribute hierarchy.
+ * Only those (concept, attribute, scope) holders are kept for which attribute.hasValues returns true.
+ * <br>
+ * The cache is invalidated by the observers of the concept hierarchy and the attribute hierarchy,
+ * by Attribute.addValue and by Context.putValue.
+ * Adding LOCAL values, or values to individuals, invalidates only the concept's own entries.
+ * All other changes clear the cache.
+ * <br>
+ * Reading does not lock: the resolutions are kept in concurrent maps.
+ * At most maxConcepts concepts have cached resolutions; when the limit is reached, a quarter of them is dropped.
+ */
+public class ResolutionCache {
+
+    /** a concept together with an attribute and a scope where values are to be looked for */
+    public static class Holder {
+        public final Concept concept;
+        public final Attribute attribute;
+        public final Scope scope;
+
+        private Holder(Concept concept, Attribute attribute, Scope scope) {
+            this.concept = concept;
+            this.attribute = attribute;
+            this.scope = scope;}}
+
+    /** the holders for a (concept, attribute) pair */
+    public static class Resolution {
+        /** the LOCAL holders of the concept, followed by the ALL holders up the concept hierarchy */
+        public final ArrayList<Holder> holders;
+        /** the DEFAULT holders up the concept hierarchy, grouped by superconcept */
+        public final ArrayList<ArrayList<Holder>> defaults;
+
+        private Resolution(ArrayList<Holder> holders, ArrayList<ArrayList<Holder>> defaults) {
+            this.holders = holders;
+            this.defaults = defaults;}}
+
+    /** the maximum number of concepts with cached resolutions */
+    static int maxConcepts = 1 << 16;
+
+    /** the cached resolutions */
+    private final ConcurrentHashMap<Concept,ConcurrentHashMap<Attribute,Resolution>> resolutions = new ConcurrentHashMap<>();
+
+    /** is incremented at each invalidation. Resolutions computed during an invalidation are not cached */
+    private final AtomicLong generation = new AtomicLong();
+
+    /** number of cache hits and misses */
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+    /** creates the cache and registers the invalidation observers at the context's hierarchies.
+     *
+     * @param context the context whose resolutions are cached.
+     */
+    public ResolutionCache(Context context) {
+        context.attributeHierarchy.addSubNodeObserver((superattribute,subattribute,activity) -> clear());
+        context.attributeHierarchy.addNodeObserver((attribute,activity) -> {if(activity != Activity.ADD) {clear();}});
+        context.conceptHierarchy.addSubNodeObserver((superconcept,subconcept,activity) -> {
+            if(subconcept.isIndividual()) {invalidate(subconcept);} else {clear();}});
+        context.conceptHierarchy.addNodeObserver((concept,activity) -> {
+            if(activity == Activity.ADD) {return;}
+            if(concept.isIndividual()) {invalidate(concept);} else {clear();}});}
+
+    /** returns the resolution for the concept and the attribute.
+     * If it is not cached, it is computed and inserted into the cache.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @param context   where the objects live in.
+     * @return the resolution.
+     */
+    public Resolution get(Concept concept, Attribute attribute, Context context) {
+        ConcurrentHashMap<Attribute,Resolution> map = resolutions.get(concept);
+        if(map != null) {
+            Resolution resolution = map.get(attribute);
+            if(resolution != null) {hits.increment(); return resolution;}}
+        misses.increment();
+        long gen = generation.get();
+        Resolution resolution = resolve(concept,attribute,context);
+        if(map == null) {
+            if(resolutions.size() >= maxConcepts) {shrink();}
+            map = resolutions.computeIfAbsent(concept, c -> new ConcurrentHashMap<>());}
+        map.put(attribute,resolution);
+        // an invalidation may have happened meanwhile: then the resolution may be stale
+        if(gen != generation.get() || resolutions.get(concept) != map) {map.remove(attribute,resolution);}
+        return resolution;}
+
+    /** drops about a quarter of the cached concepts */
+    private void shrink() {
+        int drop = Math.max(1,resolutions.size() / 4);
+        Iterator<Concept> concepts = resolutions.keySet().iterator();
+        while(drop-- > 0 && concepts.hasNext()) {concepts.next(); concepts.remove();}}
+
+    /** computes the resolution for the concept and the attribute.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @param context   where the objects live in.
+     * @return the new resolution.
+     */
+    private static Resolution resolve(Concept concept, Attribute attribute, Context context) {
+        ArrayList<Attribute> attributes = attribute.getSubattributes(context);
+
+        ArrayList<Holder> holders = new ArrayList<>();
+        addHolders(holders,concept,attributes,Scope.LOCAL,context);
+        context.conceptHierarchy.applyToInnerLabels(concept, Direction.UP, Strategy.BREADTH_FIRST,
+                (superconcept -> addHolders(holders,superconcept,attributes,Scope.ALL,context)));
+
+        ArrayList<ArrayList<Holder>> defaults = new ArrayList<>();
+        context.conceptHierarchy.applyToInnerLabels(concept, Direction.UP, Strategy.BREADTH_FIRST,
+                (superconcept -> {
+                    if(superconcept == concept) {return;}
+                    ArrayList<Holder> group = new ArrayList<>();
+                    addHolders(group,superconcept,attributes,Scope.DEFAULT,context);
+                    if(!group.isEmpty()) {defaults.add(group);}}));
+        holders.trimToSize();
+        defaults.trimToSize();
+        return new Resolution(holders,defaults);}
+
+    /** adds the holders for the concept, the attributes and the scope
+     *
+     * @param holders    where to add the holders
+     * @param concept    a concept
+     * @param attributes a list of attributes
+     * @param scope      a scope
+     * @param context    where the objects live in.
+     */
+    private static void addHolders(ArrayList<Holder> holders, Concept concept, ArrayList<Attribute> attributes, Scope scope, Context context) {
+        for(Attribute attribute : attributes) {
+            if(attribute.hasValues(concept,scope,context)) {holders.add(new Holder(concept,attribute,scope));}}}
+
+    /** is to be called when a value has been added to the concept.
+     *
+     * @param concept the concept which got a new value.
+     * @param scope the scope of the new value.
+     */
+    public void valueAdded(Concept concept, Scope scope) {
+        if(scope == Scope.LOCAL || concept.isIndividual()) {invalidate(concept);}
+        else {clear();}}
+
+    /** removes the concept's resolutions from the cache.
+     *
+     * @param concept a concept
+     */
+    public void invalidate(Concept concept) {
+        generation.incrementAndGet();
+        resolutions.remove(concept);}
+
+    /** clears the cache */
+    public void clear() {
+        generation.incrementAndGet();
+        resolutions.clear();}
+
+    /** @return the number of concepts with cached resolutions */
+    public int size() {return resolutions.size();}
+
+    /** @return the number of hits and misses */
+    public String getStatistics() {
+        return "ResolutionCache: " + hits.sum() + " hits, " + misses.sum() + " misses, " + resolutions.size() + " concepts";}
+}
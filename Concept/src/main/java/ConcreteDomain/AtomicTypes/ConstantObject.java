@@ -4,7 +4,10 @@ import AbstractObjects.Operators;
 import ConcreteDomain.AtomicObject;
 import ConcreteDomain.ConcreteObject;
 import MISC.Context;
+import MISC.StringDictionary;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 
@@ -18,6 +21,12 @@ public class ConstantObject extends AtomicObject implements Serializable{
     /** the actual string */
     public String value = null;
 
+    /** the string's code in the context's dictionary (-1 if it has not been encoded) */
+    private transient int code = -1;
+
+    /** the dictionary which encoded the string */
+    private transient StringDictionary dictionary = null;
+
     /** the empty constructor */
     public ConstantObject(){}
 
@@ -28,6 +37,9 @@ public class ConstantObject extends AtomicObject implements Serializable{
     public ConstantObject(String value) {
         this.value = value;}
 
+    /** @return the string's code in the context's dictionary, or -1 if it has not been encoded. */
+    public int getCode() {return code;}
+
     /** returns just the string
      * 
      * @return the string
@@ -83,7 +95,9 @@ public class ConstantObject extends AtomicObject implements Serializable{
      */
     public Boolean compare(Operators operator, StringObject string) {
         switch(operator) {
-            case EQUALS:  return value.equals(string.value);}
+            case EQUALS:
+                if(dictionary != null && dictionary == string.getDictionary()) {return code == string.getCode();}
+                return value.equals(string.value);}
         return null;}
 
     /** checks equality with an EnumerationObject
@@ -114,6 +128,7 @@ public class ConstantObject extends AtomicObject implements Serializable{
         return null;}
 
     /** parses a string as ConstantType and ensures that equal strings become identical objects.
+     * The string is encoded in the context's dictionary.
      * 
      * @param s the string to be parsed.
      * @param context the context for the objects.
@@ -124,9 +139,24 @@ public class ConstantObject extends AtomicObject implements Serializable{
         ConstantObject object = context.getConstant(s);
         if(object != null) {return object;}
         object = new ConstantObject(s);
+        int code = context.stringDictionary.encode(s);
+        if(code >= 0) {
+            object.dictionary = context.stringDictionary;
+            object.code  = code;
+            object.value = object.dictionary.decode(code);}
         context.putConstant(s,object);
         return object;}
 
+    /** reads the string. The deserialized object is not encoded in any dictionary.
+     *
+     * @param in an ObjectInputStream for reading the objects.
+     * @throws IOException  if reading the object goes wrong
+     * @throws ClassNotFoundException should never be thrown.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        code = -1;}
+
     /** checks if the string can be parsed.
      *
      * @param string a string to be tested
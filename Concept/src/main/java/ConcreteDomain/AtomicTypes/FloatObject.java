@@ -5,7 +5,7 @@ import ConcreteDomain.ConcreteObject;
 import ConcreteDomain.SetTypes.*;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.List;
 
 /** This is a wrapper class for float values.
  *
@@ -118,7 +118,7 @@ public class FloatObject extends NumberObject implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, IntegerList list) {
-        ArrayList<Integer> values = list.values;
+        List<Integer> values = list.getValues();
         if(values.isEmpty()) {return false;}
         int min = values.get(0);
         int max = values.get(values.size()-1);
@@ -173,7 +173,7 @@ public class FloatObject extends NumberObject implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, FloatList list) {
-        ArrayList<Float> values = list.values;
+        List<Float> values = list.getValues();
         if(values.isEmpty()) {return false;}
         if(operator == Operators.IN) {return values.contains(value);}
         float min = values.get(0);
@@ -6,7 +6,7 @@ import ConcreteDomain.SetTypes.*;
 import Utils.Utilities;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.List;
 
 /** This is just a wrapper for int values.
  *
@@ -118,7 +118,7 @@ public class IntegerObject extends NumberObject implements Serializable{
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, IntegerList list) {
-        ArrayList<Integer> values = list.values;
+        List<Integer> values = list.getValues();
         if(values.isEmpty()) {return false;}
         int min = values.get(0);
         int max = values.get(values.size()-1);
@@ -170,7 +170,7 @@ public class IntegerObject extends NumberObject implements Serializable{
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, FloatList list) {
-        ArrayList<Float> values = list.values;
+        List<Float> values = list.getValues();
         if(values.isEmpty()) {return false;}
         float min = values.get(0);
         float max = values.get(values.size()-1);
@@ -4,17 +4,29 @@ import AbstractObjects.Operators;
 import ConcreteDomain.AtomicObject;
 import ConcreteDomain.ConcreteObject;
 import ConcreteDomain.SetTypes.StringList;
+import MISC.Context;
+import MISC.StringDictionary;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
 
 /** This is a wrapper for strings.
- *
+ * StringObjects which are created with a StringDictionary share the canonical string
+ * and carry its code, such that equality can be checked by comparing the codes.
+ * Codes are only compared if both objects are encoded in the same dictionary.
+ * Deserialized StringObjects are not encoded.
  */
 public class StringObject extends AtomicObject implements Serializable {
     /** the wrapped string */
     public String value = null;
 
+    /** the string's code in the dictionary (-1 if there is no dictionary) */
+    private transient int code = -1;
+
+    /** the dictionary which encoded the string */
+    private transient StringDictionary dictionary = null;
+
     static {
         ConcreteObject.addCompareMethod(StringObject.class,StringList.class);}
 
@@ -27,6 +39,25 @@ public class StringObject extends AtomicObject implements Serializable {
      * @param value the string to be wrapped.
      */
     public StringObject(String value) { this.value = value;}
+
+    /** constructs a StringObject with the canonical string of the dictionary.
+     * If the dictionary is full, the string is not encoded.
+     *
+     * @param value the string to be wrapped.
+     * @param dictionary the dictionary for encoding the string.
+     */
+    public StringObject(String value, StringDictionary dictionary) {
+        code = dictionary.encode(value);
+        if(code < 0) {this.value = value; return;}
+        this.dictionary = dictionary;
+        this.value = dictionary.decode(code);}
+
+    /** @return the string's code in its dictionary, or -1 if it has no dictionary.
+     * The code is only meaningful together with getDictionary(). */
+    public int getCode() {return code;}
+
+    /** @return the dictionary which encoded the string, or null */
+    public StringDictionary getDictionary() {return dictionary;}
     
     /** just returns the string
      * 
@@ -55,7 +86,7 @@ public class StringObject extends AtomicObject implements Serializable {
             case STARTS:   return string.startsWith(value);
             case IN:       return string.contains(value);
             case FINISHES: return string.endsWith(value);
-            case EQUALS:   return string.endsWith(value);
+            case EQUALS:   return sameString(stringObject);
             case LESS:     return value.compareTo(string) < 0;
             case GREATER:  return value.compareTo(string) > 0;
             case LESSEQUALS:     return value.compareTo(string) <= 0;
@@ -72,10 +103,9 @@ public class StringObject extends AtomicObject implements Serializable {
      * @return the result of the comparison or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, StringList stringList) {
-        ArrayList<String> list = stringList.values;
         switch(operator) {
-            case IN:       return list.contains(value);
-            case EQUALS:   return list.size() == 1 && value.equals(list.get(0));}
+            case IN:       return stringList.containsString(value);
+            case EQUALS:   return stringList.size() == 1 && value.equals(stringList.getFirst());}
         return null;}
 
 
@@ -100,6 +130,16 @@ public class StringObject extends AtomicObject implements Serializable {
          return null;}
 
 
+    /** checks if the two objects wrap the same string.
+     * If both are encoded in the same dictionary, only the codes are compared.
+     *
+     * @param other another StringObject
+     * @return true if both wrap the same string.
+     */
+    private boolean sameString(StringObject other) {
+        if(dictionary != null && dictionary == other.dictionary) {return code == other.code;}
+        return value.equals(other.value);}
+
     /** compares 'this' and objects
      *
      * @param object the object to be comapred
@@ -107,7 +147,7 @@ public class StringObject extends AtomicObject implements Serializable {
      */
     @Override
     public boolean equals(Object object) {
-        return object != null && object.getClass() == StringObject.class && value.equals(((StringObject)object).value);}
+        return object != null && object.getClass() == StringObject.class && sameString((StringObject)object);}
     
     /** just returns the value
      * 
@@ -128,6 +168,25 @@ public class StringObject extends AtomicObject implements Serializable {
      */
     public static ConcreteObject parseString(String string) {return new StringObject(string);}
 
+    /** parses a string to a StringObject which is encoded in the context's dictionary
+     *
+     * @param string the string to be parsed.
+     * @param context where the objects live in.
+     * @return the StringObject
+     */
+    public static ConcreteObject parseString(String string, Context context) {
+        return new StringObject(string,context.stringDictionary);}
+
+    /** reads the string. The deserialized object is not encoded in any dictionary.
+     *
+     * @param in an ObjectInputStream for reading the objects.
+     * @throws IOException  if reading the object goes wrong
+     * @throws ClassNotFoundException should never be thrown.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        code = -1;}
+
     /** checks if the string can be parsed.
      *
      * @param string a string to be tested
@@ -3,8 +3,14 @@ package ConcreteDomain;
 import AbstractObjects.DataObject;
 import AbstractObjects.Operators;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /** This is the abstract superclass for all concrete objects (atomic and set objects).
@@ -14,7 +20,14 @@ import java.util.HashMap;
  *
  */
 public abstract class ConcreteObject implements DataObject {
-    private static HashMap<Class,HashMap<Class,Method>> compareMethods = new HashMap<>();
+
+    /** the functional interface for the generated comparators */
+    @FunctionalInterface
+    private interface Comparison {
+        Boolean compare(ConcreteObject object, Operators operator, ConcreteObject value);}
+
+    /** maps the class of 'this' and the class of the value to a comparator which calls the corresponding compare method */
+    private static final ConcurrentHashMap<Class,HashMap<Class,Comparison>> compareMethods = new ConcurrentHashMap<>();
 
     /** @return true if the SetObject consists of a single point */
     public abstract boolean isPoint();
@@ -36,22 +49,46 @@ public abstract class ConcreteObject implements DataObject {
      *   public Boolean compare(Operators operator, IntegerObject number)<br>
      *   public Boolean compare(Operators operator, FloatObject number) <br>
      * etc.
+     * <br>
+     * For each of these methods a comparator is generated once, such that compare needs no reflective call.
      *
      * @param class1 the calling class
      * @param classes the other classes for which a compare-method is available.
      */
-    protected static void addCompareMethod(Class class1, Class... classes) {
-        HashMap<Class,Method> map = compareMethods.get(class1);
-        if(map == null) {map = new HashMap<>(); compareMethods.put(class1,map);}
+    protected static synchronized void addCompareMethod(Class class1, Class... classes) {
+        HashMap<Class,Comparison> old = compareMethods.get(class1);
+        HashMap<Class,Comparison> map = (old == null) ? new HashMap<>() : new HashMap<>(old);
         try {
-            Method method = class1.getDeclaredMethod("compare", Operators.class, class1);
-            map.put(class1,method);
-            for(Class clazz : classes) {
-                method = class1.getDeclaredMethod("compare", Operators.class, clazz);
-                map.put(clazz,method);}}
-        catch(Exception ex) {System.out.println(ex.toString());}
+            map.put(class1,makeComparison(class1,class1));
+            for(Class clazz : classes) {map.put(clazz,makeComparison(class1,clazz));}}
+        catch(Throwable ex) {System.out.println(ex.toString());}
+        compareMethods.put(class1,map);
     }
 
+    /** generates a comparator which calls the method class1.compare(Operators, class2).
+     *
+     * @param class1 the class of 'this'.
+     * @param class2 the class of the value.
+     * @return the comparator.
+     * @throws Throwable if the method does not exist or is not accessible.
+     */
+    private static Comparison makeComparison(Class class1, Class class2) throws Throwable {
+        Method method = class1.getDeclaredMethod("compare", Operators.class, class2);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflect(method);
+        try {
+            CallSite site = LambdaMetafactory.metafactory(lookup, "compare",
+                    MethodType.methodType(Comparison.class),
+                    MethodType.methodType(Boolean.class, ConcreteObject.class, Operators.class, ConcreteObject.class),
+                    handle, MethodType.methodType(Boolean.class, class1, Operators.class, class2));
+            return (Comparison)site.getTarget().invoke();}
+        catch(Throwable ex) {
+            MethodHandle generic = handle.asType(MethodType.methodType(Boolean.class, ConcreteObject.class, Operators.class, ConcreteObject.class));
+            return (object, operator, value) -> {
+                try {return (Boolean)generic.invokeExact(object,operator,value);}
+                catch(RuntimeException | Error exception) {throw exception;}
+                catch(Throwable throwable) {throw new RuntimeException(throwable);}};}}
+
     /** compares 'this' operator 'value'
      *
      * @param operator for comapring the items
@@ -59,8 +96,8 @@ public abstract class ConcreteObject implements DataObject {
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, ConcreteObject value)  {
-        try{Method method = compareMethods.get(this.getClass()).get(value.getClass());
-            return (Boolean)method.invoke(this,operator,value);}
+        try{HashMap<Class,Comparison> map = compareMethods.get(this.getClass());
+            return map.get(value.getClass()).compare(this,operator,value);}
         catch(Exception ex) {
             System.out.println(this.toString() + " " + operator + " " +  value);
             System.out.println(ex.toString());
@@ -73,6 +110,12 @@ public abstract class ConcreteObject implements DataObject {
         return object != null && this.getClass() == object.getClass() && get().equals(((DataObject)object).get());
     }
 
+    /** @return a hash code which is consistent with equals */
+    @Override
+    public int hashCode() {
+        Object value = get();
+        return (value == null) ? 0 : value.hashCode();}
+
    
 }
 
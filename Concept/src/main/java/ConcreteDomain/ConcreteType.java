@@ -4,7 +4,9 @@ import AbstractObjects.DataObject;
 import AbstractObjects.DataType;
 import AbstractObjects.Operators;
 import ConcreteDomain.AtomicTypes.BooleanType;
+import ConcreteDomain.AtomicTypes.ConstantObject;
 import ConcreteDomain.AtomicTypes.EnumerationType;
+import ConcreteDomain.AtomicTypes.StringObject;
 import MISC.Context;
 import TableStructures.TableObject;
 
@@ -104,6 +106,8 @@ public class ConcreteType extends DataType {
     }
 
     /** parses a String into the concrete data object.
+     * Strings and constants are parsed with the context, such that they are encoded in its dictionary.
+     * For all other types, the parser without context is preferred.
      * Syntax errors should be obtained by first calling parse Check.
      *
      * @param string the string to be parsed
@@ -111,6 +115,9 @@ public class ConcreteType extends DataType {
      * @return the parsed DataObject
      */
     public DataObject parseObject(String string, Context context) {
+        if(parseObject2 != null && context != null && (typeClass == StringObject.class || typeClass == ConstantObject.class)) {
+            try{return (DataObject) parseObject2.invoke(null,string,context);}
+            catch(Exception ex) {return null;}}
         if(parseObject1 != null) {
             try{return (DataObject) parseObject1.invoke(null,string);}
             catch(Exception ex) {return null;}}
@@ -7,7 +7,7 @@ import ConcreteDomain.AtomicTypes.IntegerObject;
 import ConcreteDomain.ConcreteObject;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.List;
 
 /** This class represents Intervals with Floats as boundaries.
  *
@@ -187,7 +187,7 @@ public class FloatInterval extends Interval<Float> implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable
      */
     public Boolean compare(Operators operator, IntegerList item) {
-        ArrayList<Integer> list = item.values;  // the list is sorted.
+        List<Integer> list = item.values;  // the list is sorted.
         if(list.isEmpty()) {return operator == Operators.CONTAINS;}
         int size2 = list.size();
         int from2 = list.get(0);
@@ -229,7 +229,7 @@ public class FloatInterval extends Interval<Float> implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable
      */
     public Boolean compare(Operators operator, FloatList item) {
-        ArrayList<Float> list = item.values;  // the list is sorted.
+        List<Float> list = item.values;  // the list is sorted.
         if(list.isEmpty()) {return operator == Operators.CONTAINS;}
         int size2 = list.size();
         float from2 = list.get(0);
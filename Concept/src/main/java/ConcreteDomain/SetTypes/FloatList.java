@@ -7,25 +7,70 @@ import ConcreteDomain.ConcreteObject;
 import Utils.Utilities;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
 
-/**
- *
+/** This is a wrapper for lists of floats.
+ * The values are kept in a sorted float-array. Membership and subset tests work directly on the array.
  */
 public class FloatList extends ListObject<Float> implements Serializable {
 
-    /** constructs a new IntegerListObject
+    /** an unmodifiable list view of a sorted float-array */
+    private static class Floats extends AbstractList<Float> implements RandomAccess, Serializable {
+        final float[] array;
+
+        Floats(float[] array) {this.array = array;}
+
+        @Override
+        public Float get(int index) {return array[index];}
+
+        @Override
+        public int size() {return array.length;}
+
+        @Override
+        public int indexOf(Object object) {
+            if(!(object instanceof Float)) {return -1;}
+            int index = Arrays.binarySearch(array,(Float)object);
+            while(index > 0 && Float.compare(array[index-1],array[index]) == 0) {--index;}
+            return (index < 0) ? -1 : index;}
+
+        @Override
+        public boolean contains(Object object) {return indexOf(object) >= 0;}}
+
+    /** constructs a new FloatList
      *
-     * @param values a list of integers.
+     * @param values a list of floats.
      */
-    public FloatList(ArrayList<Float> values) {
-        super(values);}
+    public FloatList(List<Float> values) {
+        super(new Floats(sorted(values.toArray())));}
 
     public FloatList(Float... values){
-        super(values);}
+        super(new Floats(sorted(values)));}
+
+    /** @return the sorted float-array with the given Floats */
+    private static float[] sorted(Object[] values) {
+        float[] array = new float[values.length];
+        for(int i = 0; i < array.length; ++i) {array[i] = (Float)values[i];}
+        Arrays.sort(array);
+        return array;}
 
     public boolean isNumberList() {return true;}
 
+    /** @return the sorted values as float-array (must not be changed) */
+    public float[] getFloats() {return ((Floats)values).array;}
+
+    /** checks with a binary search whether the list contains the value.
+     * The values are compared like Float.equals.
+     *
+     * @param value a float
+     * @return true if the list contains the value.
+     */
+    public boolean containsFloat(float value) {
+        return Arrays.binarySearch(getFloats(),value) >= 0;}
+
 
     /** compares 'this' with the given Integer.
      *
@@ -49,7 +94,7 @@ public class FloatList extends ListObject<Float> implements Serializable {
             case STARTS:   return min == value;
             case FINISHES: return max == value;
             case AFTER:    return value < min;
-            case CONTAINS: return values.contains((float)value);
+            case CONTAINS: return containsFloat((float)value);
         }
         return null;
     }
@@ -76,7 +121,7 @@ public class FloatList extends ListObject<Float> implements Serializable {
             case STARTS:   return min == value;
             case FINISHES: return max == value;
             case AFTER:    return value < min;
-            case CONTAINS: return values.contains(value);
+            case CONTAINS: return containsFloat(value);
         }
         return null;
     }
@@ -194,7 +239,7 @@ public class FloatList extends ListObject<Float> implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, IntegerList item) {
-        ArrayList<Integer> values2 = item.values;
+        List<Integer> values2 = item.values;
         int size1 = values.size();
         int size2 = values2.size();
         if(size1 == 0 || size2 == 0) {return operator == Operators.DISJOINT;}
@@ -213,12 +258,12 @@ public class FloatList extends ListObject<Float> implements Serializable {
                 return true;
             case CONTAINS:
                 if(!(from1 <= from2 && to2 <= to1)) {return false;}
-                for(Integer i : values2) {if(!values.contains((float)(int)i)) {return false;}}
+                for(int i : item.getInts()) {if(!containsFloat((float)i)) {return false;}}
                 return true;
             case IN:
                 if(!(from2 <= from1 && to1 <= to2)) {return false;}
                 for(Float i : values) {
-                    if(!(Utilities.isInt(i) && values2.contains((int)(float)i))) {return false;}}
+                    if(!(Utilities.isInt(i) && item.containsInt((int)(float)i))) {return false;}}
                 return true;
             case FINISHES:
                 if(!(to1 == to2 && size1 < size2)) {return false;}
@@ -233,10 +278,10 @@ public class FloatList extends ListObject<Float> implements Serializable {
                 return true;
             case OVERLAPS:
                 if(to1 < from2 || from2 > to1) {return false;}
-                for(Float i : values) {if(Utilities.isInt(i) && values2.contains((int)(float)i)) {return true;}}
+                for(Float i : values) {if(Utilities.isInt(i) && item.containsInt((int)(float)i)) {return true;}}
                 return false;
             case DISJOINT: if(to1 < from2 || from2 > to1) {return true;}
-                for(Float i : values) {if(Utilities.isInt(i) && values2.contains((int)(float)i)) {return false;}}
+                for(Float i : values) {if(Utilities.isInt(i) && item.containsInt((int)(float)i)) {return false;}}
                 return true;}
         return null;
     }
@@ -258,7 +303,7 @@ public class FloatList extends ListObject<Float> implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, FloatList item) {
-        ArrayList<Float> values2 = item.values;
+        List<Float> values2 = item.values;
         int size1 = values.size();
         int size2 = values2.size();
         if(size1 == 0 || size2 == 0) {return operator == Operators.DISJOINT;}
@@ -277,11 +322,10 @@ public class FloatList extends ListObject<Float> implements Serializable {
                 return true;
             case CONTAINS:
                 if(!(from1 <= from2 && to2 <= to1)) {return false;}
-                for(Float i : values2) {if(!values.contains(i)) {return false;}}
-                return true;
+                return isSubset(item.getFloats(),getFloats());
             case IN:
                 if(!(from2 <= from1 && to1 <= to2)) {return false;}
-                return values2.containsAll(values);
+                return isSubset(getFloats(),item.getFloats());
             case FINISHES:
                 if(!(to1 == to2 && size1 <size2)) {return false;}
                 for(int i = 2; i < size1; ++i) {
@@ -293,11 +337,9 @@ public class FloatList extends ListObject<Float> implements Serializable {
                 return values.equals(values2);
             case OVERLAPS:
                 if(to1 < from2 || from2 > to1) {return false;}
-                for(Float i : values) {if(values2.contains(i)) {return true;}}
-                return false;
+                return intersects(getFloats(),item.getFloats());
             case DISJOINT: if(to1 < from2 || from2 > to1) {return true;}
-                for(Float i : values) {if(values2.contains(i)) {return false;}}
-                return true;}
+                return !intersects(getFloats(),item.getFloats());}
         return null;
     }
     static {
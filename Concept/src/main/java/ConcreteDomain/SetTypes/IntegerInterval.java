@@ -7,7 +7,7 @@ import ConcreteDomain.ConcreteObject;
 import Utils.Utilities;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.List;
 
 /** This class represents intervals with Integer boundaries
  *
@@ -182,7 +182,7 @@ public class IntegerInterval extends Interval<Integer> implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable
      */
     public Boolean compare(Operators operator, IntegerList item) {
-        ArrayList<Integer> list = item.values;  // the list is sorted.
+        List<Integer> list = item.values;  // the list is sorted.
         if(list.isEmpty()) {return operator == Operators.CONTAINS;}
         int size1 = to-from+1;
         int size2 = list.size();
@@ -238,7 +238,7 @@ public class IntegerInterval extends Interval<Integer> implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable
      */
     public Boolean compare(Operators operator, FloatList item) {
-        ArrayList<Float> list = item.values;  // the list is sorted.
+        List<Float> list = item.values;  // the list is sorted.
         if(list.isEmpty()) {return operator == Operators.CONTAINS;}
         int size1 = to-from+1;
         int size2 = list.size();
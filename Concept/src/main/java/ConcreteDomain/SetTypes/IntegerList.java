@@ -6,24 +6,69 @@ import ConcreteDomain.AtomicTypes.IntegerObject;
 import ConcreteDomain.ConcreteObject;
 
 import java.io.Serializable;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
 
 /** This is a wrapper for lists of integers.
+ * The values are kept in a sorted int-array. Membership and subset tests work directly on the array.
  */
 public class IntegerList extends ListObject<Integer> implements Serializable {
 
+    /** an unmodifiable list view of a sorted int-array */
+    private static class Ints extends AbstractList<Integer> implements RandomAccess, Serializable {
+        final int[] array;
+
+        Ints(int[] array) {this.array = array;}
+
+        @Override
+        public Integer get(int index) {return array[index];}
+
+        @Override
+        public int size() {return array.length;}
+
+        @Override
+        public int indexOf(Object object) {
+            if(!(object instanceof Integer)) {return -1;}
+            int index = Arrays.binarySearch(array,(Integer)object);
+            while(index > 0 && array[index-1] == array[index]) {--index;}
+            return (index < 0) ? -1 : index;}
+
+        @Override
+        public boolean contains(Object object) {return indexOf(object) >= 0;}}
+
     /** constructs a new IntegerListObject
      * 
      * @param values a list of integers.
      */
-    public IntegerList(ArrayList<Integer> values) {
-        super(values);}
+    public IntegerList(List<Integer> values) {
+        super(new Ints(sorted(values.toArray())));}
 
     public IntegerList(Integer... values){
-        super(values);}
+        super(new Ints(sorted(values)));}
+
+    /** @return the sorted int-array with the given Integers */
+    private static int[] sorted(Object[] values) {
+        int[] array = new int[values.length];
+        for(int i = 0; i < array.length; ++i) {array[i] = (Integer)values[i];}
+        Arrays.sort(array);
+        return array;}
 
     public boolean isNumberList() {return true;}
 
+    /** @return the sorted values as int-array (must not be changed) */
+    public int[] getInts() {return ((Ints)values).array;}
+
+    /** checks with a binary search whether the list contains the value
+     *
+     * @param value an integer
+     * @return true if the list contains the value.
+     */
+    public boolean containsInt(int value) {
+        return Arrays.binarySearch(getInts(),value) >= 0;}
+
 
 
     /** compares 'this' with the given Integer.
@@ -48,7 +93,7 @@ public class IntegerList extends ListObject<Integer> implements Serializable {
             case STARTS:   return min == value;
             case FINISHES: return max == value;
             case AFTER:    return value < min;
-            case CONTAINS: return values.contains(item.value);
+            case CONTAINS: return containsInt(item.value);
         }
         return null;
     }
@@ -79,7 +124,7 @@ public class IntegerList extends ListObject<Integer> implements Serializable {
             case CONTAINS:
                 int k = (int)value;
                 if(k != value) {return false;}
-                return values.contains(k);
+                return containsInt(k);
         }
         return null;
     }
@@ -194,7 +239,7 @@ public class IntegerList extends ListObject<Integer> implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, IntegerList item) {
-        ArrayList<Integer> values2 = item.values;
+        List<Integer> values2 = item.values;
         if(values.isEmpty()) {
                 if(values2.isEmpty()) {return operator == Operators.EQUALS;}
                 else {return operator == Operators.DISJOINT;}}
@@ -216,10 +261,10 @@ public class IntegerList extends ListObject<Integer> implements Serializable {
                     return values.equals(values2.subList(0,index+1));
             case CONTAINS:
                 if(!(from1 <= from2 && to2 <= to1 && size1 >= size2)) {return false;}
-                return values.containsAll(values2);
+                return isSubset(item.getInts(),getInts());
 
             case IN:  if(!(from2 <= from1 && to1 <= to2 && size1 <= size2)) {return false;}
-                return values2.containsAll(values);
+                return isSubset(getInts(),item.getInts());
 
             case FINISHES: if(to1 != to2 || from1 < from2 || size1 >= size2) {return false;}
                 index = values2.indexOf(from1);
@@ -228,11 +273,9 @@ public class IntegerList extends ListObject<Integer> implements Serializable {
             case AFTER:    return to2 < from1;
             case EQUALS:   return values.equals(values2);
             case OVERLAPS: if(to1 < from2 || from2 > to1) {return false;}
-                for(Integer i : values) {if(values2.contains(i)){return true;}}
-                return false;
+                return intersects(getInts(),item.getInts());
             case DISJOINT: if(to1 < from2 || from2 > to1) {return true;}
-                for(Integer i : values) {if(values2.contains(i)) {return false;}}
-                return true;}
+                return !intersects(getInts(),item.getInts());}
         return null;
     }
 
@@ -254,7 +297,7 @@ public class IntegerList extends ListObject<Integer> implements Serializable {
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, FloatList item) {
-        ArrayList<Float> values2 = item.values;
+        List<Float> values2 = item.values;
         if(values.isEmpty()) {
             if(values2.isEmpty()) {return operator == Operators.EQUALS;}
             else {return operator == Operators.DISJOINT;}}
@@ -277,14 +320,14 @@ public class IntegerList extends ListObject<Integer> implements Serializable {
                 for(int i = 0; i < size2; ++i) {
                     float k = values2.get(i);
                     int ki = (int)k;
-                    if(ki != k || !values.contains(ki)){return false;}}
+                    if(ki != k || !containsInt(ki)){return false;}}
                 return true;
 
             case IN:
                 if(!(from2 <= from1 && to1 <= to2 && size1 <= size2)) {return false;}
                 for(int i = 0; i < size1; ++i) {
                     int k = values.get(i);
-                    if(!values2.contains((Float)(float)k)){return false;}}
+                    if(!item.containsFloat((float)k)){return false;}}
                 return true;
 
             case FINISHES: if(to1 != to2 || from1 < from2 || size1 >= size2) {return false;}
@@ -299,11 +342,11 @@ public class IntegerList extends ListObject<Integer> implements Serializable {
                 return true;
 
             case OVERLAPS: if(to1 < from2 || from2 > to1) {return false;}
-                for(Integer i : values) {if(values2.contains((float)(int)i)) {return true;}}
+                for(int i : getInts()) {if(item.containsFloat((float)i)) {return true;}}
                 return false;
 
             case DISJOINT: if(to1 < from2 || from2 > to1) {return true;}
-                for(Integer i : values) {if(values2.contains((float)(int)i)) {return false;}}
+                for(int i : getInts()) {if(item.containsFloat((float)i)) {return false;}}
                 return true;}
         return null;
     }
@@ -4,15 +4,25 @@ import ConcreteDomain.SetObject;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /** This is a ConcreteDomain type which consists of lists of objects.
  * The items must be Comparable, and the lists are internally sorted.
+ * The lists are immutable.
+ * IntegerList, FloatList and StringList keep the values in a sorted array, and values is just a view of the array.
+ * <br>
+ * Incompatible change: values used to be a modifiable ArrayList. It is now a final, unmodifiable List,
+ * and ListObjects serialized by earlier versions cannot be read any more.
  *
  * @param <T> the element type
  */
 public class ListObject<T extends Comparable> extends SetObject implements Serializable {
-    public ArrayList<T> values;
+    private static final long serialVersionUID = 1L;
+
+    /** the sorted values (unmodifiable) */
+    public final List<T> values;
     
     /** constructs a ListObject with a given list of values.
      * The values are sorted
@@ -20,13 +30,22 @@ public class ListObject<T extends Comparable> extends SetObject implements Seria
      * @param values a list of values
      */
     public ListObject(ArrayList<T> values) {
-        this.values = values;
-        this.values.sort(null);}
+        values.sort(null);
+        values.trimToSize();
+        this.values = Collections.unmodifiableList(values);}
 
     public ListObject(Object[] values) {
-        this.values = new ArrayList<>(values.length);
-        for(Object value: values) {this.values.add((T)value);}
-        this.values.sort(null);}
+        ArrayList<T> list = new ArrayList<>(values.length);
+        for(Object value: values) {list.add((T)value);}
+        list.sort(null);
+        this.values = Collections.unmodifiableList(list);}
+
+    /** constructs a ListObject for an unmodifiable view of already sorted values.
+     *
+     * @param sortedValues the sorted values.
+     */
+    protected ListObject(List<T> sortedValues) {
+        this.values = sortedValues;}
     
     /** yields the sorted list of values. 
      * 
@@ -35,6 +54,9 @@ public class ListObject<T extends Comparable> extends SetObject implements Seria
     @Override
     public Object get() {return values;}
 
+    /** @return the sorted, unmodifiable list of values. */
+    public List<T> getValues() {return values;}
+
     public boolean isEmpty() {return values.isEmpty();}
 
     public boolean isNumberList() {return false;}
@@ -75,6 +97,87 @@ public class ListObject<T extends Comparable> extends SetObject implements Seria
     public int size() {return values.size();}
 
 
+    /** checks with a merge of the two sorted arrays whether all elements of sub occur in sup.
+     *
+     * @param sub a sorted array
+     * @param sup a sorted array
+     * @return true if all elements of sub occur in sup.
+     */
+    protected static boolean isSubset(int[] sub, int[] sup) {
+        int j = 0;
+        for(int value : sub) {
+            while(j < sup.length && sup[j] < value) {++j;}
+            if(j == sup.length || sup[j] != value) {return false;}}
+        return true;}
+
+    /** checks with a merge of the two sorted arrays whether they have a common element.
+     *
+     * @param values1 a sorted array
+     * @param values2 a sorted array
+     * @return true if the arrays have a common element.
+     */
+    protected static boolean intersects(int[] values1, int[] values2) {
+        int i = 0, j = 0;
+        while(i < values1.length && j < values2.length) {
+            if(values1[i] == values2[j]) {return true;}
+            if(values1[i] < values2[j]) {++i;} else {++j;}}
+        return false;}
+
+    /** checks with a merge of the two sorted arrays whether all elements of sub occur in sup.
+     * The elements are compared with Float.compare, which is consistent with the sort order.
+     *
+     * @param sub a sorted array
+     * @param sup a sorted array
+     * @return true if all elements of sub occur in sup.
+     */
+    protected static boolean isSubset(float[] sub, float[] sup) {
+        int j = 0;
+        for(float value : sub) {
+            while(j < sup.length && Float.compare(sup[j],value) < 0) {++j;}
+            if(j == sup.length || Float.compare(sup[j],value) != 0) {return false;}}
+        return true;}
+
+    /** checks with a merge of the two sorted arrays whether they have a common element.
+     *
+     * @param values1 a sorted array
+     * @param values2 a sorted array
+     * @return true if the arrays have a common element.
+     */
+    protected static boolean intersects(float[] values1, float[] values2) {
+        int i = 0, j = 0;
+        while(i < values1.length && j < values2.length) {
+            int c = Float.compare(values1[i],values2[j]);
+            if(c == 0) {return true;}
+            if(c < 0) {++i;} else {++j;}}
+        return false;}
+
+    /** checks with a merge of the two sorted arrays whether all elements of sub occur in sup.
+     *
+     * @param sub a sorted array
+     * @param sup a sorted array
+     * @return true if all elements of sub occur in sup.
+     */
+    protected static <T extends Comparable> boolean isSubset(T[] sub, T[] sup) {
+        int j = 0;
+        for(T value : sub) {
+            while(j < sup.length && sup[j].compareTo(value) < 0) {++j;}
+            if(j == sup.length || sup[j].compareTo(value) != 0) {return false;}}
+        return true;}
+
+    /** checks with a merge of the two sorted arrays whether they have a common element.
+     *
+     * @param values1 a sorted array
+     * @param values2 a sorted array
+     * @return true if the arrays have a common element.
+     */
+    protected static <T extends Comparable> boolean intersects(T[] values1, T[] values2) {
+        int i = 0, j = 0;
+        while(i < values1.length && j < values2.length) {
+            int c = values1[i].compareTo(values2[j]);
+            if(c == 0) {return true;}
+            if(c < 0) {++i;} else {++j;}}
+        return false;}
+
     /** removes brackets
      *
      * @param string any string
@@ -6,24 +6,56 @@ import ConcreteDomain.ConcreteObject;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /** This class represents Lists of Strings as Concrete Type
- *
+ * The values are kept in a sorted array. Membership and subset tests work directly on the array.
  */
 public class StringList extends ListObject<String> implements Serializable{
+
+    /** the sorted values; values is an unmodifiable view of this array */
+    private final String[] strings;
     
     /** constructs a StringListObject from an array of strings. 
      * 
      * @param values the list of String values.
      */
-    public StringList(ArrayList<String> values) {
-        super(values);}
+    public StringList(List<String> values) {
+        this(values.toArray(new String[values.size()]),true);}
+
     /** constructs a StringListObject from an array of strings.
      *
      * @param values the list of String values.
      */
     public StringList(String... values) {
-        super(values);}
+        this(values.clone(),true);}
+
+    /** constructs a StringListObject from a private array of strings, which is sorted.
+     *
+     * @param values the strings.
+     * @param owned  just for distinguishing the constructors
+     */
+    private StringList(String[] values, boolean owned) {
+        super(Collections.unmodifiableList(Arrays.asList(sort(values))));
+        strings = values;}
+
+    /** @return the sorted array */
+    private static String[] sort(String[] values) {
+        Arrays.sort(values);
+        return values;}
+
+    /** @return the sorted values as array (must not be changed) */
+    public String[] getStrings() {return strings;}
+
+    /** checks with a binary search whether the list contains the value
+     *
+     * @param value a string
+     * @return true if the list contains the value.
+     */
+    public boolean containsString(String value) {
+        return Arrays.binarySearch(getStrings(),value) >= 0;}
 
     /** compares 'this' with the given StringObject.
      *
@@ -35,7 +67,7 @@ public class StringList extends ListObject<String> implements Serializable{
      */
      public Boolean compare(Operators operator, StringObject item) {
         switch(operator) {
-            case CONTAINS: return values.contains(item.value);}
+            case CONTAINS: return containsString(item.value);}
         return null;
         }
 
@@ -51,17 +83,13 @@ public class StringList extends ListObject<String> implements Serializable{
      * @return the result of the comparison, or null if the operator is not applicable.
      */
     public Boolean compare(Operators operator, StringList item) {
-        ArrayList<String> values2 = item.values;
+        List<String> values2 = item.values;
         switch(operator) {
-            case OVERLAPS:
-                for(String value : values) {if(values2.contains(value)) {return true;}}
-                return false;
-            case DISJOINT:
-                for(String value : values) {if(values2.contains(value)) {return false;}}
-                return true;
+            case OVERLAPS: return intersects(getStrings(),item.getStrings());
+            case DISJOINT: return !intersects(getStrings(),item.getStrings());
             case EQUALS:   return values.equals(values2);
-            case IN:       return values2.containsAll(values);
-            case CONTAINS: return values.containsAll(values2);}
+            case IN:       return isSubset(getStrings(),item.getStrings());
+            case CONTAINS: return isSubset(item.getStrings(),getStrings());}
 
         return null;
     }
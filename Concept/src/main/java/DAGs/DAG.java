@@ -10,11 +10,17 @@ import Utils.Utilities;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /** This class is the interface to a Directed Acyclic Graph (DAG).
@@ -35,6 +41,15 @@ import java.util.stream.Stream;
  * <br>
  * The public DAG-methods are synchronized, whereas the Node-methods are not.
  * Thus, access to the DAG should be only via the methods in this class.
+ * The changes go through the method change, which takes the change lock of the context (if any) before the DAG's lock.
+ * <br>
+ * The DAG can be frozen for a parallel read-only phase. While it is frozen, the node lookups,
+ * isSubnodeOf, findInInnerLabels and applyToInnerLabels take no lock and run in parallel,
+ * whereas all changes wait until the DAG is thawed.
+ * <br>
+ * A DAG can be forked (see the constructor DAG(id,base)). The fork copies only the nodes which it changes,
+ * together with their supernodes, and reads all other nodes from its base DAG.
+ * The base DAG cannot be changed while it has forks which have not been discarded.
  * <br>
  * Changes to the structure of the DAG can be observed by various observers.
  */
@@ -55,8 +70,32 @@ public class DAG<N> extends ItemWithId {
 
     private final HashMap<N,MetaData<N>> metaData = new HashMap<>();
 
-    /** a timestamp to be used by some of the algorithms. */
-    private int timestamp = 0;
+    /** the DAG from which this DAG has been forked, or null */
+    private final DAG<N> base;
+
+    /** the base DAG until the first change of this DAG, or null. Until then all queries are passed to it. */
+    private volatile DAG<N> shared = null;
+
+    /** the labels of the base DAG's nodes which have been removed in this DAG (null if there is no base DAG) */
+    private final HashSet<N> removed;
+
+    /** the number of forks of this DAG which have not been discarded. While it is positive, the DAG cannot be changed. */
+    private int forks = 0;
+
+    /** true if this fork has been discarded */
+    private boolean discarded = false;
+
+    /** a timestamp to be used by some of the algorithms (the forks use the timestamps of their base DAG). */
+    private final AtomicInteger timestamp = new AtomicInteger();
+
+    /** the number of active freezes. While it is positive, the structure of the DAG does not change. */
+    private volatile int frozen = 0;
+
+    /** the number of threads which are reading the frozen DAG without lock */
+    private final AtomicInteger unlockedReaders = new AtomicInteger();
+
+    /** the lock which the changes take before the DAG's lock, or null (see setChangeLock) */
+    private volatile Lock changeLock = null;
 
     /** constructs a new DAG with the given applicationName and a leaf label predicate.
      *
@@ -65,7 +104,213 @@ public class DAG<N> extends ItemWithId {
      * */
     public DAG(String id,Predicate<N> isLeafLabel) {
         super(id);
-        this.isLeafLabel = isLeafLabel;}
+        this.isLeafLabel = isLeafLabel;
+        this.base = null;
+        this.removed = null;}
+
+    /** constructs a fork of the base DAG, in constant time.
+     * Until its first change, all queries are answered by the base DAG.
+     * A change copies only the nodes whose edges it changes, together with their supernodes (but not their observers),
+     * such that the copies point upwards only to copies. All other nodes are read from the base DAG.
+     * The metadata are not copied.
+     * <br>
+     * The base DAG cannot be changed until the fork is discarded.
+     *
+     * @param id   an identifier for the DAG.
+     * @param base the DAG to be forked.
+     */
+    public DAG(String id, DAG<N> base) {
+        super(id);
+        this.isLeafLabel = base.isLeafLabel;
+        this.base = base;
+        this.shared = base;
+        this.removed = new HashSet<>();
+        synchronized (base) {++base.forks;}}
+
+    /** @return true if this DAG is a fork which has not been changed yet */
+    public boolean isShared() {return shared != null;}
+
+    /** discards this fork. Afterwards the base DAG can be changed again, and this DAG must not be used anymore. */
+    public void discard() {
+        if(base == null) {return;}
+        synchronized (this) {
+            if(discarded) {return;}
+            discarded = true;}
+        synchronized (base) {--base.forks;}}
+
+    /** stops passing the queries to the base DAG. It is called before each change.
+     * If the DAG is frozen, it waits until the DAG is thawed and the readers without lock have finished.
+     */
+    private synchronized void unshare() {
+        boolean interrupted = false;
+        while(frozen > 0 || unlockedReaders.get() > 0) {
+            try{wait();} catch(InterruptedException ex) {interrupted = true;}}
+        if(interrupted) {Thread.currentThread().interrupt();}
+        shared = null;}
+
+    /** @return the node of this DAG's own tables with the given label, or null */
+    private Node<N> mine(N label) {
+        return isLeafLabel.test(label) ? leafNodes.get(label) : innerNodes.get(label);}
+
+    /** maps a node of the base DAG to the copy with the same label in this DAG, if there is one.
+     *
+     * @param node a node (or null)
+     * @return the node which represents the node's label in this DAG.
+     */
+    private Node<N> own(Node<N> node) {
+        if(base == null || node == null) {return node;}
+        Node<N> mine = mine(node.label);
+        return (mine == null) ? base.own(node) : mine;}
+
+    /** returns the copy of a node which is to be changed, and copies the node if necessary.
+     * The copy gets the node's subnodes, and the copies of its supernodes, which replace the node by the copy.
+     * Thus the copies point upwards only to copies, and a node which has not been copied has not changed below.
+     *
+     * @param node a node of this DAG or of the base DAG (or null).
+     * @return the node of this DAG with the node's label, or null if there is none.
+     */
+    private Node<N> touch(Node<N> node) {
+        if(base == null || node == null) {return node;}
+        N label = node.label;
+        Node<N> copy = mine(label);
+        if(copy != null || removed.contains(label)) {return copy;}
+        Node<N> source = base.node(label);
+        if(source == null) {return null;}
+        if(source.isLeafNode()) {
+            copy = new LeafNode<>(label);
+            leafNodes.put(label,(LeafNode<N>)copy);}
+        else {
+            InnerNode<N> inner = new InnerNode<>(label);
+            inner.innerNodes.addAll(((InnerNode<N>)source).innerNodes);
+            inner.leafNodes.addAll(((InnerNode<N>)source).leafNodes);
+            innerNodes.put(label,inner);
+            copy = inner;}
+        for(InnerNode<N> supernode : source.superEdges) {
+            InnerNode<N> supercopy = (InnerNode<N>)touch(supernode);
+            if(copy.isLeafNode()) {supercopy.leafNodes.set(supercopy.leafNodes.indexOf(source),(LeafNode<N>)copy);}
+            else {supercopy.innerNodes.set(supercopy.innerNodes.indexOf(source),(InnerNode<N>)copy);}
+            copy.superEdges.add(supercopy);}
+        if(copy.superEdges.isEmpty()) {roots.add(copy);}
+        return copy;}
+
+    /** copies the node and all nodes below it.
+     *
+     * @param node a node of this DAG or of the base DAG.
+     * @return the copy of the node.
+     */
+    private Node<N> touchSubtree(Node<N> node) {
+        Node<N> copy = touch(node);
+        if(base == null || copy == null || copy.isLeafNode()) {return copy;}
+        for(Node<N> subnode : new ArrayList<>(((InnerNode<N>)copy).innerNodes)) {touchSubtree(subnode);}
+        for(Node<N> subnode : new ArrayList<>(((InnerNode<N>)copy).leafNodes))  {touch(subnode);}
+        return copy;}
+
+    /** records that the node has been removed from this DAG.
+     *
+     * @param node a removed node
+     */
+    private void removed(Node<N> node) {
+        if(node.isLeafNode()) {leafNodes.remove(node.label);}
+        else {innerNodes.remove(node.label);}
+        roots.remove(node);
+        if(base != null && base.node(node.label) != null) {removed.add(node.label);}}
+
+    /** returns the supernodes of a node. The supernodes of a node of the base DAG are mapped to their copies.
+     *
+     * @param node a node
+     * @return the supernodes of the node in this DAG.
+     */
+    private ArrayList<InnerNode<N>> up(Node<N> node) {
+        if(base == null || mine(node.label) == node) {return node.superEdges;}
+        ArrayList<InnerNode<N>> supernodes = new ArrayList<>(node.superEdges.size());
+        for(InnerNode<N> supernode : node.superEdges) {supernodes.add((InnerNode<N>)own(supernode));}
+        return supernodes;}
+
+    /** @return the root nodes: the own root nodes and the base DAG's root nodes which have not been copied or removed */
+    private List<Node<N>> roots() {
+        if(base == null) {return (List)roots;}
+        ArrayList<Node<N>> all = new ArrayList<>((List)roots);
+        for(Node<N> root : base.roots()) {
+            if(mine(root.label) == null && !removed.contains(root.label)) {all.add(root);}}
+        return all;}
+
+    /* ---------------------------------------  Changing -------------------------------- */
+
+    /** sets the lock which each change of the DAG takes before the DAG's lock.
+     * The context sets the read lock of its change lock, such that a checkpoint can pause all changes.
+     *
+     * @param changeLock a lock, or null.
+     */
+    public void setChangeLock(Lock changeLock) {this.changeLock = changeLock;}
+
+    /** applies one or several changes of the DAG in one synchronized step.
+     * The change lock (if any) is taken before the DAG's lock.
+     * Then a frozen DAG waits until it is thawed.
+     * A thread which holds the DAG's lock must not start a change through this method, unless it holds the change lock already.
+     *
+     * @param change the change, which returns a result
+     * @param <V>    the type of the result
+     * @return the result of the change.
+     * @throws IllegalStateException if the DAG has forks which have not been discarded.
+     */
+    public <V> V change(Supplier<V> change) {
+        Lock lock = changeLock;
+        if(lock != null) {lock.lock();}
+        try{synchronized (this) {
+                if(forks > 0) {throw new IllegalStateException("DAG " + getName() + " has forks and cannot be changed.");}
+                unshare();
+                return change.get();}}
+        finally{if(lock != null) {lock.unlock();}}}
+
+    /* ---------------------------------------  Freezing -------------------------------- */
+
+    /** freezes the structure of the DAG until thaw is called. Freezes can be nested.
+     * While the DAG is frozen, the node lookups and traversals take no lock, and all changes wait.
+     * Therefore no thread which reads the frozen DAG must change it, in particular not the thread which froze it.
+     */
+    public synchronized void freeze() {++frozen;}
+
+    /** ends a freeze. After the last one, the waiting changes continue. */
+    public synchronized void thaw() {
+        if(frozen == 0) {return;}
+        if(--frozen == 0) {notifyAll();}}
+
+    /** @return true if the DAG is frozen */
+    public boolean isFrozen() {return frozen > 0;}
+
+    /** performs a read access: without lock while the DAG is frozen, otherwise with the lock.
+     *
+     * @param access gets true if it runs without lock.
+     * @return the result of the access.
+     */
+    private <V> V read(Function<Boolean,V> access) {
+        unlockedReaders.incrementAndGet();
+        try{if(frozen > 0) {return access.apply(true);}}
+        finally{
+            if(unlockedReaders.decrementAndGet() == 0 && frozen == 0) {
+                synchronized (this) {notifyAll();}}}
+        synchronized (this) {return access.apply(false);}}
+
+    /** searches the inner nodes without timestamps, such that several threads can search the frozen DAG at once.
+     *
+     * @param node      the node from where the search starts.
+     * @param direction either UP or DOWN
+     * @param strategy  either BREADTH_FIRST or DEPTH_FIRST.
+     * @param function  to be applied to the inner nodes.
+     * @return the first non-null result of the function, or null.
+     */
+    private <V> V search(Node<N> node, Direction direction, Strategy strategy, Function<Node<N>,V> function) {
+        HashSet<Node<N>> seen = new HashSet<>();
+        seen.add(node);
+        Function<Node<N>,Object> successors = (n -> {
+            ArrayList<Node<N>> next = new ArrayList<>();
+            for(Node<N> m : (direction == Direction.UP) ? up(n) : ((InnerNode<N>)n).innerNodes) {
+                if(seen.add(m)) {next.add(m);}}
+            return next;});
+        if(node.isLeafNode()) {
+            if(direction == Direction.DOWN) {return null;}
+            return GraphTraversal.uninformedSearch(node,strategy,false,successors,function);}
+        return GraphTraversal.uninformedSearch(node,strategy,true,successors,function);}
 
     /* ---------------------------------------  Meta Data -------------------------------- */
 
@@ -76,11 +321,12 @@ public class DAG<N> extends ItemWithId {
      * @return true if there was a node at which the metadata could be added, otherwise false.
      */
     public boolean setMetaData(N label, MetaData<N> metaData) {
-        Node<N> node = getNode(label);
-        if(node == null) {return false;}
-        metaData.setNode(node);
-        this.metaData.put(label,metaData);
-        return true;}
+        return change(() -> {
+            Node<N> node = getNode(label);
+            if(node == null) {return false;}
+            metaData.setNode(node);
+            this.metaData.put(label,metaData);
+            return true;});}
 
     /** returns the attached metadata.
      *
@@ -88,6 +334,8 @@ public class DAG<N> extends ItemWithId {
      * @return the metadata for the node, or null if there are none
      */
     public MetaData<N> getMetaData(N label) {
+        DAG<N> shared = this.shared;
+        if(shared != null) {return shared.getMetaData(label);}
         return metaData.get(label);}
 
     /** filters nodes with metadata intervalContaining the given tag.
@@ -96,6 +344,8 @@ public class DAG<N> extends ItemWithId {
      * @return a stream of nodes with metadata intervalContaining this tag.
      */
     public Stream<Node<N>> nodesWithTag(String tag) {
+        DAG<N> shared = this.shared;
+        if(shared != null) {return shared.nodesWithTag(tag);}
         return metaData.values().stream().filter(m->m.containsTag(tag)).map(md->md.getNode());}
 
     /** filters nodes with metadata intervalContaining the given author.
@@ -104,6 +354,8 @@ public class DAG<N> extends ItemWithId {
      * @return a stream of nodes with metadata intervalContaining this author.
      */
     public Stream<Node<N>> nodesWithAuthor(String author) {
+        DAG<N> shared = this.shared;
+        if(shared != null) {return shared.nodesWithAuthor(author);}
         return metaData.values().stream().filter(m->m.containsAuthor(author)).map(md->md.getNode());}
 
 
@@ -115,6 +367,22 @@ public class DAG<N> extends ItemWithId {
     /** These observers are called when a super/subnode relationship is inserted/removed.*/
     private final ArrayList<TriConsumer<N,N, Activity>> subNodeObserver = new ArrayList<>();
 
+    /** These observers are called after a super/subnode relationship has been inserted.*/
+    private final ArrayList<TriConsumer<N,N, Activity>> subNodeAddedObserver = new ArrayList<>();
+
+    /** A subnode-added observer which can take many new super/subnode relationships at once.
+     * addSubnodes calls acceptAll once for all its new relationships, instead of accept for each of them.
+     *
+     * @param <N> the type of the labels
+     */
+    public interface BatchObserver<N> extends TriConsumer<N,N,Activity> {
+        /** is called after many super/subnode relationships have been inserted.
+         *
+         * @param pairs    the super-labels at even positions, the sub-labels at the following odd positions
+         * @param activity ADD
+         */
+        void acceptAll(List<N> pairs, Activity activity);}
+
     /** adds an observer for adding and removing nodes
      *
      * @param observer
@@ -146,6 +414,22 @@ public class DAG<N> extends ItemWithId {
     public synchronized void removeSubNodeObserver(TriConsumer<N,N, Activity> observer) {
         subNodeObserver.remove(observer);}
 
+    /** adds an observer which is called after a super/subnode relationship has been inserted.
+     * In contrast to the subNodeObservers, these observers see the DAG with the new relationship.
+     * They may change the DAG themselves.
+     *
+     * @param observer for super-node, sub-node and Activity.ADD
+     */
+    public synchronized void addSubNodeAddedObserver(TriConsumer<N,N, Activity> observer) {
+        subNodeAddedObserver.add(observer);}
+
+    /** removes the observer for inserted super/subnode relationships
+     *
+     * @param observer the observer to be removed.
+     */
+    public synchronized void removeSubNodeAddedObserver(TriConsumer<N,N, Activity> observer) {
+        subNodeAddedObserver.remove(observer);}
+
     /** adds an observer to the label's node.
      * This observer is called when the node adds/removes a new subnode.
      *
@@ -154,7 +438,8 @@ public class DAG<N> extends ItemWithId {
      */
     public synchronized void addNodeObserver(N label, BiConsumer<N, Activity> observer) {
         assert !isLeafLabel.test(label);
-        InnerNode node = innerNodes.get(label);
+        unshare();
+        InnerNode node = (InnerNode)touch(node(label));
         if(node != null) {node.addObserver(observer);}
     }
 
@@ -165,6 +450,7 @@ public class DAG<N> extends ItemWithId {
      */
     public synchronized void removeNodeObserver(N label, BiConsumer<N, Activity> observer) {
         assert !isLeafLabel.test(label);
+        if(shared != null) {return;}
         InnerNode node = innerNodes.get(label);
         if(node != null) {node.removeObserver(observer);}
     }
@@ -177,27 +463,38 @@ public class DAG<N> extends ItemWithId {
      * @param label any String
      * @return the Node with the given label or null if there is none.
      */
-    public synchronized Node getNode(N label) {
+    public Node getNode(N label) {
+        return read(unlocked -> node(label));}
+
+    /** @return the Node with the given label or null if there is none (without lock). */
+    private Node<N> node(N label) {
+        if(shared != null) {return shared.getNode(label);}
         if(label == null) {return null;}
-        return isLeafLabel.test(label) ? leafNodes.get(label) : innerNodes.get(label);}
+        Node<N> node = mine(label);
+        if(node != null || base == null || removed.contains(label)) {return node;}
+        return base.node(label);}
 
     /** yields the Node with the given label.
      *
      * @param label any String
      * @return the Node with the given label or null if there is none.
      */
-    public synchronized ArrayList<InnerNode<N>> getInnerNodes(N label) {
-        InnerNode<N> node = innerNodes.get(label);
-        return (node == null) ? null : node.innerNodes;}
+    public ArrayList<InnerNode<N>> getInnerNodes(N label) {
+        if(shared != null) {return shared.getInnerNodes(label);}
+        return read(unlocked -> {
+            Node<N> node = node(label);
+            return (node == null || node.isLeafNode()) ? null : ((InnerNode<N>)node).innerNodes;});}
 
-    /** yields the Node with the given label.
+    /** yields the supernodes of the node with the given label.
      *
      * @param label any String
-     * @return the Node with the given label or null if there is none.
+     * @return the supernodes of the node with the given label or null if there is none.
      */
-    public synchronized ArrayList<InnerNode<N>> getSupernodes(N label) {
-        InnerNode<N> node = innerNodes.get(label);
-        return (node == null) ? null : node.superEdges;}
+    public ArrayList<InnerNode<N>> getSupernodes(N label) {
+        if(shared != null) {return shared.getSupernodes(label);}
+        return read(unlocked -> {
+            Node<N> node = node(label);
+            return (node == null) ? null : up(node);});}
 
 
 
@@ -207,33 +504,40 @@ public class DAG<N> extends ItemWithId {
      *
      * @param label for the new node.
      */
-    public synchronized Node<N> addNode(N label) {
-        Node node = getNode(label);
-        if(node == null) {
-            for(BiConsumer<N,Activity> observer : nodeObserver) {observer.accept(label,Activity.ADD);}
-            if(isLeafLabel.test(label)) {
-                node =  new LeafNode(label);
-                leafNodes.put(label,(LeafNode)node);}
-            else {node = new InnerNode(label);
-                innerNodes.put(label,(InnerNode)node);}
-            roots.add(node);}
-        return node;}
+    public Node<N> addNode(N label) {
+        return change(() -> {
+            Node node = getNode(label);
+            if(node == null) {
+                for(BiConsumer<N,Activity> observer : nodeObserver) {observer.accept(label,Activity.ADD);}
+                if(isLeafLabel.test(label)) {
+                    node =  new LeafNode(label);
+                    leafNodes.put(label,(LeafNode)node);}
+                else {node = new InnerNode(label);
+                    innerNodes.put(label,(InnerNode)node);}
+                if(removed != null) {removed.remove(label);}
+                roots.add(node);}
+            return node;});}
 
     /** removes the given node.
      * All nodeObservers are called after the node is removed.
      *
      * @param node for the new node.
      */
-    public synchronized void removeNode(Node<N> node) {
-        node.remove();
-        if(node.isInnerNode()) {innerNodes.remove(node.label);}
-        else {leafNodes.remove(node.label);}
-        if(node.isRootNode()) {
-            roots.remove(node);
-            if(node.isInnerNode()) {
-                for(Node<N> subnode : ((InnerNode<N>)node).innerNodes) {if(subnode.superEdges.isEmpty()) {roots.add(subnode);}}
-                for(Node<N> subnode : ((InnerNode<N>)node).leafNodes) {if(subnode.superEdges.isEmpty()) {roots.add(subnode);}}}}
-        for(BiConsumer<N,Activity> observer : nodeObserver) {observer.accept(node.label,Activity.DELETE);}}
+    public void removeNode(Node<N> node) {
+        change(() -> {
+            Node<N> own = touch(node);
+            if(own == null) {return null;}
+            if(own.isInnerNode() && base != null) {
+                for(Node<N> subnode : new ArrayList<>(((InnerNode<N>)own).innerNodes)) {touch(subnode);}
+                for(Node<N> subnode : new ArrayList<>(((InnerNode<N>)own).leafNodes))  {touch(subnode);}}
+            own.remove();
+            removed(own);
+            if(own.isRootNode()) {
+                if(own.isInnerNode()) {
+                    for(Node<N> subnode : ((InnerNode<N>)own).innerNodes) {if(subnode.superEdges.isEmpty()) {roots.add(subnode);}}
+                    for(Node<N> subnode : ((InnerNode<N>)own).leafNodes) {if(subnode.superEdges.isEmpty()) {roots.add(subnode);}}}}
+            for(BiConsumer<N,Activity> observer : nodeObserver) {observer.accept(own.label,Activity.DELETE);}
+            return null;});}
 
     /** removes the node with the given label.
      * All nodeObservers are called after the node is inserted.
@@ -241,10 +545,11 @@ public class DAG<N> extends ItemWithId {
      * @param label the label of the node to be removed.
      * @return the removed node (or null).
      */
-    public synchronized Node<N> removeNode(N label) {
-        Node node = isLeafLabel.test(label) ? leafNodes.get(label) : innerNodes.get(label);
-        if(node != null) {removeNode(node);}
-        return node;}
+    public Node<N> removeNode(N label) {
+        return change(() -> {
+            Node node = node(label);
+            if(node != null) {removeNode(node);}
+            return node;});}
 
 
     /** removes the entire subtree from the node downwards.
@@ -252,37 +557,47 @@ public class DAG<N> extends ItemWithId {
      * @param node the root node of the subtree to be removed.
      * @return the number of removed nodes.
      */
-    public synchronized int removeSubtree(Node<N> node) {
-        ArrayList<Node> toBeRemoved = new ArrayList<>();
-        node.removeSubtree(toBeRemoved);
-        for(Node<N> n : toBeRemoved) {
-            if(n.isLeafNode()) {leafNodes.remove(n.label);}
-            else {innerNodes.remove(n.label);}
-            roots.remove(n);
-            for(BiConsumer<N,Activity> observer : nodeObserver) {observer.accept(n.label,Activity.DELETE);}}
-        return toBeRemoved.size();}
+    public int removeSubtree(Node<N> node) {
+        return change(() -> {
+            ArrayList<Node> toBeRemoved = new ArrayList<>();
+            Node<N> own = touchSubtree(node);
+            if(own == null) {return 0;}
+            own.removeSubtree(toBeRemoved);
+            for(Node<N> n : toBeRemoved) {
+                removed(n);
+                for(BiConsumer<N,Activity> observer : nodeObserver) {observer.accept(n.label,Activity.DELETE);}}
+            return toBeRemoved.size();});}
 
     /** removes the entire subtree from the node with the given label downwards.
      *
      * @param label the label of the node to be removed.
      * @return the number of removed nodes.
      */
-    public synchronized int removeSubtree(N label) {
-        Node<N> node = getNode(label);
-        if(node == null) {return 0;}
-        return removeSubtree(node);}
+    public int removeSubtree(N label) {
+        return change(() -> {
+            Node<N> node = getNode(label);
+            if(node == null) {return 0;}
+            return removeSubtree(node);});}
 
     /** adds the node-subnode relationship to the DAG.
      *
      * @param superNode,  the super-node
      * @param subNode  the sub-node
      */
-    public synchronized void addSubnode(Node<N> superNode, Node<N> subNode) {
-        assert superNode.isInnerNode();
-        if(subNode.isRootNode()){roots.remove(subNode);}
-        for(TriConsumer<N,N,Activity> observer : subNodeObserver) {
-            observer.accept(superNode.label,subNode.label,Activity.ADD);}
-        ((InnerNode<N>)superNode).addSubnode(subNode);}
+    public void addSubnode(Node<N> superNode, Node<N> subNode) {
+        change(() -> {
+            Node<N> ownSuper = touch(superNode);
+            Node<N> ownSub = touch(subNode);
+            if(ownSuper == null || ownSub == null) {return null;}
+            assert ownSuper.isInnerNode();
+            if(ownSub.isRootNode()){roots.remove(ownSub);}
+            for(TriConsumer<N,N,Activity> observer : subNodeObserver) {
+                observer.accept(ownSuper.label,ownSub.label,Activity.ADD);}
+            ((InnerNode<N>)ownSuper).addSubnode(ownSub);
+            if(!subNodeAddedObserver.isEmpty()) {
+                for(TriConsumer<N,N,Activity> observer : new ArrayList<>(subNodeAddedObserver)) {
+                    observer.accept(ownSuper.label,ownSub.label,Activity.ADD);}}
+            return null;});}
 
 
     /** adds the node-subnode relationship to the DAG
@@ -293,9 +608,11 @@ public class DAG<N> extends ItemWithId {
      * @param superLabel  the label of an existing node.
      * @param subLabel  the label of the subnode.
      */
-    public synchronized void addSubnode(N superLabel, N subLabel) {
+    public void addSubnode(N superLabel, N subLabel) {
         assert !isLeafLabel.test(superLabel);
-        addSubnode((InnerNode)addNode(superLabel),addNode(subLabel));}
+        change(() -> {
+            addSubnode((InnerNode)addNode(superLabel),addNode(subLabel));
+            return null;});}
 
     /** removes the node-subnode relationship from the DAG.
      * If the subnode is an inner node, and has no supernodes anymore, it becomes a root node.
@@ -304,11 +621,15 @@ public class DAG<N> extends ItemWithId {
      * @param superNode,  the super-node
      * @param subNode  the sub-node
      */
-    public synchronized void removeSubnode(InnerNode<N> superNode, Node<N> subNode) {
-        if(!superNode.removeSubnode(subNode)) {return;}
-        if(subNode.superEdges.isEmpty()) {roots.add(subNode);}
-        for(TriConsumer<N,N,Activity> observer : subNodeObserver) {
-            observer.accept(superNode.label,subNode.label,Activity.REMOVE);}}
+    public void removeSubnode(InnerNode<N> superNode, Node<N> subNode) {
+        change(() -> {
+            InnerNode<N> ownSuper = (InnerNode<N>)touch(superNode);
+            Node<N> ownSub = touch(subNode);
+            if(ownSuper == null || ownSub == null || !ownSuper.removeSubnode(ownSub)) {return null;}
+            if(ownSub.superEdges.isEmpty()) {roots.add(ownSub);}
+            for(TriConsumer<N,N,Activity> observer : subNodeObserver) {
+                observer.accept(ownSuper.label,ownSub.label,Activity.REMOVE);}
+            return null;});}
 
     /** removes the node-subnode relationship from the DAG.
      * If the subnode is an inner node, and has no supernodes anymore, it becomes a root node.
@@ -317,43 +638,172 @@ public class DAG<N> extends ItemWithId {
      * @param superlabel,  the super-node's label
      * @param sublabel  the sub-node's label
      */
-    public synchronized void removeSubnode(N superlabel,N sublabel) {
+    public void removeSubnode(N superlabel,N sublabel) {
         assert !isLeafLabel.test(superlabel);
-        InnerNode<N> supernode = innerNodes.get(superlabel);
-        if(supernode == null) {return;}
-        Node<N> subnode = getNode(sublabel);
-        if(sublabel == null) {return;}
-        removeSubnode(supernode,subnode);
+        change(() -> {
+            Node<N> supernode = node(superlabel);
+            if(supernode == null || supernode.isLeafNode()) {return null;}
+            Node<N> subnode = getNode(sublabel);
+            if(subnode == null) {return null;}
+            removeSubnode((InnerNode<N>)supernode,subnode);
+            return null;});
     }
 
 
+    /** removes and inserts several super/subnode relationships in one synchronized step.
+     * The lists contain pairs of labels: the super-label at even positions, the sub-label at the following odd position.
+     * The removals are done before the insertions.
+     * The removals are grouped by supernode, such that each subnode list is scanned only once.
+     * The observers are called as in removeSubnode for each removal, and as in addSubnodes for the insertions.
+     *
+     * @param toBeRemoved pairs of super- and sub-labels whose relationship is to be removed (may be null).
+     * @param toBeAdded   pairs of super- and sub-labels whose relationship is to be inserted (may be null).
+     */
+    public void changeSubnodes(List<N> toBeRemoved, List<N> toBeAdded) {
+        change(() -> {changeSubnodesLocked(toBeRemoved,toBeAdded); return null;});}
+
+    /** does the work of changeSubnodes, while the DAG is locked */
+    private void changeSubnodesLocked(List<N> toBeRemoved, List<N> toBeAdded) {
+        if(toBeRemoved != null) {
+            LinkedHashMap<InnerNode<N>,HashSet<Node<N>>> removals = new LinkedHashMap<>();
+            for(int i = 0; i < toBeRemoved.size(); i += 2) {
+                Node<N> superNode = node(toBeRemoved.get(i));
+                Node<N> subNode = node(toBeRemoved.get(i+1));
+                if(superNode == null || superNode.isLeafNode() || subNode == null) {continue;}
+                superNode = touch(superNode);
+                subNode = touch(subNode);
+                removals.computeIfAbsent((InnerNode<N>)superNode, node -> new HashSet<>()).add(subNode);}
+            for(Map.Entry<InnerNode<N>,HashSet<Node<N>>> entry : removals.entrySet()) {
+                InnerNode<N> superNode = entry.getKey();
+                for(Node<N> subNode : superNode.removeSubnodes(entry.getValue())) {
+                    if(subNode.superEdges.isEmpty()) {roots.add(subNode);}
+                    for(TriConsumer<N,N,Activity> observer : subNodeObserver) {
+                        observer.accept(superNode.label,subNode.label,Activity.REMOVE);}}}}
+        if(toBeAdded != null && !toBeAdded.isEmpty()) {addSubnodesLocked(toBeAdded);}}
+
+
+    /** inserts many super/subnode relationships in one synchronized step, for bulk loading.
+     * The list contains pairs of labels: the super-label at even positions, the sub-label at the following odd position.
+     * Missing nodes are created. Nodes which get a supernode are not put into the roots.
+     * Existing relationships are detected by one hash set per supernode, instead of searching the subnode lists.
+     * <br>
+     * The observers are called after all insertions: first the node observers for the new nodes,
+     * then the subnode observers and the nodes' own observers for the new relationships,
+     * and finally the BatchObservers once for all new relationships.
+     *
+     * @param toBeAdded pairs of super- and sub-labels.
+     * @return the number of new relationships.
+     */
+    public int addSubnodes(List<N> toBeAdded) {
+        return change(() -> addSubnodesLocked(toBeAdded));}
+
+    /** does the work of addSubnodes, while the DAG is locked */
+    private int addSubnodesLocked(List<N> toBeAdded) {
+        ArrayList<N> newLabels = new ArrayList<>();
+        HashMap<InnerNode<N>,ArrayList<Node<N>>> children = new HashMap<>();
+        for(int i = 0; i < toBeAdded.size(); i += 2) {
+            N superLabel = toBeAdded.get(i);
+            assert !isLeafLabel.test(superLabel);
+            InnerNode<N> superNode = (InnerNode<N>)touch(getOrCreateNode(superLabel,newLabels));
+            Node<N> subNode = touch(getOrCreateNode(toBeAdded.get(i+1),newLabels));
+            children.computeIfAbsent(superNode, node -> new ArrayList<>()).add(subNode);}
+
+        ArrayList<Node<N>> newEdges = new ArrayList<>();
+        HashSet<Node<N>> noRoots = new HashSet<>();
+        for(Map.Entry<InnerNode<N>,ArrayList<Node<N>>> entry : children.entrySet()) {
+            InnerNode<N> superNode = entry.getKey();
+            HashSet<Node<N>> existing = new HashSet<>(superNode.innerNodes);
+            existing.addAll(superNode.leafNodes);
+            for(Node<N> subNode : entry.getValue()) {
+                if(!existing.add(subNode)) {continue;}
+                if(subNode.isLeafNode()) {superNode.leafNodes.add((LeafNode<N>)subNode);}
+                else {superNode.innerNodes.add((InnerNode<N>)subNode);}
+                if(subNode.superEdges.isEmpty()) {noRoots.add(subNode);}
+                subNode.superEdges.add(superNode);
+                newEdges.add(superNode); newEdges.add(subNode);}}
+        if(!noRoots.isEmpty()) {roots.removeIf(noRoots::contains);}
+        for(N label : newLabels) {
+            Node<N> node = mine(label);
+            if(node.superEdges.isEmpty()) {roots.add(node);}}
+
+        for(N label : newLabels) {
+            for(BiConsumer<N,Activity> observer : nodeObserver) {observer.accept(label,Activity.ADD);}}
+        ArrayList<TriConsumer<N,N,Activity>> addedObservers = new ArrayList<>();
+        ArrayList<BatchObserver<N>> batchObservers = new ArrayList<>();
+        for(TriConsumer<N,N,Activity> observer : subNodeAddedObserver) {
+            if(observer instanceof BatchObserver) {batchObservers.add((BatchObserver<N>)observer);}
+            else {addedObservers.add(observer);}}
+        ArrayList<N> pairs = batchObservers.isEmpty() ? null : new ArrayList<>(newEdges.size());
+        for(int i = 0; i < newEdges.size(); i += 2) {
+            InnerNode<N> superNode = (InnerNode<N>)newEdges.get(i);
+            N subLabel = newEdges.get(i+1).label;
+            for(TriConsumer<N,N,Activity> observer : subNodeObserver) {observer.accept(superNode.label,subLabel,Activity.ADD);}
+            superNode.notifyObservers(subLabel,Activity.ADD);
+            for(TriConsumer<N,N,Activity> observer : addedObservers) {observer.accept(superNode.label,subLabel,Activity.ADD);}
+            if(pairs != null) {pairs.add(superNode.label); pairs.add(subLabel);}}
+        if(pairs != null && !pairs.isEmpty()) {
+            for(BatchObserver<N> observer : batchObservers) {observer.acceptAll(pairs,Activity.ADD);}}
+        return newEdges.size()/2;}
+
+    /** returns the node with the given label, or creates it without observers and roots.
+     *
+     * @param label     a label
+     * @param newLabels collects the labels of the new nodes
+     * @return the node.
+     */
+    private Node<N> getOrCreateNode(N label, ArrayList<N> newLabels) {
+        Node<N> node = getNode(label);
+        if(node != null) {return node;}
+        if(isLeafLabel.test(label)) {
+            node = new LeafNode<>(label);
+            leafNodes.put(label,(LeafNode<N>)node);}
+        else {
+            node = new InnerNode<>(label);
+            innerNodes.put(label,(InnerNode<N>)node);}
+        if(removed != null) {removed.remove(label);}
+        newLabels.add(label);
+        return node;}
+
+
     /* ****************************** Tests *********************************/
 
 
     /** @return true if the DAG is empty */
-    public synchronized boolean isEmpty() {return roots.isEmpty();}
+    public synchronized boolean isEmpty() {
+        if(shared != null) {return shared.isEmpty();}
+        return roots().isEmpty();}
 
     /** @return the number of nodes in the DAG */
-    public synchronized int size() {return innerNodes.size() + leafNodes.size();}
+    public synchronized int size() {
+        if(shared != null) {return shared.size();}
+        if(base == null) {return innerNodes.size() + leafNodes.size();}
+        int size = base.size() - removed.size();
+        for(N label : innerNodes.keySet()) {if(base.node(label) == null) {++size;}}
+        for(N label : leafNodes.keySet())  {if(base.node(label) == null) {++size;}}
+        return size;}
 
     /**
      * @return the maximal depth of the DAG.
      */
     public synchronized int depth() {
+        if(shared != null) {return shared.depth();}
         int depth = 0;
-        for(Node<N> node : roots) {depth = Math.max(depth,node.depth());}
+        for(Node<N> node : roots()) {depth = Math.max(depth,node.depth());}
         return depth;}
 
     /**
      * @return the maximal depth of the node.
      */
     public synchronized int depth(Node<N> node) {
+        if(shared != null) {return shared.depth(node);}
+        node = own(node);
         return node.depth();}
 
     /**
      * @return the maximal depth of the node with the given label, or -1 if the label is unknown.
      */
     public synchronized int depth(N label) {
+        if(shared != null) {return shared.depth(label);}
         Node<N> node = getNode(label);
         if(node == null) {return -1;}
         return node.depth();}
@@ -366,6 +816,7 @@ public class DAG<N> extends ItemWithId {
      * @return true if the node is a root node.
      */
     public synchronized boolean isRootNode(N label) {
+        if(shared != null) {return shared.isRootNode(label);}
         Node node = getNode(label);
         if(node == null) {return false;}
         return node.superEdges.isEmpty();}
@@ -376,6 +827,8 @@ public class DAG<N> extends ItemWithId {
      * @return true if the node is a root node.
      */
     public synchronized boolean isRootNode(Node<N> node) {
+        if(shared != null) {return shared.isRootNode(node);}
+        node = own(node);
         return node.superEdges.isEmpty();}
 
 
@@ -385,10 +838,16 @@ public class DAG<N> extends ItemWithId {
      * @param superNode a node
      * @return true if the subNode is below or equal the superNode
      */
-    public synchronized boolean isSubnodeOf(Node<N> subNode, Node<N> superNode) {
+    public boolean isSubnodeOf(Node<N> subNode, Node<N> superNode) {
+        if(shared != null) {return shared.isSubnodeOf(subNode,superNode);}
+        return read(unlocked -> subnodeOf(own(subNode),own(superNode)));}
+
+    /** @return true if the subNode is below or equal the superNode (without lock) */
+    private boolean subnodeOf(Node<N> subNode, Node<N> superNode) {
         if(subNode == superNode) {return true;}
         if(superNode.isLeafNode()) {return false;}
-        return subNode.isSubnodeOf((InnerNode)superNode);}
+        if(base == null) {return subNode.isSubnodeOf((InnerNode)superNode);}
+        return search(subNode,Direction.UP,Strategy.DEPTH_FIRST,(n -> (n == superNode) ? true : null)) != null;}
 
     /** checks if the node with sublabel is in fact below or equal the node with the superlabel.
      *
@@ -396,13 +855,15 @@ public class DAG<N> extends ItemWithId {
      * @param superlabel a node label
      * @return true if the sublabel is below or equal the superlabel
      */
-    public synchronized boolean isSubnodeOf(N sublabel, N superlabel) {
+    public boolean isSubnodeOf(N sublabel, N superlabel) {
+        if(shared != null) {return shared.isSubnodeOf(sublabel,superlabel);}
         if(sublabel.equals(superlabel)) {return true;}
-        Node subNode = getNode(sublabel);
-        if(subNode == null) {return false;}
-        Node superNode = getNode(superlabel);
-        if(superNode == null) {return false;}
-        return isSubnodeOf(subNode,superNode);}
+        return read(unlocked -> {
+            Node<N> subNode = node(sublabel);
+            if(subNode == null) {return false;}
+            Node<N> superNode = node(superlabel);
+            if(superNode == null) {return false;}
+            return subnodeOf(subNode,superNode);});}
 
     /** checks whether the two nodes have a common sub/supernode.
      *
@@ -412,6 +873,8 @@ public class DAG<N> extends ItemWithId {
      * @return true if the two nodes have a common sub/supernode.
      */
     public boolean hasCommonNode(N label1, N label2, Direction direction) {
+        DAG<N> shared = this.shared;
+        if(shared != null) {return shared.hasCommonNode(label1,label2,direction);}
         if(label1.equals(label2)) {return true;}
         Node n1 = getNode(label1);
         if(n1 == null) {return false;}
@@ -427,6 +890,10 @@ public class DAG<N> extends ItemWithId {
      * @return true if the two nodes have a common sub/supernode.
      */
     public boolean hasCommonNode(Node<N> node1, Node<N> node2, Direction direction) {
+        DAG<N> shared = this.shared;
+        if(shared != null) {return shared.hasCommonNode(node1,node2,direction);}
+        node1 = own(node1);
+        node2 = own(node2);
         int ts = getTimestamp();
         markInnerNodes(node1,direction, Strategy.DEPTH_FIRST,ts);
         return findInInnerNodes(node2,direction,Strategy.DEPTH_FIRST,(node->node.getTimestamp() == ts));
@@ -437,8 +904,10 @@ public class DAG<N> extends ItemWithId {
 
     /** @return a cycle if the DAG ist actually cyclic (should not happen), otherwise null */
     public List<InnerNode<N>> getCycle() {
+        DAG<N> shared = this.shared;
+        if(shared != null) {return shared.getCycle();}
         ArrayList<InnerNode<N>> path = new ArrayList();
-        for(Node<N> node : roots) {
+        for(Node<N> node : roots()) {
             if(node.isLeafNode()) {continue;}
             path.clear();
             path.add((InnerNode<N>)node);
@@ -465,11 +934,14 @@ public class DAG<N> extends ItemWithId {
         return null;}
 
 
-    /** increments and returns the timestamp
+    /** increments and returns the timestamp.
+     * A fork takes the timestamps of its base DAG, since it marks the base DAG's nodes as well.
      *
      * @return the incremented timestamp.
      */
-    public int getTimestamp() {return ++timestamp;}
+    public int getTimestamp() {
+        if(base != null) {return base.getTimestamp();}
+        return timestamp.incrementAndGet();}
 
     /* ******************************* Stream-Access to the DAG structure *******************************/
 
@@ -483,13 +955,16 @@ public class DAG<N> extends ItemWithId {
      * @return the stream of leaf node labels.
      */
     public synchronized Stream<LeafNode<N>> leafNodes(Node<N> node) {
+        if(shared != null) {return shared.leafNodes(node);}
+        node = own(node);
+        int[] ts = new int[1];
         return Stream.of(node).flatMap(n-> {
-            getTimestamp(); // increment the timestamp when the stream is processed.
+            ts[0] = getTimestamp(); // increment the timestamp when the stream is processed.
             Stream<LeafNode<N>> stream =  n.leafNodes();
             return stream == null ? Stream.empty() : stream;}).
                 filter(n->{
-                    if(n.timestamp == timestamp) {return false;}
-                    n.timestamp = timestamp;
+                    if(n.timestamp == ts[0]) {return false;}
+                    n.timestamp = ts[0];
                     return true;});}
 
     /** returns a stream of leaf nodes below the node with the given label.
@@ -502,6 +977,7 @@ public class DAG<N> extends ItemWithId {
      * @return the stream of leaf node labels, or null.
      */
     public synchronized Stream<N> leafNodes(N label) {
+        if(shared != null) {return shared.leafNodes(label);}
         Node<N> node = getNode(label);
         if(node == null) {return null;}
         return leafNodes(node).map(n->n.label);}
@@ -515,17 +991,20 @@ public class DAG<N> extends ItemWithId {
      * @return the stream of all leaf nodes.
      */
     public synchronized Stream<N> leafNodes() {
+        if(shared != null) {return shared.leafNodes();}
+        List<Node<N>> roots = roots();
         if(roots.isEmpty()) {return null;}
+        int[] ts = new int[1];
         Stream<LeafNode<N>> stream = Stream.of(roots.get(0)).flatMap(n-> {
-            getTimestamp(); // increment the timestamp when the stream is processed.
+            ts[0] = getTimestamp(); // increment the timestamp when the stream is processed.
             Stream<LeafNode<N>> str = n.leafNodes();
             return str == null ? Stream.empty() : str;});
         for(int i = 1; i < roots.size(); ++i) {
             stream = Utilities.streamConcat(stream, roots.get(i).leafNodes());}
         return stream.
                 filter(n->{
-                    if(n.timestamp == timestamp) {return false;}
-                    n.timestamp = timestamp;
+                    if(n.timestamp == ts[0]) {return false;}
+                    n.timestamp = ts[0];
                     return true;}).
                 map(node -> node.label);}
 
@@ -540,6 +1019,8 @@ public class DAG<N> extends ItemWithId {
      * @return the stream of leaf nodes (maybe with multiple occurrences of the same label).
      */
     public synchronized Stream<LeafNode<N>> leafNodesRaw(Node<N> node) {
+        if(shared != null) {return shared.leafNodesRaw(node);}
+        node = own(node);
         return node.leafNodes();}
 
     /** returns a stream of leaf nodes below the node with the given label.
@@ -553,6 +1034,7 @@ public class DAG<N> extends ItemWithId {
      * @return the stream of leaf node labels (maybe with multiple occurrences of the same label), or null.
      */
     public synchronized Stream<N> leafNodesRaw(N label) {
+        if(shared != null) {return shared.leafNodesRaw(label);}
         Node<N> node = getNode(label);
         if(node == null) {return null;}
         Stream<LeafNode<N>> stream = node.leafNodes();
@@ -564,7 +1046,8 @@ public class DAG<N> extends ItemWithId {
      * @return the stream of all leaf nodes
      */
     public synchronized Stream<N> leafNodesRaw() {
-        Stream<LeafNode<N>> stream = Utilities.streamConcat(roots, (node -> node.leafNodes()));
+        if(shared != null) {return shared.leafNodesRaw();}
+        Stream<LeafNode<N>> stream = Utilities.streamConcat(roots(), (node -> node.leafNodes()));
         return stream == null ? null : stream.map(node->node.label);
     }
 
@@ -579,14 +1062,16 @@ public class DAG<N> extends ItemWithId {
      * @return the stream of inner nodes.
      */
     public synchronized Stream<InnerNode<N>> innerNodes(Node<N> node, boolean inclusive, Direction direction, Strategy strategy) {
+        if(shared != null) {return shared.innerNodes(node,inclusive,direction,strategy);}
+        node = own(node);
         int ts = getTimestamp();
         if(node.isLeafNode()) {
             switch(direction) {
                 case DOWN: return null;
-                case UP:   return StreamGenerators.streamForGraph(node,false,strategy,ts,(n -> n.superEdges)).map(n->(InnerNode<N>)n);}}
+                case UP:   return StreamGenerators.streamForGraph(node,false,strategy,ts,(n -> up(n))).map(n->(InnerNode<N>)n);}}
         Function<InnerNode<N>,Object> successors = null;
         switch(direction) {
-            case UP:   successors = (n->n.superEdges); break;
+            case UP:   successors = (n -> up(n)); break;
             case DOWN: successors = (n->n.innerNodes); break;}
         return StreamGenerators.streamForGraph((InnerNode<N>)node,inclusive,strategy,ts,successors);}
 
@@ -601,6 +1086,7 @@ public class DAG<N> extends ItemWithId {
      * @return the stream of inner nodes, or null if the label is unknown.
      */
     public synchronized Stream<N> innerNodes(N label, boolean inclusive, Direction direction, Strategy strategy) {
+        if(shared != null) {return shared.innerNodes(label,inclusive,direction,strategy);}
         if(label == null) {return null;}
         Node<N> node = getNode(label);
         if(node == null) {return null;}
@@ -617,7 +1103,8 @@ public class DAG<N> extends ItemWithId {
      * @return the first non-null function value.
      */
     public synchronized <V> V  findInLeafNodes(Function<N,V> function) {
-        for(Node<N> node : roots) {
+        if(shared != null) {return shared.findInLeafNodes(function);}
+        for(Node<N> node : roots()) {
             V value = node.findInLeafNodes(function);
             if(value != null) {return value;}}
         return null;}
@@ -631,6 +1118,8 @@ public class DAG<N> extends ItemWithId {
      * @return the first non-null function value.
      */
     public synchronized <V> V  findInLeafNodes(Node<N> node, Function<N,V> function) {
+        if(shared != null) {return shared.findInLeafNodes(node,function);}
+        node = own(node);
         return node.findInLeafNodes(function);}
 
     /** searches through the leaf nodes below the node with the given label to find one where the function applied to its label returns non-null.
@@ -640,6 +1129,7 @@ public class DAG<N> extends ItemWithId {
      * @return the first non-null function value.
      */
     public synchronized <V> V findInLeafNodes(N label, Function<N,V> function) {
+        if(shared != null) {return shared.findInLeafNodes(label,function);}
         Node<N> node = getNode(label);
         if(node == null) {return null;}
         return node.findInLeafNodes(function);}
@@ -650,8 +1140,9 @@ public class DAG<N> extends ItemWithId {
      * @param consumer a function to be applied to the labels.
      */
     public synchronized void applyToLeafNodes(Consumer<N> consumer) {
+        if(shared != null) {shared.applyToLeafNodes(consumer); return;}
         int ts = getTimestamp();
-        for(Node<N> node : roots) {node.applyToLeafNodes(ts,consumer);}}
+        for(Node<N> node : roots()) {node.applyToLeafNodes(ts,consumer);}}
 
     /** applies the consumer to all leaf node labels below the given node.
      *
@@ -659,6 +1150,8 @@ public class DAG<N> extends ItemWithId {
      * @param consumer a function to be applied to the labels.
      */
     public synchronized void applyToLeafNodes(Node<N> node, Consumer<N> consumer) {
+        if(shared != null) {shared.applyToLeafNodes(node,consumer); return;}
+        node = own(node);
         node.applyToLeafNodes(getTimestamp(),consumer);}
 
     /** applies the consumer to all leaf node labels below the node with the given label.
@@ -667,6 +1160,7 @@ public class DAG<N> extends ItemWithId {
      * @param consumer a function to be applied to the labels.
      */
     public synchronized void applyToLeafNodes(N label, Consumer<N> consumer) {
+        if(shared != null) {shared.applyToLeafNodes(label,consumer); return;}
         Node<N> node = getNode(label);
         if(node == null) {return;}
         node.applyToLeafNodes(getTimestamp(),consumer);}
@@ -681,14 +1175,16 @@ public class DAG<N> extends ItemWithId {
      * @return the first inner node where the predicate returns true, or null.
      */
     public synchronized <V> V findInInnerNodes(Node<N> node, Direction direction, Strategy strategy, Function<Node<N>,V> function) {
+        if(shared != null) {return shared.findInInnerNodes(node,direction,strategy,function);}
+        node = own(node);
         int ts = getTimestamp();
         if(node.isLeafNode()) {
             switch(direction) {
                 case DOWN: return null;
-                case UP:   return GraphTraversal.uninformedSearch(node,strategy,false,ts,(n->n.superEdges),(n -> function.apply(n)));}}
+                case UP:   return GraphTraversal.uninformedSearch(node,strategy,false,ts,(n -> up(n)),(n -> function.apply(n)));}}
         Function<InnerNode<N>,Object> successors = null;
         switch(direction) {
-            case UP:   successors = (n -> n.superEdges); break;
+            case UP:   successors = (n -> up(n)); break;
             case DOWN: successors = (n -> n.innerNodes); break;}
         return GraphTraversal.uninformedSearch((InnerNode<N>)node,strategy,true,ts,successors,(n->function.apply(n)));}
 
@@ -701,15 +1197,28 @@ public class DAG<N> extends ItemWithId {
      * @param function to be applied to the inner nodes.
      * @return the first inner node where the predicate returns true, or null.
      */
-    public synchronized <V> V findInInnerLabels(Node<N> node, Direction direction, Strategy strategy, Function<N,V> function) {
+    public <V> V findInInnerLabels(Node<N> node, Direction direction, Strategy strategy, Function<N,V> function) {
+        if(shared != null) {return shared.findInInnerLabels(node,direction,strategy,function);}
+        return read(unlocked -> unlocked ? search(own(node),direction,strategy,(n -> function.apply(n.label))) :
+                findInInnerLabelsLocked(own(node),direction,strategy,function));}
+
+    /** searches with timestamps through the inner nodes below/above the given node (with the lock held).
+     *
+     * @param node the node from where the search starts.
+     * @param direction  either UP or DOWN
+     * @param strategy either BREADTH_FIRST or DEPTH_FIRST.
+     * @param function to be applied to the inner nodes.
+     * @return the first inner node where the predicate returns true, or null.
+     */
+    private <V> V findInInnerLabelsLocked(Node<N> node, Direction direction, Strategy strategy, Function<N,V> function) {
         int ts = getTimestamp();
         if(node.isLeafNode()) {
             switch(direction) {
                 case DOWN: return null;
-                case UP:   return GraphTraversal.uninformedSearch(node,strategy,false,ts,(n->n.superEdges),(n -> function.apply(n.label)));}}
+                case UP:   return GraphTraversal.uninformedSearch(node,strategy,false,ts,(n -> up(n)),(n -> function.apply(n.label)));}}
         Function<InnerNode<N>,Object> successors = null;
         switch(direction) {
-            case UP:   successors = (n -> n.superEdges); break;
+            case UP:   successors = (n -> up(n)); break;
             case DOWN: successors = (n -> n.innerNodes); break;}
         return GraphTraversal.uninformedSearch((InnerNode<N>)node,strategy,true,ts,successors,(n->function.apply(n.label)));}
 
@@ -722,10 +1231,13 @@ public class DAG<N> extends ItemWithId {
      * @param function to be applied to the inner nodes.
      * @return the first inner node where the predicate returns true, or null.
      */
-    public synchronized <V> V findInInnerLabels(N label, Direction direction, Strategy strategy, Function<N,V> function) {
-        Node<N> node = getNode(label);
-        if(node == null) {return null;}
-        return findInInnerLabels(node,direction,strategy,function);}
+    public <V> V findInInnerLabels(N label, Direction direction, Strategy strategy, Function<N,V> function) {
+        if(shared != null) {return shared.findInInnerLabels(label,direction,strategy,function);}
+        return read(unlocked -> {
+            Node<N> node = node(label);
+            if(node == null) {return null;}
+            return unlocked ? search(node,direction,strategy,(n -> function.apply(n.label))) :
+                    findInInnerLabelsLocked(node,direction,strategy,function);});}
 
 
     /** This method applies a consumer to the node labels of all nodes below/above (inclusive) the given node.
@@ -736,14 +1248,16 @@ public class DAG<N> extends ItemWithId {
      * @param timestamp a timestamp to be set to the inner nodes.
      */
     public synchronized void markInnerNodes(Node<N> node, Direction direction, Strategy strategy, int timestamp) {
+        if(shared != null) {shared.markInnerNodes(node,direction,strategy,timestamp); return;}
+        node = own(node);
         if(node.isLeafNode()) {
             switch(direction) {
                 case DOWN: return;
-                case UP:GraphTraversal.uninformedSearch(node,strategy,false,(n->n.superEdges),(n -> {n.setTimestamp(timestamp); return false;}));
+                case UP:GraphTraversal.uninformedSearch(node,strategy,false,(n -> up(n)),(n -> {n.setTimestamp(timestamp); return false;}));
                     return;}}
         Function<InnerNode<N>,Object> successors = null;
         switch(direction) {
-            case UP:   successors = (n -> n.superEdges); break;
+            case UP:   successors = (n -> up(n)); break;
             case DOWN: successors = (n -> n.innerNodes); break;}
         GraphTraversal.uninformedSearch((InnerNode<N>)node,strategy,true,successors,(n -> {n.setTimestamp(timestamp); return false;}));}
 
@@ -754,16 +1268,31 @@ public class DAG<N> extends ItemWithId {
      * @param strategy controls breadth-first / depth-first traversal.
      * @param consumer a function to be applied to the nodes label.
      */
-    public synchronized void applyToInnerLabels(Node<N> node, Direction direction, Strategy strategy, Consumer<N> consumer) {
+    public void applyToInnerLabels(Node<N> node, Direction direction, Strategy strategy, Consumer<N> consumer) {
+        if(shared != null) {shared.applyToInnerLabels(node,direction,strategy,consumer); return;}
+        read(unlocked -> {applyToInnerLabels(own(node),direction,strategy,consumer,unlocked); return null;});}
+
+    /** applies the consumer to the labels of the nodes below/above (inclusive) the given node.
+     *
+     * @param node any node of the DAG
+     * @param direction  either UP or DOWN
+     * @param strategy controls breadth-first / depth-first traversal.
+     * @param consumer a function to be applied to the nodes label.
+     * @param unlocked true if the DAG is frozen and read without lock.
+     */
+    private void applyToInnerLabels(Node<N> node, Direction direction, Strategy strategy, Consumer<N> consumer, boolean unlocked) {
+        if(unlocked) {
+            search(node,direction,strategy,(n -> {consumer.accept(n.label); return null;}));
+            return;}
         int ts = getTimestamp();
         if(node.isLeafNode()) {
             switch(direction) {
                 case DOWN: return;
-                case UP:GraphTraversal.apply(node,strategy,false,ts,(n->n.superEdges),(n -> consumer.accept(n.label)));
+                case UP:GraphTraversal.apply(node,strategy,false,ts,(n -> up(n)),(n -> consumer.accept(n.label)));
                     return;}}
         Function<InnerNode<N>,Object> successors = null;
         switch(direction) {
-            case UP:   successors = (n -> n.superEdges); break;
+            case UP:   successors = (n -> up(n)); break;
             case DOWN: successors = (n -> n.innerNodes); break;}
         GraphTraversal.apply((InnerNode<N>)node,strategy,true,ts,successors,(n->consumer.accept(n.label)));}
 
@@ -776,16 +1305,19 @@ public class DAG<N> extends ItemWithId {
      * @param strategy controls breadth-first / depth-first traversal.
      * @param consumer a function to be applied to the nodes label.
      */
-    public synchronized void applyToInnerLabels(N label, Direction direction, Strategy strategy, Consumer<N> consumer) {
-        Node<N> node = getNode(label);
-        if(node == null) {return;}
-        applyToInnerLabels(node,direction,strategy,consumer);}
+    public void applyToInnerLabels(N label, Direction direction, Strategy strategy, Consumer<N> consumer) {
+        if(shared != null) {shared.applyToInnerLabels(label,direction,strategy,consumer); return;}
+        read(unlocked -> {
+            Node<N> node = node(label);
+            if(node != null) {applyToInnerLabels(node,direction,strategy,consumer,unlocked);}
+            return null;});}
 
     /** @return a string representation of the DAG */
     @Override
     public String toString() {
+        DAG<N> shared = this.shared;
         StringBuilder s = new StringBuilder(getName() +"\n");
-        for(Node<N> node : roots) {
+        for(Node<N> node : (shared == null) ? roots() : shared.roots()) {
             s.append(node.toString()).append("\n");}
         return s.toString();}
 
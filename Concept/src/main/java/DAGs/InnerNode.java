@@ -6,6 +6,7 @@ import Utils.Utilities;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -101,6 +102,15 @@ public class InnerNode<N> extends Node<N> implements Timestamped {
         if(node.isLeafNode()) {addLeafSubnode((LeafNode)node);}
         else {this.addInnerSubnode((InnerNode)node);}}
 
+    /** calls the node's observers.
+     *
+     * @param label    the label of a subnode
+     * @param activity the activity
+     */
+    void notifyObservers(N label, Activity activity) {
+        if(observers != null) {
+            for(BiConsumer<N, Activity> observer : observers) {observer.accept(label,activity);}}}
+
     /** adds a new leaf node as subnode.
      * The observers are call before the new node is added.
      *
@@ -171,6 +181,27 @@ public class InnerNode<N> extends Node<N> implements Timestamped {
                 subnode.superEdges.add(supernode);}}
         return true;}
 
+    /** removes several node-subnode relationships in one pass over the subnode lists.
+     * Each removal has the same effect as removeSubnode, including the observer calls.
+     *
+     * @param nodes the subnodes to be removed.
+     * @return the subnodes which have in fact been removed.
+     */
+    ArrayList<Node<N>> removeSubnodes(Set<Node<N>> nodes) {
+        ArrayList<Node<N>> removed = new ArrayList<>();
+        leafNodes.removeIf(node -> nodes.contains(node) && removed.add(node));
+        innerNodes.removeIf(node -> nodes.contains(node) && removed.add(node));
+        for(Node<N> node : removed) {
+            node.superEdges.remove(this);
+            for(InnerNode<N> supernode : superEdges) {
+                if(!node.isSubnodeOf(supernode)){
+                    if(node.isLeafNode()) {supernode.leafNodes.add((LeafNode<N>)node);}
+                    else {supernode.innerNodes.add((InnerNode<N>)node);}
+                    node.superEdges.add(supernode);}}
+            if(observers != null) {
+                for(BiConsumer<N, Activity> observer : observers) {observer.accept(node.label,Activity.REMOVE);}}}
+        return removed;}
+
     /** removes the entire subtree.
      * Subnodes of nodes outside the removed subtree are not removed.
      *
@@ -6,57 +6,104 @@ import Concepts.Concept;
 import DAGs.DAG;
 import MISC.Namespace;
 
-import java.util.HashMap;
-import java.util.Map;
-
-/**
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/** This class keeps the globally known items, indexed by their pathnames.
+ * <br>
+ * There is one concurrent index which maps pathnames to items. Lookups are a single probe, independent of the number
+ * of item classes. The class-specific methods filter the result by the item's class.
+ * A second index maps the classes to their items, for enumerating the items of one class.
+ * <br>
+ * A pathname denotes at most one item. Adding another item of the same class with the same pathname replaces the previous one.
+ * Adding an item of another class with the same pathname is rejected, such that a concept and an attribute
+ * with the same pathname cannot overwrite each other.
  */
 public class GlobalData {
 
-    private final static HashMap<Class,HashMap<String, ItemWithId>> items = new HashMap<>();
+    /** maps pathnames to items */
+    private final static ConcurrentHashMap<String, ItemWithId> items = new ConcurrentHashMap<>();
+
+    /** maps the item classes to their items */
+    private final static ConcurrentHashMap<Class, Set<ItemWithId>> itemsByClass = new ConcurrentHashMap<>();
 
-    public static void clear() {items.clear();}
+    public static void clear() {
+        items.clear();
+        itemsByClass.clear();}
 
     public static boolean exists(Class clazz, String name, Namespace namespace) {
         return exists(clazz,(namespace == null) ? name : namespace.getPathname(name));}
 
     public static boolean exists(Class clazz, String pathname) {
-        HashMap<String, ItemWithId> map = items.get(clazz);
-        if(map == null) {return false;}
-        return map.containsKey(pathname);}
+        return getItem(clazz,pathname) != null;}
 
     public static ItemWithId getItem(Class clazz, String name, Namespace namespace) {
-        return getItem(clazz,(namespace != null) ? name : namespace.getPathname(name));}
-
+        return getItem(clazz,(namespace == null) ? name : namespace.getPathname(name));}
+
+    /** returns the item with the given pathname, if it is of the given class.
+     *
+     * @param clazz    the item's class
+     * @param pathname the item's pathname
+     * @return the item, or null if there is none with this class.
+     */
     public static ItemWithId getItem(Class clazz, String pathname) {
-        HashMap<String, ItemWithId> map = items.get(clazz);
-        return (map == null)  ? null : map.get(pathname);}
+        ItemWithId item = items.get(pathname);
+        return (item != null && item.getClass() == clazz) ? item : null;}
 
 
     public static ItemWithId getItem(String name, Namespace namespace) {
-        return getItem((namespace != null) ? name : namespace.getPathname(name));}
-
-    public static ItemWithId getItem(String pathname) {
-        for(Map.Entry entry : items.entrySet()) {
-            Class clazz = (Class)entry.getKey();
-            ItemWithId item = ((HashMap<String, ItemWithId>)entry.getValue()).get(pathname);
-            if(item != null) {return item;}}
-        return null;}
-
-
-
-    public static void addItem(ItemWithId item) {
-        Class clazz = item.getClass();
-        HashMap<String, ItemWithId> map = items.get(item.getClass());
-        if(map == null) {map = new HashMap<>(); items.put(clazz,map);}
-        map.put(item.getPathname(),item);}
-
+        return getItem((namespace == null) ? name : namespace.getPathname(name));}
+
+    public static ItemWithId getItem(String pathname) {return items.get(pathname);}
+
+    /** returns a view of the items of the given class
+     *
+     * @param clazz a class
+     * @return a stream of the items of this class.
+     */
+    public static Stream<ItemWithId> getItems(Class clazz) {
+        Set<ItemWithId> classItems = itemsByClass.get(clazz);
+        return (classItems == null) ? Stream.empty() : classItems.stream();}
+
+    /** adds the item, unless there is an item of another class with the same pathname.
+     *
+     * @param item an item
+     * @return true if the item has been added.
+     */
+    public static boolean addItem(ItemWithId item) {return addItem(item,null);}
+
+    /** adds the item, unless there is an item of another class with the same pathname.
+     * An item of the same class with the same pathname is replaced.
+     *
+     * @param item   an item
+     * @param errors for appending an error message (may be null)
+     * @return true if the item has been added.
+     */
+    public static boolean addItem(ItemWithId item, StringBuilder errors) {
+        ItemWithId present = items.compute(item.getPathname(), (pathname,old) -> {
+            if(old == null || old == item) {return item;}
+            if(old.getClass() != item.getClass()) {return old;}
+            itemsByClass.get(old.getClass()).remove(old);
+            return item;});
+        if(present != item) {
+            if(errors != null) {
+                errors.append("'"+item.getPathname()+"' is already a '"+present.getClass().getName()+"'\n");}
+            return false;}
+        itemsByClass.computeIfAbsent(item.getClass(), clazz -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(item);
+        return true;}
+
+    /** removes the item
+     *
+     * @param item an item
+     */
     public static void removeItem(ItemWithId item) {
-        Class clazz = item.getClass();
-        HashMap<String, ItemWithId> map = items.get(clazz);
-        if(map == null) {return;}
-        map.remove(item.getPathname());
-        if(map.isEmpty()) {items.remove(clazz);}}
+        items.computeIfPresent(item.getPathname(), (pathname,old) -> {
+            if(old != item) {return old;}
+            Set<ItemWithId> classItems = itemsByClass.get(item.getClass());
+            if(classItems != null) {classItems.remove(item);}
+            return null;});}
 
     private final static DAG<Concept>   conceptHierarchy    = new DAG<Concept>("Concepts",(concept->concept.isIndividual()));
     private final static DAG<Attribute> attributeHierarchy  = new DAG<Attribute>("RelationHierarchy",(attribute->false));
@@ -0,0 +1,148 @@
+package IO;
+
+import AbstractObjects.DataObject;
+import AbstractObjects.Operators;
+import Attributes.Attribute;
+import Attributes.AttributeValueList;
+import Concepts.*;
+import MISC.Context;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/** This class encodes the structure of AttributeValues and constraint lists.
+ * It is shared by the DataObjectCodec (snapshots and logs) and the ModelCodec (network),
+ * which differ only in how they encode numbers, values and attributes. These are given by a Writer and a Reader.
+ * <br>
+ * An AttributeValue is encoded as scope, kind of the AVObject, number of values, and the values together with their constraints.
+ * A constraint list is encoded as its size (-1 for null) and the attribute-operator-value triples.
+ * Scopes, kinds and operators are checked when they are read, since the input may come from a remote peer.
+ */
+public class AttributeValueEncoder {
+    /** writes the parts of an AttributeValue */
+    public interface Writer {
+        /** writes a small number (scope, kind or operator) */
+        void writeSmall(int value) throws IOException;
+        /** writes a number */
+        void writeInt(int value) throws IOException;
+        /** writes a value */
+        void writeValue(DataObject value) throws IOException;
+        /** writes a reference to an attribute */
+        void writeAttribute(Attribute attribute) throws IOException;}
+
+    /** reads the parts of an AttributeValue */
+    public interface Reader {
+        /** reads a small number (scope, kind or operator) */
+        int readSmall() throws IOException;
+        /** reads a number */
+        int readInt() throws IOException;
+        /** reads a value */
+        DataObject readValue() throws IOException;
+        /** reads a reference to an attribute, and reports unknown attributes
+         * @return the attribute, or null if it is unknown. */
+        Attribute readAttribute() throws IOException;}
+
+    /** the kinds of AVObjects */
+    private static final int UNCONSTRAINED = 0, CONSTRAINED = 1, LIST = 2, HASH_LIST = 3;
+
+    private static final Scope[] scopes = Scope.values();
+    private static final Operators[] operators = Operators.values();
+
+    /** writes an attribute value with all its values and constraints.
+     *
+     * @param out            where to write the attribute value
+     * @param attributeValue a non-empty attribute value
+     * @throws IOException if writing fails or a value cannot be encoded.
+     */
+    public static void writeAttributeValue(Writer out, AttributeValue attributeValue) throws IOException {
+        AVObject avObject = attributeValue.get();
+        int kind = (avObject instanceof AVHashList) ? HASH_LIST :
+                   (avObject instanceof AVList) ? LIST :
+                   (avObject instanceof AVSingletonConstrained) ? CONSTRAINED : UNCONSTRAINED;
+        ArrayList<DataObject> values = new ArrayList<>();
+        ArrayList<AttributeValueList> constraints = new ArrayList<>();
+        avObject.forEachValue((value,constraint) -> {values.add(value); constraints.add(constraint);});
+        out.writeSmall(attributeValue.scope.ordinal());
+        out.writeSmall(kind);
+        out.writeInt(values.size());
+        for(int i = 0; i < values.size(); ++i) {
+            out.writeValue(values.get(i));
+            writeConstraints(out,constraints.get(i));}}
+
+    /** reads an attribute value.
+     * The constraints are interned in the context's constraint cache, if there is a context.
+     *
+     * @param in      where to read the attribute value from
+     * @param context where the constraints are interned (may be null)
+     * @return the attribute value.
+     * @throws IOException if reading fails, or the scope, the kind or a value is invalid.
+     */
+    public static AttributeValue readAttributeValue(Reader in, Context context) throws IOException {
+        Scope scope = element(scopes,in.readSmall(),"scope");
+        int kind = in.readSmall();
+        int size = in.readInt();
+        AVObject avObject = null;
+        for(int i = 0; i < size; ++i) {
+            DataObject value = in.readValue();
+            AttributeValueList constraints = readConstraints(in);
+            if(constraints != null && context != null) {constraints = context.constraintCache.intern(constraints);}
+            AVSingleton singleton = (constraints == null) ? new AVSingletonUnconstrained(value) : new AVSingletonConstrained(value,constraints);
+            switch(kind) {
+                case UNCONSTRAINED: avObject = singleton; break;
+                case CONSTRAINED:
+                    if(avObject == null) {avObject = singleton;}
+                    else {((AVSingleton)avObject).setValue(value,constraints);}
+                    break;
+                case LIST:      if(avObject == null) {avObject = new AVList();}     ((AVList)avObject).addValue(singleton); break;
+                case HASH_LIST: if(avObject == null) {avObject = new AVHashList();} ((AVList)avObject).addValue(singleton); break;
+                default: throw new IOException("Unknown attribute value kind " + kind);}}
+        return new AttributeValue(avObject,scope);}
+
+    /** writes a constraint list.
+     *
+     * @param out         where to write the list
+     * @param constraints the attribute-operator-value triples, or null
+     * @throws IOException if writing fails or a value cannot be encoded.
+     */
+    public static void writeConstraints(Writer out, AttributeValueList constraints) throws IOException {
+        if(constraints == null) {out.writeInt(-1); return;}
+        out.writeInt(constraints.size());
+        IOException[] exception = new IOException[]{null};
+        constraints.forEach((attribute,operator,value) -> {
+            if(exception[0] != null) {return;}
+            try{out.writeAttribute(attribute);
+                out.writeSmall(operator == null ? -1 : operator.ordinal());
+                out.writeValue(value);}
+            catch(IOException ex) {exception[0] = ex;}});
+        if(exception[0] != null) {throw exception[0];}}
+
+    /** reads a constraint list. Triples with unknown attributes are dropped.
+     *
+     * @param in where to read the list from
+     * @return the list, or null.
+     * @throws IOException if reading fails, or an operator or a value is invalid.
+     */
+    public static AttributeValueList readConstraints(Reader in) throws IOException {
+        int size = in.readInt();
+        if(size < 0) {return null;}
+        AttributeValueList constraints = new AttributeValueList();
+        for(int i = 0; i < size; ++i) {
+            Attribute attribute = in.readAttribute();
+            int operator = in.readSmall();
+            DataObject value = in.readValue();
+            if(attribute != null) {constraints.add(attribute,operator < 0 ? null : element(operators,operator,"operator"),value);}}
+        return constraints;}
+
+    /** returns the element of the array at the index, which has been read from a stream.
+     *
+     * @param array an array, for example the values of an enum
+     * @param index the index
+     * @param what  what is indexed, for the error message
+     * @param <T>   the type of the elements
+     * @return the element.
+     * @throws IOException if the index is out of bounds.
+     */
+    public static <T> T element(T[] array, int index, String what) throws IOException {
+        if(index < 0 || index >= array.length) {throw new IOException("Invalid " + what + " number " + index);}
+        return array[index];}
+}
@@ -0,0 +1,241 @@
+package IO;
+
+import AbstractObjects.DataObject;
+import Attributes.Attribute;
+import Attributes.ColumnarDataAttribute;
+import Attributes.ConceptAttribute;
+import Attributes.DataAttribute;
+import Concepts.*;
+import MISC.Context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/** This class loads large amounts of concepts, subconcept relationships and attribute values into a context.
+ * <br>
+ * The data are given in columnar batches: arrays of names, of super- and subconcepts, of concepts and values.
+ * Compared to creating the concepts and adding the edges and values one by one, the loader
+ * <ul>
+ *     <li>puts each batch of new concepts into the context and the id table in one step,
+ *     and calls the concept observers for them in the same step,</li>
+ *     <li>inserts all subconcept relationships at the end in one step, with one hash set per superconcept,
+ *     where observers which are DAG.BatchObservers (e.g. the StorageEngine's) are called once for all relationships,</li>
+ *     <li>checks the values' ranges at the end (in parallel for data attributes), after the hierarchy is complete,</li>
+ *     <li>stores the values directly (the values of ColumnarDataAttributes column by column),</li>
+ *     <li>calls the value observers only at the end, once per concept and attribute,
+ *     with the activity CHANGE and an unknown value.</li>
+ *     <li>suspends the DerivedConceptDispatcher while the edges are inserted, and repositions the concepts
+ *     below the DerivedConcepts once at the end, after the values have been inserted.</li>
+ * </ul>
+ * Until finish is called, the new concepts are in the context, but without hierarchy and values.
+ * finish inserts the hierarchy and the values in one change of the context, such that a checkpoint sees all of them or none.
+ * A loader should be used by a single thread.
+ * <br>
+ * Values with constraints are not supported; they must be added with Attribute.addValue.
+ * In forks, all values go into the fork's overlay.
+ * Attributes whose values are computed (FunctionAttribute, ChainAttribute, AggregatingAttribute)
+ * get their values by Attribute.addValue as well.
+ */
+public class BulkLoader {
+    /** the context to be loaded */
+    private final Context context;
+
+    /** the buffered subconcept relationships: superconcepts at even positions, subconcepts at odd positions */
+    private final ArrayList<Concept> edges = new ArrayList<>();
+
+    /** a buffered batch of attribute values */
+    private static class Batch {
+        final Attribute attribute;
+        final Concept[] concepts;
+        final DataObject[] values;
+        final Scope scope;
+
+        Batch(Attribute attribute, Concept[] concepts, DataObject[] values, Scope scope) {
+            this.attribute = attribute; this.concepts = concepts; this.values = values; this.scope = scope;}}
+
+    /** the buffered batches of attribute values */
+    private final ArrayList<Batch> batches = new ArrayList<>();
+
+    /** maps the attributes to the concepts whose values have been changed, and the values' scopes */
+    private final HashMap<Attribute,LinkedHashMap<Concept,Scope>> changed = new HashMap<>();
+
+    /** creates a loader for the context.
+     *
+     * @param context the context to be loaded.
+     */
+    public BulkLoader(Context context) {
+        this.context = context;}
+
+    /** creates set concepts. Concepts which exist already are reused.
+     *
+     * @param names the concepts' names
+     * @return the concepts, in the order of the names.
+     */
+    public Concept[] addSetConcepts(String[] names) {return addConcepts(names,false);}
+
+    /** creates individual concepts. Concepts which exist already are reused.
+     *
+     * @param names the concepts' names
+     * @return the concepts, in the order of the names.
+     */
+    public Concept[] addIndividuals(String[] names) {return addConcepts(names,true);}
+
+    /** creates the concepts and puts the new ones into the context in one step.
+     * The concepts are created without context, and Context.putConcepts registers them and calls the concept observers.
+     * If another thread has meanwhile put a concept with the same name into the context, that concept is used.
+     *
+     * @param names      the concepts' names
+     * @param individual true for individual concepts, false for set concepts.
+     * @return the concepts, in the order of the names.
+     */
+    private Concept[] addConcepts(String[] names, boolean individual) {
+        Concept[] concepts = new Concept[names.length];
+        HashMap<String,Integer> created = new HashMap<>(names.length*4/3+1);
+        ArrayList<Concept> batch = new ArrayList<>(names.length);
+        for(int i = 0; i < names.length; ++i) {
+            String name = names[i];
+            if(created.containsKey(name)) {continue;}
+            concepts[i] = context.getConcept(name);
+            if(concepts[i] != null) {continue;}
+            created.put(name,batch.size());
+            batch.add(individual ? new IndividualConcept(name,null) : new SetConcept(name,null));}
+        if(batch.isEmpty()) {return concepts;}
+        Concept[] registered = context.putConcepts(batch);
+        for(int i = 0; i < names.length; ++i) {
+            if(concepts[i] == null) {concepts[i] = registered[created.get(names[i])];}}
+        return concepts;}
+
+    /** buffers subconcept relationships. They are inserted by finish.
+     *
+     * @param superconcepts the superconcepts
+     * @param subconcepts   the subconcepts, at the same positions as their superconcepts.
+     */
+    public void addEdges(Concept[] superconcepts, Concept[] subconcepts) {
+        int length = Math.min(superconcepts.length,subconcepts.length);
+        edges.ensureCapacity(edges.size() + 2*length);
+        for(int i = 0; i < length; ++i) {
+            edges.add(superconcepts[i]);
+            edges.add(subconcepts[i]);}}
+
+    /** buffers unconstrained attribute values. They are checked and inserted by finish.
+     * The arrays are kept until then and must not be changed.
+     *
+     * @param attribute an attribute
+     * @param concepts  the concepts which get the values
+     * @param values    the values, at the same positions as their concepts.
+     * @param scope     the scope of the values.
+     */
+    public void addValues(Attribute attribute, Concept[] concepts, DataObject[] values, Scope scope) {
+        batches.add(new Batch(attribute,concepts,values,scope));}
+
+    /** inserts the buffered relationships and values and calls the observers.
+     * Afterwards the loader can be used for the next data.
+     *
+     * @param errors for appending error messages about values which are not in their attribute's range.
+     * @return true if there were no errors.
+     */
+    public boolean finish(StringBuilder errors) {
+        return context.change(() -> finishLocked(errors));}
+
+    /** does the work of finish within one change of the context.
+     *
+     * @param errors for appending error messages
+     * @return true if there were no errors.
+     */
+    private boolean finishLocked(StringBuilder errors) {
+        boolean okay = true;
+        boolean newEdges = !edges.isEmpty();
+        if(newEdges) {
+            context.derivedConceptDispatcher.suspend();
+            try{context.conceptHierarchy.addSubnodes(edges);}
+            finally{context.derivedConceptDispatcher.resume();}}
+        edges.clear();
+
+        for(Batch batch : batches) {okay &= insert(batch,errors);}
+        batches.clear();
+        if(newEdges) {DerivedConcept.restructureHierarchies(context.derivedConcepts,context);}
+
+        for(Map.Entry<Attribute,LinkedHashMap<Concept,Scope>> entry : changed.entrySet()) {
+            Attribute attribute = entry.getKey();
+            entry.getValue().forEach((concept,scope) -> attribute.valuesLoaded(concept,scope,context));}
+        changed.clear();
+        return okay;}
+
+    /** checks the values of the batch and inserts the valid ones.
+     *
+     * @param batch  a batch of values
+     * @param errors for appending error messages
+     * @return true if all values have been inserted.
+     */
+    private boolean insert(Batch batch, StringBuilder errors) {
+        Attribute attribute = batch.attribute;
+        int length = Math.min(batch.concepts.length,batch.values.length);
+        if(!(attribute instanceof DataAttribute) && !(attribute instanceof ConceptAttribute)) {
+            boolean okay = true;
+            for(int i = 0; i < length; ++i) {
+                okay &= attribute.addValue(batch.concepts[i],batch.values[i],null,batch.scope,context,errors);}
+            return okay;}
+
+        DataObject[] values = batch.values;
+        boolean[] valid = new boolean[length];
+        IntStream indexes = IntStream.range(0,length);
+        if(!attribute.isConceptAttribute()) {indexes = indexes.parallel();} // the hierarchy is synchronized
+        indexes.forEach(i -> valid[i] = values[i] != null && attribute.isInRange(values[i],context));
+
+        Concept[] concepts = new Concept[length];
+        DataObject[] checked = new DataObject[length];
+        int size = 0;
+        for(int i = 0; i < length; ++i) {
+            if(valid[i]) {concepts[size] = batch.concepts[i]; checked[size++] = values[i]; continue;}
+            errors.append("Concept " + batch.concepts[i].getName() + ", attribute " + attribute.getName() + ": value " + values[i] +
+                    " is not in its range " + attribute.getRangeName()+"\n");}
+
+        if(batch.scope == Scope.LOCAL && attribute instanceof ColumnarDataAttribute && !context.isFork() &&
+                ((ColumnarDataAttribute)attribute).putValues(concepts,checked,size)) {
+            for(int i = 0; i < size; ++i) {changed(attribute,concepts[i],batch.scope);}}
+        else {
+            for(int i = 0; i < size; ++i) {
+                Concept concept = concepts[i];
+                DataObject value = checked[i];
+                put(attribute,concept,value,batch.scope);
+                if(!(attribute instanceof ConceptAttribute)) {continue;}
+                if(attribute.isSymmetric()) {put(attribute,(Concept)value,concept,batch.scope);}
+                ConceptAttribute inverse = attribute.getInverse();
+                if(inverse != null) {
+                    put(inverse,(Concept)value,concept,batch.scope);
+                    if(inverse.isSymmetric()) {put(inverse,concept,(Concept)value,batch.scope);}}}}
+        return size == length;}
+
+    /** stores an unconstrained value in the concept, as Attribute.addValue does, but without observers.
+     *
+     * @param attribute an attribute
+     * @param concept   the concept which gets the value
+     * @param value     the value
+     * @param scope     the scope for a new attribute value
+     */
+    private void put(Attribute attribute, Concept concept, DataObject value, Scope scope) {
+        AttributeValue oldValue = context.getValueForUpdate(concept,attribute);
+        if(oldValue == null) {
+            AVSingleton singleton = new AVSingletonUnconstrained(value);
+            context.putValue(concept,attribute,new AttributeValue(attribute.isFunctional() ? singleton :
+                    (attribute.isHashed() ? new AVHashList(singleton) : new AVList(singleton)), scope),false);}
+        else {
+            AVObject avObject = oldValue.get();
+            if(attribute.isFunctional()) {((AVSingleton)avObject).setValue(value,null);}
+            else {((AVList)avObject).addValue(new AVSingletonUnconstrained(value));}
+            scope = oldValue.scope;
+            if(context.pager != null) {context.pager.changed(concept);}}
+        changed(attribute,concept,scope);}
+
+    /** records that the concept's values of the attribute have been changed.
+     *
+     * @param attribute an attribute
+     * @param concept   a concept
+     * @param scope     the scope of the values
+     */
+    private void changed(Attribute attribute, Concept concept, Scope scope) {
+        changed.computeIfAbsent(attribute, a -> new LinkedHashMap<>()).put(concept,scope);}
+}
@@ -0,0 +1,669 @@
+package IO;
+
+import AbstractObjects.DataObject;
+import AbstractObjects.DataType;
+import AbstractObjects.ItemWithId;
+import Attributes.Attribute;
+import Attributes.ColumnarDataAttribute;
+import Attributes.ConceptAttribute;
+import Attributes.DataAttribute;
+import Concepts.*;
+import ConcreteDomain.ConcreteType;
+import DAGs.DAG;
+import DAGs.InnerNode;
+import DAGs.Node;
+import MISC.Context;
+import MISC.Namespace;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/** This class writes and reads binary snapshots of a whole context.
+ * <br>
+ * A snapshot contains the namespaces, the data types, the concepts, the concept hierarchy, the attributes,
+ * the attribute hierarchy and the attribute values. Loading a snapshot is much faster than parsing the data blocks again.
+ * <br>
+ * Layout: a header (magic number, version, number of sections) followed by the sections.
+ * Each section consists of a tag, the length of its content (a long), the content, and the CRC32 checksum of the content.
+ * All sections refer to strings by their codes in the string table,
+ * and to concepts and attributes by their dense ids at the time of writing.
+ * The string table is the last section, since it is complete only after all other sections have been written.
+ * Attribute definitions and attribute values are records with a length prefix.
+ * <br>
+ * The sections are written directly into the file; the length of a section is filled in after its content.
+ * The reader maps the file into memory in windows of at most 1 GB, such that snapshots can be larger than 2 GB.
+ * It verifies all checksums before it changes the context.
+ * <br>
+ * Supported are SetConcepts, IndividualConcepts, DataAttributes (also columnar ones) and ConceptAttributes,
+ * as well as ConcreteTypes with standard constructors.
+ * DerivedConcepts are restored as SetConcepts, since their filters are code; the filters must be set again.
+ * Attributes which are defined by code (FunctionAttribute, ChainAttribute, AggregatingAttribute) are not contained;
+ * they are reported when the snapshot is read.
+ * A snapshot should be read into a fresh context.
+ */
+public class ContextSnapshot {
+    /** identifies snapshot files */
+    private static final int MAGIC = 0x5A435458;
+    /** the version of the format */
+    private static final int VERSION = 2;
+
+    /** the size of the windows through which the file is mapped (at most 2 GB) */
+    static int windowSize = 1 << 30;
+
+    /** the section tags, in the order in which they are written */
+    private static final int STRINGS = 1, NAMESPACES = 2, DATATYPES = 3, CONCEPTS = 4, CONCEPT_DAG = 5,
+                             ATTRIBUTES = 6, ATTRIBUTE_DAG = 7, VALUES = 8;
+
+    /** the kinds of concepts */
+    private static final byte NO_CONCEPT = 0, SET_CONCEPT = 1, INDIVIDUAL = 2, DERIVED_CONCEPT = 3;
+
+    /** the kinds of attributes */
+    private static final byte NO_ATTRIBUTE = 0, DATA_ATTRIBUTE = 1, COLUMNAR_ATTRIBUTE = 2, CONCEPT_ATTRIBUTE = 3, OTHER_ATTRIBUTE = 4;
+
+    /* ********************************** Writing ******************************************/
+
+    /** writes the content of a section */
+    private interface SectionContent {
+        void write(DataOutputStream out) throws IOException;}
+
+    /** writes a snapshot of the context into the file.
+     *
+     * @param context the context to be written
+     * @param file    the snapshot file
+     * @param errors  for appending error messages
+     * @return true if the snapshot has been written.
+     */
+    public static boolean write(Context context, File file, StringBuilder errors) {
+        DataObjectCodec codec = new DataObjectCodec(concept -> context.getConcept(concept.getId()) == concept ? concept.getId() : -1);
+        try(FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            header.putInt(MAGIC).putInt(VERSION).putInt(VALUES);
+            header.flip();
+            writeFully(channel,header,-1);
+            writeSection(channel,NAMESPACES,    out -> writeNamespaces(out,codec));
+            writeSection(channel,DATATYPES,     out -> writeDataTypes(out,context,codec));
+            writeSection(channel,CONCEPTS,      out -> writeConcepts(out,context,codec));
+            writeSection(channel,CONCEPT_DAG,   out -> writeHierarchy(out,context.conceptHierarchy,context.getConceptIdBound(),context::getConcept));
+            writeSection(channel,ATTRIBUTES,    out -> writeAttributes(out,context,codec));
+            writeSection(channel,ATTRIBUTE_DAG, out -> writeHierarchy(out,context.attributeHierarchy,context.attributeIds.bound(),context::getAttribute));
+            writeSection(channel,VALUES,        out -> writeValues(out,context,codec));
+            writeSection(channel,STRINGS,       codec::writeStrings);}
+        catch(IOException ex) {errors.append("Snapshot ").append(file).append(": ").append(ex.toString()).append("\n"); return false;}
+        return true;}
+
+    /** writes a section at the channel's position: tag, length, content and checksum.
+     * The content is streamed into the file; afterwards the length is written in front of it.
+     *
+     * @param channel the snapshot file
+     * @param tag     the section's tag
+     * @param content writes the section's content
+     * @throws IOException if writing fails.
+     */
+    private static void writeSection(FileChannel channel, int tag, SectionContent content) throws IOException {
+        long start = channel.position();
+        ByteBuffer head = ByteBuffer.allocate(12);
+        head.putInt(tag).putLong(0);
+        head.flip();
+        writeFully(channel,head,-1);
+        CRC32 crc = new CRC32();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel),crc),1<<16));
+        content.write(out);
+        out.flush();  // not closed: this would close the channel
+        long length = channel.position() - start - 12;
+        ByteBuffer tail = ByteBuffer.allocate(8);
+        tail.putLong(crc.getValue());
+        tail.flip();
+        writeFully(channel,tail,-1);
+        ByteBuffer size = ByteBuffer.allocate(8);
+        size.putLong(length);
+        size.flip();
+        writeFully(channel,size,start+4);}
+
+    /** writes the buffer completely into the channel.
+     *
+     * @param channel  a file channel
+     * @param buffer   the bytes to be written
+     * @param position the file position, or -1 for the channel's position
+     * @throws IOException if writing fails.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(position < 0) {channel.write(buffer);}
+            else {position += channel.write(buffer,position);}}}
+
+    /** writes the pathnames of all namespaces */
+    private static void writeNamespaces(DataOutputStream out, DataObjectCodec codec) throws IOException {
+        ArrayList<Namespace> namespaces = new ArrayList<>();
+        for(int id = 0; Namespace.getNamespace(id) != null; ++id) {namespaces.add(Namespace.getNamespace(id));}
+        out.writeInt(namespaces.size());
+        for(Namespace namespace : namespaces) {out.writeInt(codec.stringCode(namespace.getPathname()));}}
+
+    /** writes the data types */
+    private static void writeDataTypes(DataOutputStream out, Context context, DataObjectCodec codec) throws IOException {
+        ArrayList<DataType> dataTypes = new ArrayList<>();
+        context.forEachDataType(dataTypes::add);
+        out.writeInt(dataTypes.size());
+        for(DataType type : dataTypes) {
+            out.writeInt(codec.stringCode(type.applicationName));
+            out.writeInt(codec.stringCode(type.typeName));
+            out.writeInt(codec.stringCode(type.typeClass == null ? null : type.typeClass.getName()));
+            out.writeInt(codec.stringCode(type.objectClass == null ? null : type.objectClass.getName()));
+            out.writeInt(codec.stringCode(type.internalType));}}
+
+    /** writes the concepts in the order of their ids */
+    private static void writeConcepts(DataOutputStream out, Context context, DataObjectCodec codec) throws IOException {
+        int bound = context.getConceptIdBound();
+        out.writeInt(bound);
+        for(int id = 0; id < bound; ++id) {
+            Concept concept = context.getConcept(id);
+            if(concept == null) {out.writeByte(NO_CONCEPT); continue;}
+            out.writeByte(concept instanceof DerivedConcept ? DERIVED_CONCEPT : (concept.isIndividual() ? INDIVIDUAL : SET_CONCEPT));
+            writeItem(concept,out,codec);}}
+
+    /** writes name, namespace and data block of the item */
+    private static void writeItem(ItemWithId item, DataOutputStream out, DataObjectCodec codec) throws IOException {
+        out.writeInt(codec.stringCode(item.getName()));
+        out.writeInt(codec.stringCode(item.getNamespace() == null ? null : item.getNamespace().getPathname()));
+        out.writeInt(codec.stringCode(item.getDataBlockName()));}
+
+    /** writes the nodes and edges of a hierarchy whose labels have dense ids.
+     *
+     * @param out       where to write the hierarchy
+     * @param hierarchy the hierarchy
+     * @param bound     the upper bound for the ids
+     * @param labels    maps the ids to the labels
+     * @param <N>       the type of the labels
+     */
+    private static <N extends ItemWithId> void writeHierarchy(DataOutputStream out, DAG<N> hierarchy, int bound, IntFunction<N> labels) throws IOException {
+        ArrayList<Integer> nodes = new ArrayList<>();
+        ArrayList<Integer> edges = new ArrayList<>();
+        synchronized (hierarchy) {
+            for(int id = 0; id < bound; ++id) {
+                N label = labels.apply(id);
+                if(label == null) {continue;}
+                Node<N> node = hierarchy.getNode(label);
+                if(node == null) {continue;}
+                nodes.add(id);
+                if(!node.isInnerNode()) {continue;}
+                for(Node<N> subnode : ((InnerNode<N>)node).innerNodes) {
+                    if(labels.apply(subnode.label.getId()) == subnode.label) {edges.add(id); edges.add(subnode.label.getId());}}
+                for(Node<N> subnode : ((InnerNode<N>)node).leafNodes) {
+                    if(labels.apply(subnode.label.getId()) == subnode.label) {edges.add(id); edges.add(subnode.label.getId());}}}}
+        out.writeInt(nodes.size());
+        for(int id : nodes) {out.writeInt(id);}
+        out.writeInt(edges.size()/2);
+        for(int id : edges) {out.writeInt(id);}}
+
+    /** writes the attributes in the order of their ids, each as a record with a length prefix */
+    private static void writeAttributes(DataOutputStream out, Context context, DataObjectCodec codec) throws IOException {
+        int bound = context.attributeIds.bound();
+        out.writeInt(bound);
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        for(int id = 0; id < bound; ++id) {
+            recordBytes.reset();
+            Attribute attribute = context.getAttribute(id);
+            if(writeAttribute(record,attribute,codec)) {
+                ConceptAttribute inverse = (attribute instanceof ConceptAttribute) ? ((ConceptAttribute)attribute).getInverse() : null;
+                record.writeInt(inverse == null || context.getAttribute(inverse.getId()) != inverse ? -1 : inverse.getId());}
+            out.writeInt(recordBytes.size());
+            recordBytes.writeTo(out);}}
+
+    /** writes the definition of an attribute (without its inverse).
+     * The domain and range concepts are written as concept references of the codec.
+     *
+     * @param out       where to write the definition
+     * @param attribute an attribute or null
+     * @param codec     the codec for strings and concepts
+     * @return true if the attribute is a DataAttribute, ColumnarDataAttribute or ConceptAttribute, whose definition is complete.
+     * @throws IOException if writing fails.
+     */
+    public static boolean writeAttribute(DataOutputStream out, Attribute attribute, DataObjectCodec codec) throws IOException {
+        byte kind = attributeKind(attribute);
+        out.writeByte(kind);
+        if(kind == NO_ATTRIBUTE) {return false;}
+        writeItem(attribute,out,codec);
+        if(kind == OTHER_ATTRIBUTE) {out.writeInt(codec.stringCode(attribute.getClass().getName())); return false;}
+        out.writeBoolean(attribute.isFunctional());
+        out.writeBoolean(attribute.isHashed());
+        codec.writeConcept(out,attribute.getDomain());
+        if(kind == CONCEPT_ATTRIBUTE) {
+            ConceptAttribute conceptAttribute = (ConceptAttribute)attribute;
+            codec.writeConcept(out,conceptAttribute.getRangeConcept());
+            out.writeBoolean(conceptAttribute.isReflexive());
+            out.writeBoolean(conceptAttribute.isSymmetric());
+            out.writeBoolean(conceptAttribute.isTransitive());}
+        else {
+            ConcreteType range = attribute.getRangeType();
+            out.writeInt(codec.stringCode(range == null ? null : range.applicationName));}
+        return true;}
+
+    /** @return the kind of the attribute */
+    private static byte attributeKind(Attribute attribute) {
+        if(attribute == null) {return NO_ATTRIBUTE;}
+        Class clazz = attribute.getClass();
+        if(clazz == DataAttribute.class)          {return DATA_ATTRIBUTE;}
+        if(clazz == ColumnarDataAttribute.class)  {return COLUMNAR_ATTRIBUTE;}
+        if(clazz == ConceptAttribute.class)       {return CONCEPT_ATTRIBUTE;}
+        return OTHER_ATTRIBUTE;}
+
+    /** writes the attribute values of all concepts, followed by the values in the columns.
+     * Each record consists of its length, the concept's id, the attribute's id and the encoded attribute value.
+     * The records are not counted; they extend to the end of the section.
+     */
+    private static void writeValues(DataOutputStream out, Context context, DataObjectCodec codec) throws IOException {
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        ToIntFunction<Attribute> attributeIndex = attribute -> context.getAttribute(attribute.getId()) == attribute ? attribute.getId() : -1;
+        IOException[] exception = new IOException[]{null};
+        int bound = context.getConceptIdBound();
+        for(int id = 0; id < bound; ++id) {
+            Concept concept = context.getConcept(id);
+            if(concept == null) {continue;}
+            int conceptId = id;
+            concept.forEachAttributeValue((attribute,attributeValue) -> {
+                byte kind = attributeKind(attribute);
+                if(exception[0] != null || kind == NO_ATTRIBUTE || kind == OTHER_ATTRIBUTE || attributeValue.isEmpty() ||
+                        attributeIndex.applyAsInt(attribute) < 0) {return;}
+                try{recordBytes.reset();
+                    record.writeInt(conceptId); record.writeInt(attribute.getId());
+                    codec.write(record,attributeValue,attributeIndex);
+                    out.writeInt(recordBytes.size());
+                    recordBytes.writeTo(out);}
+                catch(IOException ex) {exception[0] = ex;}});
+            if(exception[0] != null) {throw exception[0];}}
+
+        int attributeBound = context.attributeIds.bound();
+        for(int id = 0; id < attributeBound; ++id) {
+            Attribute attribute = context.getAttribute(id);
+            if(!(attribute instanceof ColumnarDataAttribute)) {continue;}
+            ColumnarDataAttribute columnar = (ColumnarDataAttribute)attribute;
+            for(int conceptId : columnar.getPresent().stream().toArray()) {
+                Concept concept = context.getConcept(conceptId);
+                DataObject value = (concept == null) ? null : columnar.getColumnValue(concept);
+                if(value == null) {continue;}
+                recordBytes.reset();
+                record.writeInt(conceptId); record.writeInt(id);
+                codec.write(record,new AttributeValue(new AVSingletonUnconstrained(value),Scope.LOCAL),attributeIndex);
+                out.writeInt(recordBytes.size());
+                recordBytes.writeTo(out);}}}
+
+    /* ********************************** Reading ******************************************/
+
+    /** reads a section of the snapshot file through windows which are mapped into memory */
+    static class SectionInput {
+        /** the snapshot file */
+        private final FileChannel channel;
+        /** the file position after the section */
+        private final long end;
+        /** the file position of the window's first byte */
+        private long windowStart;
+        /** the current window (null before the first access) */
+        private ByteBuffer window = null;
+
+        /** creates an input for the section
+         *
+         * @param channel the snapshot file
+         * @param start   the position of the section's content
+         * @param length  the length of the content
+         */
+        SectionInput(FileChannel channel, long start, long length) {
+            this.channel = channel;
+            this.windowStart = start;
+            this.end = start + length;}
+
+        /** @return the file position of the next byte */
+        long position() {return (window == null) ? windowStart : windowStart + window.position();}
+
+        /** @return true if the section has more bytes */
+        boolean hasMore() {return position() < end;}
+
+        /** returns the window, positioned at the next byte, with at least the given number of remaining bytes.
+         * If the current window has fewer bytes left, the next window is mapped.
+         *
+         * @param bytes the number of bytes to be read next
+         * @return the window.
+         * @throws IOException if the section has fewer bytes, or mapping fails.
+         */
+        ByteBuffer need(int bytes) throws IOException {
+            if(window != null && window.remaining() >= bytes) {return window;}
+            long position = position();
+            if(bytes < 0 || end - position < bytes) {throw new EOFException("section truncated at position " + position);}
+            window = channel.map(FileChannel.MapMode.READ_ONLY,position,Math.min(end - position,Math.max(bytes,windowSize)));
+            windowStart = position;
+            return window;}
+
+        /** returns the next record, and skips it.
+         *
+         * @param length the record's length
+         * @return a buffer with exactly the record's bytes.
+         * @throws IOException if the section has fewer bytes, or mapping fails.
+         */
+        ByteBuffer record(int length) throws IOException {
+            ByteBuffer buffer = need(length);
+            ByteBuffer record = buffer.slice();
+            record.limit(length);
+            buffer.position(buffer.position() + length);
+            return record;}
+
+        /** @return the next int */
+        int getInt() throws IOException {return need(4).getInt();}}
+
+    /** checks header and checksums of the file and locates the sections.
+     * The checksums are computed window by window.
+     *
+     * @param channel the snapshot file
+     * @param file    the file's name, for error messages
+     * @param errors  for appending error messages
+     * @return the sections' inputs, indexed by their tags, or null if the file is not a valid snapshot.
+     * @throws IOException if reading the file fails
+     */
+    private static SectionInput[] scanSections(FileChannel channel, File file, StringBuilder errors) throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(12);
+        if(size < 12 || readFully(channel,header,0).getInt() != MAGIC) {errors.append("Snapshot ").append(file).append(": not a snapshot file\n"); return null;}
+        int version = header.getInt();
+        if(version != VERSION) {errors.append("Snapshot ").append(file).append(": unsupported version ").append(version).append("\n"); return null;}
+        int nSections = header.getInt();
+        SectionInput[] sections = new SectionInput[VALUES+1];
+        CRC32 crc = new CRC32();
+        long position = 12;
+        for(int i = 0; i < nSections; ++i) {
+            if(size - position < 12) {errors.append("Snapshot ").append(file).append(": truncated\n"); return null;}
+            ByteBuffer head = readFully(channel,ByteBuffer.allocate(12),position);
+            int tag = head.getInt();
+            long length = head.getLong();
+            position += 12;
+            if(length < 0 || size - position < length + 8) {errors.append("Snapshot ").append(file).append(": truncated\n"); return null;}
+            crc.reset();
+            for(long offset = 0; offset < length; offset += windowSize) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY,position+offset,Math.min(windowSize,length-offset)));}
+            if(readFully(channel,ByteBuffer.allocate(8),position+length).getLong() != crc.getValue()) {
+                errors.append("Snapshot ").append(file).append(": checksum error in section ").append(tag).append("\n"); return null;}
+            if(tag >= STRINGS && tag <= VALUES) {sections[tag] = new SectionInput(channel,position,length);}
+            position += length + 8;}
+        for(int tag = STRINGS; tag <= VALUES; ++tag) {
+            if(sections[tag] == null) {errors.append("Snapshot ").append(file).append(": section ").append(tag).append(" is missing\n"); return null;}}
+        return sections;}
+
+    /** reads the buffer's bytes from the given file position.
+     *
+     * @param channel  a file channel
+     * @param buffer   a buffer to be filled
+     * @param position the file position
+     * @return the filled buffer, flipped for reading.
+     * @throws IOException if the file ends before.
+     */
+    private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int n = channel.read(buffer,position);
+            if(n < 0) {throw new EOFException();}
+            position += n;}
+        buffer.flip();
+        return buffer;}
+
+    /** checks whether the file is a valid snapshot, without reading it into a context.
+     *
+     * @param file   the snapshot file
+     * @param errors for appending error messages
+     * @return true if header and checksums are okay.
+     */
+    public static boolean validate(File file, StringBuilder errors) {
+        try(FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.READ)) {
+            return scanSections(channel,file,errors) != null;}
+        catch(IOException ex) {errors.append("Snapshot ").append(file).append(": ").append(ex.toString()).append("\n"); return false;}}
+
+    /** reads a snapshot into the context.
+     * The checksums are verified before the context is changed.
+     *
+     * @param file    the snapshot file
+     * @param context a fresh context
+     * @param errors  for appending error messages
+     * @return true if the snapshot has been read without errors.
+     */
+    public static boolean read(File file, Context context, StringBuilder errors) {
+        try(FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.READ)) {
+            SectionInput[] sections = scanSections(channel,file,errors);
+            if(sections == null) {return false;}
+            String[] strings = readStrings(sections[STRINGS]);
+            ArrayList<Concept> concepts = new ArrayList<>();
+            DataObjectCodec codec = new DataObjectCodec(strings, index -> get(concepts,index), context);
+            boolean okay = true;
+            readNamespaces(sections[NAMESPACES],codec);
+            okay &= readDataTypes(sections[DATATYPES],codec,context,errors);
+            okay &= readConcepts(sections[CONCEPTS],codec,context,concepts,errors);
+            context.derivedConceptDispatcher.suspend();  // the snapshot's hierarchy is already classified
+            try{readHierarchy(sections[CONCEPT_DAG],context.conceptHierarchy,index -> get(concepts,index));}
+            finally{context.derivedConceptDispatcher.resume();}
+            ArrayList<Attribute> attributes = new ArrayList<>();
+            okay &= readAttributes(sections[ATTRIBUTES],codec,context,attributes,errors);
+            readHierarchy(sections[ATTRIBUTE_DAG],context.attributeHierarchy,index -> get(attributes,index));
+            okay &= readValues(sections[VALUES],codec,context,concepts,attributes,errors);
+            return okay;}
+        catch(IOException | RuntimeException ex) {
+            errors.append("Snapshot ").append(file).append(": ").append(ex.toString()).append("\n"); return false;}}
+
+    /** reads the string table, as written by DataObjectCodec.writeStrings */
+    private static String[] readStrings(SectionInput in) throws IOException {
+        String[] table = new String[in.getInt()];
+        byte[] bytes = new byte[64];
+        for(int i = 0; i < table.length; ++i) {
+            int length = in.getInt();
+            if(length > bytes.length) {bytes = new byte[Math.max(length,2*bytes.length)];}
+            in.need(length).get(bytes,0,length);
+            table[i] = new String(bytes,0,length,StandardCharsets.UTF_8);}
+        return table;}
+
+    /** returns the item with the given index.
+     * A snapshot which is written while the context changes may refer to items which were created after the item table was written.
+     *
+     * @param items the items of the snapshot
+     * @param index an index
+     * @return the item, or null if the index is out of range.
+     */
+    private static <T> T get(ArrayList<T> items, int index) {
+        return (index < 0 || index >= items.size()) ? null : items.get(index);}
+
+    /** creates the namespaces */
+    private static void readNamespaces(SectionInput in, DataObjectCodec codec) throws IOException {
+        int size = in.getInt();
+        for(int i = 0; i < size; ++i) {Namespace.setNamespace(codec.string(in.getInt()));}}
+
+    /** creates the data types which are not yet in the context */
+    private static boolean readDataTypes(SectionInput in, DataObjectCodec codec, Context context, StringBuilder errors) throws IOException {
+        boolean okay = true;
+        int size = in.getInt();
+        for(int i = 0; i < size; ++i) {
+            String name = codec.string(in.getInt());
+            String typeName = codec.string(in.getInt());
+            String typeClass = codec.string(in.getInt());
+            String objectClass = codec.string(in.getInt());
+            String internalType = codec.string(in.getInt());
+            if(context.getDataType(name) != null) {continue;}
+            if(!ConcreteType.class.getName().equals(typeClass)) {
+                errors.append("Snapshot: data type ").append(name).append(" of class ").append(typeClass).append(" must be defined again\n");
+                okay = false; continue;}
+            try{new ConcreteType(name,typeName,ConcreteType.class,Class.forName(objectClass),internalType,context);}
+            catch(ClassNotFoundException ex) {errors.append("Snapshot: data type ").append(name).append(": ").append(ex.toString()).append("\n"); okay = false;}}
+        return okay;}
+
+    /** creates the concepts.
+     * A concept which is already in the context is reused if it is in the same namespace.
+     * A concept with the same name in another namespace is reported, and the snapshot's concept is dropped.
+     */
+    private static boolean readConcepts(SectionInput in, DataObjectCodec codec, Context context, ArrayList<Concept> concepts, StringBuilder errors) throws IOException {
+        boolean okay = true;
+        int bound = in.getInt();
+        for(int i = 0; i < bound; ++i) {
+            byte kind = in.need(1).get();
+            if(kind == NO_CONCEPT) {concepts.add(null); continue;}
+            String name = codec.string(in.getInt());
+            String namespace = codec.string(in.getInt());
+            String dataBlock = codec.string(in.getInt());
+            Concept concept = context.getConcept(name);
+            if(concept != null && !inNamespace(concept,namespace,errors)) {concepts.add(null); okay = false; continue;}
+            if(kind == DERIVED_CONCEPT) {
+                errors.append("Snapshot: DerivedConcept ").append(name).append(" is restored as SetConcept; its filter must be set again\n");
+                okay = false;}
+            if(concept == null) {  // the namespace is set before the concept observers see the concept
+                concept = (kind == INDIVIDUAL) ? new IndividualConcept(name,null) : new SetConcept(name,null);
+                readItem(concept,namespace,dataBlock);
+                context.putConcept(concept);}
+            else {readItem(concept,namespace,dataBlock);}
+            concepts.add(concept);}
+        return okay;}
+
+    /** checks if the item is in the namespace.
+     *
+     * @param item      an item which has been found by its name
+     * @param namespace the pathname of the namespace in the snapshot, or null
+     * @param errors    for appending an error message
+     * @return true if the item is in this namespace.
+     */
+    private static boolean inNamespace(ItemWithId item, String namespace, StringBuilder errors) {
+        Namespace itemNamespace = item.getNamespace();
+        String pathname = (itemNamespace == null) ? null : itemNamespace.getPathname();
+        if(pathname == null ? namespace == null : pathname.equals(namespace)) {return true;}
+        errors.append("Snapshot: ").append(namespace == null ? "" : namespace + ".").append(item.getName()).
+                append(" clashes with ").append(item.getPathname()).append(" in the context\n");
+        return false;}
+
+    /** sets namespace and data block of the item */
+    private static void readItem(ItemWithId item, String namespace, String dataBlock) {
+        if(namespace != null) {item.setName(item.getName(),Namespace.setNamespace(namespace));}
+        if(dataBlock != null) {item.setDataBlock(dataBlock);}}
+
+    /** inserts the nodes and edges into the hierarchy */
+    private static <N> void readHierarchy(SectionInput in, DAG<N> hierarchy, IntFunction<N> labels) throws IOException {
+        int nodes = in.getInt();
+        ArrayList<N> labelsOfNodes = new ArrayList<>();
+        for(int i = 0; i < nodes; ++i) {
+            N label = labels.apply(in.getInt());
+            if(label != null) {labelsOfNodes.add(label);}}
+        ArrayList<N> edges = new ArrayList<>();
+        int nEdges = in.getInt();
+        for(int i = 0; i < nEdges; ++i) {
+            N superLabel = labels.apply(in.getInt());
+            N subLabel = labels.apply(in.getInt());
+            if(superLabel != null && subLabel != null) {edges.add(superLabel); edges.add(subLabel);}}
+        hierarchy.change(() -> {
+            for(N label : labelsOfNodes) {hierarchy.addNode(label);}
+            hierarchy.changeSubnodes(null,edges);
+            return null;});}
+
+    /** creates the attributes */
+    private static boolean readAttributes(SectionInput in, DataObjectCodec codec, Context context,
+                                          ArrayList<Attribute> attributes, StringBuilder errors) throws IOException {
+        boolean okay = true;
+        int bound = in.getInt();
+        int[] inverses = new int[bound];
+        for(int i = 0; i < bound; ++i) {
+            inverses[i] = -1;
+            ByteBuffer record = in.record(in.getInt());
+            int length = errors.length();
+            Attribute attribute = readAttribute(record,codec,context,errors);
+            if(errors.length() > length) {okay = false;}
+            if(attribute != null) {inverses[i] = record.getInt();}
+            attributes.add(attribute);}
+        for(int i = 0; i < bound; ++i) {
+            if(inverses[i] < i) {continue;}
+            Attribute attribute = attributes.get(i), inverse = get(attributes,inverses[i]);
+            if(attribute != null && inverse != null) {((ConceptAttribute)attribute).setInverse(inverse,context,errors);}}
+        return okay;}
+
+    /** reads the definition of an attribute, as written by writeAttribute.
+     * If the context already contains an attribute with this name in the same namespace then this attribute is returned;
+     * an attribute with this name in another namespace is reported.
+     * Otherwise the attribute is created in the context.
+     *
+     * @param in      the buffer, positioned at the definition
+     * @param codec   the codec for strings and concepts
+     * @param context where the attribute is to live in
+     * @param errors  for appending error messages
+     * @return the attribute, or null if the definition is not complete.
+     */
+    public static Attribute readAttribute(ByteBuffer in, DataObjectCodec codec, Context context, StringBuilder errors) {
+        byte kind = in.get();
+        if(kind == NO_ATTRIBUTE) {return null;}
+        String name = codec.string(in.getInt());
+        String namespace = codec.string(in.getInt());
+        String dataBlock = codec.string(in.getInt());
+        if(kind == OTHER_ATTRIBUTE) {
+            String className = codec.string(in.getInt());
+            if(context.getAttribute(name) == null) {
+                errors.append("Snapshot: attribute ").append(name).append(" of class ").append(className).
+                        append(" is not contained in the snapshot and must be defined again\n");}
+            return null;}
+        boolean functional = in.get() != 0;
+        boolean hashed = in.get() != 0;
+        SetConcept domain = (SetConcept)codec.readConcept(in);
+        Attribute attribute;
+        if(kind == CONCEPT_ATTRIBUTE) {
+            SetConcept range = (SetConcept)codec.readConcept(in);
+            boolean reflexive = in.get() != 0, symmetric = in.get() != 0, transitive = in.get() != 0;
+            attribute = context.getAttribute(name);
+            if(attribute != null) {return inNamespace(attribute,namespace,errors) ? attribute : null;}
+            ConceptAttribute conceptAttribute = new ConceptAttribute(name,context,functional,domain,range);
+            if(reflexive)  {conceptAttribute.setReflexive();}
+            if(symmetric)  {conceptAttribute.setSymmetric();}
+            if(transitive) {conceptAttribute.setTransitive();}
+            attribute = conceptAttribute;}
+        else {
+            String rangeName = codec.string(in.getInt());
+            attribute = context.getAttribute(name);
+            if(attribute != null) {return inNamespace(attribute,namespace,errors) ? attribute : null;}
+            ConcreteType range = (rangeName == null) ? null : (ConcreteType)context.getDataType(rangeName);
+            attribute = (kind == COLUMNAR_ATTRIBUTE) ?
+                    new ColumnarDataAttribute(name,context,domain,range) :
+                    new DataAttribute(name,context,functional,domain,range);}
+        attribute.setHashed(hashed);
+        readItem(attribute,namespace,dataBlock);
+        return attribute;}
+
+    /** inserts the attribute values into the concepts and columns */
+    private static boolean readValues(SectionInput in, DataObjectCodec codec, Context context, ArrayList<Concept> concepts,
+                                      ArrayList<Attribute> attributes, StringBuilder errors) throws IOException {
+        int length = errors.length();
+        IntFunction<Attribute> attribute = index -> get(attributes,index);
+        while(in.hasMore()) {
+            ByteBuffer record = in.record(in.getInt());
+            Concept concept = get(concepts,record.getInt());
+            Attribute attr = get(attributes,record.getInt());
+            AttributeValue attributeValue = codec.readAttributeValue(record,attribute,errors);
+            if(concept == null || attr == null) {continue;}
+            putAttributeValue(concept,attr,attributeValue,context,errors);}
+        return errors.length() == length;}
+
+    /** sets the attribute value of the concept, without inferences.
+     * Unconstrained LOCAL values of columnar attributes are put into the column.
+     *
+     * @param concept        a concept
+     * @param attribute      an attribute
+     * @param attributeValue the new attribute value, or null to remove the concept's values
+     * @param context        where the objects live in
+     * @param errors         for appending error messages
+     */
+    public static void putAttributeValue(Concept concept, Attribute attribute, AttributeValue attributeValue, Context context, StringBuilder errors) {
+        if(attribute instanceof ColumnarDataAttribute) {
+            ((ColumnarDataAttribute)attribute).putAttributeValue(concept,attributeValue,context,errors);
+            return;}
+        if(attributeValue == null || attributeValue.isEmpty()) {context.removeValue(concept,attribute,false);}
+        else {context.putValue(concept,attribute,attributeValue,false);}}
+
+}
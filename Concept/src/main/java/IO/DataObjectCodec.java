@@ -0,0 +1,244 @@
+package IO;
+
+import AbstractObjects.DataObject;
+import Attributes.Attribute;
+import Concepts.AttributeValue;
+import Concepts.Concept;
+import ConcreteDomain.AtomicTypes.BooleanObject;
+import ConcreteDomain.AtomicTypes.ConstantObject;
+import ConcreteDomain.AtomicTypes.FloatObject;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.AtomicTypes.StringObject;
+import MISC.Context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/** This class encodes DataObjects and AttributeValues in a compact binary form.
+ * <br>
+ * Each value starts with a tag byte. Concepts are encoded by their index, strings by their code in a string table.
+ * Integers, floats and booleans are encoded directly.
+ * Other objects of types which are known to the ModelCodec (tables, enumerations, time points etc.) are encoded by the ModelCodec,
+ * all remaining objects by Java serialization, both prefixed with their length.
+ * AttributeValues are encoded by the AttributeValueEncoder, with fixed-width numbers.
+ * The attributes in the constraints are encoded by indices, which are given by the caller.
+ * <br>
+ * A codec is either a writer (which collects the string table) or a reader (which gets the string table).
+ * The numbers are big-endian, as written by DataOutputStream and read by ByteBuffer.
+ */
+public class DataObjectCodec {
+    /** the tags for the different kinds of values */
+    private static final byte NULL = 0, CONCEPT = 1, INTEGER = 2, FLOAT = 3, BOOLEAN = 4, STRING = 5, CONSTANT = 6, SERIALIZED = 7, MODEL = 8;
+
+    /** the writer's string table: maps strings to their codes */
+    private HashMap<String,Integer> stringCodes = null;
+    /** the writer's string table: maps codes to strings */
+    private ArrayList<String> strings = null;
+    /** the writer's mapping of concepts to their indices (negative if there is none) */
+    private ToIntFunction<Concept> conceptIndex = null;
+
+    /** the reader's string table */
+    private String[] stringTable = null;
+    /** the reader's mapping of indices to concepts */
+    private IntFunction<Concept> concepts = null;
+    /** the reader's context */
+    private Context context = null;
+
+    /** creates a codec for writing.
+     *
+     * @param conceptIndex maps concepts to their indices (negative if there is none).
+     */
+    public DataObjectCodec(ToIntFunction<Concept> conceptIndex) {
+        this.conceptIndex = conceptIndex;
+        stringCodes = new HashMap<>();
+        strings = new ArrayList<>();}
+
+    /** creates a codec for reading.
+     *
+     * @param stringTable the string table
+     * @param concepts    maps indices to concepts
+     * @param context     where the values are to live in.
+     */
+    public DataObjectCodec(String[] stringTable, IntFunction<Concept> concepts, Context context) {
+        this.stringTable = stringTable;
+        this.concepts = concepts;
+        this.context = context;}
+
+    /** returns the code of the string in the writer's string table.
+     *
+     * @param string a string or null
+     * @return the string's code, or -1 for null.
+     */
+    public int stringCode(String string) {
+        if(string == null) {return -1;}
+        Integer code = stringCodes.get(string);
+        if(code == null) {
+            code = strings.size();
+            strings.add(string);
+            stringCodes.put(string,code);}
+        return code;}
+
+    /** returns the string for the code from the reader's string table.
+     *
+     * @param code a string code
+     * @return the string, or null if the code is -1.
+     */
+    public String string(int code) {
+        return (code < 0) ? null : stringTable[code];}
+
+    /** writes the writer's string table.
+     *
+     * @param out where to write the table.
+     * @throws IOException if writing fails.
+     */
+    public void writeStrings(DataOutputStream out) throws IOException {
+        out.writeInt(strings.size());
+        for(String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);}}
+
+    /** reads a string table.
+     *
+     * @param in the buffer with the table
+     * @return the string table.
+     */
+    public static String[] readStrings(ByteBuffer in) {
+        String[] table = new String[in.getInt()];
+        byte[] bytes = new byte[64];
+        for(int i = 0; i < table.length; ++i) {
+            int length = in.getInt();
+            if(length > bytes.length) {bytes = new byte[Math.max(length,2*bytes.length)];}
+            in.get(bytes,0,length);
+            table[i] = new String(bytes,0,length,StandardCharsets.UTF_8);}
+        return table;}
+
+    /** writes the value.
+     *
+     * @param out   where to write the value
+     * @param value the value (may be null)
+     * @throws IOException if writing fails or the value cannot be encoded.
+     */
+    public void write(DataOutputStream out, DataObject value) throws IOException {
+        if(value == null) {out.writeByte(NULL); return;}
+        Class clazz = value.getClass();
+        if(value instanceof Concept) {
+            int index = conceptIndex.applyAsInt((Concept)value);
+            if(index < 0) {throw new IOException("Concept " + ((Concept)value).getName() + " is not in the context");}
+            out.writeByte(CONCEPT); out.writeInt(index); return;}
+        if(clazz == IntegerObject.class)  {out.writeByte(INTEGER); out.writeInt(((IntegerObject)value).value); return;}
+        if(clazz == FloatObject.class)    {out.writeByte(FLOAT);   out.writeFloat(((FloatObject)value).value); return;}
+        if(clazz == BooleanObject.class)  {out.writeByte(BOOLEAN); out.writeByte(((BooleanObject)value).value ? 1 : 0); return;}
+        if(clazz == StringObject.class)   {out.writeByte(STRING);  out.writeInt(stringCode((String)value.get())); return;}
+        if(clazz == ConstantObject.class) {out.writeByte(CONSTANT);out.writeInt(stringCode(((ConstantObject)value).value)); return;}
+        if(ModelCodec.isRegistered(clazz)) {
+            byte[] bytes = ModelCodec.toBytes(value);
+            out.writeByte(MODEL);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            return;}
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {objectOut.writeObject(value);}
+        out.writeByte(SERIALIZED);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);}
+
+    /** reads a value.
+     *
+     * @param in the buffer, positioned at the value.
+     * @return the value (may be null)
+     * @throws IOException if the value cannot be decoded.
+     */
+    public DataObject read(ByteBuffer in) throws IOException {
+        byte tag = in.get();
+        switch(tag) {
+            case NULL:     return null;
+            case CONCEPT:  return concepts.apply(in.getInt());
+            case INTEGER:  return new IntegerObject(in.getInt());
+            case FLOAT:    return new FloatObject(in.getFloat());
+            case BOOLEAN:  return (in.get() != 0) ? BooleanObject.trueObject : BooleanObject.falseObject;
+            case STRING:   {String string = string(in.getInt());
+                            return (context == null) ? new StringObject(string) : new StringObject(string,context.stringDictionary);}
+            case CONSTANT: {String string = string(in.getInt());
+                            return (context == null) ? new ConstantObject(string) : ConstantObject.parseString(string,context);}
+            case MODEL:
+                byte[] model = new byte[in.getInt()];
+                in.get(model);
+                StringBuilder errors = new StringBuilder();
+                DataObject value = (DataObject)new ModelCodec.Input(new ByteArrayInputStream(model),context,errors).
+                        setSerialFilter(ModelCodec.Input.trusted).readObject();
+                if(errors.length() != 0) {throw new IOException(errors.toString().trim());}
+                return value;
+            case SERIALIZED:
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                try(ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (DataObject)objectIn.readObject();}
+                catch(ClassNotFoundException ex) {throw new IOException(ex.toString());}}
+        throw new IOException("Unknown value tag " + tag);}
+
+    /** writes a reference to a concept.
+     *
+     * @param out     where to write the reference
+     * @param concept a concept or null
+     * @throws IOException if writing fails.
+     */
+    public void writeConcept(DataOutputStream out, Concept concept) throws IOException {
+        out.writeInt(concept == null ? -1 : Math.max(-1,conceptIndex.applyAsInt(concept)));}
+
+    /** reads a reference to a concept.
+     *
+     * @param in the buffer, positioned at the reference.
+     * @return the concept, or null.
+     */
+    public Concept readConcept(ByteBuffer in) {
+        int index = in.getInt();
+        return (index < 0) ? null : concepts.apply(index);}
+
+    /** writes an attribute value with all its values and constraints.
+     *
+     * @param out            where to write the attribute value
+     * @param attributeValue a non-empty attribute value
+     * @param attributeIndex maps the attributes in the constraints to their indices
+     * @throws IOException if writing fails or a value cannot be encoded.
+     */
+    public void write(DataOutputStream out, AttributeValue attributeValue, ToIntFunction<Attribute> attributeIndex) throws IOException {
+        AttributeValueEncoder.writeAttributeValue(new AttributeValueEncoder.Writer() {
+            public void writeSmall(int value) throws IOException {out.writeByte(value);}
+            public void writeInt(int value) throws IOException {out.writeInt(value);}
+            public void writeValue(DataObject value) throws IOException {write(out,value);}
+            public void writeAttribute(Attribute attribute) throws IOException {out.writeInt(attributeIndex.applyAsInt(attribute));}},
+            attributeValue);}
+
+    /** reads an attribute value.
+     * The constraints are interned in the context's constraint cache.
+     * Constraints with unknown attributes are dropped and reported.
+     *
+     * @param in         the buffer, positioned at the attribute value
+     * @param attributes maps the indices to the attributes
+     * @param errors     for appending error messages
+     * @return the attribute value.
+     * @throws IOException if a value cannot be decoded.
+     */
+    public AttributeValue readAttributeValue(ByteBuffer in, IntFunction<Attribute> attributes, StringBuilder errors) throws IOException {
+        return AttributeValueEncoder.readAttributeValue(new AttributeValueEncoder.Reader() {
+            public int readSmall() {return in.get();}
+            public int readInt() {return in.getInt();}
+            public DataObject readValue() throws IOException {return read(in);}
+            public Attribute readAttribute() {
+                int index = in.getInt();
+                Attribute attribute = (index < 0) ? null : attributes.apply(index);
+                if(attribute == null) {errors.append("Constraint with unknown attribute dropped\n");}
+                return attribute;}},
+            context);}
+}
@@ -0,0 +1,671 @@
+package IO;
+
+import AbstractObjects.DataObject;
+import AbstractObjects.DataType;
+import Attributes.AggregatingAttribute;
+import Attributes.Attribute;
+import Attributes.AttributeValueList;
+import Attributes.ColumnarDataAttribute;
+import Attributes.ConceptAttribute;
+import Attributes.DataAttribute;
+import Concepts.*;
+import ConcreteDomain.AtomicTypes.*;
+import ConcreteDomain.ConcreteType;
+import MISC.Context;
+import TableStructures.TableObject;
+import TableStructures.TableType;
+import Utils.Table;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** This class encodes the objects of the model in a compact binary form. It replaces Java serialization.
+ * <br>
+ * The codec is streaming: an Output writes one object after the other into an OutputStream,
+ * and an Input reads them in the same order from an InputStream.
+ * Each stream has its own name dictionary: the first occurrence of a name (of a type, a concept, an attribute,
+ * a data type or a string value) writes the name itself, all later occurrences only write its number.
+ * Numbers are written as variable-length integers, small numbers need one byte.
+ * <br>
+ * Concepts, attributes and data types are written as references, i.e. by their names.
+ * The Input resolves them in its context, which is given explicitly (Context.currentContext is not used).
+ * Unknown concepts, attributes and data types are reported as errors. Without context, concepts are created outside any context.
+ * Only trusted input, for example a DataCarrier which is to be added to the context,
+ * may create unknown concepts in the context (Input.setCreatingConcepts).
+ * Since the input may come from a remote peer, the lengths of strings and serialized objects are limited by Input.maxLength.
+ * Attributes themselves (for example in a DataCarrier) are written by writeDefinition.
+ * <br>
+ * Each object is written as its type name followed by the data. The types are kept in a registry.
+ * Built in are concepts, attributes, data types, the atomic values, AttributeValues, AttributeValueLists,
+ * TableObjects, DataCarriers, and strings, numbers, booleans and ArrayLists.
+ * Other modules register their own types, for example the network queries.
+ * Objects of unregistered types are written by Java serialization, as a last resort.
+ * An Input rejects them, unless it has been given an ObjectInputFilter for the classes it may deserialize (Input.setSerialFilter).
+ * This is only for trusted input, for example the local storage. Input from the network never deserializes Java objects.
+ */
+public class ModelCodec {
+    /** writes an object's data */
+    @FunctionalInterface
+    public interface Encoder<T> {
+        void write(Output out, T object) throws IOException;}
+
+    /** reads an object's data */
+    @FunctionalInterface
+    public interface Decoder<T> {
+        T read(Input in) throws IOException;}
+
+    /** the encoder and decoder of a type */
+    private static class Codec {
+        final String typeName;
+        final Encoder encoder;
+        final Decoder decoder;
+
+        Codec(String typeName, Encoder encoder, Decoder decoder) {
+            this.typeName = typeName; this.encoder = encoder; this.decoder = decoder;}}
+
+    /** the type name for objects which are written by Java serialization */
+    private static final String SERIALIZED = "java.Serialized";
+
+    /** maps classes to their codecs */
+    private static final ConcurrentHashMap<Class,Codec> codecs = new ConcurrentHashMap<>();
+    /** maps type names to their codecs */
+    private static final ConcurrentHashMap<String,Codec> typeNames = new ConcurrentHashMap<>();
+    /** maps attribute classes to the codecs of their definitions */
+    private static final ConcurrentHashMap<Class,Codec> definitionCodecs = new ConcurrentHashMap<>();
+    /** maps type names to the codecs of attribute definitions */
+    private static final ConcurrentHashMap<String,Codec> definitionTypeNames = new ConcurrentHashMap<>();
+
+    /** registers a type. A type which is registered again replaces the earlier registration.
+     * The codec applies to the class and its subclasses, unless they are registered themselves.
+     *
+     * @param typeName the name which is written into the stream (must be unique)
+     * @param clazz    the class of the objects
+     * @param encoder  writes an object's data
+     * @param decoder  reads the data and returns the object.
+     * @param <T>      the type of the objects.
+     */
+    public static <T> void register(String typeName, Class<T> clazz, Encoder<? super T> encoder, Decoder<? extends T> decoder) {
+        Codec codec = new Codec(typeName,encoder,decoder);
+        codecs.put(clazz,codec);
+        typeNames.put(typeName,codec);}
+
+    /** registers the definitions of an attribute class.
+     * The encoder must write the attribute's name, the decoder creates the attribute without a context.
+     *
+     * @param typeName the name which is written into the stream (must be unique)
+     * @param clazz    the attribute class (subclasses are not included)
+     * @param encoder  writes an attribute's definition
+     * @param decoder  reads the definition and returns a new attribute.
+     * @param <T>      the attribute class.
+     */
+    public static <T extends Attribute> void registerDefinition(String typeName, Class<T> clazz, Encoder<? super T> encoder, Decoder<? extends T> decoder) {
+        Codec codec = new Codec(typeName,encoder,decoder);
+        definitionCodecs.put(clazz,codec);
+        definitionTypeNames.put(typeName,codec);}
+
+    /** finds the codec for the class or its nearest registered superclass
+     *
+     * @param clazz a class
+     * @return the codec, or null if there is none.
+     */
+    private static Codec codecFor(Class clazz) {
+        for(Class c = clazz; c != null; c = c.getSuperclass()) {
+            Codec codec = codecs.get(c);
+            if(codec != null) {return codec;}}
+        return null;}
+
+    /** @param clazz a class
+     * @return true if the objects of the class are not written by Java serialization. */
+    public static boolean isRegistered(Class clazz) {return codecFor(clazz) != null;}
+
+
+    /** This class writes objects into a stream.
+     * The written objects can only be read by a single Input, in the same order.
+     */
+    public static class Output {
+        /** the stream */
+        private final DataOutputStream out;
+        /** the stream's name dictionary: maps the names to their numbers */
+        private final HashMap<String,Integer> names = new HashMap<>();
+
+        /** creates an Output for the stream. The Output buffers the data until it is flushed.
+         *
+         * @param stream where to write the objects.
+         */
+        public Output(OutputStream stream) {
+            out = new DataOutputStream(new BufferedOutputStream(stream));}
+
+        /** writes an object.
+         *
+         * @param object any object, or null
+         * @throws IOException if writing fails, or the object can neither be encoded nor serialized.
+         */
+        public void writeObject(Object object) throws IOException {
+            if(object == null) {writeName(null); return;}
+            Codec codec = codecFor(object.getClass());
+            if(codec == null) {writeSerialized(object); return;}
+            writeName(codec.typeName);
+            codec.encoder.write(this,object);}
+
+        /** writes an object by Java serialization */
+        private void writeSerialized(Object object) throws IOException {
+            if(!(object instanceof Serializable)) {throw new NotSerializableException(object.getClass().getName());}
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try(ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {objectOut.writeObject(object);}
+            writeName(SERIALIZED);
+            writeUnsigned(bytes.size());
+            bytes.writeTo(out);}
+
+        /** writes the definition of an attribute, i.e. the attribute itself.
+         *
+         * @param attribute an attribute, or null
+         * @throws IOException if writing fails or the attribute can not be encoded.
+         */
+        public void writeDefinition(Attribute attribute) throws IOException {
+            if(attribute == null) {writeName(null); return;}
+            Codec codec = definitionCodecs.get(attribute.getClass());
+            if(codec == null) {writeSerialized(attribute); return;}
+            writeName(codec.typeName);
+            codec.encoder.write(this,attribute);}
+
+        /** writes a name by the name dictionary.
+         *
+         * @param name a name, or null.
+         * @throws IOException if writing fails.
+         */
+        public void writeName(String name) throws IOException {
+            if(name == null) {writeUnsigned(0); return;}
+            Integer code = names.get(name);
+            if(code != null) {writeUnsigned(code + 2); return;}
+            names.put(name,names.size());
+            writeUnsigned(1);
+            writeBytes(name);}
+
+        /** writes a string without the name dictionary (for texts which occur only once).
+         *
+         * @param string a string, or null.
+         * @throws IOException if writing fails.
+         */
+        public void writeString(String string) throws IOException {
+            if(string == null) {writeUnsigned(0); return;}
+            writeUnsigned(1);
+            writeBytes(string);}
+
+        /** writes the string's UTF-8 bytes, prefixed with their number */
+        private void writeBytes(String string) throws IOException {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length);
+            out.write(bytes);}
+
+        /** writes a reference to a concept.
+         *
+         * @param concept a concept, or null
+         * @throws IOException if writing fails.
+         */
+        public void writeConcept(Concept concept) throws IOException {
+            if(concept == null) {writeName(null); return;}
+            writeName(concept.getName());
+            out.writeBoolean(concept.isIndividual());}
+
+        /** writes a reference to an attribute.
+         *
+         * @param attribute an attribute, or null
+         * @throws IOException if writing fails.
+         */
+        public void writeAttribute(Attribute attribute) throws IOException {
+            writeName(attribute == null ? null : attribute.getName());}
+
+        /** writes a reference to a data type.
+         *
+         * @param dataType a data type, or null
+         * @throws IOException if writing fails.
+         */
+        public void writeDataType(DataType dataType) throws IOException {
+            writeName(dataType == null ? null : dataType.applicationName);}
+
+        /** writes an int, small numbers (also negative ones) in one byte.
+         *
+         * @param value an int
+         * @throws IOException if writing fails.
+         */
+        public void writeInt(int value) throws IOException {
+            writeUnsigned(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);}
+
+        /** writes a long, small numbers (also negative ones) in one byte.
+         *
+         * @param value a long
+         * @throws IOException if writing fails.
+         */
+        public void writeLong(long value) throws IOException {
+            writeUnsigned((value << 1) ^ (value >> 63));}
+
+        /** writes the number in groups of seven bits, lowest group first */
+        private void writeUnsigned(long value) throws IOException {
+            while((value & ~0x7FL) != 0) {
+                out.writeByte((int)((value & 0x7F) | 0x80));
+                value >>>= 7;}
+            out.writeByte((int)value);}
+
+        /** @param value a boolean
+         * @throws IOException if writing fails. */
+        public void writeBoolean(boolean value) throws IOException {out.writeBoolean(value);}
+
+        /** @param value a float
+         * @throws IOException if writing fails. */
+        public void writeFloat(float value) throws IOException {out.writeFloat(value);}
+
+        /** @param value a double
+         * @throws IOException if writing fails. */
+        public void writeDouble(double value) throws IOException {out.writeDouble(value);}
+
+        /** writes the buffered data into the stream.
+         *
+         * @throws IOException if writing fails.
+         */
+        public void flush() throws IOException {out.flush();}
+    }
+
+
+    /** This class reads objects from a stream which has been written by an Output.
+     */
+    public static class Input {
+        /** the stream */
+        private final DataInputStream in;
+        /** the stream's name dictionary: the names at their numbers */
+        private final ArrayList<String> names = new ArrayList<>();
+        /** where the concepts, attributes and data types are looked up (may be null) */
+        public final Context context;
+        /** collects the messages about unknown concepts, attributes and data types */
+        public final StringBuilder errors;
+        /** the maximum number of bytes of a name, string or serialized object, and the maximum number of table columns */
+        public static int maxLength = 1 << 24;
+        /** if true, unknown concepts are created in the context */
+        private boolean creatingConcepts = false;
+        /** decides which classes may be deserialized (null: no Java-serialized objects are accepted) */
+        private ObjectInputFilter serialFilter = null;
+        /** a filter which lets trusted input deserialize all classes */
+        public static final ObjectInputFilter trusted = info -> ObjectInputFilter.Status.ALLOWED;
+
+        /** creates an Input for the stream.
+         * The Input buffers the data. Therefore nobody else should read from the stream.
+         * Without context, the concepts are created outside any context, and attributes and data types cannot be read.
+         *
+         * @param stream  where to read the objects from
+         * @param context where the objects are to live in (may be null)
+         * @param errors  for appending error messages.
+         */
+        public Input(InputStream stream, Context context, StringBuilder errors) {
+            in = new DataInputStream(new BufferedInputStream(stream));
+            this.context = context;
+            this.errors = errors;}
+
+        /** lets the input create unknown concepts in its context, instead of reporting them as errors.
+         * This is only for trusted input; input from the network must not change the context.
+         *
+         * @param creating true if unknown concepts are to be created
+         * @return this input.
+         */
+        public Input setCreatingConcepts(boolean creating) {
+            creatingConcepts = creating;
+            return this;}
+
+        /** lets the input read Java-serialized objects, whose classes are checked by the filter.
+         * Without filter, Java-serialized objects are rejected.
+         * This is only for trusted input; input from the network must not deserialize arbitrary classes.
+         *
+         * @param filter decides which classes may be deserialized, for example Input.trusted (null: none)
+         * @return this input.
+         */
+        public Input setSerialFilter(ObjectInputFilter filter) {
+            serialFilter = filter;
+            return this;}
+
+        /** reads an object.
+         *
+         * @return the object, or null.
+         * @throws IOException if reading fails, the object's type is unknown, or a Java-serialized object is not accepted.
+         */
+        public Object readObject() throws IOException {
+            String typeName = readName();
+            if(typeName == null) {return null;}
+            if(typeName.equals(SERIALIZED)) {return readSerialized();}
+            Codec codec = typeNames.get(typeName);
+            if(codec == null) {throw new IOException("ModelCodec: unknown type " + typeName);}
+            return codec.decoder.read(this);}
+
+        /** reads an object which has been written by Java serialization, if the serial filter accepts its classes */
+        private Object readSerialized() throws IOException {
+            if(serialFilter == null) {throw new IOException("ModelCodec: Java-serialized objects are not accepted from this input");}
+            byte[] bytes = new byte[readLength()];
+            in.readFully(bytes);
+            try(ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                objectIn.setObjectInputFilter(serialFilter);
+                return objectIn.readObject();}
+            catch(ClassNotFoundException ex) {throw new IOException(ex.toString());}}
+
+        /** reads the definition of an attribute.
+         * The attribute is not put into the context.
+         *
+         * @return the new attribute, or null.
+         * @throws IOException if reading fails, the definition's type is unknown, or a Java-serialized attribute is not accepted.
+         */
+        public Attribute readDefinition() throws IOException {
+            String typeName = readName();
+            if(typeName == null) {return null;}
+            if(typeName.equals(SERIALIZED)) {return (Attribute)readSerialized();}
+            Codec codec = definitionTypeNames.get(typeName);
+            if(codec == null) {throw new IOException("ModelCodec: unknown attribute type " + typeName);}
+            return (Attribute)codec.decoder.read(this);}
+
+        /** reads a name which has been written by writeName.
+         *
+         * @return the name, or null.
+         * @throws IOException if reading fails.
+         */
+        public String readName() throws IOException {
+            long code = readUnsigned();
+            if(code == 0) {return null;}
+            if(code > 1) {
+                if(code - 2 >= names.size()) {throw new IOException("ModelCodec: unknown name number " + (code - 2));}
+                return names.get((int)(code - 2));}
+            String name = readBytes();
+            names.add(name);
+            return name;}
+
+        /** reads a string which has been written by writeString.
+         *
+         * @return the string, or null.
+         * @throws IOException if reading fails.
+         */
+        public String readString() throws IOException {
+            return (readUnsigned() == 0) ? null : readBytes();}
+
+        /** reads a UTF-8 string, prefixed with the number of its bytes */
+        private String readBytes() throws IOException {
+            byte[] bytes = new byte[readLength()];
+            in.readFully(bytes);
+            return new String(bytes,StandardCharsets.UTF_8);}
+
+        /** reads a length and checks it against maxLength.
+         *
+         * @return the length.
+         * @throws IOException if reading fails or the length exceeds maxLength.
+         */
+        private int readLength() throws IOException {
+            long length = readUnsigned();
+            if(length > maxLength) {throw new IOException("ModelCodec: length " + length + " exceeds the limit " + maxLength);}
+            return (int)length;}
+
+        /** reads a reference to a concept.
+         * Unknown concepts are reported as errors, unless the input creates them.
+         * Without context, the concept is created outside any context.
+         *
+         * @return the concept, or null if it is null or unknown.
+         * @throws IOException if reading fails.
+         */
+        public Concept readConcept() throws IOException {
+            String name = readName();
+            if(name == null) {return null;}
+            boolean individual = in.readBoolean();
+            Concept concept = (context == null) ? null : context.getConcept(name);
+            if(concept != null) {return concept;}
+            if(context == null || creatingConcepts) {return individual ? new IndividualConcept(name,context) : new SetConcept(name,context);}
+            errors.append("ModelCodec: unknown concept ").append(name).append("\n");
+            return null;}
+
+        /** reads a reference to an attribute.
+         *
+         * @return the attribute, or null if it is null or unknown.
+         * @throws IOException if reading fails.
+         */
+        public Attribute readAttribute() throws IOException {
+            String name = readName();
+            if(name == null) {return null;}
+            Attribute attribute = (context == null) ? null : context.getAttribute(name);
+            if(attribute == null) {errors.append("ModelCodec: unknown attribute ").append(name).append("\n");}
+            return attribute;}
+
+        /** reads a reference to a data type.
+         *
+         * @return the data type, or null if it is null or unknown.
+         * @throws IOException if reading fails.
+         */
+        public DataType readDataType() throws IOException {
+            String name = readName();
+            if(name == null) {return null;}
+            DataType dataType = (context == null) ? null : context.getDataType(name);
+            if(dataType == null) {errors.append("ModelCodec: unknown data type ").append(name).append("\n");}
+            return dataType;}
+
+        /** @return the int
+         * @throws IOException if reading fails. */
+        public int readInt() throws IOException {
+            long value = readUnsigned();
+            return (int)(value >>> 1) ^ -(int)(value & 1);}
+
+        /** @return the long
+         * @throws IOException if reading fails. */
+        public long readLong() throws IOException {
+            long value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);}
+
+        /** reads a number in groups of seven bits */
+        private long readUnsigned() throws IOException {
+            long value = 0;
+            for(int shift = 0; shift < 64; shift += 7) {
+                byte b = in.readByte();
+                value |= (long)(b & 0x7F) << shift;
+                if(b >= 0) {return value;}}
+            throw new IOException("ModelCodec: malformed number");}
+
+        /** @return the boolean
+         * @throws IOException if reading fails. */
+        public boolean readBoolean() throws IOException {return in.readBoolean();}
+
+        /** @return the float
+         * @throws IOException if reading fails. */
+        public float readFloat() throws IOException {return in.readFloat();}
+
+        /** @return the double
+         * @throws IOException if reading fails. */
+        public double readDouble() throws IOException {return in.readDouble();}
+    }
+
+
+    /** encodes a single object.
+     *
+     * @param object any object, or null
+     * @return the bytes.
+     * @throws IOException if the object can not be encoded.
+     */
+    public static byte[] toBytes(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Output out = new Output(bytes);
+        out.writeObject(object);
+        out.flush();
+        return bytes.toByteArray();}
+
+    /** decodes a single object.
+     *
+     * @param bytes   the bytes of an encoded object
+     * @param context where the object is to live in
+     * @param errors  for appending error messages
+     * @return the object.
+     * @throws IOException if the object can not be decoded.
+     */
+    public static Object fromBytes(byte[] bytes, Context context, StringBuilder errors) throws IOException {
+        return new Input(new ByteArrayInputStream(bytes),context,errors).readObject();}
+
+    /** encodes a single object as Base64 string, as Utilities.objectToString does with Java serialization.
+     *
+     * @param object any object, or null
+     * @return the string representation of the object.
+     * @throws IOException if the object can not be encoded.
+     */
+    public static String objectToString(Object object) throws IOException {
+        return Base64.getEncoder().encodeToString(toBytes(object));}
+
+    /** decodes a string which has been generated by objectToString.
+     *
+     * @param string  the string representation of an object
+     * @param context where the object is to live in
+     * @param errors  for appending error messages
+     * @return the object.
+     * @throws IOException if the object can not be decoded.
+     */
+    public static Object stringToObject(String string, Context context, StringBuilder errors) throws IOException {
+        return fromBytes(Base64.getDecoder().decode(string),context,errors);}
+
+
+    /** @return a writer which encodes the parts of AttributeValues into the output */
+    private static AttributeValueEncoder.Writer writer(Output out) {
+        return new AttributeValueEncoder.Writer() {
+            public void writeSmall(int value) throws IOException {out.writeInt(value);}
+            public void writeInt(int value) throws IOException {out.writeInt(value);}
+            public void writeValue(DataObject value) throws IOException {out.writeObject(value);}
+            public void writeAttribute(Attribute attribute) throws IOException {out.writeAttribute(attribute);}};}
+
+    /** @return a reader which decodes the parts of AttributeValues from the input */
+    private static AttributeValueEncoder.Reader reader(Input in) {
+        return new AttributeValueEncoder.Reader() {
+            public int readSmall() throws IOException {return in.readInt();}
+            public int readInt() throws IOException {return in.readInt();}
+            public DataObject readValue() throws IOException {
+                Object value = in.readObject();
+                if(value != null && !(value instanceof DataObject)) {throw new IOException("ModelCodec: " + value.getClass().getName() + " is no DataObject");}
+                return (DataObject)value;}
+            public Attribute readAttribute() throws IOException {return in.readAttribute();}};}
+
+    /** writes a table with its type */
+    private static void writeTable(Output out, TableObject tableObject) throws IOException {
+        out.writeDataType(tableObject.tableType);
+        Table<DataObject> table = (Table<DataObject>)tableObject.get();
+        int rows = table.nRows(), columns = table.nColumns();
+        out.writeInt(rows);
+        out.writeInt(columns);
+        for(int row = 0; row < rows; ++row) {
+            for(int column = 0; column < columns; ++column) {out.writeObject(table.getItem(row,column));}}}
+
+    /** reads a table. If its type is unknown, the table is skipped and null is returned. */
+    private static TableObject readTable(Input in) throws IOException {
+        DataType tableType = in.readDataType();
+        int rows = in.readInt(), columns = in.readInt();
+        if(columns < 0 || columns > Input.maxLength) {throw new IOException("ModelCodec: invalid number of columns " + columns);}
+        Table<DataObject> table = new Table<>(columns);
+        for(int row = 0; row < rows; ++row) {
+            DataObject[] items = new DataObject[columns];
+            for(int column = 0; column < columns; ++column) {items[column] = (DataObject)in.readObject();}
+            table.add(items);}
+        return (tableType instanceof TableType) ? new TableObject((TableType)tableType,table) : null;}
+
+    /** writes the objects of a list */
+    private static void writeList(Output out, ArrayList list) throws IOException {
+        out.writeInt(list.size());
+        for(Object item : list) {out.writeObject(item);}}
+
+    /** reads the objects of a list */
+    private static ArrayList readList(Input in) throws IOException {
+        int size = in.readInt();
+        ArrayList list = new ArrayList(Math.max(0,Math.min(size,1024)));  // the size comes from the peer
+        for(int i = 0; i < size; ++i) {list.add(in.readObject());}
+        return list;}
+
+    /** writes the definition of a DataAttribute or ColumnarDataAttribute */
+    private static void writeDataAttribute(Output out, DataAttribute attribute) throws IOException {
+        out.writeName(attribute.getName());
+        out.writeConcept(attribute.getDomain());
+        out.writeDataType(attribute.getRangeType());
+        out.writeBoolean(attribute.isFunctional());
+        out.writeBoolean(attribute.isHashed());}
+
+    /** reads the definition of a DataAttribute or ColumnarDataAttribute */
+    private static DataAttribute readDataAttribute(Input in, boolean columnar) throws IOException {
+        String name = in.readName();
+        SetConcept domain = (SetConcept)in.readConcept();
+        ConcreteType range = (ConcreteType)in.readDataType();
+        boolean functional = in.readBoolean();
+        boolean hashed = in.readBoolean();
+        DataAttribute attribute = columnar ? new ColumnarDataAttribute(name,null,domain,range) : new DataAttribute(name,null,functional,domain,range);
+        attribute.setHashed(hashed);
+        return attribute;}
+
+    /** writes the definition of a ConceptAttribute */
+    private static void writeConceptAttribute(Output out, ConceptAttribute attribute) throws IOException {
+        out.writeName(attribute.getName());
+        out.writeConcept(attribute.getDomain());
+        out.writeConcept(attribute.getRangeConcept());
+        out.writeBoolean(attribute.isFunctional());
+        out.writeBoolean(attribute.isTransitive());
+        out.writeBoolean(attribute.isSymmetric());
+        out.writeBoolean(attribute.isReflexive());
+        out.writeAttribute(attribute.getInverse());
+        out.writeBoolean(attribute.isHashed());}
+
+    /** reads the definition of a ConceptAttribute. An unknown inverse attribute is created in the context. */
+    private static ConceptAttribute readConceptAttribute(Input in) throws IOException {
+        String name = in.readName();
+        SetConcept domain = (SetConcept)in.readConcept();
+        SetConcept range = (SetConcept)in.readConcept();
+        boolean functional = in.readBoolean();
+        boolean transitive = in.readBoolean(), symmetric = in.readBoolean(), reflexive = in.readBoolean();
+        String inverseName = in.readName();
+        boolean hashed = in.readBoolean();
+        ConceptAttribute attribute = new ConceptAttribute(name,null,functional,domain,range);
+        if(transitive) {attribute.setTransitive();}
+        if(symmetric)  {attribute.setSymmetric();}
+        if(reflexive)  {attribute.setReflexive();}
+        attribute.setHashed(hashed);
+        if(inverseName != null && in.context != null) {
+            Attribute inverse = in.context.getAttribute(inverseName);
+            attribute.setInverse(inverse == null ? inverseName : inverse,in.context,in.errors);}
+        return attribute;}
+
+    static {
+        register("Concept",     Concept.class,   (out,concept)   -> out.writeConcept(concept),     Input::readConcept);
+        register("Attribute",   Attribute.class, (out,attribute) -> out.writeAttribute(attribute), Input::readAttribute);
+        register("DataType",    DataType.class,  (out,dataType)  -> out.writeDataType(dataType),   Input::readDataType);
+
+        register("Integer",     IntegerObject.class, (out,value) -> out.writeInt(value.value),   in -> new IntegerObject(in.readInt()));
+        register("Float",       FloatObject.class,   (out,value) -> out.writeFloat(value.value), in -> new FloatObject(in.readFloat()));
+        register("Boolean",     BooleanObject.class, (out,value) -> out.writeBoolean(value.value),
+                in -> in.readBoolean() ? BooleanObject.trueObject : BooleanObject.falseObject);
+        register("String",      StringObject.class,  (out,value) -> out.writeName((String)value.get()),
+                in -> {String value = in.readName();
+                       return (in.context == null) ? new StringObject(value) : new StringObject(value,in.context.stringDictionary);});
+        register("Constant",    ConstantObject.class, (out,value) -> out.writeName(value.value),
+                in -> {String value = in.readName();
+                       return (in.context == null) ? new ConstantObject(value) : (ConstantObject)ConstantObject.parseString(value,in.context);});
+        register("Enumeration", EnumerationObject.class,
+                (out,value) -> {out.writeName(value.applicationName); out.writeName(value.value);},
+                in -> {String type = in.readName(); return new EnumerationObject(in.readName(),type);});
+        register("TimePoint",   AbsoluteTimePoint.class, (out,value) -> out.writeName(value.get().toString()),
+                in -> new AbsoluteTimePoint(LocalDateTime.parse(in.readName())));
+        register("Table",       TableObject.class, ModelCodec::writeTable, ModelCodec::readTable);
+
+        register("AttributeValue", AttributeValue.class,
+                (out,value) -> AttributeValueEncoder.writeAttributeValue(writer(out),value),
+                in -> AttributeValueEncoder.readAttributeValue(reader(in),in.context));
+        register("Constraints",    AttributeValueList.class,
+                (out,constraints) -> AttributeValueEncoder.writeConstraints(writer(out),constraints),
+                in -> AttributeValueEncoder.readConstraints(reader(in)));
+        register("DataCarrier",    DataCarrier.class,        (out,carrier) -> carrier.write(out), DataCarrier::read);
+
+        register("java.String",  String.class,    Output::writeString, Input::readString);
+        register("java.Integer", Integer.class,   Output::writeInt,    Input::readInt);
+        register("java.Long",    Long.class,      Output::writeLong,   Input::readLong);
+        register("java.Float",   Float.class,     Output::writeFloat,  Input::readFloat);
+        register("java.Double",  Double.class,    Output::writeDouble, Input::readDouble);
+        register("java.Boolean", Boolean.class,   Output::writeBoolean,Input::readBoolean);
+        register("java.List",    ArrayList.class, ModelCodec::writeList, ModelCodec::readList);
+
+        registerDefinition("DataAttribute",         DataAttribute.class,         ModelCodec::writeDataAttribute, in -> readDataAttribute(in,false));
+        registerDefinition("ColumnarDataAttribute", ColumnarDataAttribute.class, ModelCodec::writeDataAttribute, in -> (ColumnarDataAttribute)readDataAttribute(in,true));
+        registerDefinition("ConceptAttribute",      ConceptAttribute.class,      ModelCodec::writeConceptAttribute, ModelCodec::readConceptAttribute);
+        registerDefinition("AggregatingAttribute",  AggregatingAttribute.class,
+                (out,attribute) -> attribute.writeDefinition(out), AggregatingAttribute::readDefinition);}
+}
@@ -0,0 +1,186 @@
+package MISC;
+
+import AbstractObjects.DataObject;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** This class records the changes of a context in a single ordered log, for mirroring the context elsewhere.
+ * <br>
+ * Recorded are the registration and removal of constants, concepts, attributes and data types,
+ * the insertion and removal of edges in the concept and attribute hierarchies,
+ * the removal of nodes from the hierarchies, and the addition and removal of attribute values.
+ * Each change is recorded after it has been applied to the context, under the lock which orders it:
+ * the registrations under the context's lock, the edges under the hierarchy's lock,
+ * and the attribute values under the concept's lock (see Context.change(concept,change)).
+ * Therefore the records of the changes which depend on each other are in the order of the changes.
+ * Each change gets a sequence number. The numbers start with 0 and increase by 1 without gaps.
+ * <br>
+ * The changes are kept in a ring buffer of fixed capacity; the oldest changes are overwritten.
+ * Recording a change costs an atomic increment and an array store; no lock is taken,
+ * unless some consumer waits for new changes.
+ * Consumers tail the log by read, starting at the sequence number after the last change they have seen.
+ * A consumer which falls more than the capacity behind loses changes. It notices this by the gap in the sequence numbers.
+ * <br>
+ * The log is enabled by Context.enableChangeLog.
+ */
+public class ChangeLog {
+    /** the kinds of changes */
+    public enum Kind {
+        /** a constant has been registered (ADD) or removed (REMOVE) */
+        CONSTANT,
+        /** a concept has been registered (ADD) or removed (REMOVE) */
+        CONCEPT,
+        /** an attribute has been registered (ADD) or removed (REMOVE) */
+        ATTRIBUTE,
+        /** a data type has been registered (ADD) or removed (REMOVE) */
+        DATATYPE,
+        /** an edge in the concept hierarchy has been inserted (ADD) or removed (REMOVE) */
+        SUBCONCEPT,
+        /** an edge in the attribute hierarchy has been inserted (ADD) or removed (REMOVE) */
+        SUBATTRIBUTE,
+        /** a concept has been removed from the concept hierarchy together with all its edges (REMOVE) */
+        CONCEPT_NODE,
+        /** an attribute has been removed from the attribute hierarchy together with all its edges (REMOVE) */
+        ATTRIBUTE_NODE,
+        /** an attribute value has been added (ADD) or removed (REMOVE),
+         * or the values have been replaced, added with constraints or bulk-loaded (CHANGE).
+         * A REMOVE without value means that all the concept's values of the attribute have been removed. */
+        VALUE}
+
+    /** a recorded change */
+    public static class Change {
+        /** the change's sequence number */
+        public final long sequence;
+        /** the kind of the change */
+        public final Kind kind;
+        /** ADD, REMOVE or CHANGE */
+        public final Activity activity;
+        /** the changed item, the superconcept or superattribute of an edge, or the concept of a value */
+        public final Object item;
+        /** the subconcept or subattribute of an edge, or the attribute of a value (otherwise null) */
+        public final Object other;
+        /** the added or removed value (null if it is not known) */
+        public final DataObject value;
+
+        Change(long sequence, Kind kind, Activity activity, Object item, Object other, DataObject value) {
+            this.sequence = sequence; this.kind = kind; this.activity = activity;
+            this.item = item; this.other = other; this.value = value;}
+
+        @Override
+        public String toString() {
+            return sequence + " " + kind + " " + activity + " " + item + ((other == null) ? "" : " " + other) + ((value == null) ? "" : " " + value);}}
+
+    /** the ring buffer: the change with sequence number s is at position s &amp; mask */
+    private final AtomicReferenceArray<Change> buffer;
+    /** capacity - 1 */
+    private final int mask;
+    /** the sequence number for the next change */
+    private final AtomicLong nextSequence = new AtomicLong(0);
+    /** the number of consumers which wait for new changes */
+    private volatile int waiting = 0;
+
+    /** creates a change log.
+     *
+     * @param capacity the number of changes which are kept (is rounded up to a power of two)
+     */
+    public ChangeLog(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2,capacity - 1)) << 1;
+        buffer = new AtomicReferenceArray<>(size);
+        mask = size - 1;}
+
+    /** records a change and wakes the waiting consumers.
+     *
+     * @param kind     the kind of the change
+     * @param activity ADD, REMOVE or CHANGE
+     * @param item     the changed item
+     * @param other    the second item (for edges and values), otherwise null
+     * @param value    the added or removed value, otherwise null
+     * @return the change's sequence number.
+     */
+    public long record(Kind kind, Activity activity, Object item, Object other, DataObject value) {
+        long sequence = nextSequence.getAndIncrement();
+        buffer.set((int)(sequence & mask),new Change(sequence,kind,activity,item,other,value));
+        if(waiting > 0) {synchronized(this) {notifyAll();}}
+        return sequence;}
+
+    /** records the insertion of many edges into a hierarchy as consecutive changes, and wakes the waiting consumers once.
+     *
+     * @param kind  SUBCONCEPT or SUBATTRIBUTE
+     * @param pairs the superconcepts or superattributes at the even positions, their new subnodes at the odd positions
+     * @return the sequence number of the first change.
+     */
+    public long recordEdges(Kind kind, List<?> pairs) {
+        int size = pairs.size() / 2;
+        long first = nextSequence.getAndAdd(size);
+        for(int i = 0; i < size; ++i) {
+            long sequence = first + i;
+            buffer.set((int)(sequence & mask),new Change(sequence,kind,Activity.ADD,pairs.get(2*i),pairs.get(2*i+1),null));}
+        if(waiting > 0) {synchronized(this) {notifyAll();}}
+        return first;}
+
+    /** copies the changes from the given sequence number on into the list.
+     * The copying stops at the first change which has not yet been completely recorded.
+     * If the change with the given number has already been overwritten, the copying starts with the oldest change in the buffer.
+     *
+     * @param from    the sequence number of the first change to be copied
+     * @param max     the maximum number of changes to be copied
+     * @param changes where the changes are appended
+     * @return the sequence number of the next change to be read.
+     */
+    public long read(long from, int max, List<Change> changes) {
+        long sequence = Math.max(from,getOldestSequence());
+        int n = 0;
+        while(n < max) {
+            Change change = buffer.get((int)(sequence & mask));
+            if(change == null || change.sequence < sequence) {break;}               // not yet recorded
+            if(change.sequence > sequence) {sequence = getOldestSequence(); continue;} // overwritten meanwhile
+            changes.add(change);
+            ++n; ++sequence;}
+        return sequence;}
+
+    /** waits until the change with the given sequence number has been recorded.
+     *
+     * @param sequence a sequence number
+     * @param timeout  the maximum waiting time in milliseconds (0 means no limit)
+     * @return true if the change has been recorded, false at a timeout.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public boolean await(long sequence, long timeout) throws InterruptedException {
+        if(isRecorded(sequence)) {return true;}
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized(this) {
+            ++waiting;
+            try{
+                while(!isRecorded(sequence)) {
+                    if(timeout == 0) {wait(); continue;}
+                    long rest = deadline - System.currentTimeMillis();
+                    if(rest <= 0) {return false;}
+                    wait(rest);}
+                return true;}
+            finally{--waiting;}}}
+
+    /** checks whether the change with the given sequence number has been recorded completely (it may be overwritten already).
+     *
+     * @param sequence a sequence number
+     * @return true if the change has been recorded.
+     */
+    private boolean isRecorded(long sequence) {
+        if(sequence >= nextSequence.get()) {return false;}
+        Change change = buffer.get((int)(sequence & mask));
+        return change != null && change.sequence >= sequence;}
+
+    /** @return the sequence number which the next change gets. */
+    public long getNextSequence() {return nextSequence.get();}
+
+    /** @return the sequence number of the oldest change which is still in the buffer. */
+    public long getOldestSequence() {return Math.max(0,nextSequence.get() - buffer.length());}
+
+    /** @return the number of changes which are kept. */
+    public int getCapacity() {return buffer.length();}
+
+    @Override
+    public String toString() {
+        return "ChangeLog with " + nextSequence.get() + " changes, capacity " + buffer.length();}
+}
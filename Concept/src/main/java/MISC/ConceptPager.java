@@ -0,0 +1,288 @@
+package MISC;
+
+import Attributes.Attribute;
+import Concepts.AttributeValue;
+import Concepts.Concept;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** This class keeps a bounded number of concepts with their attribute values on the heap.
+ * <br>
+ * The concepts themselves (names, ids, hierarchy nodes) stay in the context.
+ * Only their attribute values are paged: the values of concepts which have not been used recently are evicted
+ * and written back to a ConceptStorage if they have been changed.
+ * When an evicted concept's values are accessed, they are loaded again.
+ * <br>
+ * The victims are chosen by the clock (second chance) algorithm.
+ * Context.getConcept sets the concept's reference bit, without taking a lock.
+ * The resident concepts are kept in the order of their loading. Eviction examines them from the oldest on:
+ * a concept whose reference bit is set gets a second chance: the bit is cleared and the concept goes to the back.
+ * Pinned concepts are never evicted.
+ * <br>
+ * Besides the capacity, trimOnLowMemory lets the pager evict concepts when the heap is short of memory.
+ * <br>
+ * Eviction and changes exclude each other: Context.change(concept,change) pins the concept during the change,
+ * and pin waits while the concept is being evicted.
+ * The victims are chosen under the pager's lock; they are written back and evicted under their own locks,
+ * such that the storage is not accessed while the pager is locked.
+ */
+public class ConceptPager {
+    /** the context whose concepts are paged */
+    private final Context context;
+    /** the persistent store for the evicted values */
+    private final ConceptStorage storage;
+    /** the maximum number of resident unpinned concepts */
+    private int capacity;
+
+    /** the resident concepts in the clock's order (the oldest first) */
+    private final LinkedHashMap<Concept,Boolean> resident = new LinkedHashMap<>();
+    /** maps the pinned concepts to their pin counts */
+    private final HashMap<Concept,Integer> pinned = new HashMap<>();
+    /** the concepts which are being written back and evicted */
+    private final HashSet<Concept> evicting = new HashSet<>();
+    /** the resident concepts whose values differ from the stored values */
+    private final Set<Concept> dirty = ConcurrentHashMap.newKeySet();
+    /** collects the errors of the storage */
+    private final StringBuilder errors = new StringBuilder();
+
+    /** statistics */
+    private long loads = 0, evictions = 0, writes = 0;
+
+    /** trims the pager when the heap is short of memory (null if this is not enabled) */
+    private NotificationListener memoryListener = null;
+
+    /** creates a pager. Context.enablePaging is to be used for creating pagers.
+     *
+     * @param context  the context whose concepts are paged
+     * @param storage  the persistent store
+     * @param capacity the maximum number of resident concepts (at least 1)
+     */
+    public ConceptPager(Context context, ConceptStorage storage, int capacity) {
+        this.context = context;
+        this.storage = storage;
+        this.capacity = Math.max(1,capacity);}
+
+    /** puts a new concept under the control of the pager.
+     *
+     * @param concept a concept of the context
+     */
+    public void register(Concept concept) {
+        synchronized (this) {
+            concept.setPager(this);
+            if(concept.getResidentValues() == null) {return;}
+            resident.put(concept,Boolean.TRUE);
+            if(concept.hasAttributeValues()) {dirty.add(concept);}}
+        evict();}
+
+    /** marks the concept as recently used, by setting its reference bit. No lock is taken.
+     *
+     * @param concept a concept
+     */
+    public void touch(Concept concept) {concept.markUsed();}
+
+    /** records that the concept's values have been changed
+     *
+     * @param concept a concept
+     */
+    public void changed(Concept concept) {dirty.add(concept);}
+
+    /** loads the concept's values from the storage and makes the concept resident.
+     * The storage is read without the pager's lock; if two threads load the same concept, the first values win.
+     *
+     * @param concept an evicted concept
+     * @return the concept's attribute values.
+     */
+    public HashMap<Attribute,AttributeValue> load(Concept concept) {
+        HashMap<Attribute,AttributeValue> values = concept.getResidentValues();
+        if(values != null) {return values;}
+        StringBuilder loadErrors = new StringBuilder();
+        HashMap<Attribute,AttributeValue> loaded = storage.load(concept,context,loadErrors);
+        synchronized (this) {
+            errors.append(loadErrors);
+            values = concept.getResidentValues();
+            if(values == null) {
+                if(loaded == null) {
+                    errors.append("Pager: the values of ").append(concept.getName()).append(" could not be loaded\n");
+                    loaded = new HashMap<>();}
+                ++loads;
+                values = loaded;
+                concept.setResidentValues(values);
+                resident.put(concept,Boolean.TRUE);}}
+        evict();
+        return values;}
+
+    /** evicts unpinned concepts until there are at most capacity resident concepts. */
+    private void evict() {trim(getCapacity());}
+
+    /** evicts unpinned concepts which have not been used recently, for example when memory gets short.
+     * Each resident concept is examined at most twice: once for clearing its reference bit, once for evicting it.
+     * The victims are chosen under the pager's lock. Then each victim is written back and evicted under its own lock.
+     * A victim which is pinned meanwhile, or whose values cannot be written, stays resident.
+     *
+     * @param size the maximum number of resident concepts afterwards
+     * @return the number of evicted concepts.
+     */
+    public int trim(int size) {
+        ArrayList<Concept> victims = new ArrayList<>();
+        synchronized (this) {
+            for(int examined = 2*resident.size(); resident.size() > size && examined > 0; --examined) {
+                Concept concept = resident.keySet().iterator().next();
+                resident.remove(concept);
+                if(pinned.containsKey(concept) || concept.clearUsed()) {
+                    resident.put(concept,Boolean.TRUE);  // second chance: to the back
+                    continue;}
+                evicting.add(concept);
+                victims.add(concept);}}
+        if(victims.isEmpty()) {return 0;}
+        ArrayList<Concept> kept = new ArrayList<>();
+        for(Concept concept : victims) {
+            synchronized (concept) {
+                if(dirty.contains(concept) && !writeBack(concept)) {kept.add(concept); continue;}
+                concept.evictValues();}}
+        synchronized (this) {
+            for(Concept concept : kept) {resident.put(concept,Boolean.TRUE);}
+            evicting.removeAll(victims);
+            evictions += victims.size() - kept.size();
+            notifyAll();}
+        return victims.size() - kept.size();}
+
+    /** lets the pager evict half of its resident concepts whenever the heap is short of memory.
+     * The heap is short of memory if, after a garbage collection, a heap pool is still filled above the given fraction.
+     * The thresholds are set at the JVM's memory pools, and therefore hold for all pagers.
+     *
+     * @param fraction the fraction of the pools' maximum sizes, for example 0.8
+     * @return false if the JVM does not support usage thresholds for its heap pools.
+     */
+    public synchronized boolean trimOnLowMemory(double fraction) {
+        boolean supported = false;
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long max = pool.getUsage().getMax();
+            if(pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported() || max <= 0) {continue;}
+            pool.setCollectionUsageThreshold((long)(max * fraction));
+            supported = true;}
+        if(supported && memoryListener == null) {
+            memoryListener = (notification,handback) -> {
+                if(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+                    trim(residentSize() / 2);}};
+            ((NotificationEmitter)ManagementFactory.getMemoryMXBean()).addNotificationListener(memoryListener,null,null);}
+        return supported;}
+
+    /** stops trimming the pager when the heap is short of memory. */
+    public synchronized void stopTrimOnLowMemory() {
+        if(memoryListener == null) {return;}
+        try{((NotificationEmitter)ManagementFactory.getMemoryMXBean()).removeNotificationListener(memoryListener);}
+        catch(ListenerNotFoundException ex) {}
+        memoryListener = null;}
+
+    /** writes the concept's values to the storage. The concept must be locked by the caller, but not the pager.
+     *
+     * @param concept a resident concept
+     * @return true if the values have been written.
+     */
+    private boolean writeBack(Concept concept) {
+        HashMap<Attribute,AttributeValue> values = concept.getResidentValues();
+        if(values == null) {return true;}
+        dirty.remove(concept);
+        StringBuilder storeErrors = new StringBuilder();
+        boolean stored = storage.store(concept,values,context,storeErrors);
+        synchronized (this) {
+            errors.append(storeErrors);
+            if(stored) {++writes;}}
+        if(!stored) {dirty.add(concept);}
+        return stored;}
+
+    /** writes the values of all changed resident concepts to the storage.
+     * Each concept is written under its own lock, such that it is not changed meanwhile.
+     *
+     * @return true if all values have been written.
+     */
+    public boolean flush() {
+        ArrayList<Concept> changed = new ArrayList<>();
+        synchronized (this) {
+            for(Concept concept : resident.keySet()) {
+                if(dirty.contains(concept)) {changed.add(concept);}}}
+        boolean okay = true;
+        for(Concept concept : changed) {
+            synchronized (concept) {okay &= writeBack(concept);}}
+        return okay;}
+
+    /** pins the concepts: they are loaded and stay resident until they are unpinned.
+     * Pins are counted: a concept which is pinned twice must be unpinned twice.
+     * If a concept is being evicted, pin waits until the eviction is finished.
+     *
+     * @param concepts some concepts
+     */
+    public void pin(Concept... concepts) {
+        synchronized (this) {
+            boolean interrupted = false;
+            for(Concept concept : concepts) {
+                while(evicting.contains(concept)) {
+                    try{wait();} catch(InterruptedException ex) {interrupted = true;}}
+                pinned.merge(concept,1,Integer::sum);}
+            if(interrupted) {Thread.currentThread().interrupt();}}
+        for(Concept concept : concepts) {
+            if(concept.getResidentValues() == null) {load(concept);}}}
+
+    /** unpins the concepts. They may be evicted afterwards.
+     *
+     * @param concepts some pinned concepts
+     */
+    public void unpin(Concept... concepts) {
+        synchronized (this) {
+            for(Concept concept : concepts) {
+                pinned.computeIfPresent(concept, (c,count) -> count == 1 ? null : count-1);}}
+        evict();}
+
+    /** removes the concept from the pager and its values from the storage.
+     *
+     * @param concept a concept which has been removed from the context.
+     */
+    public void removed(Concept concept) {
+        synchronized (this) {
+            resident.remove(concept);
+            pinned.remove(concept);
+            dirty.remove(concept);}
+        StringBuilder removeErrors = new StringBuilder();
+        storage.remove(concept,context,removeErrors);
+        if(removeErrors.length() > 0) {synchronized (this) {errors.append(removeErrors);}}}
+
+    /** @return the maximum number of resident unpinned concepts */
+    public synchronized int getCapacity() {return capacity;}
+
+    /** sets the maximum number of resident concepts and evicts concepts if necessary
+     *
+     * @param capacity the new capacity (at least 1)
+     */
+    public void setCapacity(int capacity) {
+        synchronized (this) {this.capacity = Math.max(1,capacity);}
+        evict();}
+
+    /** @return the number of resident concepts */
+    public synchronized int residentSize() {return resident.size();}
+
+    /** returns and clears the errors of the storage.
+     *
+     * @return the error messages (may be empty)
+     */
+    public synchronized String takeErrors() {
+        String messages = errors.toString();
+        errors.setLength(0);
+        return messages;}
+
+    /** @return the statistics of the pager */
+    public synchronized String getStatistics() {
+        return "ConceptPager: " + resident.size() + " resident, " + pinned.size() + " pinned, " +
+                loads + " loads, " + evictions + " evictions, " + writes + " writes";}
+}
@@ -0,0 +1,43 @@
+package MISC;
+
+import Attributes.Attribute;
+import Concepts.AttributeValue;
+import Concepts.Concept;
+
+import java.util.HashMap;
+
+/** This interface is to be implemented by persistent stores for the attribute values of concepts.
+ * <br>
+ * The ConceptPager uses the store to write back the attribute values of concepts which it evicts from the heap,
+ * and to load them again when they are accessed.
+ * The pager calls the store without holding its own lock, possibly from several threads at once.
+ */
+public interface ConceptStorage {
+
+    /** loads the attribute values of the concept.
+     *
+     * @param concept a concept
+     * @param context where the concept lives in
+     * @param errors  for appending error messages
+     * @return the concept's attribute values (empty if none are stored), or null if loading failed.
+     */
+    HashMap<Attribute,AttributeValue> load(Concept concept, Context context, StringBuilder errors);
+
+    /** stores the attribute values of the concept. Previously stored values are replaced.
+     *
+     * @param concept a concept
+     * @param values  the concept's attribute values
+     * @param context where the concept lives in
+     * @param errors  for appending error messages
+     * @return true if the values have been stored.
+     */
+    boolean store(Concept concept, HashMap<Attribute,AttributeValue> values, Context context, StringBuilder errors);
+
+    /** removes the stored attribute values of the concept.
+     *
+     * @param concept a concept which has been removed from the context
+     * @param context where the concept lived in
+     * @param errors  for appending error messages
+     */
+    void remove(Concept concept, Context context, StringBuilder errors);
+}
@@ -3,8 +3,13 @@ package MISC;
 import AbstractObjects.DataType;
 import AbstractObjects.StringInterpretation;
 import Attributes.Attribute;
+import Attributes.ColumnarDataAttribute;
+import Attributes.ConstraintCache;
+import Concepts.AttributeValue;
 import Concepts.Concept;
 import Concepts.DerivedConcept;
+import Concepts.DerivedConceptDispatcher;
+import Concepts.ResolutionCache;
 import ConcreteDomain.AtomicTypes.ConstantObject;
 import DAGs.DAG;
 import DAGs.Direction;
@@ -12,17 +17,71 @@ import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.Session;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 
 /** A context is just a storage for all relevant objects,
  * in particular all concepts, attributes, hierarchies concrete domain types.
- *
+ * <br>
+ * A context can be forked for what-if analyses (see fork).
+ * The fork shares all structures with its parent and records only its own changes:
+ * <ul>
+ *     <li>the symbol tables contain the fork's new entries, and lookups fall through to the parent;</li>
+ *     <li>the hierarchies read the parent's hierarchies, and copy only the nodes which they change;</li>
+ *     <li>the attribute values changed in the fork are kept in an overlay, which maps concepts and attributes
+ *     to private copies of their AttributeValues.</li>
+ * </ul>
+ * The parent cannot be changed while it has forks: its changes throw an IllegalStateException until the forks are discarded.
+ * The value observers of the attributes are not called for changes in forks, since the attributes are shared
+ * and the observers belong to the parent (e.g. the DerivedConcepts and the StorageEngine).
+ * Aggregations over the columns of ColumnarDataAttributes read the parent's columns.
+ * <br>
+ * The changes of the registrations, the hierarchies and the attribute values hold the read lock of the changeLock.
+ * A consistent view of the context, for example a checkpoint, holds its write lock and thereby pauses all changes.
+ * The changes of a concept's attribute values hold in addition the concept's lock,
+ * which orders them and their records in the change log and in the StorageEngine's log.
  */
 public class Context extends StringInterpretation<ConstantObject, Concept, Attribute, DataType> {
     public String id;
-    public final DAG<Attribute> attributeHierarchy  = new DAG<Attribute>("RelationHierarchy",(attribute->false));
-    public final DAG<Concept>   conceptHierarchy    = new DAG<Concept>("Concepts",(concept->concept.isIndividual()));
+    public final DAG<Attribute> attributeHierarchy;
+    public final DAG<Concept>   conceptHierarchy;
     public ArrayList<DerivedConcept> derivedConcepts = null;
+    /** passes the insertions into the concept hierarchy to the DerivedConcepts */
+    public final DerivedConceptDispatcher derivedConceptDispatcher;
+    /** caches where Concept.stream, getFirst and find look for attribute values */
+    public final ResolutionCache resolutionCache;
+    /** hash-conses constraint lists and caches their implications */
+    public final ConstraintCache constraintCache;
+    /** gives the concepts dense ids and maps the ids to the concepts (shared with the forks, which allocate no ids) */
+    public final IdAllocator<Concept> conceptIds;
+    /** gives the attributes dense ids and maps the ids to the attributes (shared with the forks, which allocate no ids) */
+    public final IdAllocator<Attribute> attributeIds;
+    /** maps the strings of StringObjects and ConstantObjects to int codes (shared with the forks) */
+    public final StringDictionary stringDictionary;
+    /** for forks: maps the concepts to the attribute values which have been changed in the fork (null for removed values) */
+    private final ConcurrentHashMap<Concept,HashMap<Attribute,AttributeValue>> valueOverlay;
+    /** loads and evicts the concepts' attribute values if paging is enabled, otherwise null */
+    public volatile ConceptPager pager = null;
+    /** the changes hold its read lock, a consistent view of the context holds its write lock */
+    public final ReentrantReadWriteLock changeLock = new ReentrantReadWriteLock();
+    /** the number of forks of this context which have not been discarded */
+    private final AtomicInteger forks = new AtomicInteger();
+    /** true if this fork has been discarded */
+    private final AtomicBoolean discarded = new AtomicBoolean();
+    /** records the changes of the context if it is enabled, otherwise null */
+    public volatile ChangeLog changeLog = null;
+    /** is changed at each change of the attribute hierarchy */
+    private volatile long attributeHierarchyVersion = 0;
+    /** yields the new versions of the attribute hierarchies. A global counter keeps the versions of forks and parents distinct */
+    private static final AtomicLong hierarchyVersions = new AtomicLong();
     public static Context currentContext = null;
     public String keyspace = "RQLJ";
     public Cluster cluster = null;
@@ -35,11 +94,114 @@ public class Context extends StringInterpretation<ConstantObject, Concept, Attri
      */
     public Context(String id) {
         this.id = id;
+        attributeHierarchy = new DAG<Attribute>("RelationHierarchy",(attribute->false));
+        conceptHierarchy   = new DAG<Concept>("Concepts",(concept->concept.isIndividual()));
+        resolutionCache    = new ResolutionCache(this);
+        constraintCache    = new ConstraintCache(this);
+        derivedConceptDispatcher = new DerivedConceptDispatcher(this);
+        conceptIds         = new IdAllocator<>();
+        attributeIds       = new IdAllocator<>();
+        stringDictionary   = new StringDictionary();
+        valueOverlay       = null;
+        attributeHierarchy.setChangeLock(changeLock.readLock());
+        conceptHierarchy.setChangeLock(changeLock.readLock());
         currentContext = this;
+        attributeHierarchy.addSubNodeObserver((superattribute,subattribute,activity) -> attributeHierarchyChanged());
+        attributeHierarchy.addNodeObserver((attribute,activity) -> attributeHierarchyChanged());
         createConcreteDomains();
         databaseConnect();
     }
 
+    /** creates a fork of the parent context.
+     *
+     * @param id     an identifier for the fork.
+     * @param parent the context to be forked.
+     */
+    private Context(String id, Context parent) {
+        super(parent);
+        this.id = id;
+        attributeHierarchy = new DAG<Attribute>(parent.attributeHierarchy.getName(),parent.attributeHierarchy);
+        conceptHierarchy   = new DAG<Concept>(parent.conceptHierarchy.getName(),parent.conceptHierarchy);
+        resolutionCache    = new ResolutionCache(this);
+        constraintCache    = new ConstraintCache(this);
+        derivedConceptDispatcher = new DerivedConceptDispatcher(this);
+        conceptIds         = parent.conceptIds;
+        attributeIds       = parent.attributeIds;
+        stringDictionary   = parent.stringDictionary;
+        valueOverlay       = new ConcurrentHashMap<>();
+        attributeHierarchy.setChangeLock(changeLock.readLock());
+        conceptHierarchy.setChangeLock(changeLock.readLock());
+        if(parent.derivedConcepts != null) {derivedConcepts = new ArrayList<>(parent.derivedConcepts);}
+        attributeHierarchy.addSubNodeObserver((superattribute,subattribute,activity) -> attributeHierarchyChanged());
+        attributeHierarchy.addNodeObserver((attribute,activity) -> attributeHierarchyChanged());
+        attributeHierarchyVersion = parent.attributeHierarchyVersion;}
+
+    /** creates a fork of this context for what-if analyses.
+     * The fork shares all structures with this context; its own changes do not affect this context.
+     * Creating a fork takes constant time (apart from copying the list of DerivedConcepts),
+     * but it waits until the running changes of this context have finished. It must not be called within a change.
+     * This context cannot be changed until the fork is discarded.
+     * A fork can be forked again.
+     *
+     * @param id an identifier for the fork.
+     * @return the new fork.
+     */
+    public Context fork(String id) {
+        Lock lock = changeLock.writeLock();
+        lock.lock();
+        try{forks.incrementAndGet();
+            return new Context(id,this);}
+        finally{lock.unlock();}}
+
+    /** discards this fork. Afterwards the parent can be changed again, and the fork must not be used anymore. */
+    public void discard() {
+        if(!isFork() || !discarded.compareAndSet(false,true)) {return;}
+        attributeHierarchy.discard();
+        conceptHierarchy.discard();
+        getParent().forks.decrementAndGet();}
+
+    /** @return the context from which this context has been forked, or null */
+    @Override
+    public Context getParent() {return (Context)super.getParent();}
+
+    /** @return true if this context is a fork of another context */
+    public boolean isFork() {return valueOverlay != null;}
+
+    /** applies a change of the context while it holds the read lock of the changeLock.
+     * Changes can run in parallel, but not together with a consistent view, which holds the write lock.
+     * The change lock is to be taken before any other lock of the context:
+     * a thread which holds another lock must not start a change, unless it is already in a change.
+     *
+     * @param change the change, which returns a result
+     * @param <V>    the type of the result
+     * @return the result of the change.
+     * @throws IllegalStateException if the context has forks which have not been discarded.
+     */
+    public <V> V change(Supplier<V> change) {
+        Lock lock = changeLock.readLock();
+        lock.lock();
+        try{if(forks.get() > 0) {throw new IllegalStateException("Context " + id + " has forks and cannot be changed.");}
+            return change.get();}
+        finally{lock.unlock();}}
+
+    /** applies a change of the concept's attribute values.
+     * Besides the change lock it holds the concept's lock, such that the changes of the concept's values
+     * are recorded in the logs in the order in which they have been applied.
+     * If paging is enabled, the concept is pinned during the change, such that it is not evicted meanwhile.
+     *
+     * @param concept the concept whose values are changed
+     * @param change  the change, which returns a result
+     * @param <V>     the type of the result
+     * @return the result of the change.
+     */
+    public <V> V change(Concept concept, Supplier<V> change) {
+        return change(() -> {
+            ConceptPager pager = this.pager;
+            if(pager == null) {synchronized (concept) {return change.get();}}
+            pager.pin(concept);  // before the concept's lock: the eviction holds it
+            try{synchronized (concept) {return change.get();}}
+            finally{pager.unpin(concept);}});}
+
 
     private boolean databaseConnect() {
         /*
@@ -65,11 +227,184 @@ public class Context extends StringInterpretation<ConstantObject, Concept, Attri
      *
      * @param concept the concept itself.
      */
-    public synchronized void putConcept(Concept concept) {
-        putConcept(concept.getName(),concept);
-        if(concept instanceof DerivedConcept) {
-            if(derivedConcepts == null) {derivedConcepts = new ArrayList<>();}
-            derivedConcepts.add((DerivedConcept)concept);}}
+    public void putConcept(Concept concept) {
+        change(() -> {
+            synchronized (this) {
+                if(!isFork()) {conceptIds.allocate(concept);}  // before the observers are called by putConcept
+                putConcept(concept.getName(),concept);
+                if(concept instanceof DerivedConcept) {
+                    if(derivedConcepts == null) {derivedConcepts = new ArrayList<>();}
+                    derivedConcepts.add((DerivedConcept)concept);}}
+            attach(concept);
+            return null;});
+        ConceptPager pager = this.pager;  // outside the lock: loading values may lock the context
+        if(pager != null) {pager.register(concept);}}
+
+    /** attaches a deserialized DerivedConcept, which has no context yet, to this context.
+     *
+     * @param concept a concept which has been put into the context.
+     */
+    private void attach(Concept concept) {
+        if(concept instanceof DerivedConcept && ((DerivedConcept)concept).getContext() == null) {
+            ((DerivedConcept)concept).attach(this);}}
+
+    /** adds many new concepts in one step, for bulk loading.
+     * A concept whose name is already in the context is not added; the existing concept takes its place.
+     * The concept observers are called for the added concepts within the same change, under the context's lock.
+     *
+     * @param newConcepts concepts which have been created without context.
+     * @return the concepts of the context in the order of newConcepts: the added ones, or the existing ones with the same names.
+     */
+    public Concept[] putConcepts(List<Concept> newConcepts) {
+        Concept[] concepts = new Concept[newConcepts.size()];
+        ArrayList<Concept> added = new ArrayList<>(newConcepts.size());
+        change(() -> {
+            synchronized (this) {
+                HashMap<String,Concept> map = new HashMap<>(newConcepts.size()*4/3+1);
+                for(int i = 0; i < concepts.length; ++i) {
+                    Concept concept = newConcepts.get(i);
+                    Concept existing = map.get(concept.getName());
+                    if(existing == null) {existing = super.getConcept(concept.getName());}
+                    if(existing != null) {concepts[i] = existing; continue;}
+                    map.put(concept.getName(),concept);
+                    added.add(concept);
+                    concepts[i] = concept;}
+                putConcepts(map);
+                if(!isFork()) {conceptIds.allocateAll(added);}
+                for(Concept concept : added) {
+                    if(concept instanceof DerivedConcept) {
+                        if(derivedConcepts == null) {derivedConcepts = new ArrayList<>();}
+                        derivedConcepts.add((DerivedConcept)concept);}}
+                for(Concept concept : added) {notifyConceptObservers(concept,true);}}
+            for(Concept concept : added) {attach(concept);}
+            return null;});
+        ConceptPager pager = this.pager;
+        if(pager != null) {for(Concept concept : added) {pager.register(concept);}}
+        return concepts;}
+
+    /** removes the concept with the given name.
+     * The concept's values in the ColumnarDataAttributes are removed and its id is released for reuse.
+     * Only the attributes which are marked in the concept's bitmap are visited.
+     * In a fork, the concept is only hidden.
+     *
+     * @param name the concept's name.
+     */
+    @Override
+    public void removeConcept(String name) {
+        Concept concept = change(() -> removeConceptLocked(name));
+        if(concept == null) {return;}
+        if(concept instanceof DerivedConcept && ((DerivedConcept)concept).getContext() == this) {((DerivedConcept)concept).detach();}
+        ConceptPager pager = this.pager;
+        if(pager != null) {pager.removed(concept);}}
+
+    /** does the work of removeConcept while the change lock is held.
+     *
+     * @param name the concept's name.
+     * @return the removed concept, or null.
+     */
+    private Concept removeConceptLocked(String name) {
+        synchronized (this) {
+            Concept concept = super.getConcept(name);
+            if(concept == null) {return null;}
+            if(!isFork()) {
+                ArrayList<ColumnarDataAttribute> columns = new ArrayList<>();
+                if(!concept.forEachMarkedAttribute(id -> {
+                        Attribute attribute = attributeIds.get(id);
+                        if(attribute instanceof ColumnarDataAttribute) {columns.add((ColumnarDataAttribute)attribute);}})) {
+                    attributeIds.forEach(attribute -> {
+                        if(attribute instanceof ColumnarDataAttribute) {columns.add((ColumnarDataAttribute)attribute);}});}
+                for(ColumnarDataAttribute column : columns) {column.removeValue(concept,this);}}
+            super.removeConcept(name);
+            if(isFork()) {
+                valueOverlay.remove(concept);
+                if(derivedConcepts != null) {derivedConcepts.remove(concept);}
+                return concept;}
+            if(concept instanceof DerivedConcept && derivedConcepts != null) {derivedConcepts.remove(concept);}
+            conceptIds.release(concept);
+            return concept;}}
+
+
+    /** returns the concept with the given dense id.
+     *
+     * @param id the concept's id
+     * @return the concept with this id, or null.
+     */
+    public Concept getConcept(int id) {
+        Concept concept = conceptIds.get(id);
+        if(concept != null && isFork() && super.getConcept(concept.getName()) != concept) {return null;}
+        if(concept != null && pager != null) {pager.touch(concept);}
+        return concept;}
+
+    /** returns the concept with the given name.
+     * If paging is enabled, the concept is marked as recently used.
+     *
+     * @param name the concept's name
+     * @return the concept, or null.
+     */
+    @Override
+    public Concept getConcept(String name) {
+        Concept concept = super.getConcept(name);
+        if(concept != null && pager != null) {pager.touch(concept);}
+        return concept;}
+
+    /** enables paging: at most capacity concepts keep their attribute values on the heap.
+     * The values of the other concepts are written to the storage and loaded again when they are accessed.
+     *
+     * @param storage  the persistent store for the evicted values
+     * @param capacity the maximum number of resident concepts
+     * @return the pager.
+     */
+    public synchronized ConceptPager enablePaging(ConceptStorage storage, int capacity) {
+        ConceptPager newPager = new ConceptPager(this,storage,capacity);
+        conceptIds.forEach(newPager::register);
+        pager = newPager;
+        return newPager;}
+
+    /** enables the change log: from now on all registrations, hierarchy edges and attribute values
+     * which are added to or removed from this context are recorded in the log,
+     * and the nodes which are removed from the hierarchies together with their edges.
+     * Each change is recorded after it has been applied, by the observers which are called within the change:
+     * the registrations under the context's lock, the edges under the hierarchy's lock,
+     * and the values (Attribute.valueChanged, putValue and removeValue) under the concept's lock.
+     * The insertions of many edges by one call (e.g. bulk loading) are recorded as one batch.
+     * Direct calls of Concept.put and Concept.remove are not recorded; Context.putValue and removeValue are to be used instead.
+     * A fork has its own log; the changes in a fork do not appear in its parent's log.
+     *
+     * @param capacity the number of changes which are kept for the consumers
+     * @return the change log (the existing one if it has already been enabled).
+     */
+    public synchronized ChangeLog enableChangeLog(int capacity) {
+        if(changeLog != null) {return changeLog;}
+        ChangeLog log = new ChangeLog(capacity);
+        addConstantObserver((constant,added)   -> log.record(ChangeLog.Kind.CONSTANT,  added ? Activity.ADD : Activity.REMOVE,constant,null,null));
+        addConceptObserver((concept,added)     -> log.record(ChangeLog.Kind.CONCEPT,   added ? Activity.ADD : Activity.REMOVE,concept,null,null));
+        addAttributeObserver((attribute,added) -> log.record(ChangeLog.Kind.ATTRIBUTE, added ? Activity.ADD : Activity.REMOVE,attribute,null,null));
+        addDatatypeObserver((datatype,added)   -> log.record(ChangeLog.Kind.DATATYPE,  added ? Activity.ADD : Activity.REMOVE,datatype,null,null));
+        // ADD is logged after the insertion, REMOVE after the removal
+        conceptHierarchy.addSubNodeAddedObserver(edgeRecorder(log,ChangeLog.Kind.SUBCONCEPT));
+        conceptHierarchy.addSubNodeObserver((superconcept,subconcept,activity) -> {
+                if(activity == Activity.REMOVE) {log.record(ChangeLog.Kind.SUBCONCEPT,activity,superconcept,subconcept,null);}});
+        attributeHierarchy.addSubNodeAddedObserver(edgeRecorder(log,ChangeLog.Kind.SUBATTRIBUTE));
+        attributeHierarchy.addSubNodeObserver((superattribute,subattribute,activity) -> {
+                if(activity == Activity.REMOVE) {log.record(ChangeLog.Kind.SUBATTRIBUTE,activity,superattribute,subattribute,null);}});
+        // removeNode and removeSubtree drop the edges without calling the subnode observers
+        conceptHierarchy.addNodeObserver((concept,activity) -> {
+                if(activity == Activity.DELETE) {log.record(ChangeLog.Kind.CONCEPT_NODE,Activity.REMOVE,concept,null,null);}});
+        attributeHierarchy.addNodeObserver((attribute,activity) -> {
+                if(activity == Activity.DELETE) {log.record(ChangeLog.Kind.ATTRIBUTE_NODE,Activity.REMOVE,attribute,null,null);}});
+        changeLog = log;
+        return log;}
+
+    /** @return a hierarchy observer which records the inserted edges in the log, the edges of a batch together */
+    private static <N> DAG.BatchObserver<N> edgeRecorder(ChangeLog log, ChangeLog.Kind kind) {
+        return new DAG.BatchObserver<N>() {
+            @Override
+            public void accept(N supernode, N subnode, Activity activity) {log.record(kind,Activity.ADD,supernode,subnode,null);}
+            @Override
+            public void acceptAll(List<N> pairs, Activity activity) {log.recordEdges(kind,pairs);}};}
+
+    /** @return an upper bound for the concepts' ids. */
+    public int getConceptIdBound() {return conceptIds.bound();}
 
 
     /** puts the attribute into the context.
@@ -77,7 +412,189 @@ public class Context extends StringInterpretation<ConstantObject, Concept, Attri
      * @param attribute the attribute to be put into the context.
      */
     public void putAttribute(Attribute attribute) {
-        putAttribute(attribute.getName(),attribute);}
+        change(() -> {
+            synchronized (this) {
+                if(!isFork()) {attributeIds.allocate(attribute);}  // before the observers are called by putAttribute
+                putAttribute(attribute.getName(),attribute);}
+            return null;});}
+
+    /** removes the attribute with the given name and releases its id for reuse.
+     *
+     * @param name the attribute's name.
+     */
+    @Override
+    public void removeAttribute(String name) {
+        change(() -> {
+            synchronized (this) {
+                Attribute attribute = getAttribute(name);
+                if(attribute == null) {return null;}
+                super.removeAttribute(name);
+                if(!isFork()) {attributeIds.release(attribute);}}
+            return null;});}
+
+    /** puts the constant into the context, within a change.
+     *
+     * @param id       the constant's name
+     * @param constant the constant
+     */
+    @Override
+    public void putConstant(String id, ConstantObject constant) {
+        change(() -> {super.putConstant(id,constant); return null;});}
+
+    /** removes the constant with the given name, within a change.
+     *
+     * @param id the constant's name
+     */
+    @Override
+    public void removeConstant(String id) {
+        change(() -> {super.removeConstant(id); return null;});}
+
+    /** puts the data type into the context, within a change.
+     *
+     * @param id       the data type's name
+     * @param dataType the data type
+     */
+    @Override
+    public void putDataType(String id, DataType dataType) {
+        change(() -> {super.putDataType(id,dataType); return null;});}
+
+    /** removes the data type with the given name, within a change.
+     *
+     * @param id the data type's name
+     */
+    @Override
+    public void removeDataType(String id) {
+        change(() -> {super.removeDataType(id); return null;});}
+
+    /** returns the attribute with the given dense id.
+     *
+     * @param id the attribute's id
+     * @return the attribute with this id, or null.
+     */
+    public Attribute getAttribute(int id) {return attributeIds.get(id);}
+
+    /* ******************************** Attribute Values ******************************************/
+
+    /** returns the concept's AttributeValue for the attribute.
+     * In a fork, the overlay is searched first, then the parent.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @return the AttributeValue, or null if there is none.
+     */
+    public AttributeValue getValue(Concept concept, Attribute attribute) {
+        if(valueOverlay == null) {return concept.get(attribute);}
+        HashMap<Attribute,AttributeValue> values = valueOverlay.get(concept);
+        if(values != null) {
+            synchronized (values) {if(values.containsKey(attribute)) {return values.get(attribute);}}}
+        return getParent().getValue(concept,attribute);}
+
+    /** returns the concept's AttributeValue for the attribute, such that it can be changed.
+     * In a fork, the parent's AttributeValue is copied into the overlay at the first change.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @return the AttributeValue, or null if there is none.
+     */
+    public AttributeValue getValueForUpdate(Concept concept, Attribute attribute) {
+        if(valueOverlay == null) {return concept.get(attribute);}
+        HashMap<Attribute,AttributeValue> values = valueOverlay.computeIfAbsent(concept, c -> new HashMap<>());
+        synchronized (values) {
+            if(values.containsKey(attribute)) {return values.get(attribute);}
+            AttributeValue inherited = getParent().getValue(concept,attribute);
+            if(inherited == null) {return null;}
+            AttributeValue copy = inherited.copy();
+            values.put(attribute,copy);
+            return copy;}}
+
+    /** sets the concept's AttributeValue for the attribute, without any checks or inferences.
+     * In a fork, it is put into the overlay.
+     * The change log records a CHANGE of the concept's values of the attribute.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @param value     the new AttributeValue
+     */
+    public void putValue(Concept concept, Attribute attribute, AttributeValue value) {putValue(concept,attribute,value,true);}
+
+    /** sets the concept's AttributeValue for the attribute, without any checks or inferences.
+     * In a fork, it is put into the overlay.
+     * The concept's cached resolutions are invalidated.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @param value     the new AttributeValue
+     * @param logged    false for callers which record the change in the change log themselves
+     */
+    public void putValue(Concept concept, Attribute attribute, AttributeValue value, boolean logged) {
+        change(concept, () -> {
+            if(valueOverlay == null) {concept.put(attribute,value);}
+            else {
+                HashMap<Attribute,AttributeValue> values = valueOverlay.computeIfAbsent(concept, c -> new HashMap<>());
+                synchronized (values) {values.put(attribute,value);}}
+            if(value != null) {resolutionCache.valueAdded(concept,value.scope);}
+            ChangeLog log = changeLog;
+            if(logged && log != null) {log.record(ChangeLog.Kind.VALUE,Activity.CHANGE,concept,attribute,null);}
+            return null;});}
+
+    /** removes the concept's AttributeValue for the attribute, without any checks or inferences.
+     * In a fork, the removal is recorded in the overlay.
+     * The change log records a REMOVE without value: all the concept's values of the attribute are removed.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     */
+    public void removeValue(Concept concept, Attribute attribute) {removeValue(concept,attribute,true);}
+
+    /** removes the concept's AttributeValue for the attribute, without any checks or inferences.
+     * In a fork, the removal is recorded in the overlay.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @param logged    false for callers which record the change in the change log themselves
+     */
+    public void removeValue(Concept concept, Attribute attribute, boolean logged) {
+        change(concept, () -> {
+            if(valueOverlay == null) {concept.remove(attribute);}
+            else {
+                HashMap<Attribute,AttributeValue> values = valueOverlay.computeIfAbsent(concept, c -> new HashMap<>());
+                synchronized (values) {values.put(attribute,null);}}
+            ChangeLog log = changeLog;
+            if(logged && log != null) {log.record(ChangeLog.Kind.VALUE,Activity.REMOVE,concept,attribute,null);}
+            return null;});}
+
+    /** checks by means of the concept's bitmap and the overlays whether the concept may have values for the attribute.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @return false if the concept certainly has no values for the attribute.
+     */
+    public boolean hasValuesFor(Concept concept, Attribute attribute) {
+        if(valueOverlay == null) {return concept.hasValuesFor(attribute);}
+        HashMap<Attribute,AttributeValue> values = valueOverlay.get(concept);
+        if(values != null) {
+            synchronized (values) {if(values.containsKey(attribute)) {return values.get(attribute) != null;}}}
+        return getParent().hasValuesFor(concept,attribute);}
+
+    /** checks whether the concept's values of the attribute have been changed in this fork or in one of its parents.
+     * Such values hide the parent's column values of ColumnarDataAttributes.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @return true if the values are in an overlay.
+     */
+    public boolean isOverlaid(Concept concept, Attribute attribute) {
+        if(valueOverlay == null) {return false;}
+        HashMap<Attribute,AttributeValue> values = valueOverlay.get(concept);
+        if(values != null) {
+            synchronized (values) {if(values.containsKey(attribute)) {return true;}}}
+        return getParent().isOverlaid(concept,attribute);}
+
+    /** gives the attribute hierarchy a new version */
+    private void attributeHierarchyChanged() {attributeHierarchyVersion = hierarchyVersions.incrementAndGet();}
+
+    /** @return the version of the attribute hierarchy. It changes whenever the attribute hierarchy changes. */
+    public long getAttributeHierarchyVersion() {return attributeHierarchyVersion;}
 
 
     /** checks if the first attribute is below the second attribute in the attribute hierarchy.
@@ -0,0 +1,88 @@
+package MISC;
+
+import AbstractObjects.ItemWithId;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/** This class gives items dense int ids 0,1,2,... and maps the ids back to the items.
+ * <br>
+ * The ids of released items are reused, the smallest free id first.
+ * This keeps the ids dense, such that they can be used to index arrays and bitsets.
+ * Each context has one allocator for its concepts and one for its attributes.
+ *
+ * @param <T> the type of the items.
+ */
+public class IdAllocator<T extends ItemWithId> {
+
+    /** maps the ids to the items (null for free ids) */
+    private final ArrayList<T> items = new ArrayList<>();
+
+    /** the ids which have been released and can be reused */
+    private final BitSet free = new BitSet();
+
+    /** gives the item an id, unless it already has an id from this allocator.
+     *
+     * @param item an item
+     * @return the item's id.
+     */
+    public synchronized int allocate(T item) {
+        int id = item.getId();
+        if(id >= 0 && id < items.size() && items.get(id) == item) {return id;}
+        id = free.nextSetBit(0);
+        if(id < 0) {id = items.size(); items.add(item);}
+        else {free.clear(id); items.set(id,item);}
+        item.setId(id);
+        return id;}
+
+    /** gives new ids to many items in one synchronized step.
+     * The free ids are reused first; the table is grown only once for the rest.
+     *
+     * @param newItems items without ids from this allocator
+     */
+    public synchronized void allocateAll(Collection<T> newItems) {
+        items.ensureCapacity(items.size() + newItems.size() - free.cardinality());
+        for(T item : newItems) {allocate(item);}}
+
+    /** releases the item's id. The id may be given to another item afterwards.
+     *
+     * @param item an item
+     * @return true if the item had an id from this allocator.
+     */
+    public synchronized boolean release(T item) {
+        int id = item.getId();
+        if(id < 0 || id >= items.size() || items.get(id) != item) {return false;}
+        items.set(id,null);
+        free.set(id);
+        item.setId(-1);
+        return true;}
+
+    /** returns the item with the given id
+     *
+     * @param id an id
+     * @return the item with this id, or null.
+     */
+    public synchronized T get(int id) {
+        return (id < 0 || id >= items.size()) ? null : items.get(id);}
+
+    /** @return an upper bound for the ids, i.e. all ids are smaller than the bound. */
+    public synchronized int bound() {return items.size();}
+
+    /** @return the number of items which currently have an id. */
+    public synchronized int size() {return items.size() - free.cardinality();}
+
+    /** applies the consumer to all items which currently have an id.
+     *
+     * @param consumer a consumer for the items.
+     */
+    public void forEach(Consumer<T> consumer) {
+        ArrayList<T> copy;
+        synchronized (this) {copy = new ArrayList<>(items);}
+        for(T item : copy) {if(item != null) {consumer.accept(item);}}}
+
+    @Override
+    public synchronized String toString() {
+        return "IdAllocator with " + size() + " items and bound " + items.size();}
+}
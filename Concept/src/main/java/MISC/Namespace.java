@@ -3,28 +3,57 @@ package MISC;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class implements namespaces.
  * A namespace is a hierarchically structured sequence of strings,
  * very much like the package system in Java.<br>
  * Example: "LMU.fac16.ifi.pms"
+ * <br>
+ * The namespaces form a trie. Each namespace maps its local segments to its sub-namespaces.
+ * The segments are interned, and each namespace has a unique numeric id.
+ * Namespaces are created once and never changed afterwards (except by clear()).
+ * All methods are thread-safe. Lookups are not synchronized.
+ * <br>
+ * The qualified pathnames of names in a namespace are cached, such that resolving a name
+ * in a namespace concatenates the strings only the first time.
+ * The cache of each namespace is bounded by maxQualifiedNames; further names are concatenated at each call.
  */
 
 public class Namespace implements Serializable {
     /** the full applicationName from the root to the current namespace, separated by ".". */
     private String pathname;
+    /** the local name of the namespace (the last segment of the pathname) */
+    private transient String segment;
+    /** the namespace's unique id */
+    private transient int id;
     /** the upper namespace in the tree, or null */
-    private Namespace superNamespace = null;
-    /** the list of sub-namespaces */
-    private ArrayList<Namespace> subNamespaces = null;
+    private transient Namespace superNamespace = null;
+    /** maps the segments to the sub-namespaces */
+    private transient ConcurrentHashMap<String,Namespace> subNamespaceMap = new ConcurrentHashMap<>();
+    /** the list of sub-namespaces (in the order of their creation) */
+    private transient CopyOnWriteArrayList<Namespace> subNamespaces = new CopyOnWriteArrayList<>();
+    /** maps local names to their qualified pathnames in this namespace */
+    private transient ConcurrentHashMap<String,String> qualifiedNames = new ConcurrentHashMap<>();
     /** maps full pathnames to namespace objects */
-    private static HashMap<String,Namespace> namespaceMap = new HashMap<>();
+    private static final ConcurrentHashMap<String,Namespace> namespaceMap = new ConcurrentHashMap<>();
+    /** maps the segments of the root namespaces to the root namespaces */
+    private static final ConcurrentHashMap<String,Namespace> topNamespaces = new ConcurrentHashMap<>();
+    /** maps the ids to the namespaces */
+    private static final ArrayList<Namespace> namespacesById = new ArrayList<>();
+    /** the interned segments */
+    private static final ConcurrentHashMap<String,String> segments = new ConcurrentHashMap<>();
+    /** the maximum number of qualified names which are cached per namespace */
+    public static int maxQualifiedNames = 4096;
     /** separates the components of a pathname */
-    private static String separator = ".";
+    private static final char separatorChar = '.';
+    /** separates the components of a pathname */
+    private static final String separator = ".";
 
     /** This method just serializes the pathname.
      *
@@ -35,54 +64,110 @@ public class Namespace implements Serializable {
         out.writeObject(pathname);}
 
 
-    /** This method reads the pathname, and integrates it into the internal data structures.
+    /** This method reads the pathname.
      *
      * @param in    where to read the pathname from.
      * @throws IOException
      * @throws ClassNotFoundException
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        pathname = (String)in.readObject();
-        Namespace.setNamespace(pathname);
-        Namespace namespace = namespaceMap.get(pathname);
-        superNamespace = namespace.superNamespace;
-        subNamespaces = namespace.subNamespaces;
-        namespaceMap.put(pathname,this);
-    }
+        pathname = (String)in.readObject();}
+
+    /** integrates the read namespace into the internal data structures.
+     *
+     * @return the unique namespace object for the pathname.
+     * @throws ObjectStreamException never.
+     */
+    private Object readResolve() throws ObjectStreamException {
+        return setNamespace(pathname);}
 
-    /** creates a new namespace.
+    /** creates a new namespace and inserts it into the trie.
+     * It must be called in a block synchronized on namespaceMap.
      *
-     * @param pathname  the local applicationName of the namespace
+     * @param segment  the local name of the namespace
      * @param superNamespace the upper namespace in the tree, or null
      */
-    private Namespace(String pathname, Namespace superNamespace) {
-        this.pathname = pathname;
+    private Namespace(String segment, Namespace superNamespace) {
+        this.segment = segments.computeIfAbsent(segment, s -> s);
         this.superNamespace = superNamespace;
+        this.pathname = (superNamespace == null) ? this.segment : superNamespace.getPathname(this.segment);
+        this.id = namespacesById.size();
+        namespacesById.add(this);
         namespaceMap.put(pathname,this);
-        if(superNamespace == null) {return;}
-        if(superNamespace.subNamespaces == null) {superNamespace.subNamespaces = new ArrayList<>();}
-        superNamespace.subNamespaces.add(this);
-    }
+        if(superNamespace == null) {topNamespaces.put(this.segment,this);}
+        else {
+            superNamespace.subNamespaceMap.put(this.segment,this);
+            superNamespace.subNamespaces.add(this);}}
 
-    /** clears the internal hash map */
-    public static void clear() {namespaceMap.clear();}
+    /** clears the internal hash maps */
+    public static void clear() {
+        synchronized (namespaceMap) {
+            namespaceMap.clear();
+            topNamespaces.clear();
+            namespacesById.clear();
+            segments.clear();}}
 
 
     /** @return the pathname of the namespace */
     public String getPathname()  {return pathname;}
 
+    /** @return the local name of the namespace, i.e. the last segment of its pathname */
+    public String getSegment()  {return segment;}
+
+    /** @return the namespace's unique id */
+    public int getId()  {return id;}
+
+    /** @return the upper namespace in the tree, or null */
+    public Namespace getSuperNamespace() {return superNamespace;}
+
     /** extends the pathname with the given name.
+     * The qualified name is cached, such that the strings are concatenated only once.
+     * If the cache is full, the name is concatenated without caching it.
      *
      * @param name any string.
      * @return pathname.name
      */
-    public String getPathname(String name)  {return pathname+separator+name;}
-
+    public String getPathname(String name)  {
+        String qualifiedName = qualifiedNames.get(name);
+        if(qualifiedName != null) {return qualifiedName;}
+        if(qualifiedNames.size() >= maxQualifiedNames) {return pathname + separator + name;}
+        return qualifiedNames.computeIfAbsent(name, n -> pathname + separator + n);}
 
 
     /** @return the namespace for a given pathname, or null if there is none */
     public static Namespace getNamespace(String pathname) {return namespaceMap.get(pathname);}
 
+    /** returns the namespace with the given id
+     *
+     * @param id a namespace id
+     * @return the namespace with this id, or null.
+     */
+    public static Namespace getNamespace(int id) {
+        synchronized (namespaceMap) {
+            return (id < 0 || id >= namespacesById.size()) ? null : namespacesById.get(id);}}
+
+    /** returns the immediate sub-namespace with the given segment.
+     *
+     * @param segment a local name
+     * @return the sub-namespace, or null if there is none.
+     */
+    public Namespace getSubNamespace(String segment) {return subNamespaceMap.get(segment);}
+
+    /** resolves a relative '.'-separated path in this namespace.
+     *
+     * @param path a relative path like "a.b"
+     * @return the namespace this.a.b, or null if there is none.
+     */
+    public Namespace resolve(String path) {
+        Namespace namespace = this;
+        int start = 0;
+        while(namespace != null && start <= path.length()) {
+            int end = path.indexOf(separatorChar,start);
+            if(end < 0) {end = path.length();}
+            namespace = namespace.subNamespaceMap.get(path.substring(start,end));
+            start = end+1;}
+        return namespace;}
+
 
     /** splits a string into the namespace-part and the name.
      * The namespace-part is turned into a Namespace object.
@@ -104,18 +189,18 @@ public class Namespace implements Serializable {
     public static Namespace setNamespace(String pathname) {
         Namespace namespace = namespaceMap.get(pathname);
         if(namespace != null) {return namespace;}
-        String[] parts = pathname.split("\\"+separator);
-        int length = parts.length;
-        namespace = null;
-        Namespace superNamespace = null;
-        pathname = "";
-        for(int i = 0; i < length; ++i) {
-            pathname += parts[i];
+        synchronized (namespaceMap) {
             namespace = namespaceMap.get(pathname);
-            if(namespace == null) {namespace = new Namespace(pathname,superNamespace);}
-            pathname += separator;
-            superNamespace = namespace;}
-        return namespace;}
+            if(namespace != null) {return namespace;}
+            int start = 0;
+            while(start <= pathname.length()) {
+                int end = pathname.indexOf(separatorChar,start);
+                if(end < 0) {end = pathname.length();}
+                String segment = pathname.substring(start,end);
+                Namespace subNamespace = (namespace == null) ? topNamespaces.get(segment) : namespace.subNamespaceMap.get(segment);
+                namespace = (subNamespace == null) ? new Namespace(segment,namespace) : subNamespace;
+                start = end+1;}
+            return namespace;}}
 
 
     /** returns all root namespaces
@@ -123,9 +208,7 @@ public class Namespace implements Serializable {
      * @return all root namespaces
      */
     public static ArrayList<Namespace> getTopNamespaces() {
-        ArrayList<Namespace> topNamespaces = new ArrayList<>();
-        namespaceMap.forEach((pathname,namespace) -> {if(namespace.superNamespace == null) {topNamespaces.add(namespace);}});
-        return topNamespaces;}
+        return new ArrayList<>(topNamespaces.values());}
 
     /** turns all namespaces into lines of a string.
      * If pathname is given, but unknown as namespace then the empty string is returned.
@@ -140,13 +223,12 @@ public class Namespace implements Serializable {
         else {Namespace namespace = namespaceMap.get(pathname);
             if(namespace == null) {return "";}
             else {allToStringRec(namespace,s);}}
-        s.deleteCharAt(s.length()-1);
+        if(s.length() > 0) {s.deleteCharAt(s.length()-1);}
         return s.toString();}
 
     private static void allToStringRec(Namespace namespace, StringBuilder strings) {
         strings.append(namespace.pathname).append("\n");
-        if(namespace.subNamespaces != null) {
-            for(Namespace nspace :namespace.subNamespaces) {allToStringRec(nspace,strings);}}}
+        for(Namespace nspace :namespace.subNamespaces) {allToStringRec(nspace,strings);}}
 
 
 
@@ -158,8 +240,12 @@ public class Namespace implements Serializable {
      */
     @Override
     public boolean equals(Object object) {
+        if(object == this) {return true;}
         return object != null && object.getClass() == Namespace.class && pathname.equals(((Namespace)object).pathname);}
 
+    @Override
+    public int hashCode() {return pathname.hashCode();}
+
 
 
     /**
@@ -0,0 +1,84 @@
+package MISC;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** This class maps strings to dense int codes and back.
+ * <br>
+ * Each context has one dictionary. StringObjects and ConstantObjects created with the dictionary
+ * share the canonical String instance and carry its code, such that they can be compared by code.
+ * Codes are local to the dictionary: codes of different dictionaries are unrelated.
+ * Codes are never released or reused; a string keeps its code for the lifetime of the dictionary.
+ * Therefore the number of strings is bounded by maxStrings. Further strings are not encoded,
+ * and the objects wrapping them fall back to comparing the strings themselves.
+ * <br>
+ * Encoding new strings is synchronized. Looking up codes and decoding take no lock:
+ * a new string is stored in the array before the size is increased, and the array is only replaced by a larger copy.
+ */
+public class StringDictionary {
+
+    /** the maximal number of strings in a dictionary */
+    public static int maxStrings = 1 << 20;
+
+    /** maps the strings to their codes */
+    private final ConcurrentHashMap<String,Integer> codes = new ConcurrentHashMap<>();
+
+    /** maps the codes to the canonical strings (the first size entries are valid) */
+    private volatile String[] strings = new String[16];
+
+    /** the number of strings; is increased after the new string has been stored */
+    private volatile int size = 0;
+
+    /** returns the code of the string. If the string is new, it gets the next free code.
+     *
+     * @param string a string
+     * @return the string's code, or -1 if the string is new and the dictionary is full.
+     */
+    public int encode(String string) {
+        Integer code = codes.get(string);
+        if(code != null) {return code;}
+        synchronized (this) {
+            code = codes.get(string);
+            if(code != null) {return code;}
+            code = size;
+            if(code >= maxStrings) {return -1;}
+            String[] array = strings;
+            if(code == array.length) {array = Arrays.copyOf(array,2*code); strings = array;}
+            array[code] = string;
+            size = code + 1;
+            codes.put(string,code);  // after publishing, since encode's callers decode the code at once
+            return code;}}
+
+    /** returns the code of the string without inserting it.
+     *
+     * @param string a string
+     * @return the string's code, or -1 if it is not in the dictionary.
+     */
+    public int getCode(String string) {
+        Integer code = codes.get(string);
+        return (code == null) ? -1 : code;}
+
+    /** returns the string for the code
+     *
+     * @param code a string code
+     * @return the canonical string, or null if the code is unknown.
+     */
+    public String decode(int code) {
+        int size = this.size;           // read the size before the array
+        return (code < 0 || code >= size) ? null : strings[code];}
+
+    /** returns the canonical instance of the string. If the string is new, it is inserted.
+     *
+     * @param string a string
+     * @return the canonical instance of the string, or the string itself if the dictionary is full.
+     */
+    public String canonical(String string) {
+        int code = encode(string);
+        return (code < 0) ? string : decode(code);}
+
+    /** @return the number of strings in the dictionary */
+    public int size() {return size;}
+
+    @Override
+    public String toString() {return "StringDictionary with " + size() + " strings";}
+}
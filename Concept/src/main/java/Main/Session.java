@@ -4,13 +4,18 @@ import AbstractObjects.ItemWithId;
 import Data.GlobalData;
 import MISC.Namespace;
 
-import java.util.HashMap;
-import java.util.Map;
-
-/**
+import java.util.concurrent.ConcurrentHashMap;
+
+/** A session keeps its own items as an overlay on top of the global items.
+ * <br>
+ * The overlay is a concurrent map, which is read without locking. It is created with the session's first item,
+ * such that creating a session costs nothing, and each insertion and removal costs constant time.
+ * Lookups probe the session's overlay first, and then the global index.
+ * As in GlobalData, a pathname cannot denote items of different classes.
  */
 public class Session extends Thread {
-    private final HashMap<Class,HashMap<String, ItemWithId>> items = new HashMap<>();
+    /** maps pathnames to the session's items (null until the first item is added) */
+    private volatile ConcurrentHashMap<String, ItemWithId> items = null;
 
     public Session(String name) {
         super(name);
@@ -18,40 +23,53 @@ public class Session extends Thread {
 
 
     public boolean exists(Class clazz, String pathname) {
-        if(GlobalData.exists(clazz,pathname)) {return true;}
-        HashMap<String, ItemWithId> map = items.get(clazz);
-        return map != null && map.containsKey(pathname);}
+        return getItem(clazz,pathname) != null;}
 
     public boolean exists(Class clazz, String name, Namespace namespace) {
         return exists(clazz,(namespace == null) ? name : namespace.getPathname(name));}
 
+    /** returns the item with the given pathname, if it is of the given class.
+     *
+     * @param clazz    the item's class
+     * @param pathname the item's pathname
+     * @return the item, or null if there is none with this class.
+     */
     public ItemWithId getItem(Class clazz, String pathname) {
-        ItemWithId item = GlobalData.getItem(clazz,pathname);
-        if(item != null) {return item;}
-        HashMap<String, ItemWithId> map = items.get(clazz);
-        return (map == null) ? null :  map.get(pathname);}
+        ItemWithId item = getItem(pathname);
+        return (item != null && item.getClass() == clazz) ? item : null;}
 
     public ItemWithId getItem(Class clazz, String name, Namespace namespace) {
         return getItem(clazz,(namespace == null) ? name : namespace.getPathname(name));}
 
     public ItemWithId getItem(String pathname) {
-        ItemWithId item = GlobalData.getItem(pathname);
-        if(item != null) {return item;}
-        for(Map.Entry entry : items.entrySet()) {
-            Class clazz = (Class)entry.getKey();
-            item = ((HashMap<String, ItemWithId>)entry.getValue()).get(pathname);
-            if(item != null) {return item;}}
-        return null;}
+        ConcurrentHashMap<String, ItemWithId> items = this.items;
+        ItemWithId item = (items == null) ? null : items.get(pathname);
+        return (item != null) ? item : GlobalData.getItem(pathname);}
 
     public ItemWithId getItem(String name, Namespace namespace) {
         return getItem((namespace == null) ? name : namespace.getPathname(name));}
 
 
-    public void addItem(ItemWithId item) {
-        Class clazz = item.getClass();
-        HashMap<String, ItemWithId> map = items.get(item.getClass());
-        if(map == null) {map = new HashMap<>(); items.put(clazz,map);}
-        map.put(item.getPathname(),item);}
+    /** adds the item to the session, unless the session or GlobalData has an item of another class with the same pathname.
+     *
+     * @param item   an item
+     * @param errors for appending an error message (may be null)
+     * @return true if the item has been added.
+     */
+    public synchronized boolean addItem(ItemWithId item, StringBuilder errors) {
+        ItemWithId present = getItem(item.getPathname());
+        if(present != null && present.getClass() != item.getClass()) {
+            if(errors != null) {
+                errors.append("'"+item.getPathname()+"' is already a '"+present.getClass().getName()+"'\n");}
+            return false;}
+        if(items == null) {items = new ConcurrentHashMap<>();}
+        items.put(item.getPathname(),item);
+        return true;}
+
+    public boolean addItem(ItemWithId item) {return addItem(item,null);}
+
+    public synchronized void removeItem(ItemWithId item) {
+        if(items != null) {items.remove(item.getPathname(),item);}}
 
 
 
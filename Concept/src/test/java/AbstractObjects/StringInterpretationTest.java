@@ -0,0 +1,31 @@
+package AbstractObjects;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/** Tests the symbol tables of StringInterpretation.
+ * The lookup throughput with concurrent readers is measured in Benchmarks.StringInterpretationBenchmark. */
+public class StringInterpretationTest {
+
+    @Test
+    public void putAndRemove() {
+        StringInterpretation<String,String,String,String> parent = new StringInterpretation<>();
+        parent.putConcept("a","A");
+        parent.putConcept("b","B");
+        StringInterpretation<String,String,String,String> child = new StringInterpretation<>(parent);
+        ArrayList<String> seen = new ArrayList<>();
+        child.addConceptObserver((concept,added) -> seen.add(concept + added + child.getConcept(concept.toLowerCase())));
+        child.putConcept("c","C");
+        child.removeConcept("a");
+        assertEquals("C",child.getConcept("c"));
+        assertNull(child.getConcept("a"));
+        assertEquals("A",parent.getConcept("a"));
+        assertEquals("B",child.getConcept("b"));
+        assertNull(parent.getConcept("c"));
+        assertEquals("[CtrueC, Afalsenull]",seen.toString());
+        child.putConcept("a","A2");
+        assertEquals("A2",child.getConcept("a"));}
+}
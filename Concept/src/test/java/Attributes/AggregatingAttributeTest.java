@@ -0,0 +1,93 @@
+package Attributes;
+
+import AbstractObjects.DataObject;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import MISC.Context;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/** Tests the materialized aggregation states. */
+public class AggregatingAttributeTest {
+
+    /** @return a materialized sum over the attribute */
+    private static AggregatingAttribute sum(Context context, Attribute attribute, ConcreteType integer) {
+        AggregatingAttribute sum = new AggregatingAttribute("sum",context,integer,attribute);
+        sum.setAggregators(0,null,
+                (BiFunction<Object,DataObject,Object> & Serializable)(s,value) -> (Integer)s + (Integer)value.get(),null,
+                (Function<Object,DataObject> & Serializable)s -> new IntegerObject((Integer)s),null);
+        sum.setRetractor((BiFunction<Object,DataObject,Object> & Serializable)(s,value) -> (Integer)s - (Integer)value.get(),null);
+        assertTrue(sum.setMaterialized(true));
+        return sum;}
+
+    @Test
+    public void incremental() {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute mark = new DataAttribute("mark",context,false,null,integer);
+        AggregatingAttribute sum = sum(context,mark,integer);
+        IndividualConcept p = new IndividualConcept("p",context);
+        p.add(mark,new IntegerObject(1),Scope.LOCAL,context,errors);
+        assertEquals(new IntegerObject(1),sum.getFirst(p,Scope.LOCAL,null,null,null,context));
+        p.add(mark,new IntegerObject(2),Scope.LOCAL,context,errors);
+        p.add(mark,new IntegerObject(4),Scope.LOCAL,context,errors);
+        mark.removeValue(p,new IntegerObject(1),context);
+        assertEquals(new IntegerObject(6),sum.getFirst(p,Scope.LOCAL,null,null,null,context));
+        assertNull(sum.getFirst(p,Scope.ALL,null,null,null,context));
+        assertEquals("",errors.toString());}
+
+    @Test
+    public void scopes() {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute mark = new DataAttribute("mark",context,false,null,integer);
+        AggregatingAttribute sum = sum(context,mark,integer);
+        SetConcept c = new SetConcept("c",context);
+        c.add(mark,new IntegerObject(1),Scope.LOCAL,context,errors);
+        assertEquals(new IntegerObject(1),sum.getFirst(c,Scope.LOCAL,null,null,null,context));
+        mark.removeValue(c,new IntegerObject(1),context);
+        c.add(mark,new IntegerObject(10),Scope.ALL,context,errors);
+        assertEquals(new IntegerObject(10),sum.getFirst(c,Scope.ALL,null,null,null,context));
+        assertNull(sum.getFirst(c,Scope.LOCAL,null,null,null,context));
+        c.add(mark,new IntegerObject(5),Scope.ALL,context,errors);
+        assertEquals(new IntegerObject(15),sum.getFirst(c,Scope.ALL,null,null,null,context));
+        mark.removeValue(c,new IntegerObject(10),context);
+        mark.removeValue(c,new IntegerObject(5),context);
+        c.add(mark,new IntegerObject(3),Scope.LOCAL,context,errors);
+        assertEquals(new IntegerObject(3),sum.getFirst(c,Scope.LOCAL,null,null,null,context));
+        assertEquals("",errors.toString());}
+
+    @Test
+    public void serialization() throws Exception {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute mark = new DataAttribute("mark",context,false,null,integer);
+        AggregatingAttribute sum = sum(context,mark,integer);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {out.writeObject(sum);}
+        AggregatingAttribute copy;
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (AggregatingAttribute)in.readObject();}
+        assertTrue(copy.isMaterialized());
+        IndividualConcept p = new IndividualConcept("p",context);
+        p.add(mark,new IntegerObject(7),Scope.LOCAL,context,errors);
+        assertEquals(new IntegerObject(7),copy.getFirst(p,Scope.LOCAL,null,null,null,context));
+
+        sum.setAggregators(0,null,(s,value) -> s,"(((",(Function<Object,DataObject> & Serializable)s -> null,null);
+        bytes.reset();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {out.writeObject(sum);}
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            in.readObject();
+            fail("the aggregator cannot be compiled");}
+        catch(InvalidObjectException ex) {assertTrue(ex.getMessage().contains("sum"));}
+        assertEquals("",errors.toString());}
+}
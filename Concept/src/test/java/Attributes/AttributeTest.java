@@ -0,0 +1,58 @@
+package Attributes;
+
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import MISC.Context;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/** Tests the attribute bitmaps of the concepts and the cached subattribute lists. */
+public class AttributeTest {
+
+    @Test
+    public void bitmap() {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute year = new DataAttribute("year",context,true,null,integer);
+        DataAttribute size = new DataAttribute("size",context,true,null,integer);
+        ColumnarDataAttribute age = new ColumnarDataAttribute("age",context,null,integer);
+        IndividualConcept p = new IndividualConcept("p",context);
+
+        assertFalse(p.hasValuesFor(size));
+        p.add(size,new IntegerObject(180),Scope.LOCAL,context,errors);
+        assertTrue(p.hasValuesFor(size));
+        assertFalse(p.hasValuesFor(age));
+        size.removeValue(p,new IntegerObject(180),context);
+        assertFalse(p.hasValuesFor(size));
+
+        p.add(age,new IntegerObject(40),Scope.LOCAL,context,errors);
+        assertTrue(p.hasValuesFor(age));
+        p.remove(age);
+        assertTrue(p.hasValuesFor(age));
+        assertTrue(age.hasValues(p,Scope.LOCAL,context));
+        p.add(age,new IntegerObject(41),Scope.LOCAL,context,new AttributeValueList(year,new IntegerObject(2015)),errors);
+        assertTrue(p.hasValuesFor(age));
+        assertEquals(new IntegerObject(41),p.getFirst(age,context));
+        assertEquals("",errors.toString());}
+
+    @Test
+    public void subattributes() {
+        Context context = new Context("test");
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute size = new DataAttribute("size",context,true,null,integer);
+        DataAttribute height = new DataAttribute("height",context,true,null,integer);
+        DataAttribute width = new DataAttribute("width",context,true,null,integer);
+        assertEquals(Arrays.asList(size),size.getSubattributes(context));
+        context.attributeHierarchy.addSubnode(size,height);
+        assertSame(size.getSubattributes(context),size.getSubattributes(context));
+        assertEquals(Arrays.asList(size,height),size.getSubattributes(context));
+        context.attributeHierarchy.addSubnode(height,width);
+        assertEquals(Arrays.asList(size,height,width),size.getSubattributes(context));
+        context.attributeHierarchy.removeSubnode(size,height);
+        assertEquals(Arrays.asList(size),size.getSubattributes(context));}
+}
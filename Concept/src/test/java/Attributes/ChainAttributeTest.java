@@ -0,0 +1,73 @@
+package Attributes;
+
+import AbstractObjects.DataObject;
+import AbstractObjects.Operators;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import MISC.Context;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/** Tests the set-at-a-time evaluation of attribute chains. */
+public class ChainAttributeTest {
+
+    /** a concept attribute which counts how often its values are accessed */
+    private static class CountingAttribute extends ConceptAttribute {
+        int accesses = 0;
+        CountingAttribute(String name, Context context, SetConcept domain, SetConcept range) {
+            super(name,context,false,domain,range);}
+        @Override
+        public Stream<DataObject> stream(Concept concept, Scope scope, Operators operator, DataObject otherValue, Object otherConstraints, Context context) {
+            ++accesses;
+            return super.stream(concept,scope,operator,otherValue,otherConstraints,context);}}
+
+    /** @return the sorted values as a string */
+    private static String sorted(Stream<DataObject> values) {
+        if(values == null) {return "[]";}
+        return values.map(Object::toString).sorted().collect(Collectors.toList()).toString();}
+
+    @Test
+    public void sharedIntermediates() {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        SetConcept person = new SetConcept("person",context);
+        CountingAttribute friend = new CountingAttribute("friend",context,person,person);
+        CountingAttribute parent = new CountingAttribute("parent",context,person,person);
+        DataAttribute age = new DataAttribute("age",context,true,person,integer);
+        ChainAttribute chain = new ChainAttribute("friendsParentsAge",context,friend,parent,age);
+
+        IndividualConcept[] starts = new IndividualConcept[10];
+        IndividualConcept f1 = new IndividualConcept("f1",context), f2 = new IndividualConcept("f2",context);
+        IndividualConcept mother = new IndividualConcept("mother",context), father = new IndividualConcept("father",context);
+        for(IndividualConcept p : new IndividualConcept[]{f1,f2,mother,father}) {context.conceptHierarchy.addSubnode(person,p);}
+        for(IndividualConcept f : new IndividualConcept[]{f1,f2}) {
+            f.add(parent,mother,Scope.LOCAL,context,errors);
+            f.add(parent,father,Scope.LOCAL,context,errors);}
+        mother.add(age,new IntegerObject(50),Scope.LOCAL,context,errors);
+        father.add(age,new IntegerObject(55),Scope.LOCAL,context,errors);
+        for(int i = 0; i < starts.length; ++i) {
+            starts[i] = new IndividualConcept("s" + i,context);
+            context.conceptHierarchy.addSubnode(person,starts[i]);
+            starts[i].add(friend,f1,Scope.LOCAL,context,errors);
+            starts[i].add(friend,f2,Scope.LOCAL,context,errors);}
+
+        assertEquals("[50, 50, 55, 55]",sorted(chain.streamPaths(starts[0],Scope.LOCAL,null,null,null,context)));
+        assertEquals("[50, 55]",sorted(chain.stream(starts[0],Scope.LOCAL,null,null,null,context)));
+        assertEquals("[55]",sorted(chain.stream(starts[0],Scope.LOCAL,Operators.GREATER,new IntegerObject(50),null,context)));
+
+        friend.accesses = 0; parent.accesses = 0;
+        HashMap<Concept,LinkedHashSet<DataObject>> values = chain.evaluate(person,Scope.LOCAL,null,context);
+        assertEquals("[50, 55]",sorted(values.get(starts[3]).stream()));
+        assertTrue(values.get(mother).isEmpty());
+        assertEquals(14,friend.accesses); // all individuals of person
+        assertEquals(2,parent.accesses);  // f1 and f2 only once
+        assertEquals("",errors.toString());}
+}
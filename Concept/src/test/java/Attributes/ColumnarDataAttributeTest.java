@@ -0,0 +1,85 @@
+package Attributes;
+
+import AbstractObjects.DataObject;
+import Concepts.*;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import MISC.Activity;
+import MISC.Context;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/** Tests that a concept's value of a columnar attribute is either in the column or in the concept. */
+public class ColumnarDataAttributeTest {
+
+    /** @return the values of the attribute, computed by the attribute itself */
+    private static String values(Attribute attribute, Concept concept, Context context) {
+        Stream<DataObject> values = attribute.stream(concept,Scope.LOCAL,null,null,null,context);
+        if(values == null) {return "[]";}
+        return values.map(Object::toString).collect(Collectors.toList()).toString();}
+
+    @Test
+    public void oneStore() {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute year = new DataAttribute("year",context,true,null,integer);
+        ColumnarDataAttribute age = new ColumnarDataAttribute("age",context,null,integer);
+        IndividualConcept p = new IndividualConcept("p",context);
+        ArrayList<Activity> activities = new ArrayList<>();
+        age.addValueObserver((concept,value,activity) -> activities.add(activity));
+
+        AttributeValueList constraints = new AttributeValueList(year,new IntegerObject(2015));
+        assertTrue(p.add(age,new IntegerObject(30),Scope.LOCAL,context,constraints,errors));
+        assertFalse(age.hasColumnValue(p));
+        assertEquals("[30]",values(age,p,context));
+
+        assertTrue(p.add(age,new IntegerObject(31),Scope.LOCAL,context,errors));
+        assertTrue(age.hasColumnValue(p));
+        assertNull(p.get(age));
+        assertEquals("[31]",values(age,p,context));
+        assertEquals(31,((IntegerObject)p.getFirst(age,context)).value);
+
+        assertTrue(p.add(age,new IntegerObject(32),Scope.LOCAL,context,constraints,errors));
+        assertFalse(age.hasColumnValue(p));
+        assertEquals("[32]",values(age,p,context));
+        assertEquals(32,((IntegerObject)age.getAttributeValue(p).get().get()).value);
+
+        activities.clear();
+        assertTrue(p.add(age,new IntegerObject(33),Scope.LOCAL,context,errors));
+        assertTrue(age.removeValue(p,context));
+        assertFalse(age.removeValue(p,context));
+        assertEquals("[CHANGE, ADD, REMOVE]",activities.toString());
+        assertEquals("[]",values(age,p,context));
+        assertEquals("",errors.toString());}
+
+    @Test
+    public void removeConcept() {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        ColumnarDataAttribute age = new ColumnarDataAttribute("age",context,null,integer);
+        ColumnarDataAttribute size = new ColumnarDataAttribute("size",context,null,integer);
+        IndividualConcept p = new IndividualConcept("p",context);
+        IndividualConcept q = new IndividualConcept("q",context);
+        p.add(age,new IntegerObject(40),Scope.LOCAL,context,errors);
+        q.add(size,new IntegerObject(180),Scope.LOCAL,context,errors);
+        int[] removed = new int[1];
+        age.addValueObserver((concept,value,activity) -> {if(activity == Activity.REMOVE) {++removed[0];}});
+
+        int id = p.getId();
+        context.removeConcept("p");
+        assertEquals(-1,p.getId());
+        assertFalse(age.getPresent().get(id));
+        assertEquals(1,removed[0]);
+        assertEquals(1,size.count(null));
+        IndividualConcept r = new IndividualConcept("r",context);
+        assertEquals(id,r.getId());
+        assertNull(r.getFirst(age,context));
+        assertEquals("",errors.toString());}
+}
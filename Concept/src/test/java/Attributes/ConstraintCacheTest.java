@@ -0,0 +1,78 @@
+package Attributes;
+
+import AbstractObjects.Operators;
+import Concepts.IndividualConcept;
+import Concepts.SetConcept;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import MISC.Context;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests frozen constraint lists, their interning and the cached implications. */
+public class ConstraintCacheTest {
+
+    @Test
+    public void frozenLists() {
+        Context context = new Context("test");
+        DataAttribute year = new DataAttribute("year",context,true,null,(ConcreteType)context.getDataType("Integer"));
+        AttributeValueList list = new AttributeValueList(year,new IntegerObject(2015));
+        int hash = list.hashCode();
+        assertSame(list,list.freeze());
+        assertEquals(hash,list.hashCode());
+        try{list.add(year,new IntegerObject(2016)); fail("a frozen list must not change");}
+        catch(IllegalStateException ex) {}
+
+        AttributeValueList copy = list.copy();
+        assertFalse(copy.isFrozen());
+        assertEquals(list,copy);
+        assertEquals(hash,copy.hashCode());
+        copy.add(year,new IntegerObject(2016));
+        assertNotEquals(list,copy);
+
+        copy = new AttributeValueList(year,Operators.LESS,new IntegerObject(2020));
+        assertFalse(list.copy().add(year,Operators.LESS,new IntegerObject(2020)).implies(list,context));
+        copy.clear();
+        copy.add(year,new IntegerObject(2015));
+        assertTrue(copy.implies(list,context));}
+
+    @Test
+    public void intern() {
+        Context context = new Context("test");
+        DataAttribute year = new DataAttribute("year",context,true,null,(ConcreteType)context.getDataType("Integer"));
+        AttributeValueList list1 = new AttributeValueList(year,new IntegerObject(2015));
+        AttributeValueList list2 = new AttributeValueList(year,new IntegerObject(2015));
+        AttributeValueList canonical = context.constraintCache.intern(list1);
+        assertTrue(canonical.isFrozen());
+        assertFalse(list1.isFrozen());
+        assertSame(canonical,context.constraintCache.intern(list2));
+        assertSame(canonical,context.constraintCache.intern(canonical));}
+
+    @Test
+    public void implications() {
+        Context context = new Context("test");
+        ConstraintCache cache = context.constraintCache;
+        DataAttribute year = new DataAttribute("year",context,true,null,(ConcreteType)context.getDataType("Integer"));
+        ConceptAttribute place = new ConceptAttribute("place",context,true);
+        IndividualConcept berlin = new IndividualConcept("berlin",context);
+        AttributeValueList stored = cache.intern(new AttributeValueList(year,new IntegerObject(2015)));
+        AttributeValueList query = new AttributeValueList(year,Operators.LESS,new IntegerObject(2020));
+        long hits = cache.getHits(), misses = cache.getMisses();
+        assertTrue(cache.implies(stored,query,context));
+        assertTrue(cache.implies(stored,new AttributeValueList(year,Operators.LESS,new IntegerObject(2020)),context));
+        assertEquals(misses + 1,cache.getMisses());
+        assertEquals(hits + 1,cache.getHits());
+        query.add(year,Operators.GREATER,new IntegerObject(2017));  // the cached key is a frozen copy
+        assertFalse(cache.implies(stored,query,context));
+        assertEquals(misses + 2,cache.getMisses());
+
+        AttributeValueList inBerlin = cache.intern(new AttributeValueList(place,berlin));
+        AttributeValueList sameBerlin = new AttributeValueList(place,berlin);
+        cache.implies(inBerlin,sameBerlin,context);
+        cache.implies(inBerlin,sameBerlin,context);
+        assertEquals(hits + 2,cache.getHits());
+        context.conceptHierarchy.addSubnode(new SetConcept("city",context),berlin);   // the hierarchy changes
+        cache.implies(inBerlin,sameBerlin,context);
+        assertEquals(misses + 4,cache.getMisses());}
+}
@@ -0,0 +1,72 @@
+package Attributes;
+
+import AbstractObjects.DataObject;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import MISC.Context;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/** Tests the memoization of function values. */
+public class FunctionAttributeTest {
+
+    /** @return the sorted values of the attribute, computed by the attribute itself */
+    private static String values(Attribute attribute, Concept concept, Context context) {
+        Stream<DataObject> values = attribute.stream(concept,Scope.LOCAL,null,null,null,context);
+        if(values == null) {return "[]";}
+        return values.map(Object::toString).sorted().collect(Collectors.toList()).toString();}
+
+    @Test
+    public void memoized() {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute tag = new DataAttribute("tag",context,false,null,integer);
+        FunctionAttribute twice = new FunctionAttribute("twice",context,null,integer);
+        twice.setUnaryFunction(null,value -> new IntegerObject(2 * (Integer)value),tag);
+        assertTrue(twice.setMemoized(100,context));
+        IndividualConcept p = new IndividualConcept("p",context);
+        p.add(tag,new IntegerObject(1),Scope.LOCAL,context,errors);
+        assertEquals("[2]",values(twice,p,context));
+        assertEquals("[2]",values(twice,p,context));
+        assertTrue(twice.getMemoStatistics(),twice.getMemoStatistics().contains("1 hits, 1 misses"));
+        p.add(tag,new IntegerObject(3),Scope.LOCAL,context,errors);
+        assertEquals("[2, 6]",values(twice,p,context));
+        assertTrue(twice.setMemoized(0,context));
+        assertFalse(twice.isMemoized());
+        assertEquals("[2, 6]",values(twice,p,context));
+        assertEquals("",errors.toString());}
+
+    /** switching the memoization off while other threads read the values must not fail */
+    @Test
+    public void switchOff() throws InterruptedException {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute tag = new DataAttribute("tag",context,false,null,integer);
+        FunctionAttribute twice = new FunctionAttribute("twice",context,null,integer);
+        twice.setUnaryFunction(null,value -> new IntegerObject(2 * (Integer)value),tag);
+        IndividualConcept[] concepts = new IndividualConcept[100];
+        for(int i = 0; i < concepts.length; ++i) {
+            concepts[i] = new IndividualConcept("p" + i,context);
+            concepts[i].add(tag,new IntegerObject(i),Scope.LOCAL,context,errors);}
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try{for(int n = 0; n < 200; ++n) {
+                    for(int i = 0; i < concepts.length; ++i) {
+                        assertEquals("[" + 2*i + "]",values(twice,concepts[i],context));}}}
+            catch(Throwable ex) {failure.set(ex);}});
+        reader.start();
+        while(reader.isAlive()) {
+            twice.setMemoized(10,context);
+            twice.setMemoized(0,context);}
+        reader.join();
+        assertNull(failure.get());
+        assertEquals("",errors.toString());}
+}
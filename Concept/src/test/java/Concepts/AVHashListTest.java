@@ -0,0 +1,42 @@
+package Concepts;
+
+import AbstractObjects.Operators;
+import Attributes.AttributeValueList;
+import Attributes.DataAttribute;
+import ConcreteDomain.AtomicTypes.FloatObject;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.AtomicTypes.StringObject;
+import ConcreteDomain.ConcreteType;
+import MISC.Context;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests the EQUALS lookup of AVHashList through the index of the unconstrained values. */
+public class AVHashListTest {
+
+    @Test
+    public void equalsLookup() {
+        Context context = new Context("test");
+        DataAttribute year = new DataAttribute("year",context,true,null,(ConcreteType)context.getDataType("Integer"));
+        AVHashList list = new AVHashList();
+        for(int i = 0; i < 100; ++i) {list.addValue(new AVSingletonUnconstrained(new IntegerObject(i)));}
+        list.addValue(new AVSingletonConstrained(new IntegerObject(500),new AttributeValueList(year,new IntegerObject(2015))));
+        assertEquals(42,((IntegerObject)list.getFirst(Operators.EQUALS,new IntegerObject(42),null,context)).value);
+        assertEquals(500,((IntegerObject)list.getFirst(Operators.EQUALS,new IntegerObject(500),null,context)).value);
+        assertNull(list.getFirst(Operators.EQUALS,new IntegerObject(501),null,context));
+        assertEquals(7,((IntegerObject)list.getFirst(Operators.EQUALS,new FloatObject(7.0f),null,context)).value);}
+
+    @Test
+    public void mixedClasses() {
+        Context context = new Context("test");
+        AVHashList list = new AVHashList();
+        list.addValue(new AVSingletonUnconstrained(new FloatObject(2.5f)));
+        list.addValue(new AVSingletonUnconstrained(new IntegerObject(3)));
+        assertEquals(3,((IntegerObject)list.getFirst(Operators.EQUALS,new FloatObject(3.0f),null,context)).value);
+        list.removeValue(new FloatObject(2.5f));
+        list.removeValue(new IntegerObject(3));
+        list.addValue(new AVSingletonUnconstrained(new StringObject("ab")));
+        assertNull(list.getFirst(Operators.EQUALS,new StringObject("b"),null,context));
+        assertEquals("ab",list.getFirst(Operators.EQUALS,new StringObject("ab"),null,context).toString());}
+}
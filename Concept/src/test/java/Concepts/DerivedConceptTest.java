@@ -0,0 +1,145 @@
+package Concepts;
+
+import AbstractObjects.DataObject;
+import Attributes.DataAttribute;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import DAGs.DAG;
+import MISC.Context;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.function.BiPredicate;
+
+import static org.junit.Assert.*;
+
+/** Tests the parallel reclassification of DerivedConcepts.
+ * The comparison with classifying the individuals one by one is in Benchmarks.DerivedConceptBenchmark. */
+public class DerivedConceptTest {
+
+    /** accepts the concepts whose age is at least 18 */
+    private static BiPredicate<Concept,Context> adult(DataAttribute age) {
+        return (concept,context) -> {
+            DataObject value = concept.getFirst(age,context);
+            return value != null && (Integer)value.get() >= 18;};}
+
+    /** creates a context with the given number of persons aged 0 to 99
+     *
+     * @param size the number of persons
+     * @return the context
+     */
+    private static Context persons(int size) {
+        Context context = new Context("persons");
+        SetConcept person = new SetConcept("person",context);
+        DataAttribute age = new DataAttribute("age",context,true,null,(ConcreteType)context.getDataType("Integer"));
+        StringBuilder errors = new StringBuilder();
+        for(int i = 0; i < size; ++i) {
+            IndividualConcept individual = new IndividualConcept("p" + i,context,person);
+            individual.add(age,new IntegerObject(i % 100),Scope.LOCAL,context,errors);}
+        assertEquals("",errors.toString());
+        return context;}
+
+    @Test
+    public void restructureHierarchies() {
+        Context context = persons(1000);
+        SetConcept person = (SetConcept)context.getConcept("person");
+        DataAttribute age = (DataAttribute)context.getAttribute("age");
+        DerivedConcept adult = new DerivedConcept("adult",context,person,adult(age));
+        assertEquals(820,DerivedConcept.restructureHierarchies(Collections.singletonList(adult),context));
+        Concept child = context.getConcept("p17"), grownUp = context.getConcept("p18");
+        assertTrue(context.conceptHierarchy.isSubnodeOf(grownUp,adult));
+        assertFalse(context.conceptHierarchy.isSubnodeOf(child,adult));
+        assertTrue(context.conceptHierarchy.isSubnodeOf(grownUp,person));
+        assertFalse(context.conceptHierarchy.getSupernodes(grownUp).contains(context.conceptHierarchy.getNode(person)));
+        assertEquals(0,DerivedConcept.restructureHierarchies(Collections.singletonList(adult),context));}
+
+    /** accepts the concepts whose age is at least 18 (serializable) */
+    private static BiPredicate<Concept,Context> serializableAdult(DataAttribute age) {
+        return (BiPredicate<Concept,Context> & Serializable)(concept,context) -> {
+            DataObject value = concept.getFirst(age,context);
+            return value != null && (Integer)value.get() >= 18;};}
+
+    @Test
+    public void incremental() {
+        Context context = persons(0);
+        SetConcept person = (SetConcept)context.getConcept("person");
+        SetConcept student = new SetConcept("student",context);
+        context.conceptHierarchy.addSubnode(person,student);
+        DataAttribute age = (DataAttribute)context.getAttribute("age");
+        DerivedConcept adult = new DerivedConcept("adult",context,person,adult(age),age);
+        DAG<Concept> hierarchy = context.conceptHierarchy;
+        StringBuilder errors = new StringBuilder();
+
+        IndividualConcept anna = new IndividualConcept("anna",context);
+        anna.add(age,new IntegerObject(20),Scope.LOCAL,context,errors);
+        hierarchy.addSubnode(student,anna);              // below a subconcept of the superconcept
+        assertTrue(hierarchy.isSubnodeOf(anna,adult));
+
+        IndividualConcept bob = new IndividualConcept("bob",context,person);
+        assertFalse(hierarchy.isSubnodeOf(bob,adult));
+        bob.add(age,new IntegerObject(30),Scope.LOCAL,context,errors);   // a dependency changes
+        assertTrue(hierarchy.isSubnodeOf(bob,adult));
+
+        IndividualConcept carl = new IndividualConcept("carl",context);
+        carl.add(age,new IntegerObject(40),Scope.LOCAL,context,errors);
+        context.derivedConceptDispatcher.suspend();
+        try{hierarchy.addSubnode(person,carl);}
+        finally{context.derivedConceptDispatcher.resume();}
+        assertFalse(hierarchy.isSubnodeOf(carl,adult));
+        DerivedConcept.restructureHierarchies(Collections.singletonList(adult),context);
+        assertTrue(hierarchy.isSubnodeOf(carl,adult));
+
+        context.removeConcept("adult");
+        assertNull(adult.getContext());
+        IndividualConcept dora = new IndividualConcept("dora",context);
+        dora.add(age,new IntegerObject(50),Scope.LOCAL,context,errors);
+        hierarchy.addSubnode(person,dora);
+        assertFalse(hierarchy.isSubnodeOf(dora,adult));
+        assertEquals("",errors.toString());}
+
+    @Test
+    public void deserialized() throws Exception {
+        Context context = persons(0);
+        SetConcept person = (SetConcept)context.getConcept("person");
+        DataAttribute age = (DataAttribute)context.getAttribute("age");
+        DerivedConcept adult = new DerivedConcept("adult",context,person,serializableAdult(age));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {out.writeObject(adult);}
+        context.removeConcept("adult");
+        DerivedConcept copy;
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (DerivedConcept)in.readObject();}
+        assertNull(copy.getContext());
+        context.putConcept(copy);
+        assertSame(context,copy.getContext());
+
+        StringBuilder errors = new StringBuilder();
+        IndividualConcept anna = new IndividualConcept("anna",context);
+        anna.add(age,new IntegerObject(20),Scope.LOCAL,context,errors);
+        context.conceptHierarchy.addSubnode(person,anna);
+        assertTrue(context.conceptHierarchy.isSubnodeOf(anna,copy));
+        assertEquals("",errors.toString());}
+
+    /** checks that a change waits while the hierarchy is frozen, whereas the reads go on. */
+    @Test
+    public void frozenHierarchy() throws Exception {
+        Context context = persons(10);
+        DAG<Concept> hierarchy = context.conceptHierarchy;
+        Concept person = context.getConcept("person"), p0 = context.getConcept("p0");
+        hierarchy.freeze();
+        Thread writer = new Thread(() -> hierarchy.removeSubnode(person,p0));
+        try{
+            writer.start();
+            writer.join(200);
+            assertTrue(writer.isAlive());
+            Thread reader = new Thread(() -> assertTrue(hierarchy.isSubnodeOf(p0,person)));
+            reader.start();
+            reader.join(1000);
+            assertFalse(reader.isAlive());
+            assertTrue(hierarchy.isSubnodeOf(p0,person));}
+        finally{hierarchy.thaw();}
+        writer.join();
+        assertFalse(hierarchy.isFrozen());
+        assertFalse(hierarchy.isSubnodeOf(p0,person));}
+}
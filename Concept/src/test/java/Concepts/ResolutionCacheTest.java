@@ -0,0 +1,54 @@
+package Concepts;
+
+import Attributes.DataAttribute;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import IO.ContextSnapshot;
+import MISC.Context;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/** Tests that the cached resolutions see all value changes and that the cache is bounded. */
+public class ResolutionCacheTest {
+
+    @Test
+    public void invalidation() {
+        Context context = new Context("test");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute age = new DataAttribute("age",context,true,null,integer);
+        SetConcept person = new SetConcept("person",context);
+        IndividualConcept p = new IndividualConcept("p",context);
+        context.conceptHierarchy.addSubnode(person,p);
+
+        assertNull(p.getFirst(age,context));
+        context.putValue(p,age,new AttributeValue(new AVSingletonUnconstrained(new IntegerObject(1)),Scope.LOCAL));
+        assertEquals(new IntegerObject(1),p.getFirst(age,context));
+
+        context.removeValue(p,age);
+        assertNull(p.getFirst(age,context));
+        ContextSnapshot.putAttributeValue(p,age,new AttributeValue(new AVSingletonUnconstrained(new IntegerObject(2)),Scope.LOCAL),context,errors);
+        assertEquals(new IntegerObject(2),p.getFirst(age,context));
+
+        ContextSnapshot.putAttributeValue(person,age,new AttributeValue(new AVSingletonUnconstrained(new IntegerObject(3)),Scope.ALL),context,errors);
+        assertEquals("[2, 3]",p.stream(age,context).map(Object::toString).sorted().collect(Collectors.toList()).toString());
+        assertEquals("",errors.toString());}
+
+    @Test
+    public void bounded() {
+        int max = ResolutionCache.maxConcepts;
+        ResolutionCache.maxConcepts = 100;
+        try{
+            Context context = new Context("test");
+            ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+            DataAttribute age = new DataAttribute("age",context,true,null,integer);
+            for(int i = 0; i < 1000; ++i) {
+                IndividualConcept p = new IndividualConcept("p" + i,context);
+                assertNull(p.getFirst(age,context));
+                assertTrue(context.resolutionCache.size() <= 100);}
+            assertTrue(context.resolutionCache.size() > 0);}
+        finally {ResolutionCache.maxConcepts = max;}}
+}
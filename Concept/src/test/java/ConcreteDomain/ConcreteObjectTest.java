@@ -0,0 +1,35 @@
+package ConcreteDomain;
+
+import AbstractObjects.Operators;
+import ConcreteDomain.AtomicTypes.FloatObject;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.AtomicTypes.StringObject;
+import ConcreteDomain.SetTypes.StringList;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests the compare dispatch of ConcreteObject. The throughput is measured by Benchmarks.ConcreteObjectBenchmark. */
+public class ConcreteObjectTest {
+
+    @Test
+    public void compare() {
+        IntegerObject one = new IntegerObject(1);
+        IntegerObject two = new IntegerObject(2);
+        FloatObject half = new FloatObject(1.5f);
+        assertTrue(one.compare(Operators.LESS,two));
+        assertFalse(two.compare(Operators.LESS,one));
+        assertTrue(one.compare(Operators.EQUALS,new IntegerObject(1)));
+        assertTrue(one.compare(Operators.LESS,half));
+        assertTrue(half.compare(Operators.GREATER,one));
+        assertFalse(two.compare(Operators.LESSEQUALS,half));}
+
+    @Test
+    public void stringList() {
+        StringList list = new StringList("c","a","b");
+        assertEquals("[a, b, c]",list.values.toString());
+        assertTrue(new StringObject("b").compare(Operators.IN,list));
+        assertFalse(new StringObject("d").compare(Operators.IN,list));
+        assertFalse(new StringObject("a").compare(Operators.EQUALS,list));
+        assertTrue(new StringObject("a").compare(Operators.EQUALS,new StringList("a")));}
+}
@@ -0,0 +1,103 @@
+package DAGs;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/** Tests that a fork of a DAG copies only the nodes it changes, and still answers all queries as a full copy would. */
+public class DAGForkTest {
+
+    /** @return a DAG with the inner nodes A, B, C (upper case), the leaves x, y and n0..n999 below C */
+    private static DAG<String> base() {
+        DAG<String> dag = new DAG<>("base",(label -> Character.isLowerCase(label.charAt(0))));
+        dag.addSubnode("A","B");
+        dag.addSubnode("A","C");
+        dag.addSubnode("B","x");
+        dag.addSubnode("C","x");
+        dag.addSubnode("C","y");
+        for(int i = 0; i < 1000; ++i) {dag.addSubnode("C","n"+i);}
+        return dag;}
+
+    /** @return the number of nodes in the DAG's own tables */
+    private static int copies(DAG<String> dag) throws Exception {
+        int size = 0;
+        for(String name : new String[]{"innerNodes","leafNodes"}) {
+            Field field = DAG.class.getDeclaredField(name);
+            field.setAccessible(true);
+            size += ((Map)field.get(dag)).size();}
+        return size;}
+
+    /** @return the sorted leaves below the label */
+    private static String leaves(DAG<String> dag, String label) {
+        return dag.leafNodes(label).filter(l -> !l.startsWith("n")).sorted().collect(Collectors.toList()).toString();}
+
+    @Test
+    public void copies() throws Exception {
+        DAG<String> base = base();
+        DAG<String> fork = new DAG<>("fork",base);
+        assertTrue(fork.isShared());
+        fork.addSubnode("B","y");
+        assertFalse(fork.isShared());
+        assertEquals(4,copies(fork));    // y, B, C, A
+        assertTrue(fork.isSubnodeOf("y","B"));
+        assertFalse(base.isSubnodeOf("y","B"));
+        assertTrue(fork.isSubnodeOf("n5","A"));
+        assertTrue(fork.isSubnodeOf("x","A"));
+        assertEquals("[x, y]",leaves(fork,"B"));
+        assertEquals("[x]",leaves(base,"B"));
+        assertEquals(base.size(),fork.size());
+        assertEquals(3,fork.depth());
+
+        fork.removeSubnode("C","x");
+        assertFalse(fork.isSubnodeOf("x","C"));
+        assertTrue(fork.isSubnodeOf("x","A"));
+        assertTrue(base.isSubnodeOf("x","C"));
+        assertEquals(5,copies(fork));
+
+        fork.addSubnode("C","z");
+        assertTrue(fork.isSubnodeOf("z","A"));
+        assertNull(base.getNode("z"));
+        assertEquals(base.size()+1,fork.size());
+        assertSame(fork.getNode("C"),fork.getSupernodes("n7").get(0));
+
+        fork.removeNode("B");
+        assertNull(fork.getNode("B"));
+        assertNotNull(base.getNode("B"));
+        assertTrue(fork.isSubnodeOf("y","A"));
+        assertEquals("[x, y, z]",leaves(fork,"A"));
+        assertEquals("[x, y]",leaves(base,"A"));
+        assertEquals(base.size(),fork.size());
+        assertNull(fork.getCycle());}
+
+    @Test
+    public void nested() {
+        DAG<String> base = base();
+        DAG<String> fork = new DAG<>("fork",base);
+        fork.addSubnode("B","y");
+        DAG<String> nested = new DAG<>("nested",fork);
+        nested.addSubnode("B","z");
+        nested.removeSubnode("C","x");
+        assertTrue(nested.isSubnodeOf("y","B"));
+        assertTrue(nested.isSubnodeOf("z","A"));
+        assertFalse(nested.isSubnodeOf("x","C"));
+        assertTrue(fork.isSubnodeOf("x","C"));
+        assertNull(fork.getNode("z"));
+        assertEquals("[x, y, z]",leaves(nested,"B"));
+        assertEquals("[x, y]",leaves(fork,"B"));}
+
+    @Test
+    public void baseIsLocked() {
+        DAG<String> base = base();
+        DAG<String> fork = new DAG<>("fork",base);
+        try{base.addSubnode("B","y"); fail("the base DAG has been changed while it has a fork");}
+        catch(IllegalStateException ex) {}
+        fork.addSubnode("B","y");
+        fork.discard();
+        fork.discard();
+        base.addSubnode("C","z");
+        assertTrue(base.isSubnodeOf("z","A"));}
+}
@@ -0,0 +1,63 @@
+package Data;
+
+import AbstractObjects.ItemWithId;
+import Attributes.DataAttribute;
+import Concepts.IndividualConcept;
+import Concepts.SetConcept;
+import ConcreteDomain.ConcreteType;
+import MISC.Context;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/** Tests the global index of items: lookups by pathname and class, collisions, and the class view. */
+public class GlobalDataTest {
+
+    @Test
+    public void collisions() {
+        GlobalData.clear();
+        Context context = new Context("test");
+        SetConcept person = new SetConcept("person",context);
+        DataAttribute attribute = new DataAttribute("person",context,true,null,(ConcreteType)context.getDataType("Integer"));
+        StringBuilder errors = new StringBuilder();
+        assertTrue(GlobalData.addItem(person,errors));
+        assertFalse(GlobalData.addItem(attribute,errors));
+        assertEquals("'person' is already a 'Concepts.SetConcept'\n",errors.toString());
+        assertSame(person,GlobalData.getItem("person"));
+        assertSame(person,GlobalData.getItem(SetConcept.class,"person"));
+        assertNull(GlobalData.getItem(DataAttribute.class,"person"));
+        assertFalse(GlobalData.exists(DataAttribute.class,"person"));
+
+        SetConcept person2 = new SetConcept("person",context);   // the same class: replaced
+        assertTrue(GlobalData.addItem(person2));
+        assertSame(person2,GlobalData.getItem("person"));
+        assertEquals("[person]",names(SetConcept.class));
+
+        GlobalData.removeItem(person);                          // no longer indexed
+        assertSame(person2,GlobalData.getItem("person"));
+        GlobalData.removeItem(person2);
+        assertNull(GlobalData.getItem("person"));
+        assertEquals("[]",names(SetConcept.class));
+        assertTrue(GlobalData.addItem(attribute));
+        assertSame(attribute,GlobalData.getItem(DataAttribute.class,"person"));
+        GlobalData.clear();}
+
+    @Test
+    public void getItems() {
+        GlobalData.clear();
+        Context context = new Context("test");
+        GlobalData.addItem(new SetConcept("person",context));
+        GlobalData.addItem(new SetConcept("car",context));
+        GlobalData.addItem(new IndividualConcept("anna",context));
+        assertEquals("[car, person]",names(SetConcept.class));
+        assertEquals("[anna]",names(IndividualConcept.class));
+        assertEquals("[]",names(DataAttribute.class));
+        GlobalData.clear();
+        assertEquals("[]",names(SetConcept.class));}
+
+    /** @return the sorted pathnames of the items of the class */
+    private static String names(Class clazz) {
+        return GlobalData.getItems(clazz).map(ItemWithId::getPathname).sorted().collect(Collectors.toList()).toString();}
+}
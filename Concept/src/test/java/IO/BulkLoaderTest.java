@@ -0,0 +1,130 @@
+package IO;
+
+import AbstractObjects.DataObject;
+import Attributes.*;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.AtomicTypes.StringObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import DAGs.DAG;
+import DAGs.InnerNode;
+import MISC.Activity;
+import MISC.Context;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+/** Tests that the BulkLoader yields the same context as the per-item methods. */
+public class BulkLoaderTest {
+
+    /** the data: a set concept "animal", its subconcepts "cat" and "dog", and individuals with legs and friends */
+    private static final String[] sets = {"animal","cat","dog"};
+    private static final String[] individuals = {"tom","rex","kitty"};
+    private static final int[] legs = {4,4,3};
+
+    /** creates the context with the attributes */
+    private static Context context() {
+        Context context = new Context("test");
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        new DataAttribute("legs",context,true,null,integer);
+        new ColumnarDataAttribute("weight",context,null,integer);
+        new ConceptAttribute("friend",context,false);
+        return context;}
+
+    /** @return the edges of the concept hierarchy and the values of the individuals, sorted */
+    private static String contents(Context context) {
+        TreeSet<String> contents = new TreeSet<>();
+        for(String name : sets) {
+            Concept concept = context.getConcept(name);
+            ArrayList<InnerNode<Concept>> supernodes = context.conceptHierarchy.getSupernodes(concept);
+            if(supernodes != null) {for(InnerNode<Concept> node : supernodes) {contents.add(node.label.getName() + " > " + name);}}}
+        for(String name : individuals) {
+            Concept concept = context.getConcept(name);
+            for(InnerNode<Concept> node : context.conceptHierarchy.getSupernodes(concept)) {
+                contents.add(node.label.getName() + " > " + name);}
+            for(String attribute : new String[]{"legs","weight","friend"}) {
+                DataObject value = concept.getFirst(context.getAttribute(attribute),context);
+                if(value != null) {contents.add(name + "." + attribute + " = " + value);}}}
+        return contents.toString();}
+
+    @Test
+    public void sameAsPerItem() {
+        Context single = context();
+        StringBuilder errors = new StringBuilder();
+        SetConcept animal = new SetConcept("animal",single);
+        SetConcept cat = new SetConcept("cat",single,animal);
+        SetConcept dog = new SetConcept("dog",single,animal);
+        IndividualConcept tom = new IndividualConcept("tom",single,cat);
+        IndividualConcept rex = new IndividualConcept("rex",single,dog);
+        IndividualConcept kitty = new IndividualConcept("kitty",single,cat);
+        Concept[] singles = {tom,rex,kitty};
+        for(int i = 0; i < singles.length; ++i) {
+            singles[i].add(single.getAttribute("legs"),new IntegerObject(legs[i]),Scope.LOCAL,single,errors);
+            singles[i].add(single.getAttribute("weight"),new IntegerObject(10*i),Scope.LOCAL,single,errors);}
+        tom.add(single.getAttribute("friend"),kitty,Scope.LOCAL,single,errors);
+
+        Context bulk = context();
+        BulkLoader loader = new BulkLoader(bulk);
+        Concept[] setConcepts = loader.addSetConcepts(sets);
+        Concept[] bulks = loader.addIndividuals(individuals);
+        loader.addEdges(new Concept[]{setConcepts[0],setConcepts[0],setConcepts[1],setConcepts[2],setConcepts[1]},
+                        new Concept[]{setConcepts[1],setConcepts[2],bulks[0],bulks[1],bulks[2]});
+        DataObject[] legValues = new DataObject[legs.length];
+        DataObject[] weights = new DataObject[legs.length];
+        for(int i = 0; i < legs.length; ++i) {legValues[i] = new IntegerObject(legs[i]); weights[i] = new IntegerObject(10*i);}
+        loader.addValues(bulk.getAttribute("legs"),bulks,legValues,Scope.LOCAL);
+        loader.addValues(bulk.getAttribute("weight"),bulks,weights,Scope.LOCAL);
+        loader.addValues(bulk.getAttribute("friend"),new Concept[]{bulks[0]},new DataObject[]{bulks[2]},Scope.LOCAL);
+        assertTrue(loader.finish(errors));
+        assertEquals("",errors.toString());
+
+        assertEquals(contents(single),contents(bulk));
+        for(Concept concept : bulks) {assertSame(concept,bulk.conceptIds.get(concept.getId()));}}
+
+    @Test
+    public void rangeErrors() {
+        Context context = context();
+        StringBuilder errors = new StringBuilder();
+        BulkLoader loader = new BulkLoader(context);
+        Concept[] concepts = loader.addIndividuals(new String[]{"a","b"});
+        loader.addValues(context.getAttribute("legs"),concepts,new DataObject[]{new IntegerObject(2),new StringObject("two")},Scope.LOCAL);
+        assertFalse(loader.finish(errors));
+        assertTrue(errors.toString(),errors.toString().contains("Concept b, attribute legs: value"));
+        assertTrue(errors.toString(),errors.toString().contains("is not in its range"));
+        assertEquals(2,((IntegerObject)concepts[0].getFirst(context.getAttribute("legs"),context)).value);
+        assertNull(concepts[1].getFirst(context.getAttribute("legs"),context));}
+
+    @Test
+    public void observers() {
+        Context context = context();
+        SetConcept existing = new SetConcept("animal",context);
+        ArrayList<String> added = new ArrayList<>();
+        context.addConceptObserver((concept,add) -> {if(add) {added.add(concept.getName());}});
+        ArrayList<Activity> values = new ArrayList<>();
+        context.getAttribute("legs").addValueObserver((concept,value,activity) -> values.add(activity));
+        List<Integer> batches = new ArrayList<>();
+        context.conceptHierarchy.addSubNodeAddedObserver(new DAG.BatchObserver<Concept>() {
+            @Override
+            public void accept(Concept superconcept, Concept subconcept, Activity activity) {batches.add(1);}
+            @Override
+            public void acceptAll(List<Concept> pairs, Activity activity) {batches.add(pairs.size()/2);}});
+
+        BulkLoader loader = new BulkLoader(context);
+        Concept[] concepts = loader.addSetConcepts(new String[]{"animal","cat","dog","cat"});
+        assertSame(existing,concepts[0]);
+        assertSame(concepts[1],concepts[3]);
+        assertEquals("[cat, dog]",added.toString());
+
+        Concept[] cats = loader.addIndividuals(new String[]{"tom"});
+        loader.addEdges(new Concept[]{existing,existing,concepts[1]},new Concept[]{concepts[1],concepts[2],cats[0]});
+        loader.addValues(context.getAttribute("legs"),new Concept[]{cats[0],cats[0]},
+                new DataObject[]{new IntegerObject(4),new IntegerObject(5)},Scope.LOCAL);
+        assertTrue(loader.finish(new StringBuilder()));
+        assertEquals("[3]",batches.toString());
+        assertEquals("[CHANGE]",values.toString());
+        assertEquals("[cat, dog, tom]",added.toString());}
+}
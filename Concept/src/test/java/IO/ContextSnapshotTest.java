@@ -0,0 +1,132 @@
+package IO;
+
+import Attributes.*;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.AtomicTypes.StringObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import MISC.Context;
+import MISC.Namespace;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/** Tests the round trip of a Context through a snapshot and the detection of corrupt snapshots.
+ * The load time is measured in Benchmarks.ContextSnapshotBenchmark. */
+public class ContextSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** creates a small context with all kinds of attributes */
+    private static Context sample() {
+        Context context = new Context("sample");
+        StringBuilder errors = new StringBuilder();
+        SetConcept person = new SetConcept("person",context);
+        SetConcept student = new SetConcept("student",context);
+        context.conceptHierarchy.addSubnode(person,student);
+        IndividualConcept bob = new IndividualConcept("bob",context,student);
+        IndividualConcept ann = new IndividualConcept("ann",context,student);
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        ConcreteType string = (ConcreteType)context.getDataType("String");
+        DataAttribute legs = new DataAttribute("legs",context,true,null,integer);
+        DataAttribute nick = new DataAttribute("nick",context,false,null,string);
+        ColumnarDataAttribute age = new ColumnarDataAttribute("age",context,null,integer);
+        ConceptAttribute friend = new ConceptAttribute("friend",context,false,person,person);
+        person.add(legs,new IntegerObject(2),Scope.DEFAULT,context,errors);
+        bob.add(legs,new IntegerObject(3),Scope.LOCAL,context,errors);
+        bob.add(nick,new StringObject("b1",context.stringDictionary),Scope.LOCAL,context,errors);
+        bob.add(nick,new StringObject("b2",context.stringDictionary),Scope.LOCAL,context,errors);
+        bob.add(age,new IntegerObject(30),Scope.LOCAL,context,errors);
+        ann.add(age,new IntegerObject(20),Scope.LOCAL,context,errors);
+        bob.add(friend,ann,Scope.LOCAL,context,errors);
+        assertEquals("",errors.toString());
+        return context;}
+
+    /** checks that the context has the sample's contents */
+    private static void checkSample(Context context) {
+        Concept bob = context.getConcept("bob"), ann = context.getConcept("ann");
+        assertNotNull(bob);
+        assertTrue(context.conceptHierarchy.isSubnodeOf(bob,context.getConcept("person")));
+        Attribute legs = context.getAttribute("legs");
+        assertEquals(new IntegerObject(3),bob.getFirst(legs,context));
+        assertEquals(new IntegerObject(2),ann.getFirst(legs,context));
+        assertEquals("[b1, b2]",bob.stream(context.getAttribute("nick"),context).map(Object::toString).collect(Collectors.toList()).toString());
+        Attribute age = context.getAttribute("age");
+        assertTrue(age instanceof ColumnarDataAttribute);
+        assertEquals(new IntegerObject(30),bob.getFirst(age,context));
+        assertEquals(new IntegerObject(20),ann.getFirst(age,context));
+        assertSame(ann,bob.getFirst(context.getAttribute("friend"),context));}
+
+    @Test
+    public void roundTrip() throws Exception {
+        File file = folder.newFile("sample.snap");
+        StringBuilder errors = new StringBuilder();
+        assertTrue(errors.toString(),ContextSnapshot.write(sample(),file,errors));
+        assertTrue(errors.toString(),ContextSnapshot.validate(file,errors));
+        Context context = new Context("copy");
+        assertTrue(errors.toString(),ContextSnapshot.read(file,context,errors));
+        checkSample(context);}
+
+    /** reads the snapshot through windows smaller than its records */
+    @Test
+    public void smallWindows() throws Exception {
+        File file = folder.newFile("windows.snap");
+        StringBuilder errors = new StringBuilder();
+        assertTrue(ContextSnapshot.write(sample(),file,errors));
+        Field windowSize = ContextSnapshot.class.getDeclaredField("windowSize");
+        windowSize.setAccessible(true);
+        int size = windowSize.getInt(null);
+        windowSize.setInt(null,7);
+        try{Context context = new Context("copy");
+            assertTrue(errors.toString(),ContextSnapshot.read(file,context,errors));
+            checkSample(context);}
+        finally {windowSize.setInt(null,size);}}
+
+    @Test
+    public void corrupt() throws Exception {
+        File file = folder.newFile("corrupt.snap");
+        StringBuilder errors = new StringBuilder();
+        assertTrue(ContextSnapshot.write(sample(),file,errors));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file.toPath(),bytes);
+        assertFalse(ContextSnapshot.validate(file,errors));
+        assertTrue(errors.length() > 0);
+        errors.setLength(0);
+        Files.write(file.toPath(),Arrays.copyOf(bytes,bytes.length - 3));
+        assertFalse(ContextSnapshot.read(file,new Context("copy"),errors));
+        assertTrue(errors.length() > 0);}
+
+    /** checks that the concepts keep their namespaces, and that concepts with the same name in another namespace are not merged */
+    @Test
+    public void namespaces() throws Exception {
+        Context context = sample();
+        context.getConcept("bob").setName("bob",Namespace.setNamespace("snapshot.people"));
+        File file = folder.newFile("namespaces.snap");
+        StringBuilder errors = new StringBuilder();
+        assertTrue(errors.toString(),ContextSnapshot.write(context,file,errors));
+
+        Context copy = new Context("copy");
+        assertTrue(errors.toString(),ContextSnapshot.read(file,copy,errors));
+        assertEquals("snapshot.people.bob",copy.getConcept("bob").getPathname());
+        assertNull(copy.getConcept("ann").getNamespace());
+
+        Context other = new Context("other");
+        IndividualConcept bob = new IndividualConcept("bob",other);
+        bob.setName("bob",Namespace.setNamespace("snapshot.robots"));
+        assertFalse(ContextSnapshot.read(file,other,errors));
+        assertTrue(errors.toString(),errors.toString().contains("snapshot.people.bob clashes with snapshot.robots.bob"));
+        assertSame(bob,other.getConcept("bob"));
+        assertEquals("snapshot.robots.bob",bob.getPathname());
+        assertNull(bob.getFirst(other.getAttribute("legs"),other));
+        assertNotNull(other.getConcept("ann"));}
+}
@@ -0,0 +1,64 @@
+package IO;
+
+import AbstractObjects.DataObject;
+import ConcreteDomain.AtomicTypes.*;
+import Concepts.IndividualConcept;
+import MISC.Context;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Tests the round trip of data objects through the DataObjectCodec of the snapshots. */
+public class DataObjectCodecTest {
+
+    @Test
+    public void roundTrip() throws Exception {
+        Context context = new Context("codec");
+        IndividualConcept ann = new IndividualConcept("ann",context);
+        List<DataObject> values = Arrays.asList(null,ann,new IntegerObject(-5),new FloatObject(0.25f),BooleanObject.falseObject,
+                new StringObject("text"),new StringObject("text"),new AbsoluteTimePoint(2020),new EnumerationObject("red","colour"));
+        DataObjectCodec writer = new DataObjectCodec(concept -> concept == ann ? 0 : -1);
+        ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(valueBytes);
+        for(DataObject value : values) {writer.write(out,value);}
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        writer.writeStrings(new DataOutputStream(stringBytes));
+
+        String[] strings = DataObjectCodec.readStrings(ByteBuffer.wrap(stringBytes.toByteArray()));
+        assertEquals("[text]",Arrays.toString(strings));
+        DataObjectCodec reader = new DataObjectCodec(strings,index -> index == 0 ? ann : null,context);
+        ByteBuffer in = ByteBuffer.wrap(valueBytes.toByteArray());
+        ArrayList<String> back = new ArrayList<>();
+        for(int i = 0; i < values.size(); ++i) {back.add(String.valueOf(reader.read(in)));}
+        assertFalse(in.hasRemaining());
+        ArrayList<String> expected = new ArrayList<>();
+        for(DataObject value : values) {expected.add(String.valueOf(value));}
+        assertEquals(expected,back);}
+
+    @Test
+    public void withoutContext() throws Exception {
+        DataObjectCodec writer = new DataObjectCodec(concept -> -1);
+        ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(valueBytes);
+        writer.write(out,new StringObject("s"));
+        writer.write(out,new ConstantObject("c"));
+        DataObjectCodec reader = new DataObjectCodec(new String[]{"s","c"},index -> null,null);
+        ByteBuffer in = ByteBuffer.wrap(valueBytes.toByteArray());
+        StringObject string = (StringObject)reader.read(in);
+        assertEquals("s",string.value);
+        assertEquals(-1,string.getCode());
+        assertEquals("c",((ConstantObject)reader.read(in)).value);}
+
+    @Test(expected = IOException.class)
+    public void unknownConcept() throws Exception {
+        Context context = new Context("codec");
+        new DataObjectCodec(concept -> -1).write(new DataOutputStream(new ByteArrayOutputStream()),new IndividualConcept("ann",context));}
+}
@@ -0,0 +1,121 @@
+package IO;
+
+import AbstractObjects.Operators;
+import Attributes.*;
+import ConcreteDomain.AtomicTypes.*;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import MISC.Context;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Tests the round trips through the ModelCodec and its checks of untrusted input.
+ * Its sizes and speed are compared with Java serialization by Benchmarks.ModelCodecBenchmark.
+ */
+public class ModelCodecTest {
+
+    /** creates a context with a person ann who has an age and a friend bob */
+    private static Context sample() {
+        Context context = new Context("sample");
+        StringBuilder errors = new StringBuilder();
+        SetConcept person = new SetConcept("person",context);
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute age = new DataAttribute("age",context,true,person,integer);
+        ConceptAttribute friend = new ConceptAttribute("friend",context,false,person,person);
+        IndividualConcept ann = new IndividualConcept("ann",context,person);
+        IndividualConcept bob = new IndividualConcept("bob",context,person);
+        ann.add(age,new IntegerObject(30),Scope.LOCAL,context,errors);
+        ann.add(friend,bob,Scope.LOCAL,context,errors);
+        assertEquals("",errors.toString());
+        return context;}
+
+    @Test
+    public void values() throws Exception {
+        Context context = sample();
+        StringBuilder errors = new StringBuilder();
+        List<Object> values = Arrays.asList(new StringObject("hello"),new FloatObject(2.5f),new IntegerObject(-3),
+                BooleanObject.trueObject,"plain",-7,123456789012L);
+        assertEquals(values,ModelCodec.fromBytes(ModelCodec.toBytes(new ArrayList<>(values)),context,errors));
+        Concept ann = context.getConcept("ann");
+        assertSame(ann,ModelCodec.fromBytes(ModelCodec.toBytes(ann),context,errors));
+        AttributeValue friends = context.getValue(ann,context.getAttribute("friend"));
+        AttributeValue back = (AttributeValue)ModelCodec.fromBytes(ModelCodec.toBytes(friends),context,errors);
+        assertEquals(friends.scope,back.scope);
+        assertEquals(friends.toString(),back.toString());
+        assertEquals("",errors.toString());}
+
+    /** constraints refer to the attributes by name, and are resolved in the receiving context */
+    @Test
+    public void otherContext() throws Exception {
+        Context context = sample();
+        Context other = new Context("other");
+        SetConcept person = new SetConcept("person",other);
+        DataAttribute age = new DataAttribute("age",other,true,person,(ConcreteType)other.getDataType("Integer"));
+        StringBuilder errors = new StringBuilder();
+        AttributeValueList constraints = new AttributeValueList(context.getAttribute("age"),Operators.EQUALS,new IntegerObject(30));
+        AttributeValueList back = (AttributeValueList)ModelCodec.fromBytes(ModelCodec.toBytes(constraints),other,errors);
+        assertEquals(1,back.size());
+        assertTrue(back.toString().contains("age"));
+        assertEquals("",errors.toString());
+        assertNotSame(age,context.getAttribute("age"));
+
+        byte[] ann = ModelCodec.toBytes(context.getConcept("ann"));
+        assertNull(ModelCodec.fromBytes(ann,other,errors));
+        assertTrue(errors.toString().contains("unknown concept"));
+        assertNull(other.getConcept("ann"));
+        errors.setLength(0);
+        Concept detached = (Concept)ModelCodec.fromBytes(ann,null,errors);
+        assertEquals("ann",detached.getName());
+        assertTrue(detached.isIndividual());}
+
+    @Test(expected = IOException.class)
+    public void oversizedLength() throws Exception {
+        ModelCodec.fromBytes(new byte[]{(byte)1,(byte)0xff,(byte)0xff,(byte)0xff,(byte)0xff,(byte)0x0f},sample(),new StringBuilder());}
+
+    /** an object of a type which the ModelCodec does not know */
+    private static class Payload implements Serializable {
+        final int number;
+        Payload(int number) {this.number = number;}}
+
+    /** Java-serialized objects are only read if a serial filter accepts their classes */
+    @Test
+    public void serialized() throws Exception {
+        byte[] bytes = ModelCodec.toBytes(new Payload(5));
+        try{ModelCodec.fromBytes(bytes,null,new StringBuilder()); fail("a Java-serialized object has been read without filter");}
+        catch(IOException ex) {assertTrue(ex.getMessage().contains("not accepted"));}
+        ModelCodec.Input in = new ModelCodec.Input(new ByteArrayInputStream(bytes),null,new StringBuilder()).
+                setSerialFilter(ObjectInputFilter.Config.createFilter(Payload.class.getName() + ";!*"));
+        assertEquals(5,((Payload)in.readObject()).number);
+        in = new ModelCodec.Input(new ByteArrayInputStream(bytes),null,new StringBuilder()).
+                setSerialFilter(ObjectInputFilter.Config.createFilter("java.lang.*;!*"));
+        try{in.readObject(); fail("a class has been deserialized which the filter rejects");}
+        catch(InvalidClassException ex) {}}
+
+    /** a scope number which is out of range is an IOException, not an ArrayIndexOutOfBoundsException */
+    @Test
+    public void invalidScope() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ModelCodec.Output out = new ModelCodec.Output(bytes);
+        out.writeName("DataCarrier");
+        for(int i = 0; i < 4; ++i) {out.writeInt(0);}
+        out.writeInt(1);
+        out.writeName("ann");
+        out.writeName("age");
+        out.writeObject(new IntegerObject(30));
+        out.writeInt(99);
+        out.writeObject(null);
+        out.flush();
+        try{ModelCodec.fromBytes(bytes.toByteArray(),sample(),new StringBuilder()); fail("scope 99 has been read");}
+        catch(IOException ex) {assertEquals("Invalid scope number 99",ex.getMessage());}}
+}
@@ -0,0 +1,115 @@
+package MISC;
+
+import AbstractObjects.DataObject;
+import Attributes.DataAttribute;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import IO.BulkLoader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** Tests the change log of a context. The cost of recording is measured by Benchmarks.ChangeLogBenchmark. */
+public class ChangeLogTest {
+
+    /** @return the changes from the given sequence number on */
+    private static List<ChangeLog.Change> changes(ChangeLog log, long from) {
+        ArrayList<ChangeLog.Change> changes = new ArrayList<>();
+        log.read(from,log.getCapacity(),changes);
+        return changes;}
+
+    /** @return true if there is a change with the given kind, activity and items */
+    private static boolean contains(List<ChangeLog.Change> changes, ChangeLog.Kind kind, Activity activity, Object item, Object other) {
+        for(ChangeLog.Change change : changes) {
+            if(change.kind == kind && change.activity == activity && change.item == item && change.other == other) {return true;}}
+        return false;}
+
+    @Test
+    public void mutations() {
+        Context context = new Context("logged");
+        StringBuilder errors = new StringBuilder();
+        ChangeLog log = context.enableChangeLog(1000);
+        assertSame(log,context.enableChangeLog(5));
+        assertEquals(1024,log.getCapacity());
+        boolean[] registered = {false};
+        context.addConceptObserver((concept,added) -> registered[0] = context.getConcept(concept.getName()) == concept);
+        SetConcept person = new SetConcept("person",context);
+        assertTrue(registered[0]);
+        DataAttribute tag = new DataAttribute("tag",context,false,null,(ConcreteType)context.getDataType("Integer"));
+        IndividualConcept ann = new IndividualConcept("ann",context);
+        context.conceptHierarchy.addSubnode(person,ann);
+        ann.add(tag,new IntegerObject(1),Scope.LOCAL,context,errors);
+        tag.removeValue(ann,new IntegerObject(1),context);
+        context.putValue(ann,tag,new AttributeValue(new AVSingletonUnconstrained(new IntegerObject(2)),Scope.LOCAL));
+        context.removeValue(ann,tag);
+        context.conceptHierarchy.removeNode(ann);
+
+        List<ChangeLog.Change> changes = changes(log,0);
+        for(int i = 0; i < changes.size(); ++i) {assertEquals(i,changes.get(i).sequence);}
+        assertEquals(log.getNextSequence(),changes.size());
+        assertTrue(contains(changes,ChangeLog.Kind.CONCEPT,Activity.ADD,person,null));
+        assertTrue(contains(changes,ChangeLog.Kind.ATTRIBUTE,Activity.ADD,tag,null));
+        assertTrue(contains(changes,ChangeLog.Kind.SUBCONCEPT,Activity.ADD,person,ann));
+        assertTrue(contains(changes,ChangeLog.Kind.VALUE,Activity.ADD,ann,tag));
+        assertTrue(contains(changes,ChangeLog.Kind.VALUE,Activity.CHANGE,ann,tag));
+        ChangeLog.Change removal = changes.get(changes.size() - 2);
+        assertTrue(removal.kind == ChangeLog.Kind.VALUE && removal.activity == Activity.REMOVE && removal.value == null);
+        ChangeLog.Change last = changes.get(changes.size() - 1);
+        assertTrue(last.kind == ChangeLog.Kind.CONCEPT_NODE && last.activity == Activity.REMOVE && last.item == ann);
+
+        long next = log.getNextSequence();
+        Context fork = context.fork("fork");
+        person.add(tag,new IntegerObject(3),Scope.LOCAL,fork,errors);
+        assertEquals(next,log.getNextSequence());
+        assertEquals("",errors.toString());}
+
+    @Test
+    public void bulkLoad() {
+        Context context = new Context("logged");
+        StringBuilder errors = new StringBuilder();
+        SetConcept person = new SetConcept("person",context);
+        DataAttribute tag = new DataAttribute("tag",context,false,null,(ConcreteType)context.getDataType("Integer"));
+        ChangeLog log = context.enableChangeLog(100);
+        BulkLoader loader = new BulkLoader(context);
+        Concept[] persons = loader.addIndividuals(new String[]{"b1","b2"});
+        loader.addEdges(new Concept[]{person,person},persons);
+        loader.addValues(tag,persons,new DataObject[]{new IntegerObject(5),new IntegerObject(6)},Scope.LOCAL);
+        assertTrue(loader.finish(errors));
+        List<ChangeLog.Change> changes = changes(log,0);
+        assertEquals(6,changes.size());
+        assertTrue(contains(changes,ChangeLog.Kind.CONCEPT,Activity.ADD,persons[0],null));
+        assertTrue(contains(changes,ChangeLog.Kind.SUBCONCEPT,Activity.ADD,person,persons[1]));
+        assertTrue(contains(changes,ChangeLog.Kind.VALUE,Activity.CHANGE,persons[1],tag));
+        for(int i = 0; i < changes.size(); ++i) {assertEquals(i,changes.get(i).sequence);}}
+
+    /** the edges of a batch get consecutive sequence numbers */
+    @Test
+    public void recordEdges() {
+        ChangeLog log = new ChangeLog(4);
+        log.record(ChangeLog.Kind.CONSTANT,Activity.ADD,"c",null,null);
+        assertEquals(1,log.recordEdges(ChangeLog.Kind.SUBCONCEPT,Arrays.asList("a","b","a","c","b","d")));
+        assertEquals(4,log.getNextSequence());
+        List<ChangeLog.Change> changes = changes(log,1);
+        assertEquals(3,changes.size());
+        assertEquals("3 SUBCONCEPT ADD b d",changes.get(2).toString());}
+
+    @Test
+    public void overwriteAndAwait() throws Exception {
+        ChangeLog log = new ChangeLog(16);
+        for(int i = 0; i < 40; ++i) {log.record(ChangeLog.Kind.CONSTANT,Activity.ADD,"c" + i,null,null);}
+        List<ChangeLog.Change> changes = changes(log,0);
+        assertEquals(16,changes.size());
+        assertEquals(24,changes.get(0).sequence);
+        assertEquals(log.getOldestSequence(),changes.get(0).sequence);
+        assertFalse(log.await(100,50));
+        Thread producer = new Thread(() -> {
+            for(int i = 0; i < 10; ++i) {log.record(ChangeLog.Kind.CONSTANT,Activity.ADD,"d" + i,null,null);}});
+        producer.start();
+        assertTrue(log.await(49,5000));
+        producer.join();}
+}
@@ -0,0 +1,159 @@
+package MISC;
+
+import AbstractObjects.DataObject;
+import Attributes.*;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import IO.BulkLoader;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/** Tests that changes in a fork of a context are visible in the fork only. */
+public class ContextForkTest {
+
+    /** @return the sorted values of the concept's attribute in the context, as a string */
+    private static String values(Concept concept, Attribute attribute, Context context) {
+        Stream<DataObject> values = concept.stream(attribute,context);
+        if(values == null) {return "[]";}
+        return values.map(Object::toString).sorted().collect(Collectors.toList()).toString();}
+
+    /** @return the sorted values of the attribute, computed by the attribute itself */
+    private static String computed(Attribute attribute, Concept concept, Context context) {
+        Stream<DataObject> values = attribute.stream(concept,Scope.LOCAL,null,null,null,context);
+        if(values == null) {return "[]";}
+        return values.map(Object::toString).sorted().collect(Collectors.toList()).toString();}
+
+    @Test
+    public void fork() {
+        Context context = new Context("parent");
+        StringBuilder errors = new StringBuilder();
+        SetConcept person = new SetConcept("person",context);
+        SetConcept vip = new SetConcept("vip",context);
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        ColumnarDataAttribute age = new ColumnarDataAttribute("age",context,null,integer);
+        DataAttribute tag = new DataAttribute("tag",context,false,null,integer);
+        tag.setHashed(true);
+        DataAttribute score = new DataAttribute("score",context,true,null,integer);
+        ConceptAttribute friend = new ConceptAttribute("friend",context,false,person,person);
+        ConceptAttribute friendOf = new ConceptAttribute("friendOf",context,false,person,person);
+        friend.setInverse(friendOf,context,errors);
+        int[] notifications = new int[1];
+        tag.addValueObserver((concept,value,activity) -> ++notifications[0]);
+
+        int size = 1000;
+        BulkLoader loader = new BulkLoader(context);
+        String[] names = new String[size];
+        for(int i = 0; i < size; ++i) {names[i] = "p" + i;}
+        Concept[] persons = loader.addIndividuals(names);
+        Concept[] superconcepts = new Concept[size];
+        Arrays.fill(superconcepts,person);
+        loader.addEdges(superconcepts,persons);
+        DataObject[] ages = new DataObject[size];
+        for(int i = 0; i < size; ++i) {ages[i] = new IntegerObject(i % 90);}
+        loader.addValues(age,persons,ages,Scope.LOCAL);
+        assertTrue(loader.finish(errors));
+        Concept p1 = persons[1], p2 = persons[2], p3 = persons[3];
+        p1.add(tag,new IntegerObject(1),Scope.LOCAL,context,errors);
+        p1.add(tag,new IntegerObject(2),Scope.LOCAL,context,errors);
+        p1.add(score,new IntegerObject(10),Scope.LOCAL,context,errors);
+        p1.add(friend,p2,Scope.LOCAL,context,errors);
+        int before = notifications[0];
+
+        Context fork = context.fork("fork");
+        assertTrue(fork.isFork());
+        assertTrue(fork.conceptHierarchy.isShared());
+        int concepts = context.nConcepts();
+        assertEquals(concepts,fork.nConcepts());
+        assertSame(persons[5],fork.getConcept("p5"));
+        fork.removeConcept("p5");
+        assertNull(fork.getConcept("p5"));
+        assertSame(persons[5],context.getConcept("p5"));
+        SetConcept added = new SetConcept("added",fork);
+        assertSame(added,fork.getConcept("added"));
+        assertNull(context.getConcept("added"));
+        assertEquals(concepts,fork.nConcepts());
+        assertEquals(concepts,context.nConcepts());
+
+        p1.add(tag,new IntegerObject(3),Scope.LOCAL,fork,errors);
+        tag.removeValue(p1,new IntegerObject(1),fork);
+        assertEquals("[2, 3]",values(p1,tag,fork));
+        assertEquals("[1, 2]",values(p1,tag,context));
+        p1.add(score,new IntegerObject(20),Scope.LOCAL,fork,errors);
+        assertEquals("[20]",values(p1,score,fork));
+        assertEquals("[10]",values(p1,score,context));
+        p3.add(friend,p1,Scope.LOCAL,fork,errors);
+        assertEquals("[p1]",values(p3,friend,fork));
+        assertEquals("[]",values(p3,friend,context));
+        assertEquals("[p3]",values(p1,friendOf,fork));
+        assertEquals("[]",values(p1,friendOf,context));
+        p2.add(age,new IntegerObject(77),Scope.LOCAL,fork,errors);
+        age.removeValue(p3,new IntegerObject(3),fork);
+        assertEquals("[77]",values(p2,age,fork));
+        assertEquals("[2]",values(p2,age,context));
+        assertEquals("[]",values(p3,age,fork));
+        assertEquals("[3]",values(p3,age,context));
+        assertEquals(before,notifications[0]);
+
+        fork.conceptHierarchy.addSubnode(vip,p1);
+        assertFalse(fork.conceptHierarchy.isShared());
+        assertTrue(fork.conceptHierarchy.isSubnodeOf(p1,vip));
+        assertFalse(context.conceptHierarchy.isSubnodeOf(p1,vip));
+        fork.conceptHierarchy.removeSubnode(person,p2);
+        assertFalse(fork.conceptHierarchy.isSubnodeOf(p2,person));
+        assertTrue(context.conceptHierarchy.isSubnodeOf(p2,person));
+
+        Context nested = fork.fork("nested");
+        p1.add(tag,new IntegerObject(4),Scope.LOCAL,nested,errors);
+        assertEquals("[2, 3, 4]",values(p1,tag,nested));
+        assertEquals("[2, 3]",values(p1,tag,fork));
+        assertSame(added,nested.getConcept("added"));
+        assertNull(nested.getConcept("p5"));
+        assertEquals("[1, 2]",values(p1,tag,context));
+        assertEquals(concepts,nested.nConcepts());
+
+        try{p1.add(tag,new IntegerObject(9),Scope.LOCAL,context,errors); fail("the parent has been changed while it has forks");}
+        catch(IllegalStateException ex) {}
+        try{context.conceptHierarchy.addSubnode(vip,p2); fail("the parent's hierarchy has been changed while it has forks");}
+        catch(IllegalStateException ex) {}
+        fork.discard();
+        try{p1.add(tag,new IntegerObject(9),Scope.LOCAL,fork,errors); fail("the fork has been changed while it has a fork");}
+        catch(IllegalStateException ex) {}
+        nested.discard();
+        p1.add(tag,new IntegerObject(9),Scope.LOCAL,context,errors);
+        assertEquals(before + 1,notifications[0]);
+        assertEquals("",errors.toString());}
+
+    /** memoized functions and materialized aggregations must not return the parent's results in a fork */
+    @Test
+    public void derivedValues() {
+        Context context = new Context("parent");
+        StringBuilder errors = new StringBuilder();
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute tag = new DataAttribute("tag",context,false,null,integer);
+        FunctionAttribute twice = new FunctionAttribute("twice",context,null,integer);
+        twice.setUnaryFunction(null,value -> new IntegerObject(2 * (Integer)value),tag);
+        assertTrue(twice.setMemoized(100,context));
+        AggregatingAttribute sum = new AggregatingAttribute("sum",context,integer,tag);
+        sum.setAggregators(0,null,(s,value) -> (Integer)s + (Integer)value.get(),null,s -> new IntegerObject((Integer)s),null);
+        assertTrue(sum.setMaterialized(true));
+        IndividualConcept p = new IndividualConcept("p",context);
+        p.add(tag,new IntegerObject(1),Scope.LOCAL,context,errors);
+
+        Context fork = context.fork("fork");
+        p.add(tag,new IntegerObject(5),Scope.LOCAL,fork,errors);
+        assertEquals("[10, 2]",computed(twice,p,fork));
+        assertEquals("[6]",computed(sum,p,fork));
+        assertEquals("[2]",computed(twice,p,context));
+        assertEquals("[1]",computed(sum,p,context));
+        fork.discard();
+        p.add(tag,new IntegerObject(3),Scope.LOCAL,context,errors);
+        assertEquals("[2, 6]",computed(twice,p,context));
+        assertEquals("[4]",computed(sum,p,context));
+        assertEquals("",errors.toString());}
+}
@@ -0,0 +1,102 @@
+package MISC;
+
+import Concepts.Concept;
+import Concepts.IndividualConcept;
+import Concepts.SetConcept;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/** Tests the dense ids of the concepts: allocation, reuse after removal, forks and deserialization. */
+public class IdAllocatorTest {
+
+    @Test
+    public void reuse() {
+        Context context = new Context("test");
+        int bound = context.getConceptIdBound();
+        IndividualConcept a = new IndividualConcept("a",context);
+        IndividualConcept b = new IndividualConcept("b",context);
+        IndividualConcept c = new IndividualConcept("c",context);
+        assertEquals(bound,a.getId());
+        assertEquals(bound+1,b.getId());
+        assertEquals(bound+2,c.getId());
+        assertSame(b,context.getConcept(bound+1));
+        assertEquals(bound+1,context.conceptIds.allocate(b));   // already allocated
+
+        context.removeConcept("c");
+        context.removeConcept("a");
+        assertEquals(-1,a.getId());
+        assertNull(context.getConcept(bound));
+        assertFalse(context.conceptIds.release(a));
+        assertEquals(bound+3,context.getConceptIdBound());
+
+        IndividualConcept d = new IndividualConcept("d",context);   // the smallest free id first
+        IndividualConcept e = new IndividualConcept("e",context);
+        IndividualConcept f = new IndividualConcept("f",context);
+        assertEquals(bound,d.getId());
+        assertEquals(bound+2,e.getId());
+        assertEquals(bound+3,f.getId());
+        assertSame(d,context.getConcept(bound));
+        assertEquals(bound+4,context.getConceptIdBound());}
+
+    @Test
+    public void allocateAll() {
+        IdAllocator<Concept> allocator = new IdAllocator<>();
+        Context context = new Context("test");
+        IndividualConcept a = new IndividualConcept("a",context);
+        IndividualConcept b = new IndividualConcept("b",context);
+        IndividualConcept c = new IndividualConcept("c",context);
+        allocator.allocateAll(Arrays.asList(a,b,c));
+        assertEquals(0,a.getId());
+        assertEquals(2,c.getId());
+        assertTrue(allocator.release(b));
+        assertEquals(2,allocator.size());
+        assertEquals(3,allocator.bound());
+        assertNull(allocator.get(1));
+        assertNull(allocator.get(3));
+        assertNull(allocator.get(-1));}
+
+    @Test
+    public void fork() {
+        Context context = new Context("parent");
+        SetConcept person = new SetConcept("person",context);
+        IndividualConcept a = new IndividualConcept("a",context,person);
+        IndividualConcept b = new IndividualConcept("b",context,person);
+        Context fork = context.fork("fork");
+        assertSame(a,fork.getConcept(a.getId()));
+        assertSame(b,fork.getConcept(b.getId()));
+
+        fork.removeConcept("a");
+        assertNull(fork.getConcept(a.getId()));
+        assertSame(a,context.getConcept(a.getId()));
+        assertTrue(a.getId() >= 0);                     // the fork releases no ids
+
+        int bound = context.getConceptIdBound();
+        IndividualConcept c = new IndividualConcept("c",fork);
+        assertEquals(-1,c.getId());                     // the fork allocates no ids
+        assertSame(c,fork.getConcept("c"));
+        assertNull(context.getConcept("c"));
+        assertEquals(bound,context.getConceptIdBound());}
+
+    @Test
+    public void deserialized() throws Exception {
+        Context context = new Context("test");
+        IndividualConcept a = new IndividualConcept("a",context);
+        new IndividualConcept("b",context);
+        int id = a.getId();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {out.writeObject(a);}
+        IndividualConcept copy;
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (IndividualConcept)in.readObject();}
+        assertEquals(-1,copy.getId());                  // ids are transient
+
+        context.removeConcept("a");
+        context.removeConcept("b");
+        context.putConcept(copy);
+        assertEquals(id,copy.getId());                  // a new id: the smallest free one
+        assertSame(copy,context.getConcept(id));}
+}
@@ -0,0 +1,70 @@
+package MISC;
+
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/** Tests the trie of namespaces, the resolution of paths, the cache of qualified names and the deserialization. */
+public class NamespaceTest {
+
+    @Test
+    public void trie() {
+        Namespace c = Namespace.setNamespace("trie.b.c");
+        Namespace b = Namespace.getNamespace("trie.b");
+        Namespace top = Namespace.getNamespace("trie");
+        assertNotNull(b);
+        assertNotNull(top);
+        assertEquals("trie.b.c",c.getPathname());
+        assertEquals("c",c.getSegment());
+        assertSame(b,c.getSuperNamespace());
+        assertSame(top,b.getSuperNamespace());
+        assertNull(top.getSuperNamespace());
+        assertSame(c,b.getSubNamespace("c"));
+        assertNull(b.getSubNamespace("d"));
+        assertSame(c,Namespace.setNamespace("trie.b.c"));
+        assertSame(c,Namespace.getNamespace(c.getId()));
+        assertNotEquals(b.getId(),c.getId());
+        assertTrue(Namespace.getTopNamespaces().contains(top));
+        assertEquals("trie.b\ntrie.b.c",Namespace.allToString("trie.b"));
+
+        Object[] split = Namespace.splitPathname("trie.b.e.name");
+        assertSame(Namespace.getNamespace("trie.b.e"),split[0]);
+        assertEquals("name",split[1]);
+        assertArrayEquals(new Object[]{null,"name"},Namespace.splitPathname("name"));}
+
+    @Test
+    public void resolve() {
+        Namespace top = Namespace.setNamespace("resolve");
+        Namespace c = Namespace.setNamespace("resolve.b.c");
+        assertSame(c,top.resolve("b.c"));
+        assertSame(c.getSuperNamespace(),top.resolve("b"));
+        assertNull(top.resolve("b.x"));
+        assertNull(top.resolve("x.c"));
+        assertNull(top.resolve(""));}
+
+    @Test
+    public void qualifiedNames() {
+        int max = Namespace.maxQualifiedNames;
+        Namespace namespace = Namespace.setNamespace("qualified");
+        try{
+            Namespace.maxQualifiedNames = 2;
+            String a = namespace.getPathname("a");
+            assertEquals("qualified.a",a);
+            assertSame(a,namespace.getPathname("a"));
+            namespace.getPathname("b");
+            String c = namespace.getPathname("c");        // the cache is full
+            assertEquals("qualified.c",c);
+            assertNotSame(c,namespace.getPathname("c"));
+            assertSame(a,namespace.getPathname("a"));}
+        finally{Namespace.maxQualifiedNames = max;}}
+
+    @Test
+    public void readResolve() throws Exception {
+        Namespace namespace = Namespace.setNamespace("serial.x");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {out.writeObject(namespace);}
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(namespace,in.readObject());}}
+}
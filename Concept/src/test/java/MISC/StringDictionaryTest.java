@@ -0,0 +1,74 @@
+package MISC;
+
+import AbstractObjects.DataObject;
+import ConcreteDomain.AtomicTypes.ConstantObject;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.AtomicTypes.StringObject;
+import ConcreteDomain.ConcreteType;
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/** Tests the encoding of strings and constants in the context's dictionary. */
+public class StringDictionaryTest {
+
+    @Test
+    public void bounded() {
+        int maxStrings = StringDictionary.maxStrings;
+        StringDictionary.maxStrings = 2;
+        try{
+            StringDictionary dictionary = new StringDictionary();
+            assertEquals(0,dictionary.encode("a"));
+            assertEquals(1,dictionary.encode("b"));
+            assertEquals(-1,dictionary.encode("c"));
+            assertEquals(0,dictionary.encode("a"));
+            assertEquals("c",dictionary.canonical("c"));
+            assertEquals(2,dictionary.size());
+
+            StringObject c1 = new StringObject("c",dictionary);
+            StringObject c2 = new StringObject(new String("c"),dictionary);
+            assertEquals(-1,c1.getCode());
+            assertNull(c1.getDictionary());
+            assertEquals(c1,c2);
+            assertNotEquals(c1,new StringObject("a",dictionary));}
+        finally{StringDictionary.maxStrings = maxStrings;}}
+
+    @Test
+    public void codesPerDictionary() {
+        StringDictionary d1 = new StringDictionary();
+        StringDictionary d2 = new StringDictionary();
+        d2.encode("x");
+        StringObject a1 = new StringObject("a",d1);
+        StringObject a2 = new StringObject("a",d2);
+        StringObject x1 = new StringObject("x",d1);
+        assertEquals(a1.getCode(),x1.getCode() - 1);
+        assertEquals(a1,a2);
+        assertNotEquals(a1.getCode(),a2.getCode());
+        assertNotEquals(a1,x1);}
+
+    @Test
+    public void parseObject() {
+        Context context = new Context("test");
+        DataObject string = ((ConcreteType)context.getDataType("String")).parseObject("s",context);
+        assertTrue(((StringObject)string).getCode() >= 0);
+        assertSame(context.stringDictionary,((StringObject)string).getDictionary());
+        DataObject constant = ((ConcreteType)context.getDataType("Constants")).parseObject("c",context);
+        assertSame(constant,((ConcreteType)context.getDataType("Constants")).parseObject("c",context));
+        assertTrue(((ConstantObject)constant).getCode() >= 0);
+        assertEquals(5,((IntegerObject)((ConcreteType)context.getDataType("Integer")).parseObject("5",context)).value);}
+
+    @Test
+    public void deserialized() throws Exception {
+        Context context = new Context("test");
+        StringObject string = new StringObject("s",context.stringDictionary);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {out.writeObject(string);}
+        StringObject back;
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            back = (StringObject)in.readObject();}
+        assertEquals(-1,back.getCode());
+        assertNull(back.getDictionary());
+        assertEquals(string,back);}
+}
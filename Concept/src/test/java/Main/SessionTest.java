@@ -0,0 +1,42 @@
+package Main;
+
+import Attributes.DataAttribute;
+import Concepts.SetConcept;
+import ConcreteDomain.ConcreteType;
+import Data.GlobalData;
+import MISC.Context;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/** Tests that the items of a session overlay the global items. */
+public class SessionTest {
+
+    @Test
+    public void overlay() {
+        GlobalData.clear();
+        Context context = new Context("test");
+        SetConcept global = new SetConcept("person",context);
+        GlobalData.addItem(global);
+        Session session = new Session("session");
+        Session other = new Session("other");
+        assertSame(global,session.getItem("person"));
+
+        SetConcept local = new SetConcept("person",context);
+        assertTrue(session.addItem(local));
+        assertSame(local,session.getItem("person"));
+        assertSame(local,session.getItem(SetConcept.class,"person"));
+        assertSame(global,other.getItem("person"));
+        assertSame(global,GlobalData.getItem("person"));
+
+        StringBuilder errors = new StringBuilder();
+        DataAttribute attribute = new DataAttribute("person",context,true,null,(ConcreteType)context.getDataType("Integer"));
+        assertFalse(session.addItem(attribute,errors));
+        assertFalse(other.addItem(attribute,errors));
+        assertEquals(2,errors.toString().split("\n").length);
+        assertNull(session.getItem(DataAttribute.class,"person"));
+
+        session.removeItem(local);
+        assertSame(global,session.getItem("person"));
+        GlobalData.clear();}
+}
@@ -0,0 +1,211 @@
+package Database;
+
+import Attributes.Attribute;
+import Concepts.AttributeValue;
+import Concepts.Concept;
+import IO.DataObjectCodec;
+import MISC.ConceptStorage;
+import MISC.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/** This class stores the attribute values of concepts in a single append-only file.
+ * <br>
+ * Each record contains the concept's name and its encoded attribute values.
+ * Concepts and attributes in the values are encoded by their names.
+ * A record is framed by its length and CRC32 checksum, as in the WriteAheadLog.
+ * A new record for a concept supersedes the older ones; an empty record marks a removed concept.
+ * The index of the latest records is kept in memory and is rebuilt by scanning the file when it is opened.
+ * <br>
+ * The superseded records are garbage. compact() rewrites the file with the latest records only;
+ * this happens automatically when the garbage exceeds the live data.
+ */
+public class FileConceptStorage implements ConceptStorage {
+    /** the data file */
+    private final File file;
+    /** the open data file */
+    private FileChannel channel;
+    /** maps the concepts' names to the position and length of their latest records */
+    private final HashMap<String,long[]> index = new HashMap<>();
+    /** the number of bytes of the latest records and of the superseded records */
+    private long liveBytes = 0, garbageBytes = 0;
+    /** compaction starts only above this garbage size */
+    private static final long minGarbage = 1 << 20;
+
+    /** opens the data file and rebuilds the index.
+     *
+     * @param file the data file (is created if necessary)
+     * @throws IOException if the file cannot be opened.
+     */
+    public FileConceptStorage(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(),StandardOpenOption.CREATE,StandardOpenOption.READ,StandardOpenOption.WRITE);
+        scan();}
+
+    /** scans the data file, rebuilds the index and cuts off a torn record at the end */
+    private void scan() throws IOException {
+        long[] position = new long[]{0};
+        long valid = WriteAheadLog.replay(file, record -> {
+            int length = record.remaining();
+            String name = readName(record);
+            boolean removed = !record.hasRemaining();
+            long[] entry = new long[]{position[0] + 8, length};
+            long[] old = removed ? index.remove(name) : index.put(name,entry);
+            if(old != null) {liveBytes -= old[1]; garbageBytes += old[1];}
+            if(removed) {garbageBytes += length;}
+            else {liveBytes += length;}
+            position[0] += 8 + length;});
+        if(valid < channel.size()) {channel.truncate(valid);}
+        channel.position(valid);}
+
+    /** reads the concept's name at the beginning of a record */
+    private static String readName(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes,StandardCharsets.UTF_8);}
+
+    @Override
+    public synchronized HashMap<Attribute,AttributeValue> load(Concept concept, Context context, StringBuilder errors) {
+        HashMap<Attribute,AttributeValue> values = new HashMap<>();
+        long[] entry = index.get(concept.getName());
+        if(entry == null) {return values;}
+        try{
+            ByteBuffer record = ByteBuffer.allocate((int)entry[1]);
+            while(record.hasRemaining()) {
+                if(channel.read(record,entry[0] + record.position()) < 0) {throw new IOException("unexpected end of file");}}
+            record.flip();
+            readName(record);
+            String[] strings = DataObjectCodec.readStrings(record);
+            DataObjectCodec codec = new DataObjectCodec(strings, i -> context.getConcept(strings[i]), context);
+            int size = record.getInt();
+            for(int i = 0; i < size; ++i) {
+                Attribute attribute = context.getAttribute(codec.string(record.getInt()));
+                AttributeValue attributeValue = codec.readAttributeValue(record, a -> context.getAttribute(strings[a]), errors);
+                if(attribute == null) {
+                    errors.append("Storage: ").append(concept.getName()).append(" has values of an unknown attribute\n");
+                    continue;}
+                values.put(attribute,attributeValue);}
+            return values;}
+        catch(IOException | RuntimeException ex) {
+            errors.append("Storage: ").append(file).append(": ").append(concept.getName()).append(": ").append(ex.toString()).append("\n");
+            return null;}}
+
+    @Override
+    public synchronized boolean store(Concept concept, HashMap<Attribute,AttributeValue> values, Context context, StringBuilder errors) {
+        try{
+            DataObjectCodec[] codec = new DataObjectCodec[1];
+            codec[0] = new DataObjectCodec(c -> codec[0].stringCode(c.getName()));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            int size = 0;
+            for(Map.Entry<Attribute,AttributeValue> entry : values.entrySet()) {
+                if(entry.getValue() == null || entry.getValue().isEmpty()) {continue;}
+                out.writeInt(codec[0].stringCode(entry.getKey().getName()));
+                codec[0].write(out,entry.getValue(),attribute -> codec[0].stringCode(attribute.getName()));
+                ++size;}
+            ByteArrayOutputStream record = new ByteArrayOutputStream(bytes.size() + 64);
+            DataOutputStream recordOut = new DataOutputStream(record);
+            writeName(recordOut,concept.getName());
+            codec[0].writeStrings(recordOut);
+            recordOut.writeInt(size);
+            bytes.writeTo(recordOut);
+            append(concept.getName(),record.toByteArray(),false);
+            return true;}
+        catch(IOException ex) {
+            errors.append("Storage: ").append(file).append(": ").append(concept.getName()).append(": ").append(ex.toString()).append("\n");
+            return false;}}
+
+    @Override
+    public synchronized void remove(Concept concept, Context context, StringBuilder errors) {
+        if(!index.containsKey(concept.getName())) {return;}
+        try{
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            writeName(new DataOutputStream(record),concept.getName());
+            append(concept.getName(),record.toByteArray(),true);}
+        catch(IOException ex) {
+            errors.append("Storage: ").append(file).append(": ").append(concept.getName()).append(": ").append(ex.toString()).append("\n");}}
+
+    /** writes the concept's name at the beginning of a record */
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);}
+
+    /** appends a framed record and updates the index.
+     *
+     * @param name    the concept's name
+     * @param record  the record
+     * @param removed true if the record marks a removed concept
+     * @throws IOException if writing fails.
+     */
+    private void append(String name, byte[] record, boolean removed) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        ByteBuffer frame = ByteBuffer.allocate(8 + record.length);
+        frame.putInt(record.length).putInt((int)crc.getValue()).put(record).flip();
+        long position = channel.position();
+        while(frame.hasRemaining()) {channel.write(frame);}
+        long[] old = removed ? index.remove(name) : index.put(name,new long[]{position + 8, record.length});
+        if(old != null) {liveBytes -= old[1]; garbageBytes += old[1];}
+        if(removed) {garbageBytes += record.length;}
+        else {liveBytes += record.length;}
+        if(garbageBytes > minGarbage && garbageBytes > liveBytes) {compact();}}
+
+    /** rewrites the data file with the latest records only.
+     *
+     * @throws IOException if the file cannot be rewritten.
+     */
+    public synchronized void compact() throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        HashMap<String,long[]> newIndex = new HashMap<>();
+        try(FileChannel out = FileChannel.open(temporary.toPath(),StandardOpenOption.CREATE,StandardOpenOption.WRITE,StandardOpenOption.TRUNCATE_EXISTING)) {
+            for(Map.Entry<String,long[]> entry : index.entrySet()) {
+                long[] location = entry.getValue();
+                long position = out.position();
+                for(long done = 0; done < location[1] + 8;) {
+                    done += channel.transferTo(location[0] - 8 + done, location[1] + 8 - done, out);}
+                newIndex.put(entry.getKey(),new long[]{position + 8, location[1]});}
+            out.force(true);}
+        channel.close();
+        Files.move(temporary.toPath(),file.toPath(),StandardCopyOption.ATOMIC_MOVE,StandardCopyOption.REPLACE_EXISTING);
+        channel = FileChannel.open(file.toPath(),StandardOpenOption.READ,StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        index.clear();
+        index.putAll(newIndex);
+        garbageBytes = 0;}
+
+    /** forces the written records to disk.
+     *
+     * @return true if the records are on disk.
+     */
+    public synchronized boolean sync() {
+        try{channel.force(false); return true;}
+        catch(IOException ex) {return false;}}
+
+    /** forces the written records to disk and closes the file.
+     *
+     * @throws IOException if closing fails.
+     */
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();}
+
+    /** @return the number of stored concepts */
+    public synchronized int size() {return index.size();}
+
+    @Override
+    public synchronized String toString() {
+        return "FileConceptStorage " + file + " with " + index.size() + " concepts, " + liveBytes + " live bytes, " + garbageBytes + " garbage bytes";}
+}
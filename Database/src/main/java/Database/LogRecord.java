@@ -0,0 +1,200 @@
+package Database;
+
+import AbstractObjects.ItemWithId;
+import Attributes.Attribute;
+import Attributes.ColumnarDataAttribute;
+import Attributes.ConceptAttribute;
+import Concepts.*;
+import DAGs.DAG;
+import IO.ContextSnapshot;
+import IO.DataObjectCodec;
+import MISC.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** This class encodes the mutations of a context as log records, and applies log records to a context.
+ * <br>
+ * A record consists of its own string table, followed by the kind of the mutation and its data.
+ * Concepts and attributes are referred to by their names, such that the records do not depend on the dense ids.
+ * The values of an attribute are logged as the concept's complete attribute value after the change.
+ * Therefore applying a record twice has the same effect as applying it once,
+ * and the log can be replayed on top of a snapshot which already contains some of the changes.
+ */
+public class LogRecord {
+    /** the kinds of mutations */
+    private static final byte CONCEPT_ADDED = 1, CONCEPT_REMOVED = 2, NODE_ADDED = 3, NODE_REMOVED = 4,
+                              EDGE_ADDED = 5, EDGE_REMOVED = 6, ATTRIBUTE_DEFINED = 7, VALUES = 8,
+                              ATTRIBUTE_REMOVED = 9;
+
+    /** the kinds of concepts */
+    private static final byte SET_CONCEPT = 1, INDIVIDUAL = 2;
+
+    /** the hierarchies */
+    private static final byte CONCEPT_HIERARCHY = 0, ATTRIBUTE_HIERARCHY = 1;
+
+    /** collects the string table and the data of a record */
+    private static class Writer {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        DataObjectCodec codec;
+
+        Writer(byte kind) throws IOException {
+            codec = new DataObjectCodec(concept -> codec.stringCode(concept.getName()));
+            out.writeByte(kind);}
+
+        void writeName(ItemWithId item) throws IOException {out.writeInt(codec.stringCode(item.getName()));}
+
+        byte[] toBytes() throws IOException {
+            ByteArrayOutputStream record = new ByteArrayOutputStream(bytes.size() + 64);
+            codec.writeStrings(new DataOutputStream(record));
+            bytes.writeTo(record);
+            return record.toByteArray();}}
+
+    /** @return a record for a new concept */
+    public static byte[] conceptAdded(Concept concept) throws IOException {
+        Writer writer = new Writer(CONCEPT_ADDED);
+        writer.out.writeByte(concept.isIndividual() ? INDIVIDUAL : SET_CONCEPT);
+        writer.writeName(concept);
+        return writer.toBytes();}
+
+    /** @return a record for a removed concept */
+    public static byte[] conceptRemoved(Concept concept) throws IOException {
+        Writer writer = new Writer(CONCEPT_REMOVED);
+        writer.writeName(concept);
+        return writer.toBytes();}
+
+    /** returns a record for a node which has been added to or removed from a hierarchy.
+     *
+     * @param label   a concept or an attribute
+     * @param added   true if the node has been added
+     * @return the record.
+     * @throws IOException never.
+     */
+    public static byte[] nodeChanged(ItemWithId label, boolean added) throws IOException {
+        Writer writer = new Writer(added ? NODE_ADDED : NODE_REMOVED);
+        writer.out.writeByte(label instanceof Attribute ? ATTRIBUTE_HIERARCHY : CONCEPT_HIERARCHY);
+        writer.writeName(label);
+        return writer.toBytes();}
+
+    /** returns a record for an edge which has been added to or removed from a hierarchy.
+     *
+     * @param superLabel a concept or an attribute
+     * @param subLabel   a concept or an attribute
+     * @param added      true if the edge has been added
+     * @return the record.
+     * @throws IOException never.
+     */
+    public static byte[] edgeChanged(ItemWithId superLabel, ItemWithId subLabel, boolean added) throws IOException {
+        Writer writer = new Writer(added ? EDGE_ADDED : EDGE_REMOVED);
+        writer.out.writeByte(superLabel instanceof Attribute ? ATTRIBUTE_HIERARCHY : CONCEPT_HIERARCHY);
+        writer.writeName(superLabel);
+        writer.writeName(subLabel);
+        return writer.toBytes();}
+
+    /** returns a record with the definition of an attribute.
+     *
+     * @param attribute an attribute
+     * @return the record, or null if the attribute is defined by code and cannot be logged.
+     * @throws IOException never.
+     */
+    public static byte[] attributeDefined(Attribute attribute) throws IOException {
+        Writer writer = new Writer(ATTRIBUTE_DEFINED);
+        if(!ContextSnapshot.writeAttribute(writer.out,attribute,writer.codec)) {return null;}
+        ConceptAttribute inverse = (attribute instanceof ConceptAttribute) ? ((ConceptAttribute)attribute).getInverse() : null;
+        writer.out.writeInt(inverse == null ? -1 : writer.codec.stringCode(inverse.getName()));
+        return writer.toBytes();}
+
+    /** @return a record for a removed attribute */
+    public static byte[] attributeRemoved(Attribute attribute) throws IOException {
+        Writer writer = new Writer(ATTRIBUTE_REMOVED);
+        writer.writeName(attribute);
+        return writer.toBytes();}
+
+    /** returns a record with the concept's current values of the attribute.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     * @return the record.
+     * @throws IOException if a value cannot be encoded.
+     */
+    public static byte[] valuesChanged(Concept concept, Attribute attribute) throws IOException {
+        Writer writer = new Writer(VALUES);
+        writer.writeName(concept);
+        writer.writeName(attribute);
+        AttributeValue attributeValue = (attribute instanceof ColumnarDataAttribute) ?
+                ((ColumnarDataAttribute)attribute).getAttributeValue(concept) : concept.get(attribute);
+        boolean present = attributeValue != null && !attributeValue.isEmpty();
+        writer.out.writeBoolean(present);
+        if(present) {writer.codec.write(writer.out,attributeValue,attr -> writer.codec.stringCode(attr.getName()));}
+        return writer.toBytes();}
+
+    /** applies a record to the context.
+     * Records which refer to unknown concepts or attributes are ignored.
+     *
+     * @param in      the contents of the record
+     * @param context where the mutation is to be applied
+     * @param errors  for appending error messages
+     * @throws IOException if the record cannot be decoded.
+     */
+    public static void apply(ByteBuffer in, Context context, StringBuilder errors) throws IOException {
+        String[] strings = DataObjectCodec.readStrings(in);
+        DataObjectCodec codec = new DataObjectCodec(strings, index -> context.getConcept(strings[index]), context);
+        byte kind = in.get();
+        switch(kind) {
+            case CONCEPT_ADDED:
+                boolean individual = in.get() == INDIVIDUAL;
+                String name = codec.string(in.getInt());
+                if(context.getConcept(name) == null) {
+                    if(individual) {new IndividualConcept(name,context);}
+                    else {new SetConcept(name,context);}}
+                return;
+            case CONCEPT_REMOVED:
+                context.removeConcept(codec.string(in.getInt()));
+                return;
+            case NODE_ADDED:
+            case NODE_REMOVED:
+                boolean attributes = in.get() == ATTRIBUTE_HIERARCHY;
+                ItemWithId label = item(codec.string(in.getInt()),attributes,context);
+                if(label == null) {return;}
+                DAG hierarchy = attributes ? context.attributeHierarchy : context.conceptHierarchy;
+                if(kind == NODE_ADDED) {hierarchy.addNode(label);}
+                else {hierarchy.removeNode(label);}
+                return;
+            case EDGE_ADDED:
+            case EDGE_REMOVED:
+                attributes = in.get() == ATTRIBUTE_HIERARCHY;
+                ItemWithId superLabel = item(codec.string(in.getInt()),attributes,context);
+                ItemWithId subLabel   = item(codec.string(in.getInt()),attributes,context);
+                if(superLabel == null || subLabel == null) {return;}
+                hierarchy = attributes ? context.attributeHierarchy : context.conceptHierarchy;
+                if(kind == EDGE_ADDED) {hierarchy.addSubnode(superLabel,subLabel);}
+                else {hierarchy.removeSubnode(superLabel,subLabel);}
+                return;
+            case ATTRIBUTE_DEFINED:
+                Attribute attribute = ContextSnapshot.readAttribute(in,codec,context,errors);
+                String inverseName = codec.string(in.getInt());
+                Attribute inverse = (inverseName == null) ? null : context.getAttribute(inverseName);
+                if(attribute instanceof ConceptAttribute && inverse instanceof ConceptAttribute &&
+                        ((ConceptAttribute)attribute).getInverse() == null) {
+                    ((ConceptAttribute)attribute).setInverse(inverse,context,errors);}
+                return;
+            case ATTRIBUTE_REMOVED:
+                context.removeAttribute(codec.string(in.getInt()));
+                return;
+            case VALUES:
+                Concept concept = context.getConcept(codec.string(in.getInt()));
+                attribute = context.getAttribute(codec.string(in.getInt()));
+                AttributeValue attributeValue = (in.get() != 0) ?
+                        codec.readAttributeValue(in, index -> context.getAttribute(strings[index]), errors) : null;
+                if(concept != null && attribute != null) {
+                    ContextSnapshot.putAttributeValue(concept,attribute,attributeValue,context,errors);}
+                return;}
+        throw new IOException("Unknown log record kind " + kind);}
+
+    /** @return the concept or attribute with the given name */
+    private static ItemWithId item(String name, boolean attribute, Context context) {
+        return attribute ? context.getAttribute(name) : context.getConcept(name);}
+}
@@ -0,0 +1,360 @@
+package Database;
+
+import AbstractObjects.DataObject;
+import AbstractObjects.ItemWithId;
+import Attributes.Attribute;
+import Concepts.Concept;
+import Concepts.DerivedConcept;
+import DAGs.DAG;
+import IO.ContextSnapshot;
+import MISC.Activity;
+import MISC.Context;
+import Utils.TriConsumer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+
+/** This class implements an embedded storage engine for a context.
+ * <br>
+ * The directory contains snapshots "snapshot.n" and log segments "log.n".
+ * A snapshot "snapshot.n" contains the context at the time when segment n was started;
+ * the mutations since then are in the segments n, n+1, ...
+ * <br>
+ * The engine observes the context: new and removed concepts, nodes and edges of both hierarchies,
+ * and the attribute values. Each mutation is appended to the write-ahead log.
+ * commit() waits until the mutations so far are on disk; concurrent commits share one disk write (group commit).
+ * <br>
+ * The records are appended by the observers, which are called within the change, under the lock which orders it:
+ * the context's lock for registrations, the hierarchy's lock for nodes and edges, and the concept's lock for its values.
+ * Therefore the records of each item are in the order of its changes.
+ * <br>
+ * A checkpoint starts a new segment, writes a snapshot and then removes the older snapshots and segments.
+ * It holds the write lock of the context's changeLock while it starts the segment and writes the snapshot.
+ * Thus all changes are paused meanwhile, and the snapshot is the state at the start of the segment.
+ * It is started automatically when the current segment exceeds a given size.
+ * <br>
+ * open() recovers the context: it reads the latest valid snapshot and replays the segments after it.
+ * A torn record at the end of the last segment (after a crash) is cut off.
+ * The definition of a new attribute is logged before the first record which refers to the attribute,
+ * and at the latest at the next commit, when its constructor has set all its properties.
+ * DerivedConcepts and attributes which are defined by code (functions, chains, aggregations) are not logged;
+ * they must be defined again after recovery.
+ */
+public class StorageEngine {
+    /** the prefix of the snapshot files */
+    public static final String snapshotPrefix = "snapshot.";
+
+    /** the directory with the snapshots and segments */
+    private final File directory;
+    /** the observed context */
+    private final Context context;
+    /** the log */
+    private final WriteAheadLog log;
+    /** a checkpoint is started when the current segment exceeds this size */
+    private final long checkpointBytes;
+    /** true while a checkpoint is running */
+    private final AtomicBoolean checkpointing = new AtomicBoolean(false);
+    /** the attributes whose definitions are in the current segment */
+    private final Set<Attribute> definedAttributes = ConcurrentHashMap.newKeySet();
+    /** the new attributes whose definitions have not yet been logged */
+    private final Set<Attribute> pendingAttributes = ConcurrentHashMap.newKeySet();
+    /** collects errors of the observers and of automatic checkpoints */
+    private final StringBuilder errors = new StringBuilder();
+
+    /** the observers, kept for detaching them */
+    private BiConsumer<Concept,Boolean> conceptObserver;
+    private BiConsumer<Attribute,Boolean> attributeObserver;
+    private BiConsumer<ItemWithId,Activity> nodeObserver;
+    private TriConsumer<ItemWithId,ItemWithId,Activity> edgeObserver;
+    private TriConsumer<ItemWithId,ItemWithId,Activity> edgeAddedObserver;
+    /** the value observers of the attributes */
+    private final ConcurrentHashMap<Attribute,TriConsumer<Concept,DataObject,Activity>> valueObservers = new ConcurrentHashMap<>();
+
+    /** creates the engine. open() is to be used for creating engines.
+     *
+     * @param directory       the directory with the snapshots and segments
+     * @param context         the observed context
+     * @param log             the open log
+     * @param checkpointBytes the segment size which starts a checkpoint
+     */
+    private StorageEngine(File directory, Context context, WriteAheadLog log, long checkpointBytes) {
+        this.directory = directory;
+        this.context = context;
+        this.log = log;
+        this.checkpointBytes = checkpointBytes;}
+
+    /** recovers the context from the directory and starts logging its mutations.
+     * The context should be fresh, except for the definitions which are made by code.
+     *
+     * @param directory       the directory with the snapshots and segments (is created if necessary)
+     * @param context         the context
+     * @param checkpointBytes a checkpoint is started when the current segment exceeds this size
+     * @param errors          for appending error messages
+     * @return the engine, or null if the directory cannot be used.
+     */
+    public static StorageEngine open(File directory, Context context, long checkpointBytes, StringBuilder errors) {
+        if(!directory.isDirectory() && !directory.mkdirs()) {
+            errors.append("Storage: directory ").append(directory).append(" cannot be created\n"); return null;}
+        TreeMap<Long,File> snapshots = numberedFiles(directory,snapshotPrefix);
+        TreeMap<Long,File> segments  = numberedFiles(directory,WriteAheadLog.prefix);
+        long start = 0;
+        boolean hasSnapshot = false;
+        for(Long n : snapshots.descendingKeySet()) {
+            StringBuilder snapshotErrors = new StringBuilder();
+            if(ContextSnapshot.validate(snapshots.get(n),snapshotErrors)) {
+                ContextSnapshot.read(snapshots.get(n),context,errors);
+                start = n;
+                hasSnapshot = true;
+                break;}
+            errors.append(snapshotErrors);}
+
+        long next = start;
+        int replayed = 0;
+        context.derivedConceptDispatcher.suspend();  // the logged edges include the classification
+        try{
+            for(Long n : segments.tailMap(start).keySet()) {
+                File file = segments.get(n);
+                int[] count = new int[]{0};
+                long valid = WriteAheadLog.replay(file, record -> {
+                    try{LogRecord.apply(record,context,errors); ++count[0];}
+                    catch(IOException | RuntimeException ex) {errors.append("Storage: ").append(file).append(": ").append(ex.toString()).append("\n");}});
+                replayed += count[0];
+                next = n + 1;
+                if(valid < file.length()) {
+                    if(n.equals(segments.lastKey())) {WriteAheadLog.truncate(file,valid); next = n;}
+                    else {errors.append("Storage: ").append(file).append(" is corrupted after ").append(valid).append(" bytes; the later segments are ignored\n");
+                          break;}}}
+            StorageEngine engine = new StorageEngine(directory,context,new WriteAheadLog(directory,next),checkpointBytes);
+            engine.attach();
+            if((!hasSnapshot || replayed > 0) && !engine.checkpoint(errors)) {engine.close(errors); return null;}
+            return engine;}
+        catch(IOException ex) {
+            errors.append("Storage: ").append(directory).append(": ").append(ex.toString()).append("\n");
+            return null;}
+        finally{context.derivedConceptDispatcher.resume();}}
+
+    /** maps the numbers of the files "prefix.n" to the files */
+    private static TreeMap<Long,File> numberedFiles(File directory, String prefix) {
+        TreeMap<Long,File> files = new TreeMap<>();
+        File[] list = directory.listFiles();
+        if(list == null) {return files;}
+        for(File file : list) {
+            String name = file.getName();
+            if(!name.startsWith(prefix)) {continue;}
+            try{files.put(Long.parseLong(name.substring(prefix.length())),file);}
+            catch(NumberFormatException ex) {}}
+        return files;}
+
+    /* ********************************** Logging ******************************************/
+
+    /** registers the observers at the context */
+    private void attach() {
+        conceptObserver = (concept,added) -> {
+            if(concept instanceof DerivedConcept) {return;}
+            try{append(added ? LogRecord.conceptAdded(concept) : LogRecord.conceptRemoved(concept));}
+            catch(IOException ex) {error(ex);}};
+        nodeObserver = (label,activity) -> {
+            if(label instanceof DerivedConcept) {return;}
+            try{synchronized (this) {
+                    if(activity == Activity.ADD) {define(label);}
+                    append(LogRecord.nodeChanged(label,activity == Activity.ADD));}}
+            catch(IOException ex) {error(ex);}};
+        edgeObserver = (superLabel,subLabel,activity) -> {
+            if(activity == Activity.ADD) {return;} // added edges are logged by the subnode-added observer
+            try{append(LogRecord.edgeChanged(superLabel,subLabel,false));}
+            catch(IOException ex) {error(ex);}};
+        edgeAddedObserver = new DAG.BatchObserver<ItemWithId>() {
+            @Override
+            public void accept(ItemWithId superLabel, ItemWithId subLabel, Activity activity) {
+                acceptAll(Arrays.asList(superLabel,subLabel),activity);}
+
+            @Override
+            public void acceptAll(List<ItemWithId> pairs, Activity activity) {
+                try{synchronized (StorageEngine.this) {
+                        for(int i = 0; i < pairs.size(); i += 2) {
+                            define(pairs.get(i)); define(pairs.get(i+1));
+                            append(LogRecord.edgeChanged(pairs.get(i),pairs.get(i+1),true));}}}
+                catch(IOException ex) {error(ex);}}};
+        attributeObserver = (attribute,added) -> {
+            if(added) {
+                pendingAttributes.add(attribute);
+                attribute.addValueObserver(valueObserverFor(attribute));
+                return;}
+            attribute.removeValueObserver(valueObserverFor(attribute));
+            try{synchronized (this) {
+                    pendingAttributes.remove(attribute);
+                    definedAttributes.remove(attribute);
+                    append(LogRecord.attributeRemoved(attribute));}}
+            catch(IOException ex) {error(ex);}};
+
+        context.addConceptObserver(conceptObserver);
+        context.addAttributeObserver(attributeObserver);
+        context.forEachAttribute(attribute -> attribute.addValueObserver(valueObserverFor(attribute)));
+        addHierarchyObservers(context.conceptHierarchy);
+        addHierarchyObservers(context.attributeHierarchy);}
+
+    /** @return the value observer for the attribute */
+    private TriConsumer<Concept,DataObject,Activity> valueObserverFor(Attribute attribute) {
+        return valueObservers.computeIfAbsent(attribute, attr -> (concept,value,activity) -> valuesChanged(concept,attr));}
+
+    /** registers the node and edge observers at a hierarchy */
+    @SuppressWarnings("unchecked")
+    private void addHierarchyObservers(DAG hierarchy) {
+        hierarchy.addNodeObserver(nodeObserver);
+        hierarchy.addSubNodeObserver(edgeObserver);
+        hierarchy.addSubNodeAddedObserver(edgeAddedObserver);}
+
+    /** removes the node and edge observers from a hierarchy */
+    @SuppressWarnings("unchecked")
+    private void removeHierarchyObservers(DAG hierarchy) {
+        hierarchy.removeNodeObserver(nodeObserver);
+        hierarchy.removeSubNodeObserver(edgeObserver);
+        hierarchy.removeSubNodeAddedObserver(edgeAddedObserver);}
+
+    /** logs the concept's current values of the attribute.
+     * The attribute's definition is logged before its first values in the current segment.
+     *
+     * @param concept   a concept
+     * @param attribute an attribute
+     */
+    private void valuesChanged(Concept concept, Attribute attribute) {
+        if(concept instanceof DerivedConcept) {return;}
+        try{
+            synchronized (this) {
+                if(define(attribute)) {append(LogRecord.valuesChanged(concept,attribute));}}}
+        catch(IOException ex) {error(ex);}}
+
+    /** logs the definition of an attribute, unless it is already in the current segment.
+     * Nothing is logged for concepts.
+     *
+     * @param item a concept or an attribute
+     * @return false if the item is an attribute which is defined by code and cannot be logged.
+     * @throws IOException never.
+     */
+    private synchronized boolean define(ItemWithId item) throws IOException {
+        if(!(item instanceof Attribute)) {return true;}
+        Attribute attribute = (Attribute)item;
+        if(definedAttributes.contains(attribute)) {return true;}
+        pendingAttributes.remove(attribute);
+        byte[] definition = LogRecord.attributeDefined(attribute);
+        if(definition == null) {return false;}
+        definedAttributes.add(attribute);
+        append(definition);
+        return true;}
+
+    /** logs the definitions of the new attributes which have not yet been logged */
+    private synchronized void definePending() {
+        try{for(Attribute attribute : pendingAttributes.toArray(new Attribute[0])) {define(attribute);}}
+        catch(IOException ex) {error(ex);}}
+
+    /** appends the record to the log and starts a checkpoint if the segment is too large */
+    private synchronized void append(byte[] record) {
+        if(log.append(record) < 0) {
+            IOException failure = log.getFailure();
+            error(failure == null ? new IOException("log is closed") : failure);
+            return;}
+        if(log.getSegmentSize() > checkpointBytes && checkpointing.compareAndSet(false,true)) {
+            Thread thread = new Thread(() -> {
+                StringBuilder checkpointErrors = new StringBuilder();
+                try{checkpoint(checkpointErrors);}
+                catch(RuntimeException ex) {checkpointErrors.append("Storage: checkpoint: ").append(ex.toString()).append("\n");}
+                if(checkpointErrors.length() > 0) {synchronized (errors) {errors.append(checkpointErrors);}}},
+                "Checkpoint " + directory);
+            thread.setDaemon(true);
+            thread.start();}}
+
+    /** records an error of an observer */
+    private void error(IOException ex) {
+        synchronized (errors) {errors.append("Storage: ").append(ex.toString()).append("\n");}}
+
+    /** returns and clears the errors of the observers and automatic checkpoints.
+     *
+     * @return the error messages (may be empty)
+     */
+    public String takeErrors() {
+        synchronized (errors) {
+            String messages = errors.toString();
+            errors.setLength(0);
+            return messages;}}
+
+    /* ********************************** Durability ******************************************/
+
+    /** waits until all mutations so far are on disk.
+     * Concurrent commits are served by one disk write.
+     *
+     * @return true if all mutations are durable.
+     */
+    public boolean commit() {
+        definePending();
+        try{return log.commit();}
+        catch(InterruptedException ex) {Thread.currentThread().interrupt(); return false;}}
+
+    /** writes a compacted snapshot and removes the older snapshots and segments.
+     * The changes of the context are paused while the new segment is started and the snapshot is written.
+     * The changes after the checkpoint go into the new segment, which is replayed on top of the new snapshot.
+     * If the snapshot cannot be written, its temporary file is removed, and the older snapshots and segments are kept.
+     *
+     * @param errors for appending error messages
+     * @return true if the snapshot has been written.
+     */
+    public boolean checkpoint(StringBuilder errors) {
+        checkpointing.set(true);
+        File temporary = null;
+        try{
+            long segment;
+            Lock pause = context.changeLock.writeLock();
+            pause.lock();
+            try{
+                synchronized (this) {
+                    segment = log.rotate();
+                    definedAttributes.clear();}
+                if(segment < 0) {errors.append("Storage: the log is closed\n"); return false;}
+                temporary = new File(directory, snapshotPrefix + segment + ".tmp");
+                if(!ContextSnapshot.write(context,temporary,errors)) {temporary.delete(); return false;}}
+            finally{pause.unlock();}
+            File snapshot = new File(directory, snapshotPrefix + segment);
+            try(FileChannel channel = FileChannel.open(temporary.toPath(),StandardOpenOption.WRITE)) {channel.force(true);}
+            Files.move(temporary.toPath(),snapshot.toPath(),StandardCopyOption.ATOMIC_MOVE);
+            for(File file : numberedFiles(directory,snapshotPrefix).headMap(segment).values()) {file.delete();}
+            for(File file : numberedFiles(directory,WriteAheadLog.prefix).headMap(segment).values()) {file.delete();}
+            return true;}
+        catch(IOException | RuntimeException ex) {
+            if(temporary != null) {temporary.delete();}
+            errors.append("Storage: checkpoint: ").append(ex.toString()).append("\n");
+            return false;}
+        catch(InterruptedException ex) {
+            if(temporary != null) {temporary.delete();}
+            Thread.currentThread().interrupt();
+            return false;}
+        finally {checkpointing.set(false);}}
+
+    /** detaches the observers, writes the pending mutations and closes the log.
+     *
+     * @param errors for appending error messages
+     * @return true if all mutations have been written.
+     */
+    public boolean close(StringBuilder errors) {
+        definePending();
+        context.removeConceptObserver(conceptObserver);
+        context.removeAttributeObserver(attributeObserver);
+        removeHierarchyObservers(context.conceptHierarchy);
+        removeHierarchyObservers(context.attributeHierarchy);
+        valueObservers.forEach((attribute,observer) -> attribute.removeValueObserver(observer));
+        boolean okay = log.close();
+        if(!okay) {errors.append("Storage: the log could not be written completely").
+                append(log.getFailure() == null ? "" : ": " + log.getFailure()).append("\n");}
+        errors.append(takeErrors());
+        return okay;}
+}
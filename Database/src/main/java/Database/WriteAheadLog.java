@@ -0,0 +1,244 @@
+package Database;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/** This class implements an append-only write-ahead log with group commit.
+ * <br>
+ * The log consists of segment files "log.0", "log.1", ... in a directory.
+ * Each record is framed by its length and the CRC32 checksum of its bytes.
+ * A torn or corrupted frame at the end of a segment marks the end of the valid records.
+ * <br>
+ * append only enqueues a record and returns its sequence number.
+ * A single flusher thread writes all enqueued records in one batch and forces them to disk with one call.
+ * Records which are appended while the flusher waits for the disk form the next batch.
+ * Callers who need durability wait for the sequence number with await.
+ */
+public class WriteAheadLog {
+    /** the prefix of the segment files */
+    public static final String prefix = "log.";
+
+    /** marks the place in the pending records where a new segment is to be started */
+    private static final byte[] rotation = new byte[0];
+
+    /** the directory with the segment files */
+    private final File directory;
+    /** the number of the current segment */
+    private long segment;
+    /** the current segment file */
+    private FileChannel channel;
+    /** the number of bytes in the current segment */
+    private long segmentSize;
+
+    /** the records which are not yet written */
+    private ArrayList<byte[]> pending = new ArrayList<>();
+    /** the sequence number of the last appended record */
+    private long appended = 0;
+    /** the sequence number of the last record which has been forced to disk */
+    private long durable = 0;
+    /** the exception which stopped the flusher, or null */
+    private IOException failure = null;
+    /** true after close() */
+    private boolean closed = false;
+    /** writes and forces the batches */
+    private final Thread flusher;
+
+    /** opens the segment for appending and starts the flusher thread.
+     *
+     * @param directory the directory with the segment files
+     * @param segment   the number of the segment to append to
+     * @throws IOException if the segment cannot be opened.
+     */
+    public WriteAheadLog(File directory, long segment) throws IOException {
+        this.directory = directory;
+        openSegment(segment);
+        flusher = new Thread(this::flush, "WriteAheadLog " + directory);
+        flusher.setDaemon(true);
+        flusher.start();}
+
+    /** opens the segment file for appending */
+    private void openSegment(long segment) throws IOException {
+        this.segment = segment;
+        channel = FileChannel.open(segmentFile(directory,segment).toPath(),
+                StandardOpenOption.CREATE,StandardOpenOption.WRITE);
+        segmentSize = channel.size();
+        channel.position(segmentSize);}
+
+    /** @return the file for the segment with the given number */
+    public static File segmentFile(File directory, long segment) {return new File(directory, prefix + segment);}
+
+    /** enqueues a record. It is written by the flusher thread.
+     *
+     * @param record the bytes of the record
+     * @return the record's sequence number, or -1 if the log is closed or has failed.
+     */
+    public synchronized long append(byte[] record) {
+        if(closed || failure != null) {return -1;}
+        pending.add(record);
+        ++appended;
+        notifyAll();
+        return appended;}
+
+    /** waits until the record with the given sequence number has been forced to disk.
+     *
+     * @param sequence a sequence number from append
+     * @return true if the record is durable, false if the log has failed or was closed before.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized boolean await(long sequence) throws InterruptedException {
+        while(durable < sequence && failure == null && flusher.isAlive()) {wait();}
+        return durable >= sequence;}
+
+    /** waits until all records appended so far have been forced to disk.
+     *
+     * @return true if all records are durable.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public boolean commit() throws InterruptedException {
+        long sequence;
+        synchronized (this) {sequence = appended;}
+        return await(sequence);}
+
+    /** lets the flusher close the current segment after the records appended so far, and start a new segment.
+     * The method returns when the old segment has been forced to disk and the new segment is open.
+     *
+     * @return the number of the new segment, or -1 if the log has failed or was closed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized long rotate() throws InterruptedException {
+        if(closed || failure != null) {return -1;}
+        long next = segment + 1;
+        pending.add(rotation);
+        notifyAll();
+        while(segment < next && failure == null && flusher.isAlive()) {wait();}
+        return (segment == next) ? next : -1;}
+
+    /** @return the number of the current segment */
+    public synchronized long getSegment() {return segment;}
+
+    /** @return the number of bytes written into the current segment */
+    public synchronized long getSegmentSize() {return segmentSize;}
+
+    /** @return the exception which stopped the log, or null */
+    public synchronized IOException getFailure() {return failure;}
+
+    /** the flusher's loop: takes the pending records as one batch, writes and forces them. */
+    private void flush() {
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while(true) {
+            ArrayList<byte[]> batch;
+            long last;
+            synchronized (this) {
+                while(pending.isEmpty() && !closed) {
+                    try{wait();} catch(InterruptedException ex) {closed = true;}}
+                if(pending.isEmpty()) {return;}
+                batch = pending;
+                pending = new ArrayList<>();
+                last = appended;}
+            try{
+                long written = 0;
+                for(byte[] record : batch) {
+                    if(record == rotation) {
+                        channel.force(false);
+                        channel.close();
+                        synchronized (this) {openSegment(segment+1); notifyAll();}
+                        written = 0;
+                        continue;}
+                    crc.reset();
+                    crc.update(record);
+                    header.clear();
+                    header.putInt(record.length).putInt((int)crc.getValue()).flip();
+                    ByteBuffer[] frame = new ByteBuffer[]{header, ByteBuffer.wrap(record)};
+                    while(frame[1].hasRemaining()) {channel.write(frame);}
+                    written += 8 + record.length;}
+                channel.force(false);
+                synchronized (this) {
+                    segmentSize += written;
+                    durable = last;
+                    notifyAll();}}
+            catch(IOException ex) {
+                synchronized (this) {failure = ex; notifyAll();}
+                return;}}}
+
+    /** writes the pending records, stops the flusher and closes the segment file.
+     *
+     * @return true if all records have been written.
+     */
+    public boolean close() {
+        synchronized (this) {closed = true; notifyAll();}
+        try{flusher.join();}
+        catch(InterruptedException ex) {Thread.currentThread().interrupt();}
+        try{channel.close();}
+        catch(IOException ex) {synchronized (this) {if(failure == null) {failure = ex;}}}
+        synchronized (this) {return failure == null && durable == appended;}}
+
+    /** reads the valid records of a segment file.
+     * Reading stops at the end of the file or at the first torn or corrupted frame.
+     * The file is streamed through a buffer, such that segments can be larger than the heap or 2 GB.
+     *
+     * @param file     a segment file
+     * @param consumer is applied to the contents of the records (the buffer is only valid during the call)
+     * @return the number of bytes of the valid frames.
+     * @throws IOException if the file cannot be read.
+     */
+    public static long replay(File file, Consumer<ByteBuffer> consumer) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.READ)) {
+            long size = channel.size();
+            long valid = 0;
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.flip();
+            while((buffer = fill(channel,buffer,8)) != null) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                int checksum = buffer.getInt(start + 4);
+                if(length < 0 || length > size - valid - 8) {break;}
+                if((buffer = fill(channel,buffer,8 + length)) == null) {break;}
+                start = buffer.position();
+                ByteBuffer record = buffer.duplicate();
+                record.position(start + 8).limit(start + 8 + length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if((int)crc.getValue() != checksum) {break;}
+                buffer.position(start + 8 + length);
+                valid += 8 + length;
+                consumer.accept(record.slice());}
+            return valid;}}
+
+    /** reads from the channel until the buffer has at least the given number of remaining bytes.
+     *
+     * @param channel a channel which is read sequentially
+     * @param buffer  a buffer in read mode
+     * @param bytes   the required number of bytes
+     * @return the buffer (or a larger one) in read mode, or null if the file ends before.
+     * @throws IOException if reading fails.
+     */
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if(buffer.remaining() >= bytes) {return buffer;}
+        if(buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes,2*buffer.capacity()));
+            larger.put(buffer);
+            buffer = larger;}
+        else {buffer.compact();}
+        while(buffer.position() < bytes) {
+            if(channel.read(buffer) < 0) {return null;}}
+        buffer.flip();
+        return buffer;}
+
+    /** cuts a segment file after its valid frames.
+     *
+     * @param file   a segment file
+     * @param length the number of bytes of the valid frames
+     * @throws IOException if the file cannot be truncated.
+     */
+    public static void truncate(File file, long length) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.WRITE)) {
+            if(channel.size() > length) {channel.truncate(length); channel.force(true);}}}
+}
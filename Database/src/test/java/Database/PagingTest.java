@@ -0,0 +1,108 @@
+package Database;
+
+import Attributes.ConceptAttribute;
+import Attributes.DataAttribute;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import MISC.ConceptPager;
+import MISC.Context;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/** Tests the paging of concept values into a FileConceptStorage, also while the concepts are changed concurrently.
+ * The access throughput with a small cache is measured by the PagingBenchmark.
+ */
+public class PagingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** creates individuals p0, p1, ... with two legs values and a friend each
+     *
+     * @param context the context with paging enabled
+     * @param size    the number of individuals
+     */
+    private static void fill(Context context, int size) {
+        StringBuilder errors = new StringBuilder();
+        SetConcept person = new SetConcept("person",context);
+        DataAttribute legs = new DataAttribute("legs",context,false,null,(ConcreteType)context.getDataType("Integer"));
+        ConceptAttribute friend = new ConceptAttribute("friend",context,false,person,person);
+        Concept previous = person;
+        for(int i = 0; i < size; ++i) {
+            IndividualConcept individual = new IndividualConcept("p" + i,context,person);
+            individual.add(legs,new IntegerObject(i),Scope.LOCAL,context,errors);
+            individual.add(legs,new IntegerObject(i+1),Scope.LOCAL,context,errors);
+            if(i > 0) {individual.add(friend,previous,Scope.LOCAL,context,errors);}
+            previous = individual;}
+        assertEquals("",errors.toString());}
+
+    @Test
+    public void evictAndLoad() throws Exception {
+        File file = folder.newFile("values.dat");
+        FileConceptStorage storage = new FileConceptStorage(file);
+        Context context = new Context("paged");
+        ConceptPager pager = context.enablePaging(storage,100);
+        fill(context,2000);
+        Concept pinned = context.getConcept("p0");
+        pager.pin(pinned);
+        assertTrue(pager.residentSize() <= 101);
+        DataAttribute legs = (DataAttribute)context.getAttribute("legs");
+        long sum = 0;
+        for(int i = 0; i < 2000; ++i) {sum += (Integer)context.getConcept("p" + i).getFirst(legs,context).get();}
+        assertEquals(1999L * 2000 / 2,sum);
+        assertNotNull(pinned.getResidentValues());
+        assertSame(context.getConcept("p9"),context.getConcept("p10").getFirst(context.getAttribute("friend"),context));
+
+        Concept changed = context.getConcept("p3");
+        StringBuilder errors = new StringBuilder();
+        changed.add(legs,new IntegerObject(77),Scope.LOCAL,context,errors);
+        for(int i = 1000; i < 1200; ++i) {context.getConcept("p" + i).getFirst(legs,context);}
+        assertNull(changed.getResidentValues());
+        assertEquals("[3, 4, 77]",changed.stream(legs,context).map(Object::toString).collect(Collectors.toList()).toString());
+
+        context.removeConcept("p4");
+        assertTrue(pager.flush());
+        assertEquals("",pager.takeErrors());
+        int stored = storage.size();
+        storage.compact();
+        storage.close();
+        FileConceptStorage reopened = new FileConceptStorage(file);
+        assertEquals(stored,reopened.size());
+        assertNotNull(reopened.load(changed,context,errors).get(legs));
+        assertEquals("",errors.toString());
+        reopened.close();}
+
+    /** checks that no change is lost while other threads evict the concepts */
+    @Test
+    public void concurrentChanges() throws Exception {
+        Context context = new Context("paged");
+        ConceptPager pager = context.enablePaging(new FileConceptStorage(folder.newFile()),20);
+        int size = 200, threads = 4;
+        fill(context,size);
+        DataAttribute legs = (DataAttribute)context.getAttribute("legs");
+        Concept[] concepts = new Concept[size];
+        for(int i = 0; i < size; ++i) {concepts[i] = context.getConcept("p" + i);}
+        ArrayList<Thread> writers = new ArrayList<>();
+        for(int t = 0; t < threads; ++t) {
+            int thread = t;
+            writers.add(new Thread(() -> {
+                StringBuilder errors = new StringBuilder();
+                Random random = new Random(thread);
+                for(int i = 0; i < size; ++i) {
+                    concepts[i].add(legs,new IntegerObject(-1 - thread*size - i),Scope.LOCAL,context,errors);
+                    concepts[random.nextInt(size)].getFirst(legs,context);}}));}
+        writers.forEach(Thread::start);
+        for(Thread writer : writers) {writer.join();}
+        for(int i = 0; i < size; ++i) {
+            assertEquals("p" + i,2 + threads,concepts[i].stream(legs,context).count());}
+        assertEquals("",pager.takeErrors());}
+}
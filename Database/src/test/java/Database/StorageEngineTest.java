@@ -0,0 +1,158 @@
+package Database;
+
+import Attributes.*;
+import ConcreteDomain.AtomicTypes.IntegerObject;
+import ConcreteDomain.ConcreteType;
+import Concepts.*;
+import MISC.Context;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/** Tests the crash recovery of the storage engine and the checkpoints during concurrent changes.
+ * A crash is simulated by opening a second engine on the directory without closing the first one.
+ * The commit throughput is measured by the StorageEngineBenchmark.
+ */
+public class StorageEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** fills the context with concepts, edges, attributes and values */
+    private static void fill(Context context) {
+        StringBuilder errors = new StringBuilder();
+        SetConcept person = new SetConcept("person",context);
+        SetConcept student = new SetConcept("student",context);
+        context.conceptHierarchy.addSubnode(person,student);
+        IndividualConcept bob = new IndividualConcept("bob",context,student);
+        IndividualConcept ann = new IndividualConcept("ann",context,student);
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute legs = new DataAttribute("legs",context,true,null,integer);
+        ColumnarDataAttribute age = new ColumnarDataAttribute("age",context,null,integer);
+        ConceptAttribute friend = new ConceptAttribute("friend",context,false,person,person);
+        ConceptAttribute relative = new ConceptAttribute("relative",context,false);
+        ConceptAttribute parent = new ConceptAttribute("parent",context,true);
+        context.attributeHierarchy.addSubnode(relative,parent);
+        new ConceptAttribute("gone",context,false);
+        person.add(legs,new IntegerObject(2),Scope.DEFAULT,context,errors);
+        bob.add(legs,new IntegerObject(3),Scope.LOCAL,context,errors);
+        bob.add(age,new IntegerObject(30),Scope.LOCAL,context,errors);
+        ann.add(age,new IntegerObject(20),Scope.LOCAL,context,errors);
+        bob.add(friend,ann,Scope.LOCAL,context,errors);
+        IndividualConcept temporary = new IndividualConcept("temporary",context,student);
+        context.conceptHierarchy.removeNode(temporary);
+        context.removeConcept("temporary");
+        context.removeAttribute("gone");
+        assertEquals("",errors.toString());}
+
+    /** checks that the context has the contents of fill */
+    private static void check(Context context) {
+        Concept bob = context.getConcept("bob"), ann = context.getConcept("ann");
+        assertNotNull(bob);
+        assertTrue(context.conceptHierarchy.isSubnodeOf(bob,context.getConcept("student")));
+        assertEquals(new IntegerObject(3),bob.getFirst(context.getAttribute("legs"),context));
+        assertEquals(new IntegerObject(2),ann.getFirst(context.getAttribute("legs"),context));
+        assertEquals(new IntegerObject(30),bob.getFirst(context.getAttribute("age"),context));
+        assertSame(ann,bob.getFirst(context.getAttribute("friend"),context));
+        Attribute parent = context.getAttribute("parent");
+        assertTrue(parent.isFunctional());
+        assertTrue(context.attributeHierarchy.isSubnodeOf(parent,context.getAttribute("relative")));
+        assertNull(context.getConcept("temporary"));
+        assertNull(context.getAttribute("gone"));}
+
+    @Test
+    public void crashRecovery() throws Exception {
+        File directory = folder.newFolder();
+        StringBuilder errors = new StringBuilder();
+        Context context = new Context("original");
+        StorageEngine engine = StorageEngine.open(directory,context,1 << 20,errors);
+        assertNotNull(errors.toString(),engine);
+        fill(context);
+        assertTrue(engine.commit());
+        assertEquals("",engine.takeErrors());
+        File[] logs = directory.listFiles((dir,name) -> name.startsWith(WriteAheadLog.prefix));
+        Arrays.sort(logs);
+        try(FileOutputStream out = new FileOutputStream(logs[logs.length-1],true)) {out.write(new byte[]{0,0,0,50,1,2,3});}
+
+        Context recovered = new Context("recovered");
+        StorageEngine again = StorageEngine.open(directory,recovered,1 << 20,errors);
+        assertNotNull(again);
+        assertEquals("",errors.toString());
+        check(recovered);
+        new IndividualConcept("carl",recovered,(SetConcept)recovered.getConcept("person"));
+        assertTrue(again.close(errors));
+
+        Context third = new Context("third");
+        StorageEngine engine3 = StorageEngine.open(directory,third,1 << 20,errors);
+        check(third);
+        assertNotNull(third.getConcept("carl"));
+        assertTrue(engine3.close(errors));
+        assertEquals("",errors.toString());}
+
+    @Test
+    public void checkpoint() throws Exception {
+        File directory = folder.newFolder();
+        StringBuilder errors = new StringBuilder();
+        Context context = new Context("original");
+        StorageEngine engine = StorageEngine.open(directory,context,1 << 20,errors);
+        fill(context);
+        assertTrue(errors.toString(),engine.checkpoint(errors));
+        IndividualConcept carl = new IndividualConcept("carl",context,(SetConcept)context.getConcept("person"));
+        carl.add(context.getAttribute("age"),new IntegerObject(40),Scope.LOCAL,context,errors);
+        assertTrue(engine.commit());
+        assertEquals(2,directory.list().length);
+
+        Context recovered = new Context("recovered");
+        StorageEngine again = StorageEngine.open(directory,recovered,1 << 20,errors);
+        check(recovered);
+        assertEquals(new IntegerObject(40),recovered.getConcept("carl").getFirst(recovered.getAttribute("age"),recovered));
+        assertTrue(again.close(errors));
+        assertEquals("",errors.toString());}
+
+    /** checks that checkpoints during concurrent changes write consistent snapshots and leave no temporary files */
+    @Test
+    public void concurrentCheckpoints() throws Exception {
+        File directory = folder.newFolder();
+        StringBuilder errors = new StringBuilder();
+        Context context = new Context("original");
+        StorageEngine engine = StorageEngine.open(directory,context,1 << 30,errors);
+        SetConcept person = new SetConcept("person",context);
+        ConcreteType integer = (ConcreteType)context.getDataType("Integer");
+        DataAttribute code = new DataAttribute("code",context,false,null,integer);
+        int threads = 4, concepts = 2000;
+        ArrayList<Thread> writers = new ArrayList<>();
+        for(int t = 0; t < threads; ++t) {
+            int thread = t;
+            writers.add(new Thread(() -> {
+                StringBuilder writerErrors = new StringBuilder();
+                for(int i = 0; i < concepts; ++i) {
+                    IndividualConcept individual = new IndividualConcept("x" + thread + "_" + i,context,person);
+                    individual.add(code,new IntegerObject(i),Scope.LOCAL,context,writerErrors);
+                    individual.add(code,new IntegerObject(-i),Scope.LOCAL,context,writerErrors);}}));}
+        writers.forEach(Thread::start);
+        for(int i = 0; i < 10; ++i) {assertTrue(errors.toString(),engine.checkpoint(errors));}
+        for(Thread writer : writers) {writer.join();}
+        assertTrue(engine.close(errors));
+        assertEquals("",errors.toString());
+        assertEquals(0,directory.list((dir,name) -> name.endsWith(".tmp")).length);
+
+        Context recovered = new Context("recovered");
+        StorageEngine again = StorageEngine.open(directory,recovered,1 << 30,errors);
+        assertEquals("",errors.toString());
+        Attribute recoveredCode = recovered.getAttribute("code");
+        for(int t = 0; t < threads; ++t) {
+            for(int i = 0; i < concepts; ++i) {
+                Concept individual = recovered.getConcept("x" + t + "_" + i);
+                assertNotNull(individual);
+                assertTrue(recovered.conceptHierarchy.isSubnodeOf(individual,recovered.getConcept("person")));
+                assertEquals(2,recoveredCode.stream(individual,Scope.LOCAL,null,null,null,recovered).count());}}
+        assertTrue(again.close(errors));
+        assertEquals("",errors.toString());}
+}
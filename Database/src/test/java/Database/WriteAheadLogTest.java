@@ -0,0 +1,102 @@
+package Database;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/** Tests the framing and recovery of the write-ahead log and measures the group commit throughput. */
+public class WriteAheadLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** appends records of the given sizes, each filled with its size modulo 128 */
+    private static void append(WriteAheadLog log, int... sizes) throws InterruptedException {
+        for(int size : sizes) {
+            byte[] record = new byte[size];
+            Arrays.fill(record,(byte)size);
+            log.append(record);}
+        assertTrue(log.commit());}
+
+    /** replays the segment and returns the sizes of the records, negative for records with wrong contents */
+    private static ArrayList<Integer> replay(File file, long[] valid) throws Exception {
+        ArrayList<Integer> sizes = new ArrayList<>();
+        valid[0] = WriteAheadLog.replay(file, record -> {
+            int size = record.remaining();
+            boolean ok = true;
+            while(record.hasRemaining()) {ok &= record.get() == (byte)size;}
+            sizes.add(ok ? size : -size);});
+        return sizes;}
+
+    @Test
+    public void tornTail() throws Exception {
+        File directory = folder.newFolder();
+        WriteAheadLog log = new WriteAheadLog(directory,0);
+        append(log,10,70000,5,200000,3);
+        assertTrue(log.close());
+        File file = WriteAheadLog.segmentFile(directory,0);
+        long full = file.length();
+        try(FileOutputStream out = new FileOutputStream(file,true)) {out.write(new byte[]{0,0,1,0, 1,2,3,4, 9,9});}
+        long[] valid = new long[1];
+        assertEquals(Arrays.asList(10,70000,5,200000,3),replay(file,valid));
+        assertEquals(full,valid[0]);
+        WriteAheadLog.truncate(file,valid[0]);
+        assertEquals(full,file.length());}
+
+    @Test
+    public void corruptRecord() throws Exception {
+        File directory = folder.newFolder();
+        WriteAheadLog log = new WriteAheadLog(directory,0);
+        append(log,10,20,30);
+        assertTrue(log.close());
+        File file = WriteAheadLog.segmentFile(directory,0);
+        try(RandomAccessFile raf = new RandomAccessFile(file,"rw")) {  // a byte in the second record
+            raf.seek(18 + 8 + 5);
+            raf.write(99);}
+        long[] valid = new long[1];
+        assertEquals(Arrays.asList(10),replay(file,valid));
+        assertEquals(18,valid[0]);}
+
+    @Test
+    public void rotate() throws Exception {
+        File directory = folder.newFolder();
+        WriteAheadLog log = new WriteAheadLog(directory,3);
+        append(log,1,2);
+        assertEquals(4,log.rotate());
+        append(log,3);
+        assertTrue(log.close());
+        long[] valid = new long[1];
+        assertEquals(Arrays.asList(1,2),replay(WriteAheadLog.segmentFile(directory,3),valid));
+        assertEquals(Arrays.asList(3),replay(WriteAheadLog.segmentFile(directory,4),valid));
+        assertEquals(-1,log.append(new byte[1]));}
+
+    /** measures durable commits per second with one and with eight committing threads */
+    @Test
+    public void groupCommit() throws Exception {
+        for(int threads : new int[]{1,8}) {
+            File directory = folder.newFolder();
+            WriteAheadLog log = new WriteAheadLog(directory,0);
+            int commits = 200;
+            ArrayList<Thread> writers = new ArrayList<>();
+            long start = System.nanoTime();
+            for(int t = 0; t < threads; ++t) {
+                writers.add(new Thread(() -> {
+                    try{for(int i = 0; i < commits; ++i) {log.await(log.append(new byte[100]));}}
+                    catch(InterruptedException ex) {Thread.currentThread().interrupt();}}));}
+            writers.forEach(Thread::start);
+            for(Thread writer : writers) {writer.join();}
+            long time = System.nanoTime() - start;
+            assertTrue(log.close());
+            long[] valid = new long[1];
+            assertEquals(threads * commits,replay(WriteAheadLog.segmentFile(directory,0),valid).size());
+            System.out.printf("WriteAheadLog: %d threads, %.0f durable commits/s%n",
+                    threads,threads * commits / (time / 1e9));}}
+}
@@ -3,11 +3,14 @@ package Network.Queries;
 import Attributes.Attribute;
 import Attributes.AttributeValueList;
 import Concepts.Concept;
+import IO.AttributeValueEncoder;
+import IO.ModelCodec;
 import MISC.Commons;
 import MISC.Context;
 import Utils.Messanger;
 import Utils.Utilities;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -130,6 +133,43 @@ public class AttributeQuery extends Query implements Serializable {
         return null;
     }
 
+    /** writes the query by the ModelCodec.
+     *
+     * @param out where to write the query.
+     * @throws IOException if writing fails.
+     */
+    void write(ModelCodec.Output out) throws IOException {
+        out.writeInt(queryId);
+        out.writeInt(answerType.ordinal());
+        out.writeName(conceptId);
+        out.writeName(attributeId);
+        out.writeInt(queryType.ordinal());
+        out.writeObject(constraints);
+        out.writeString(code);
+        out.writeName(argumentType);
+        out.writeName(resultType);}
+
+    /** reads a query which has been written by write.
+     * The attributes in the constraints are taken from the input's context.
+     *
+     * @param in where to read the query from.
+     * @return the query.
+     * @throws IOException if reading fails, or a type number is invalid.
+     */
+    static AttributeQuery read(ModelCodec.Input in) throws IOException {
+        int queryId = in.readInt();
+        AnswerType answerType = AttributeValueEncoder.element(AnswerType.values(),in.readInt(),"answer type");
+        String conceptId = in.readName();
+        String attributeId = in.readName();
+        AttributeQueryType queryType = AttributeValueEncoder.element(AttributeQueryType.values(),in.readInt(),"query type");
+        AttributeQuery query = new AttributeQuery(conceptId,attributeId,queryType,answerType);
+        query.queryId = queryId;
+        query.constraints = (AttributeValueList)in.readObject();
+        query.code = in.readString();
+        query.argumentType = in.readName();
+        query.resultType = in.readName();
+        return query;}
+
     /** returns a string representation of the query.
      *
      * @return a string representation of the query.
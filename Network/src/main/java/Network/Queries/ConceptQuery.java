@@ -4,11 +4,14 @@ import Concepts.Concept;
 import DAGs.Direction;
 import DAGs.InnerNode;
 import Graphs.Strategy;
+import IO.AttributeValueEncoder;
+import IO.ModelCodec;
 import MISC.Commons;
 import MISC.Context;
 import Utils.Messanger;
 import Utils.Utilities;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.function.Function;
@@ -163,6 +166,41 @@ public class ConceptQuery extends Query implements Serializable {
             return stream.map(c -> c.getName());}
         catch(Exception ex) {error = true; return ex.toString();}
     }
+    /** writes the query by the ModelCodec.
+     *
+     * @param out where to write the query.
+     * @throws IOException if writing fails.
+     */
+    void write(ModelCodec.Output out) throws IOException {
+        out.writeInt(queryId);
+        out.writeInt(answerType.ordinal());
+        out.writeName(conceptId);
+        out.writeInt(queryType.ordinal());
+        out.writeBoolean(all);
+        out.writeInt(direction.ordinal());
+        out.writeInt(strategy.ordinal());
+        out.writeString(code);
+        out.writeName(resultType);}
+
+    /** reads a query which has been written by write.
+     *
+     * @param in where to read the query from.
+     * @return the query.
+     * @throws IOException if reading fails, or a type number is invalid.
+     */
+    static ConceptQuery read(ModelCodec.Input in) throws IOException {
+        int queryId = in.readInt();
+        AnswerType answerType = AttributeValueEncoder.element(AnswerType.values(),in.readInt(),"answer type");
+        ConceptQuery query = new ConceptQuery(in.readName(),AttributeValueEncoder.element(ConceptQueryType.values(),in.readInt(),"query type"));
+        query.queryId = queryId;
+        query.answerType = answerType;
+        query.all = in.readBoolean();
+        query.direction = AttributeValueEncoder.element(Direction.values(),in.readInt(),"direction");
+        query.strategy = AttributeValueEncoder.element(Strategy.values(),in.readInt(),"strategy");
+        query.code = in.readString();
+        query.resultType = in.readName();
+        return query;}
+
     /**
      * @return a description of the query.
      */
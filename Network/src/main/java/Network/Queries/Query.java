@@ -1,5 +1,6 @@
 package Network.Queries;
 
+import IO.ModelCodec;
 import MISC.Context;
 
 import java.io.Serializable;
@@ -28,6 +29,13 @@ public abstract class Query implements Serializable {
         queryId = ++counter;
         this.answerType = answerType;}
 
+    /** registers the codecs of the queries at the ModelCodec.
+     * The QueryServer and QueryClient do this when they are loaded.
+     */
+    public static void registerCodecs() {
+        ModelCodec.register("AttributeQuery", AttributeQuery.class, (out,query) -> query.write(out), AttributeQuery::read);
+        ModelCodec.register("ConceptQuery",   ConceptQuery.class,   (out,query) -> query.write(out), ConceptQuery::read);}
+
     /** must return the answer to the query
      *
      * @param context the context from where the answer is to be generated.
@@ -1,16 +1,18 @@
 package Network.Queries;
+import IO.ModelCodec;
 import MISC.Commons;
+import MISC.Context;
 import Utils.Messanger;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 
 import static Network.StreamsAndSockets.socket2Stream;
 
 /** This is the client side for sending queries over the network to a QueryServer.
+ * Queries and direct answers are transferred by the ModelCodec.
+ * Concepts and attributes in the answers are resolved in the client's context.
  *
  * Created by ohlbach on 01.04.2016.
  */
@@ -20,12 +22,16 @@ public class QueryClient {
     /** the client socket */
     private Socket clientSocket;
     /** the socket's output stream */
-    private ObjectOutputStream out;
+    private ModelCodec.Output out;
     /** the socket's input stream */
-    private ObjectInputStream in;
+    private ModelCodec.Input in;
+    /** collects the errors while reading the answers */
+    private final StringBuilder errors = new StringBuilder();
     /** indicates errors during processing of a query */
     public boolean error = false;
 
+    static {Query.registerCodecs();}
+
     /** constructs a new client.
      * One can send several queries via the same client.
      *
@@ -34,10 +40,20 @@ public class QueryClient {
      * @throws IOException  if the communication fails.
      */
     public QueryClient(InetAddress serverAddress, int serverPort) throws IOException {
+        this(serverAddress,serverPort,null);}
+
+    /** constructs a new client whose answers are read into the given context.
+     *
+     * @param serverAddress the server's address.
+     * @param serverPort    the server's port.
+     * @param context       where the concepts and attributes in the answers are looked up (may be null).
+     * @throws IOException  if the communication fails.
+     */
+    public QueryClient(InetAddress serverAddress, int serverPort, Context context) throws IOException {
         this.serverAddress = serverAddress;
         clientSocket = new Socket(this.serverAddress,serverPort);
-        out = new ObjectOutputStream(clientSocket.getOutputStream());
-        in = new ObjectInputStream(clientSocket.getInputStream());
+        out = new ModelCodec.Output(clientSocket.getOutputStream());
+        in = new ModelCodec.Input(clientSocket.getInputStream(),context,errors);
     }
 
     /** sends a query to the server.
@@ -62,9 +78,9 @@ public class QueryClient {
             error = true;
             messangerIO.insert("reading object",ex.toString());
             return null;}
-        catch(ClassNotFoundException ex) {
-            messangerProgram.insert("reconstructing object",ex.toString());
-            return null;}
+        if(errors.length() != 0) {
+            messangerProgram.insert("reconstructing object",errors.toString());
+            errors.setLength(0);}
 
         if((result instanceof String) && ((String) result).startsWith("Error")) {
             error = true;
@@ -94,8 +110,9 @@ public class QueryClient {
         writeObject(out,"stop",Commons.getMessanger(Messanger.MessangerType.IOErrors));
         try{clientSocket.close();} catch(Exception ex) {};}
 
-    private boolean writeObject(ObjectOutputStream out, Object object, Messanger messanger) {
+    private boolean writeObject(ModelCodec.Output out, Object object, Messanger messanger) {
         try{out.writeObject(object);
+            out.flush();
             return true;}
         catch(Exception ex) {
             error = true;
@@ -1,6 +1,7 @@
 package Network.Queries;
 
 import Concepts.DataCarrier;
+import IO.ModelCodec;
 import MISC.Commons;
 import MISC.Context;
 import Network.StreamsAndSockets;
@@ -8,8 +9,6 @@ import Utils.Messanger;
 import Utils.Utilities;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
@@ -26,6 +25,8 @@ import java.util.stream.Stream;
  * 1. If the answer type is DIRECT, the answer is returned immediately at the same socket.<br>
  * 2. If the answer type is STREAM, a new port number is returned, and a new ServerSocket is bound to the
  * answer-stream. The new ServerSocket waits in a new thread for accessing the stream.
+ * <br>
+ * Queries and direct answers are transferred by the ModelCodec. The concepts and attributes are resolved in the server's context.
  *
  * Created by ohlbach on 27.02.2016.
  */
@@ -33,6 +34,8 @@ public class QueryServer {
     /**the context object for answering the query*/
     private Context context = null;
     private ServerSocket serverSocket;
+
+    static {Query.registerCodecs();}
     /**
      * creates a new AccessServer
      *
@@ -69,10 +72,11 @@ public class QueryServer {
         Messanger messangerIO      = Commons.getMessanger(Messanger.MessangerType.IOErrors);
         Messanger messangerData    = Commons.getMessanger(Messanger.MessangerType.DataErrors);
         Messanger messangerProgram = Commons.getMessanger(Messanger.MessangerType.ProgramErrors);
-        ObjectInputStream inStream;
-        ObjectOutputStream outStream;
-        try {inStream  = new ObjectInputStream(socket.getInputStream());
-             outStream = new ObjectOutputStream(socket.getOutputStream());}
+        StringBuilder readErrors = new StringBuilder();
+        ModelCodec.Input inStream;
+        ModelCodec.Output outStream;
+        try {inStream  = new ModelCodec.Input(socket.getInputStream(),context,readErrors);
+             outStream = new ModelCodec.Output(socket.getOutputStream());}
         catch(IOException ex) {
             messangerIO.insert("Socket",ex.toString());
             return;}
@@ -83,6 +87,13 @@ public class QueryServer {
             catch(Exception ex) {
                 messangerIO.insert("Object Reconstruction",ex.toString());
                 writeObject(outStream,"Error: " + ex.toString(),messangerIO);
+                break;}
+            if(readErrors.length() != 0) {
+                messangerData.insert("Object Reconstruction",readErrors.toString());
+                readErrors.setLength(0);}
+            if(object == null) {
+                messangerProgram.insert("Query Reconstruction","null is not a query.");
+                writeObject(outStream,"Error: null is not a query.",messangerIO);
                 continue;}
             if(object.equals("stop")) {break;}
             if(object instanceof DataCarrier) {
@@ -121,8 +132,10 @@ public class QueryServer {
                         thread.start();}}}
         }
 
-    private boolean writeObject(ObjectOutputStream out, Object object, Messanger messanger) {
-        try{out.writeObject(object); return true;}
+    private boolean writeObject(ModelCodec.Output out, Object object, Messanger messanger) {
+        try{out.writeObject(object);
+            out.flush();
+            return true;}
         catch(Exception ex) {
             messanger.insert("writeObject",ex.toString());
             return false;}}
@@ -0,0 +1,91 @@
+package Utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/** This class is a bounded cache for compiled Groovy scripts.
+ * <br>
+ * The keys are the source texts together with a signature (e.g. the kind of the compiled object).
+ * The source texts are not normalized: white space inside Groovy's string, GString and slashy literals is significant,
+ * and the scripts are usually generated from the same text anyway.
+ * The values are the compiled objects, i.e. the functions and predicates, or the Script classes.
+ * The least recently used entries are evicted if the capacity is exceeded.
+ * <br>
+ * Failed compilations are not cached, such that the errors are reported at each attempt.
+ */
+public class ScriptCache {
+
+    /** the maximal number of cached objects */
+    private int capacity;
+
+    /** maps signature and source to the compiled objects, in least-recently-used order */
+    private final LinkedHashMap<String,Object> cache;
+
+    /** the statistics */
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), compileNanos = new AtomicLong();
+
+    /** creates a cache with the given capacity
+     *
+     * @param capacity the maximal number of cached objects.
+     */
+    public ScriptCache(int capacity) {
+        this.capacity = capacity;
+        cache = new LinkedHashMap<String,Object>(16,0.75f,true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Object> eldest) {
+                return size() > ScriptCache.this.capacity;}};}
+
+    /** returns the cached object for the signature and the source, or compiles and caches it.
+     *
+     * @param signature a description of the kind of compiled object.
+     * @param source    the source text.
+     * @param compiler  compiles the source text (returns null if an error occurred).
+     * @return the compiled object, or null if an error occurred.
+     */
+    public Object get(String signature, String source, Supplier<Object> compiler) {
+        String key = signature + "\n" + source;
+        synchronized (cache) {
+            Object compiled = cache.get(key);
+            if(compiled != null) {hits.incrementAndGet(); return compiled;}}
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        Object compiled = compiler.get();
+        compileNanos.addAndGet(System.nanoTime() - start);
+        if(compiled == null) {return null;}
+        synchronized (cache) {
+            Object other = cache.putIfAbsent(key,compiled);
+            return (other == null) ? compiled : other;}}
+
+    /** sets a new capacity. Superfluous entries are removed immediately, the least recently used first.
+     *
+     * @param capacity the maximal number of cached objects.
+     */
+    public void setCapacity(int capacity) {
+        synchronized (cache) {
+            this.capacity = capacity;
+            Iterator<String> keys = cache.keySet().iterator();
+            while(cache.size() > capacity && keys.hasNext()) {keys.next(); keys.remove();}}}
+
+    /** removes all cached objects */
+    public void clear() {
+        synchronized (cache) {cache.clear();}}
+
+    /** @return the number of cache hits */
+    public long getHits() {return hits.get();}
+
+    /** @return the number of cache misses */
+    public long getMisses() {return misses.get();}
+
+    /** @return the accumulated compile time in nanoseconds */
+    public long getCompileNanos() {return compileNanos.get();}
+
+    /** @return the number of hits and misses, the compile time and the number of cached objects */
+    public String getStatistics() {
+        int size;
+        synchronized (cache) {size = cache.size();}
+        return "ScriptCache: " + hits.get() + " hits, " + misses.get() + " misses, " +
+                (compileNanos.get() / 1000000) + " ms compile time, " + size + " scripts";}
+}
@@ -3,7 +3,10 @@ package Utils;
 
 // import AbstractObjects.Interpretation;
 // import MISC.Commons;
+import groovy.lang.Binding;
 import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+import org.codehaus.groovy.runtime.InvokerHelper;
 
 import java.io.*;
 import java.lang.reflect.Method;
@@ -32,7 +35,11 @@ public class Utilities {
                 if(time1.equals(time2)) {return 0;}
                 return 1;});
 
-    private static GroovyShell shell = new GroovyShell();
+    /** one Groovy shell for each thread, such that compilations in different threads do not block each other */
+    private static final ThreadLocal<GroovyShell> shell = ThreadLocal.withInitial(GroovyShell::new);
+
+    /** caches the compiled predicates, functions and script classes */
+    public static final ScriptCache scriptCache = new ScriptCache(1000);
 
     public static boolean equalNumbers(Number n1, Number n2) {
         Class class1 = n1.getClass();
@@ -315,32 +322,50 @@ public class Utilities {
     }
 
 
-    /** evaluates the Groovy code
+    /** compiles the Groovy code into a script class, or takes it from the script cache.
+     *
+     * @param code the code to be compiled
+     * @return the script class.
+     */
+    private static Class<? extends Script> compileScript(String code) {
+        return (Class<? extends Script>)scriptCache.get("Script",code,() -> shell.get().parse(code).getClass());}
+
+    /** runs a new instance of the script class.
+     * Each run gets its own variable binding, such that concurrent runs do not share any state.
+     *
+     * @param scriptClass a compiled script class
+     * @return the result of the script.
+     */
+    private static Object runScript(Class<? extends Script> scriptClass) {
+        return InvokerHelper.createScript(scriptClass,new Binding()).run();}
+
+    /** evaluates the Groovy code.
+     * The compiled script is cached, but it is run anew at each call.
      *
      * @param code the code to be evaluated
      * @return the evaluated code, or null if an error occurred.
      */
     public static Object evaluate(String code)  {
-        synchronized(shell) {
-            try{return shell.evaluate(code);}
-           catch(Exception ex) {
-              //  Commons.getMessanger(DataErrors).insertCompilationError(code,ex);
-           }
-            return null;}}
-
-    /** evaluates the Groovy code
+        try{return runScript(compileScript(code));}
+        catch(Exception ex) {
+            //  Commons.getMessanger(DataErrors).insertCompilationError(code,ex);
+        }
+        return null;}
+
+    /** evaluates the Groovy code.
+     * The compiled script is cached, but it is run anew at each call.
      *
      * @param code the code to be evaluated
      * @return the evaluated code, or null if an error occurred.
      */
     public static Object evaluate(String code, StringBuilder errors)  {
-        synchronized(shell) {
-            try{return shell.evaluate(code);}
-            catch(Exception ex) {errors.append(ex.toString());}
-            return null;}}
+        try{return runScript(compileScript(code));}
+        catch(Exception ex) {errors.append(ex.toString());}
+        return null;}
 
 
-    /** compiles a code-string into a one-place predicate
+    /** compiles a code-string into a one-place predicate.
+     * The compiled predicates are cached and shared.
      *
      * @param predicate the code string, e.g. "i &gt; 5".
      * @param type  the argument type, e.g. Integer
@@ -348,18 +373,28 @@ public class Utilities {
      * @return the compiled predicate, or null if an error occurred.
      */
     public static Predicate compilePredicate(String predicate, String type, String parameter) {
+        return compilePredicate(predicate,type,parameter,null);}
+
+    /** compiles a code-string into a one-place predicate.
+     * The compiled predicates are cached and shared.
+     *
+     * @param predicate the code string, e.g. "i &gt; 5".
+     * @param type  the argument type, e.g. Integer
+     * @param parameter the applicationName of the argument.
+     * @param errors for appending error messages (may be null)
+     * @return the compiled predicate, or null if an error occurred.
+     */
+    public static Predicate compilePredicate(String predicate, String type, String parameter, StringBuilder errors) {
         String pred = "new java.util.function.Predicate<"+type+">() {"+
                 "public boolean test("+type +" "+ parameter + ") {" + predicate+"}}";
-        synchronized(shell) {
-            try{return (Predicate)shell.evaluate(pred);}
-            catch(Exception ex) {
-                System.out.println(ex);
-           //  Commons.getMessanger(DataErrors).insertCompilationError(pred,ex);
-            }
-            return null;}}
+        try{return (Predicate)scriptCache.get("Predicate",pred,() -> shell.get().evaluate(pred));}
+        catch(Exception ex) {if(errors != null) {errors.append("error when compiling " + pred + "\n " + ex.toString() + "\n");}}
+        return null;}
 
-    /** compiles a code-string into a one-place function
-     ** @param imports optional import statements
+    /** compiles a code-string into a one-place function.
+     * The compiled functions are cached and shared.
+     *
+     * @param imports optional import statements
      * @param code the code string, e.g. "i * i".
      * @param argType  the argument type, e.g. Integer
      * @param parameter the applicationName of the argument.* @param resultType the result type of the function application.
@@ -368,14 +403,14 @@ public class Utilities {
     public static Function compileFunction(String imports, String code, String argType, String parameter, String resultType, StringBuilder errors, int lineNumber) {
         String function = imports + " new java.util.function.Function<"+argType+","+resultType+"> () {"+
                 "public " + resultType +" apply("+argType +" "+ parameter + ") {" + code+"}}";
-        synchronized(shell) {
-            try{return (Function)shell.evaluate(function);}
-            catch(Exception ex) {errors.append("Line " + lineNumber + " error when compiling " + function +"\n "+ex.toString());}
-            return null;}}
+        try{return (Function)scriptCache.get("Function",function,() -> shell.get().evaluate(function));}
+        catch(Exception ex) {errors.append("Line " + lineNumber + " error when compiling " + function +"\n "+ex.toString());}
+        return null;}
 
 
 
-    /** compiles a code-string into a two-place function
+    /** compiles a code-string into a two-place function.
+     * The compiled functions are cached and shared.
      *
      * @param imports optional import statements
      * @param code the code string, e.g. "i * i".
@@ -389,10 +424,9 @@ public class Utilities {
     public static BiFunction compileFunction(String imports, String code, String argType1, String parameter1, String argType2, String parameter2, String resultType, StringBuilder errors, int lineNumber) {
         String function = imports + " new java.util.function.BiFunction<"+argType1+","+argType2+","+resultType+">() {"+
                 "public " + resultType +" apply("+argType1 +" "+ parameter1 + ","+argType2 +" "+ parameter2 +") {" + code+"}}";
-        synchronized(shell) {
-            try{return (BiFunction)shell.evaluate(function);}
-            catch(Exception ex) {errors.append("Line " + lineNumber + " error when compiling " + function +"\n "+ex.toString());}
-            return null;}}
+        try{return (BiFunction)scriptCache.get("BiFunction",function,() -> shell.get().evaluate(function));}
+        catch(Exception ex) {errors.append("Line " + lineNumber + " error when compiling " + function +"\n "+ex.toString());}
+        return null;}
 
 
     /** runs a server at the given port.<br>
@@ -717,6 +751,7 @@ public class Utilities {
     }
 
     /** This method serializes any serializable object to a string.
+     * Objects of the model (concepts, attributes, values etc.) are better encoded by IO.ModelCodec.objectToString.
      *
      * @param object any serializable object
      * @return a string representation of the object
@@ -0,0 +1,83 @@
+package Utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+/** Tests the bound, the eviction order and the statistics of the script cache. */
+public class ScriptCacheTest {
+
+    @Test
+    public void bound() {
+        ScriptCache cache = new ScriptCache(2);
+        int[] compilations = new int[1];
+        for(int i = 0; i < 10; ++i) {
+            String source = "s" + i;
+            cache.get("Script",source,() -> {++compilations[0]; return source;});}
+        assertEquals(10,compilations[0]);
+        assertEquals(10,cache.getMisses());
+        cache.get("Script","s9",() -> {++compilations[0]; return "s9";});
+        cache.get("Script","s8",() -> {++compilations[0]; return "s8";});
+        assertEquals(10,compilations[0]);
+        cache.get("Script","s0",() -> {++compilations[0]; return "s0";});
+        assertEquals(11,compilations[0]);}
+
+    @Test
+    public void lruEviction() {
+        ScriptCache cache = new ScriptCache(2);
+        int[] compilations = new int[1];
+        cache.get("Script","a",() -> {++compilations[0]; return "a";});
+        cache.get("Script","b",() -> {++compilations[0]; return "b";});
+        cache.get("Script","a",() -> {++compilations[0]; return "a";});  // a is now the most recently used
+        cache.get("Script","c",() -> {++compilations[0]; return "c";});  // evicts b
+        assertEquals(3,compilations[0]);
+        assertEquals("a",cache.get("Script","a",() -> {++compilations[0]; return "a";}));
+        assertEquals(3,compilations[0]);
+        cache.get("Script","b",() -> {++compilations[0]; return "b";});
+        assertEquals(4,compilations[0]);
+
+        cache.setCapacity(1);
+        cache.get("Script","d",() -> {++compilations[0]; return "d";});
+        cache.get("Script","b",() -> {++compilations[0]; return "b";});
+        assertEquals(6,compilations[0]);}
+
+    @Test
+    public void statistics() {
+        ScriptCache cache = new ScriptCache(10);
+        cache.get("Script","x",() -> {
+            try{Thread.sleep(5);} catch(InterruptedException ex) {Thread.currentThread().interrupt();}
+            return "x";});
+        cache.get("Script","x",() -> "x");
+        cache.get("Predicate","x",() -> "px");
+        assertEquals(1,cache.getHits());
+        assertEquals(2,cache.getMisses());
+        assertTrue(cache.getCompileNanos() >= 5_000_000L);
+        assertEquals("px",cache.get("Predicate","x",() -> null));
+        cache.clear();
+        cache.get("Script","x",() -> "x");
+        assertEquals(3,cache.getMisses());}
+
+    @Test
+    public void compileErrors() {
+        StringBuilder errors = new StringBuilder();
+        assertNull(Utilities.compilePredicate("return i >","Integer","i",errors));
+        assertTrue(errors.toString().startsWith("error when compiling"));
+        Predicate<Integer> predicate = Utilities.compilePredicate("return i > 5","Integer","i",errors);
+        assertTrue(predicate.test(6));
+        assertFalse(predicate.test(5));}
+
+    @Test
+    public void concurrentEvaluate() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            ArrayList<Future<Object>> results = new ArrayList<>();
+            for(int i = 0; i < 40; ++i) {
+                String code = (i % 4) + " * 2";
+                results.add(executor.submit(() -> Utilities.evaluate(code)));}
+            for(int i = 0; i < 40; ++i) {assertEquals((i % 4) * 2,results.get(i).get(10,TimeUnit.SECONDS));}}
+        finally{executor.shutdownNow();}}
+}